@@ -4,11 +4,14 @@ import reactor.core.publisher.Mono;
 
 import java.net.URI;
 import java.net.http.HttpHeaders;
+import java.util.Map;
 
 // see https://stackoverflow.com/questions/73989124/is-there-a-way-to-get-request-uri-in-spring
 public class ReactiveRequestUriContextHolder {
   public static final Class<URI> CONTEXT_URI_KEY = URI.class;
   public static final Class<HttpHeaders> CONTEXT_HEADERS_KEY = HttpHeaders.class;
+  // the attributes of the exchange, e.g. to pass information from the controller to the encoder of the response
+  public static final String CONTEXT_ATTRIBUTES_KEY = "graph.request.attributes";
 
 
   public static Mono<URI> getURI() {
@@ -18,4 +21,11 @@ public class ReactiveRequestUriContextHolder {
   public static Mono<HttpHeaders> getHeaders() {
     return Mono.deferContextual(Mono::just).map(ctx -> ctx.get(CONTEXT_HEADERS_KEY));
   }
+
+  /**
+   * @return the attributes of the exchange, empty if the response is not written for a request
+   */
+  public static Mono<Map<String, Object>> getAttributes() {
+    return Mono.deferContextual(Mono::just).map(ctx -> ctx.getOrDefault(CONTEXT_ATTRIBUTES_KEY, Map.of()));
+  }
 }
\ No newline at end of file
@@ -45,10 +45,10 @@ public class WebFluxConfiguration implements WebFluxConfigurer {
 
     public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
         configurer.customCodecs().register(new BufferedStatementsEncoder(this.schemaServices, environment));
-        configurer.customCodecs().register(new StatementsEncoder());
+        configurer.customCodecs().register(new StatementsEncoder(environment));
         configurer.customCodecs().register(new TupleQueryResultsEncoder());
-        configurer.customCodecs().register(new BindingSetEncoder());
-        configurer.customCodecs().register(new StatementsDecoder());
+        configurer.customCodecs().register(new BindingSetEncoder(environment));
+        configurer.customCodecs().register(new StatementsDecoder(environment));
     }
 
 
@@ -60,6 +60,7 @@ public class WebFluxConfiguration implements WebFluxConfigurer {
                     .contextWrite(ctx -> {
                         ctx = ctx.put(ReactiveRequestUriContextHolder.CONTEXT_URI_KEY, request.getURI());
                         ctx = ctx.put(ReactiveRequestUriContextHolder.CONTEXT_HEADERS_KEY, request.getHeaders());
+                        ctx = ctx.put(ReactiveRequestUriContextHolder.CONTEXT_ATTRIBUTES_KEY, exchange.getAttributes());
                         return ctx;
                     });
         };
@@ -3,6 +3,7 @@ package org.av360.maverick.graph.api.controller.entities;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -18,17 +19,26 @@ import org.av360.maverick.graph.model.rdf.Triples;
 import org.av360.maverick.graph.services.EntityServices;
 import org.av360.maverick.graph.services.QueryServices;
 import org.av360.maverick.graph.services.SchemaServices;
+import org.av360.maverick.graph.store.rdf.fragments.RdfEntity;
 import org.av360.maverick.graph.store.rdf.fragments.TripleModel;
+import org.av360.maverick.graph.store.rdf.helpers.EntitySummary;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.web.reactive.error.ErrorAttributes;
 import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.util.Assert;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 
 import javax.annotation.Nullable;
+import java.net.URI;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @Qualifier("EntityApi")
@@ -42,6 +52,13 @@ import java.util.Map;
 @Tag(name = "Entities")
 public class EntitiesController extends AbstractController implements EntitiesAPI {
 
+    private static final int MAX_LIST_LIMIT = 1000;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    /**
+     * The search index collects all hits up to the offset, deep pages are rejected.
+     */
+    private static final int MAX_SEARCH_OFFSET = 1000;
+
     protected final ObjectMapper objectMapper;
     protected final EntityServices entityServices;
     protected final QueryServices queryServices;
@@ -61,7 +78,7 @@ public class EntitiesController extends AbstractController implements EntitiesAP
             @ApiResponse(responseCode = "404", description = "Entity with the given identifier does not exist", content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ErrorAttributes.class))})
     })
     @GetMapping(value = "/entities/{id}",
-            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
+            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.BINARY_VALUE})
     @ResponseStatus(HttpStatus.OK)
     public Flux<AnnotatedStatement> read(@PathVariable String id, @RequestParam(required = false) @Nullable String property) {
 
@@ -75,26 +92,98 @@ public class EntitiesController extends AbstractController implements EntitiesAP
 
     }
 
+    /**
+     * Lists the entities page by page, from their summaries. The link to the next page (with the continuation token) is
+     * returned in the 'Link' header. Requests with an offset are answered by the (slower) offset based listing, which
+     * ignores the type and order.
+     */
     @Override
-    @GetMapping(value = "/entities", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
+    @Operation(summary = "Lists the entities, ordered by their identifiers or labels. The next page is linked in the 'Link' header.")
+    @GetMapping(value = "/entities", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.BINARY_VALUE})
     @ResponseStatus(HttpStatus.OK)
     public Flux<AnnotatedStatement> list(
             @RequestParam(value = "limit", defaultValue = "100") Integer limit,
-            @RequestParam(value = "offset", defaultValue = "0") Integer offset) {
+            @RequestParam(value = "offset", required = false) @Nullable @Parameter(description = "Deprecated, use the continuation token") Integer offset,
+            @RequestParam(value = "continue", required = false) @Nullable @Parameter(description = "Token for the next page, as linked in the previous response") String continuation,
+            @RequestParam(value = "type", required = false) @Nullable @Parameter(description = "Only entities with this type, as prefixed name (e.g. 'sdo.Person') or IRI") String type,
+            @RequestParam(value = "sort", required = false) @Nullable @Parameter(description = "Order of the entities, 'id' (default) or 'label'") String sort,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+        try {
+            validatePage(limit, Objects.requireNonNullElse(offset, 0), MAX_LIST_LIMIT, Integer.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(e);
+        }
+
+        if (Objects.nonNull(offset)) {
+            return super.acquireContext()
+                    .flatMapMany(ctx -> entityServices.list(limit, offset, ctx))
+                    .flatMapIterable(TripleModel::asStatements);
+        }
+
+        EntitySummary.Order order;
+        try {
+            order = EntitySummary.Order.parse(sort);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(e);
+        }
 
         return super.acquireContext()
-                .flatMapMany(ctx -> entityServices.list(limit, offset, ctx))
+                .flatMapMany(ctx -> entityServices.listSummaries(limit, continuation, type, order, ctx))
+                .collectList()
+                .doOnNext(page -> this.linkNextPage(page, limit, request, response))
+                .flatMapIterable(page -> page)
+                .filter(summary -> summary.id().isIRI())
+                .map(summary -> new RdfEntity(summary.id(), summary.asModel()))
                 .flatMapIterable(TripleModel::asStatements)
                 .doOnSubscribe(s -> {
                     if (log.isDebugEnabled()) log.debug("Request to list entities");
                 });
     }
 
+    private void linkNextPage(List<EntitySummary> page, int limit, ServerHttpRequest request, ServerHttpResponse response) {
+        if (page.isEmpty() || page.size() < limit) return;
+
+        URI next = UriComponentsBuilder.fromUri(request.getURI())
+                .replaceQueryParam("continue", page.get(page.size() - 1).position().encode())
+                .build(true)
+                .toUri();
+        response.getHeaders().add(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next));
+    }
+
+    private static void validatePage(int limit, int offset, int maxLimit, int maxOffset) {
+        if (limit < 1 || limit > maxLimit) throw new IllegalArgumentException("Limit has to be between 1 and " + maxLimit);
+        if (offset < 0 || offset > maxOffset) throw new IllegalArgumentException("Offset has to be between 0 and " + maxOffset);
+    }
+
+
+    @Override
+    @Operation(summary = "Searches entities by their labels, titles and identifiers, ordered by relevance.")
+    @GetMapping(value = "/entities/search", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    public Flux<AnnotatedStatement> search(
+            @RequestParam(value = "q") @Parameter(description = "Search terms in Lucene query syntax, e.g. 'berl*' for prefix matches") String query,
+            @RequestParam(value = "limit", defaultValue = "20") Integer limit,
+            @RequestParam(value = "offset", defaultValue = "0") Integer offset) {
+        try {
+            validatePage(limit, offset, MAX_SEARCH_LIMIT, MAX_SEARCH_OFFSET);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(e);
+        }
+
+        return super.acquireContext()
+                .flatMapMany(ctx -> entityServices.search(query, limit, offset, ctx))
+                .flatMapIterable(TripleModel::asStatements)
+                .doOnSubscribe(s -> {
+                    if (log.isDebugEnabled()) log.debug("Request to search entities with query: {}", query);
+                });
+    }
+
 
     @Override
     @PostMapping(value = "/entities",
-            consumes = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.NTRIPLES_VALUE},
-            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.NTRIPLES_VALUE})
+            consumes = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.NTRIPLES_VALUE, RdfMimeTypes.BINARY_VALUE},
+            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.NTRIPLES_VALUE, RdfMimeTypes.BINARY_VALUE})
     @ResponseStatus(HttpStatus.ACCEPTED)
     public Flux<AnnotatedStatement> create(@RequestBody Triples request) {
         Assert.isTrue(request.getModel().size() > 0, "No statements in request detected.");
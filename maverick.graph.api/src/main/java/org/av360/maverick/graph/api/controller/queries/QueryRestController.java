@@ -6,6 +6,9 @@ import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import lombok.extern.slf4j.Slf4j;
 import org.av360.maverick.graph.api.controller.AbstractController;
+import org.av360.maverick.graph.api.converter.encoder.BindingSetEncoder;
+import org.av360.maverick.graph.model.context.QueryLimits;
+import org.av360.maverick.graph.model.context.SessionContext;
 import org.av360.maverick.graph.model.enums.RepositoryType;
 import org.av360.maverick.graph.model.enums.SparqlMimeTypes;
 import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
@@ -14,20 +17,34 @@ import org.eclipse.rdf4j.query.BindingSet;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Objects;
 
 @RestController
 @RequestMapping(path = "/api/query")
 @Slf4j(topic = "graph.ctrl.queries")
 @SecurityRequirement(name = "api_key")
 public class QueryRestController extends AbstractController {
+
+    /**
+     * Response header with the maximum number of results (or statements) of the query. The results are streamed, the
+     * response does not indicate whether they have been truncated: a response with as many results as announced has
+     * been truncated (unless the query has exactly that many results).
+     */
+    public static final String MAX_RESULTS_HEADER = "X-Query-Max-Results";
+
     protected final QueryServices queryServices;
 
     public QueryRestController(QueryServices queryServices) {
         this.queryServices = queryServices;
     }
 
-    @PostMapping(value = "/select", consumes = {MediaType.TEXT_PLAIN_VALUE, SparqlMimeTypes.SPARQL_QUERY_VALUE}, produces = {SparqlMimeTypes.CSV_VALUE, SparqlMimeTypes.JSON_VALUE})
+    @PostMapping(value = "/select", consumes = {MediaType.TEXT_PLAIN_VALUE, SparqlMimeTypes.SPARQL_QUERY_VALUE}, produces = {SparqlMimeTypes.CSV_VALUE, SparqlMimeTypes.TSV_VALUE, SparqlMimeTypes.JSON_VALUE})
     @io.swagger.v3.oas.annotations.parameters.RequestBody(
             description = "Sparql Select Query",
             content = @Content(examples = {
@@ -38,30 +55,40 @@ public class QueryRestController extends AbstractController {
     @ResponseStatus(HttpStatus.OK)
     public Flux<BindingSet> queryBindingsPost(@RequestBody String query,
                                           @RequestParam(required = false, defaultValue = "entities", value = "entities") @Parameter(name = "repository", description = "The repository type in which the query should search.")
-                                          RepositoryType repositoryType) {
+                                          RepositoryType repositoryType,
+                                          @RequestParam(required = false) @Parameter(name = "timeout", description = "Maximum execution time of the query in seconds (the configured limit still applies).") @Nullable Integer timeout,
+                                          @RequestParam(required = false) @Parameter(name = "limit", description = "Maximum number of results (the configured limit still applies).") @Nullable Long limit,
+                                          ServerWebExchange exchange) {
 
         return super.acquireContext()
-                .flatMapMany(ctx -> queryServices.queryValues(query, repositoryType, ctx))
+                .map(ctx -> withLimits(ctx, timeout, limit))
+                .doOnNext(ctx -> announceMaxResults(exchange, ctx))
+                .flatMapMany(ctx -> this.exposeBindingNames(query, repositoryType, exchange, ctx).thenMany(queryServices.queryValues(query, repositoryType, ctx)))
                 .doOnSubscribe(s -> {
                     if (log.isDebugEnabled()) log.debug("Request to search graph with tuples query: {}", query);
                 });
     }
 
-    @GetMapping(value = "/select", produces = {SparqlMimeTypes.CSV_VALUE, SparqlMimeTypes.JSON_VALUE})
+    @GetMapping(value = "/select", produces = {SparqlMimeTypes.CSV_VALUE, SparqlMimeTypes.TSV_VALUE, SparqlMimeTypes.JSON_VALUE})
     @ResponseStatus(HttpStatus.OK)
     public Flux<BindingSet> queryBindingsGet(@RequestParam(required = true) String query,
                                           @RequestParam(required = false, defaultValue = "entities", value = "entities") @Parameter(name = "repository", description = "The repository type in which the query should search.")
-                                          RepositoryType repositoryType) {
+                                          RepositoryType repositoryType,
+                                          @RequestParam(required = false) @Parameter(name = "timeout", description = "Maximum execution time of the query in seconds (the configured limit still applies).") @Nullable Integer timeout,
+                                          @RequestParam(required = false) @Parameter(name = "limit", description = "Maximum number of results (the configured limit still applies).") @Nullable Long limit,
+                                          ServerWebExchange exchange) {
 
         return super.acquireContext()
-                .flatMapMany(ctx -> queryServices.queryValues(query, repositoryType, ctx))
+                .map(ctx -> withLimits(ctx, timeout, limit))
+                .doOnNext(ctx -> announceMaxResults(exchange, ctx))
+                .flatMapMany(ctx -> this.exposeBindingNames(query, repositoryType, exchange, ctx).thenMany(queryServices.queryValues(query, repositoryType, ctx)))
                 .doOnSubscribe(s -> {
                     if (log.isDebugEnabled()) log.debug("Request to search graph with tuples query: {}", query);
                 });
     }
 
 
-    @PostMapping(value = "/construct", consumes = "text/plain", produces = {"text/turtle", "application/ld+json"})
+    @PostMapping(value = "/construct", consumes = "text/plain", produces = {"text/turtle", "application/ld+json", "application/x-binary-rdf"})
     @ResponseStatus(HttpStatus.OK)
     @io.swagger.v3.oas.annotations.parameters.RequestBody(
             description = "Sparql Construct Query",
@@ -70,13 +97,48 @@ public class QueryRestController extends AbstractController {
             })
     )
     public Flux<AnnotatedStatement> queryStatements(@RequestBody String query, @RequestParam(required = false, defaultValue = "entities", value = "entities") @Parameter(name = "repository", description = "The repository type in which the query should search.")
-    RepositoryType repositoryType) {
+    RepositoryType repositoryType,
+                                                    @RequestParam(required = false) @Parameter(name = "timeout", description = "Maximum execution time of the query in seconds (the configured limit still applies).") @Nullable Integer timeout,
+                                                    @RequestParam(required = false) @Parameter(name = "limit", description = "Maximum number of statements (the configured limit still applies).") @Nullable Long limit,
+                                                    ServerWebExchange exchange) {
 
         return acquireContext()
+                .map(ctx -> withLimits(ctx, timeout, limit))
+                .doOnNext(ctx -> announceMaxResults(exchange, ctx))
                 .flatMapMany(ctx -> queryServices.queryGraph(query, repositoryType, ctx))
                 .doOnSubscribe(s -> {
                     if (log.isDebugEnabled()) log.debug("Request to search graph with construct query: {}", query);
                 });
 
     }
+
+    /**
+     * The results are streamed, the encoder writes the header with the projected variables before the first row is available.
+     */
+    private Mono<Void> exposeBindingNames(String query, RepositoryType repositoryType, ServerWebExchange exchange, SessionContext ctx) {
+        return queryServices.getBindingNames(query, repositoryType, ctx)
+                .doOnNext(names -> exchange.getAttributes().put(BindingSetEncoder.BINDING_NAMES_ATTRIBUTE, names))
+                .then();
+    }
+
+    /**
+     * The limits of the environment are restricted by the query services (with the limits of the application) before the
+     * query is evaluated, they are final once the response is committed with the first chunk of results.
+     */
+    private static void announceMaxResults(ServerWebExchange exchange, SessionContext ctx) {
+        exchange.getResponse().beforeCommit(() -> {
+            QueryLimits limits = ctx.getEnvironment().getQueryLimits();
+            if (limits.hasMaxResults()) {
+                exchange.getResponse().getHeaders().set(MAX_RESULTS_HEADER, Long.toString(limits.maxResults()));
+            }
+            return Mono.empty();
+        });
+    }
+
+    private static SessionContext withLimits(SessionContext ctx, @Nullable Integer timeout, @Nullable Long limit) {
+        if (Objects.isNull(timeout) && Objects.isNull(limit)) return ctx;
+
+        QueryLimits requested = new QueryLimits(Objects.nonNull(timeout) ? Duration.ofSeconds(timeout) : null, Objects.nonNull(limit) ? limit : 0);
+        return ctx.updateEnvironment(env -> env.setQueryLimits(env.getQueryLimits().restrict(requested)));
+    }
 }
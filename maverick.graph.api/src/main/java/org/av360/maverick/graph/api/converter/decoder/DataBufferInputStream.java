@@ -0,0 +1,163 @@
+package org.av360.maverick.graph.api.converter.decoder;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Blocking input stream over the buffers of a request body, to be read on a worker thread. The buffers are requested one
+ * by one while they are consumed (with a small prefetch), only a few of them are held in memory. Reading fails once more
+ * than the maximum number of bytes has been received.
+ */
+class DataBufferInputStream extends InputStream implements Subscriber<DataBuffer> {
+
+    private static final int PREFETCH = 4;
+    private static final Object COMPLETED = new Object();
+
+    private final BlockingQueue<Object> signals;
+    private final long maxBytes;
+    private volatile Subscription subscription;
+    private volatile boolean closed;
+    private volatile boolean exceeded;
+    private volatile long received;
+    private DataBuffer current;
+    private boolean done;
+
+    /**
+     * @param maxBytes the maximum size of the payload, or 0 for no limit
+     */
+    DataBufferInputStream(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.signals = new LinkedBlockingQueue<>();
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(PREFETCH);
+    }
+
+    @Override
+    public void onNext(DataBuffer buffer) {
+        this.received += buffer.readableByteCount();
+        if (this.maxBytes > 0 && this.received > this.maxBytes) {
+            DataBufferUtils.release(buffer);
+            this.exceeded = true;
+            this.subscription.cancel();
+            this.signals.offer(new IOException("Payload exceeds the maximum of %d bytes".formatted(this.maxBytes)));
+            return;
+        }
+
+        this.signals.offer(buffer);
+        // the reader might have closed the stream in the meantime
+        if (this.closed) this.releaseQueued();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        this.signals.offer(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        this.signals.offer(COMPLETED);
+    }
+
+    @Override
+    public int read() throws IOException {
+        DataBuffer buffer = this.next();
+        return Objects.isNull(buffer) ? -1 : buffer.read() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+
+        DataBuffer buffer = this.next();
+        if (Objects.isNull(buffer)) return -1;
+
+        int count = Math.min(length, buffer.readableByteCount());
+        buffer.read(bytes, offset, count);
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return Objects.isNull(this.current) ? 0 : this.current.readableByteCount();
+    }
+
+    /**
+     * Stops receiving the payload, a blocked reader fails.
+     */
+    void cancel() {
+        if (Objects.nonNull(this.subscription)) this.subscription.cancel();
+        this.releaseQueued();
+        this.signals.offer(new InterruptedIOException("Request has been cancelled"));
+    }
+
+    /**
+     * Has to be called by the reader, the buffers which have not been read are released.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        if (!this.done && Objects.nonNull(this.subscription)) this.subscription.cancel();
+        if (Objects.nonNull(this.current)) DataBufferUtils.release(this.current);
+        this.current = null;
+        this.releaseQueued();
+    }
+
+    boolean isExceeded() {
+        return this.exceeded;
+    }
+
+    long getReceived() {
+        return this.received;
+    }
+
+    private DataBuffer next() throws IOException {
+        while (Objects.isNull(this.current) || this.current.readableByteCount() == 0) {
+            if (Objects.nonNull(this.current)) {
+                DataBufferUtils.release(this.current);
+                this.current = null;
+            }
+            if (this.done) return null;
+
+            Object signal;
+            try {
+                signal = this.signals.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the payload");
+            }
+
+            if (signal == COMPLETED) {
+                this.done = true;
+                return null;
+            }
+            if (signal instanceof Throwable error) {
+                this.done = true;
+                throw error instanceof IOException e ? e : new IOException(error);
+            }
+
+            this.current = (DataBuffer) signal;
+            this.subscription.request(1);
+        }
+        return this.current;
+    }
+
+    private void releaseQueued() {
+        Object signal;
+        while (Objects.nonNull(signal = this.signals.poll())) {
+            if (signal instanceof DataBuffer buffer) DataBufferUtils.release(buffer);
+        }
+    }
+}
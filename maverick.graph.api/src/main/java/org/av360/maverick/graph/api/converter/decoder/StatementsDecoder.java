@@ -1,30 +1,41 @@
 package org.av360.maverick.graph.api.converter.decoder;
 
 import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.errors.requests.PayloadTooLarge;
 import org.av360.maverick.graph.model.rdf.Triples;
 import org.av360.maverick.graph.store.rdf.helpers.RdfUtils;
 import org.av360.maverick.graph.store.rdf.helpers.TriplesCollector;
+import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.helpers.RDFHandlerWrapper;
 import org.reactivestreams.Publisher;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.codec.Decoder;
+import org.springframework.core.env.Environment;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.util.MimeType;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.io.InputStream;
-import java.io.StringReader;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Parses the RDF payload of requests while it is received (without collecting it first). The size of the payload is
+ * limited by 'application.api.requests.maxPayloadSize' (in bytes) and 'application.api.requests.maxStatements', larger
+ * requests are rejected with status 413.
+ */
 @Slf4j(topic = "graph.ctrl.io.decoder")
 public class StatementsDecoder implements Decoder<Triples> {
     private static final List<MimeType> mimeTypes;
 
+    private static final long DEFAULT_MAX_PAYLOAD_SIZE = 67108864;
+    private static final long DEFAULT_MAX_STATEMENTS = 1000000;
+
     static {
         mimeTypes = List.of(
                 MimeType.valueOf(RDFFormat.JSONLD.getDefaultMIMEType()),
@@ -32,10 +43,19 @@ public class StatementsDecoder implements Decoder<Triples> {
                 MimeType.valueOf(RDFFormat.NTRIPLES.getDefaultMIMEType()),
                 MimeType.valueOf(RDFFormat.N3.getDefaultMIMEType()),
                 MimeType.valueOf(RDFFormat.TURTLE.getDefaultMIMEType()),
-                MimeType.valueOf(RDFFormat.NQUADS.getDefaultMIMEType())
+                MimeType.valueOf(RDFFormat.NQUADS.getDefaultMIMEType()),
+                MimeType.valueOf(RDFFormat.BINARY.getDefaultMIMEType())
         );
     }
 
+    private final long maxPayloadSize;
+    private final long maxStatements;
+
+    public StatementsDecoder(Environment environment) {
+        this.maxPayloadSize = environment.getProperty("application.api.requests.maxPayloadSize", Long.class, DEFAULT_MAX_PAYLOAD_SIZE);
+        this.maxStatements = environment.getProperty("application.api.requests.maxStatements", Long.class, DEFAULT_MAX_STATEMENTS);
+    }
+
     @Override
     public List<MimeType> getDecodableMimeTypes() {
         return mimeTypes;
@@ -57,27 +77,64 @@ public class StatementsDecoder implements Decoder<Triples> {
     }
 
 
+    /**
+     * The payload is parsed while it is received, the parser reads from the request buffers on a worker thread.
+     */
     private Mono<Triples> parse(Publisher<DataBuffer> publisher, MimeType mimeType) {
+        return Mono.defer(() -> {
+            DataBufferInputStream input = new DataBufferInputStream(this.maxPayloadSize);
+            publisher.subscribe(input);
 
-        return DataBufferUtils.join(publisher)
-                .flatMap(dataBuffer -> {
-                    RDFParser parser = RdfUtils.getParserFactory(mimeType).orElseThrow().getParser();
-                    TriplesCollector handler = RdfUtils.getTriplesCollector();
-
-                    try (InputStream is = dataBuffer.asInputStream(true)) {
-                        var result = new String(is.readAllBytes(), StandardCharsets.UTF_8);
-                        log.info(result);
-
-                        parser.setRDFHandler(handler);
-                        parser.parse(new StringReader(result));
-                        log.debug("Parsed payload of mimetype '{}' with {} statements", mimeType.toString(), handler.getTriples().getModel().size());
-                        return Mono.just(handler.getTriples());
-                    } catch (Exception e) {
-                        log.warn("Failed to parse request of mimetype '{}'", mimeType);
-                        return Mono.error(e);
-                    }
-                });
+            return Mono.defer(() -> this.parse(input, mimeType))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .doOnCancel(input::cancel);
+        });
     }
 
+    private Mono<Triples> parse(DataBufferInputStream input, MimeType mimeType) {
+        RDFParser parser = RdfUtils.getParserFactory(mimeType).orElseThrow().getParser();
+        TriplesCollector collector = RdfUtils.getTriplesCollector();
+        LimitedHandler handler = new LimitedHandler(collector, this.maxStatements);
 
+        try (input) {
+            parser.setRDFHandler(handler);
+            parser.parse(input);
+            log.debug("Parsed payload of mimetype '{}' with {} bytes and {} statements", mimeType.toString(), input.getReceived(), handler.count);
+            return Mono.just(collector.getTriples());
+        } catch (Exception e) {
+            if (input.isExceeded()) {
+                log.warn("Rejected request of mimetype '{}', payload exceeds the maximum of {} bytes", mimeType, this.maxPayloadSize);
+                return Mono.error(new PayloadTooLarge(this.maxPayloadSize, "bytes"));
+            }
+            if (handler.exceeded) {
+                log.warn("Rejected request of mimetype '{}', payload exceeds the maximum of {} statements", mimeType, this.maxStatements);
+                return Mono.error(new PayloadTooLarge(this.maxStatements, "statements"));
+            }
+            log.warn("Failed to parse request of mimetype '{}' after {} bytes", mimeType, input.getReceived());
+            return Mono.error(e);
+        }
+    }
+
+    /**
+     * Stops the parser once the maximum number of statements has been exceeded.
+     */
+    private static class LimitedHandler extends RDFHandlerWrapper {
+        private final long maxStatements;
+        private long count;
+        private boolean exceeded;
+
+        LimitedHandler(RDFHandler handler, long maxStatements) {
+            super(handler);
+            this.maxStatements = maxStatements;
+        }
+
+        @Override
+        public void handleStatement(Statement statement) throws RDFHandlerException {
+            if (this.maxStatements > 0 && ++this.count > this.maxStatements) {
+                this.exceeded = true;
+                throw new RDFHandlerException("Payload exceeds the maximum of %d statements".formatted(this.maxStatements));
+            }
+            super.handleStatement(statement);
+        }
+    }
 }
@@ -1,38 +1,59 @@
 package org.av360.maverick.graph.api.converter.encoder;
 
 import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.api.config.ReactiveRequestUriContextHolder;
+import org.av360.maverick.graph.model.enums.SparqlMimeTypes;
 import org.eclipse.rdf4j.query.BindingSet;
-import org.eclipse.rdf4j.query.TupleQueryResultHandlerException;
-import org.eclipse.rdf4j.query.impl.TupleQueryResultBuilder;
+import org.eclipse.rdf4j.query.QueryResultHandlerException;
 import org.eclipse.rdf4j.query.resultio.*;
 import org.reactivestreams.Publisher;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.codec.Encoder;
+import org.springframework.core.env.Environment;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
-import org.springframework.core.io.buffer.DefaultDataBuffer;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.util.Assert;
 import org.springframework.util.MimeType;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 
-import java.io.ByteArrayOutputStream;
 import java.util.List;
 import java.util.Map;
-
+import java.util.Objects;
+
+/**
+ * Streams the results of select queries: the header is written with the first row (or when the results are completed),
+ * the rows are written one by one into data buffers, which are emitted as chunks of the response once they reach the flush
+ * threshold ('application.api.responses.flushThreshold').
+ * <p>
+ * The variables of the header are taken from the exchange attribute {@link #BINDING_NAMES_ATTRIBUTE}, which is set by the
+ * controller with the projection of the parsed query. Without it, the variables bound in the first row are used.
+ */
 @Slf4j(topic = "graph.ctrl.io.encoder.bindings")
 public class BindingSetEncoder implements Encoder<BindingSet> {
+
+    public static final String BINDING_NAMES_ATTRIBUTE = BindingSetEncoder.class.getName() + ".bindingNames";
+
     private static final List<MimeType> mimeTypes;
 
+    private static final int DEFAULT_FLUSH_THRESHOLD = 32768;
+
     static {
         mimeTypes = List.of(
-                MimeType.valueOf(TupleQueryResultFormat.JSON.getDefaultMIMEType()),
-                MimeType.valueOf(TupleQueryResultFormat.CSV.getDefaultMIMEType())
+                SparqlMimeTypes.JSON,
+                SparqlMimeTypes.CSV,
+                SparqlMimeTypes.TSV
         );
     }
 
+    private final int flushThreshold;
+
+    public BindingSetEncoder(Environment environment) {
+        this.flushThreshold = environment.getProperty("application.api.responses.flushThreshold", Integer.class, DEFAULT_FLUSH_THRESHOLD);
+    }
+
 
     @Override
     public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
@@ -54,44 +75,78 @@ public class BindingSetEncoder implements Encoder<BindingSet> {
         Assert.notNull(mimeType, "No mimetype is set");
         Assert.isAssignable(BindingSet.class, elementType.toClass(), "Invalid object definition");
 
+        QueryResultFormat format = QueryResultIO.getWriterFormatForMIMEType(mimeType.getType() + "/" + mimeType.getSubtype()).orElseThrow();
+        TupleQueryResultWriterFactory writerFactory = TupleQueryResultWriterRegistry.getInstance().get(format).orElseThrow();
 
-        // this cannot be outside of flux
-
-
-        QueryResultFormat format = QueryResultIO.getParserFormatForMIMEType(mimeType.toString()).orElseThrow();
-        TupleQueryResultWriterFactory tupleQueryResultWriterFactory = TupleQueryResultWriterRegistry.getInstance().get(format).orElseThrow();
-        DefaultDataBuffer dataBuffer = new DefaultDataBufferFactory().allocateBuffer();
-        /*
-            FIXME: we don't really stream the flux, we have to rebuild the tuplequeryresultwriter
+        return ReactiveRequestUriContextHolder.getAttributes().flatMapMany(attributes -> {
+            Results results = new Results(writerFactory, bufferFactory, attributes);
 
-         */
-
-        return Flux.from(publisher)
-                .collectList()
-                .flatMapMany(bindingSetList -> {
-                    try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            return Flux.from(publisher)
+                    .doOnSubscribe(subscription -> log.debug("Writing tuple query results response with mimetype '{}'", mimeType))
+                    .map(bindings -> (BindingSet) bindings)
+                    .concatMapIterable(results::write)
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(results.end())))
+                    .onErrorMap(QueryResultHandlerException.class, e -> {
+                        log.warn("Failed to write query response of mimetype '{}'", mimeType, e);
+                        return new ResponseStatusException(HttpStatus.CONFLICT, "Failed to handle query results");
+                    })
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doFinally(signal -> {
+                        results.release();
+                        log.trace("Completed writing tuple query results response with mimetype '{}' ({})", mimeType, signal);
+                    });
+        });
+    }
 
-                        if (!bindingSetList.isEmpty()) {
-                            TupleQueryResultBuilder b = new TupleQueryResultBuilder();
-                            b.startQueryResult(bindingSetList.get(0).getBindingNames().stream().toList());
-                            bindingSetList.forEach(b::handleSolution);
-                            b.endQueryResult();
-                            QueryResultIO.writeTuple(b.getQueryResult(), format, baos);
-                        }
 
-                        return Flux.just(bufferFactory.wrap(baos.toByteArray()));
+    /**
+     * The state of one response: the results writer with its output.
+     */
+    private class Results {
+        private final ChunkedOutputStream output;
+        private final TupleQueryResultWriter writer;
+        private final Map<String, Object> attributes;
+        private boolean started;
 
+        Results(TupleQueryResultWriterFactory writerFactory, DataBufferFactory bufferFactory, Map<String, Object> attributes) {
+            this.output = new ChunkedOutputStream(bufferFactory, flushThreshold);
+            this.writer = writerFactory.getWriter(this.output);
+            this.attributes = attributes;
+        }
 
-                    } catch (TupleQueryResultHandlerException | UnsupportedQueryResultFormatException e) {
-                        log.warn("Failed to write query response of mimetype '{}'", mimeType, e);
-                        return Flux.error(new ResponseStatusException(HttpStatus.CONFLICT, "Failed to handle query results"));
-                    } catch (Exception e) {
-                        log.error("Failed to write query response of mimetype '{}'", mimeType, e);
-                        return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to write response"));
-                    }
-                });
+        /**
+         * @return the chunks completed while writing the row
+         */
+        List<DataBuffer> write(BindingSet bindings) {
+            if (!this.started) this.start(bindings.getBindingNames().stream().toList());
 
+            this.writer.handleSolution(bindings);
+            return this.output.take();
+        }
 
+        /**
+         * @return the remaining chunks of the completed results
+         */
+        List<DataBuffer> end() {
+            if (!this.started) this.start(List.of());
+
+            this.writer.endQueryResult();
+            this.output.close();
+            return this.output.take();
+        }
+
+        void release() {
+            this.output.release();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void start(List<String> bound) {
+            this.started = true;
+            Object projected = this.attributes.get(BINDING_NAMES_ATTRIBUTE);
+
+            this.writer.startDocument();
+            this.writer.startHeader();
+            this.writer.startQueryResult(Objects.nonNull(projected) ? (List<String>) projected : bound);
+        }
     }
-
 }
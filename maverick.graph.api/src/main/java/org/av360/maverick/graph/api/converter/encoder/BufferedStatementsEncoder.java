@@ -9,6 +9,8 @@ import org.av360.maverick.graph.store.rdf.helpers.RdfUtils;
 import org.eclipse.rdf4j.model.*;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.RDFWriterFactory;
 import org.eclipse.rdf4j.rio.helpers.JSONLDMode;
@@ -20,25 +22,32 @@ import org.springframework.core.codec.Encoder;
 import org.springframework.core.env.Environment;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.util.MimeType;
 import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
 
 /**
- * The buffered statements encoder is required by formats with a header (JSON-LD, Turtle) and a concise syntax. Here,
- * we need to collect all statements to print a completed document. For n-quads or similar formats, we simply dump the statements.
+ * The buffered statements encoder is required by formats with a header (JSON-LD, Turtle, TriG) and a concise syntax. The
+ * statements are written one by one into pooled data buffers, which are emitted as chunks of the response once they reach
+ * the flush threshold (configured with 'application.api.responses.flushThreshold'). The response is not collected in memory,
+ * but the writers keep their own state: the Turtle and TriG writers and the {@link JsonLdFragmentWriter} hold back the
+ * statements of the current subject (the RDF4J JSON-LD writer collects all statements until the document is completed).
+ * For n-quads or similar formats, we simply dump the statements.
+ * <p>
+ * The status and headers of the response are committed with the first chunk. A failure after the first chunk (e.g. a
+ * failing read or writer) cannot change the status anymore, the response is aborted with a truncated body. The buffers
+ * which have not been emitted yet are released when the response fails or is cancelled.
  */
 @SuppressWarnings("FieldCanBeLocal")
 @Slf4j(topic = "graph.ctrl.io.encoder.buffered")
@@ -47,30 +56,43 @@ public class BufferedStatementsEncoder implements Encoder<Statement> {
 
     private static final Map<MimeType, RDFWriterFactory> factories;
 
+    private static final int DEFAULT_FLUSH_THRESHOLD = 32768;
+
+    /**
+     * Maximum number of converted values kept per response
+     */
+    private static final int MAX_CONVERTED_VALUES = 10000;
+
     static {
         MimeType turtle = MimeType.valueOf(RDFFormat.TURTLE.getDefaultMIMEType());
         MimeType jsonld = MimeType.valueOf(RDFFormat.JSONLD.getDefaultMIMEType());
         MimeType turtlestar = MimeType.valueOf(RDFFormat.TURTLESTAR.getDefaultMIMEType());
+        MimeType trig = MimeType.valueOf(RDFFormat.TRIG.getDefaultMIMEType());
 
 
-        mimeTypes = List.of(turtle, jsonld, turtlestar);
+        mimeTypes = List.of(turtle, jsonld, turtlestar, trig);
 
         factories = Map.of(
                 turtle, RdfUtils.getWriterFactory(turtle).orElseThrow(),
                 jsonld, RdfUtils.getWriterFactory(jsonld).orElseThrow(),
-                turtlestar, RdfUtils.getWriterFactory(turtlestar).orElseThrow()
+                turtlestar, RdfUtils.getWriterFactory(turtlestar).orElseThrow(),
+                trig, RdfUtils.getWriterFactory(trig).orElseThrow()
         );
 
     }
 
     private final SchemaServices schemaServices;
     private final Environment environment;
+    private final int flushThreshold;
+    private final boolean streamingJsonLd;
 
 
     public BufferedStatementsEncoder(@Autowired SchemaServices schemaServices, @Autowired Environment environment) {
         this.schemaServices = schemaServices;
 
         this.environment = environment;
+        this.flushThreshold = environment.getProperty("application.api.responses.flushThreshold", Integer.class, DEFAULT_FLUSH_THRESHOLD);
+        this.streamingJsonLd = environment.getProperty("application.api.responses.jsonld.streaming", Boolean.class, true);
     }
 
     @Override
@@ -81,48 +103,34 @@ public class BufferedStatementsEncoder implements Encoder<Statement> {
     @Override
     public Flux<DataBuffer> encode(Publisher<? extends Statement> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
 
-        return Flux.from(inputStream)
-                .doOnSubscribe(c -> {
-                    if (log.isTraceEnabled()) {
-                        log.trace("Setting up buffered statements stream for response with mimetype '{}'", mimeType != null ? mimeType.toString() : "unset");
-                    }
-                })
-                .map(statement -> (Statement) statement)
-                // we filter out any internal statements
-                .filter(this::acceptStatement)
-                .collectList()
-                .flatMap(list ->  Mono.zip(Mono.just(list), ReactiveRequestUriContextHolder.getURI()))
-                .flatMapMany(tuple -> {
-
-                    List<Statement> statements = tuple.getT1();
-                    URI requestURI = tuple.getT2(); // we need the request to resolve the current request url
-
-                    try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-
-                        RDFWriter writer = getWriter(mimeType, baos);
-
-                        writer.startRDF();
-
-                        if(statements.size() > 0) {
-                            this.handleNamespaces(writer, statements.get(0));
-                        }
-
-                        for (Statement st : statements) {
-
-                            this.handleStatement(st, writer, requestURI);
-
-                        }
-                        writer.endRDF();
-
-                        return Flux.just(bufferFactory.wrap(baos.toByteArray()));
-                    } catch (IOException e) {
-                        log.error("Failed to write response of mimetype '{}'", mimeType.toString(), e);
-                        return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to write response"));
-                    } finally {
-                        if (log.isTraceEnabled()) {
-                            log.trace("Completed writing buffered statements response with mimetype '{}'", mimeType != null ? mimeType.toString() : "unset");
-                        }
-                    }
+        // we need the request to resolve the current request url
+        return ReactiveRequestUriContextHolder.getURI()
+                .flatMapMany(requestURI -> {
+                    Document document = new Document(mimeType, bufferFactory, requestURI);
+
+                    return Flux.from(inputStream)
+                            .doOnSubscribe(c -> {
+                                if (log.isTraceEnabled()) {
+                                    log.trace("Setting up buffered statements stream for response with mimetype '{}'", mimeType != null ? mimeType.toString() : "unset");
+                                }
+                            })
+                            .map(statement -> (Statement) statement)
+                            // we filter out any internal statements
+                            .filter(this::acceptStatement)
+                            .concatMapIterable(document::write)
+                            .concatWith(Flux.defer(() -> Flux.fromIterable(document.end())))
+                            // only changes the status if no chunk has been emitted yet, the body is truncated otherwise
+                            .onErrorMap(RDFHandlerException.class, e -> {
+                                log.error("Failed to write response of mimetype '{}'", mimeType, e);
+                                return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to write response");
+                            })
+                            .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                            .doFinally(signal -> {
+                                document.release();
+                                if (log.isTraceEnabled()) {
+                                    log.trace("Completed writing buffered statements response with mimetype '{}' ({})", mimeType != null ? mimeType.toString() : "unset", signal);
+                                }
+                            });
                 });
     }
 
@@ -137,18 +145,7 @@ public class BufferedStatementsEncoder implements Encoder<Statement> {
         return true;
     }
 
-    private void handleStatement(Statement st, RDFWriter writer, URI requestURI) {
-        SimpleValueFactory vf = SimpleValueFactory.getInstance();
-
-        Resource subject = convertLocalIRI(st.getSubject(), requestURI, vf);
-        IRI predicate = convertLocalIRI(st.getPredicate(), requestURI, vf);
-        Value object = convertLocalIRI(st.getObject(), requestURI, vf);
-
-        Statement convertedStatement = vf.createStatement(subject, predicate, object);
-        writer.handleStatement(convertedStatement);
-    }
-
-    private <T extends Value> T convertLocalIRI(T value, URI requestURI, SimpleValueFactory vf) {
+    private static <T extends Value> T convertLocalIRI(T value, URI requestURI, SimpleValueFactory vf) {
         if(value instanceof IRI iri) {
             // we ignore type definitions
             if(iri.equals(Local.Entities.TYPE_CLASSIFIER) || iri.equals(Local.Entities.TYPE_INDIVIDUAL) || iri.equals(Local.Entities.TYPE_EMBEDDED)) {
@@ -194,16 +191,6 @@ public class BufferedStatementsEncoder implements Encoder<Statement> {
                     path = parts[0];
                 }
 
-                // Fallback (probably only for Mockrequests)
-
-                    try {
-                        if(requestURI.toString().startsWith("/")) {
-                            requestURI = new URI("http://example.com%s".formatted(requestURI));
-                        }
-                    } catch (URISyntaxException e) {
-                        throw new RuntimeException(e);
-                    }
-
                 String uri = UriComponentsBuilder.fromUri(requestURI).replacePath(path).replaceQuery("").build().toUriString();
                 return (T) vf.createIRI(uri);
             }
@@ -219,7 +206,16 @@ public class BufferedStatementsEncoder implements Encoder<Statement> {
     }
 
 
-    private RDFWriter getWriter(MimeType mimeType, OutputStream out) {
+    /**
+     * JSON-LD is written with the streaming {@link JsonLdFragmentWriter}, unless the RDF4J writer (with hierarchical
+     * objects) is configured with 'application.api.responses.jsonld.streaming: false'.
+     */
+    private RDFHandler getHandler(MimeType mimeType, OutputStream out) {
+        if (this.streamingJsonLd && mimeType.equals(RdfMimeTypes.JSONLD)) return new JsonLdFragmentWriter(out);
+        return getWriter(mimeType, out);
+    }
+
+    private static RDFWriter getWriter(MimeType mimeType, OutputStream out) {
         RDFWriter writer = factories.get(mimeType).getWriter(out);
 
         if(mimeType.equals(RdfMimeTypes.JSONLD)) {
@@ -238,23 +234,105 @@ public class BufferedStatementsEncoder implements Encoder<Statement> {
 
 
 
-    private boolean handleNamespaces(RDFWriter writer, Statement statement) {
+    /**
+     * @return the namespaces to declare in the response, the namespaces are taken from the first statement
+     */
+    private static List<Namespace> getNamespaces(Statement statement) {
         if (NamespaceAware.class.isAssignableFrom(statement.getClass())) {
-            Set<Namespace> namespaces = ((NamespaceAware) statement).getNamespaces();
-
-            namespaces.forEach(ns -> {
-                // local URNs are ignored by default
-                if(ns.getName().startsWith("urn:pwid:eg:")) return;
-
-                writer.handleNamespace(ns.getPrefix(), ns.getName());
-            });
-            return true;
+            return ((NamespaceAware) statement).getNamespaces().stream()
+                    // local URNs are ignored by default
+                    .filter(ns -> !ns.getName().startsWith("urn:pwid:eg:"))
+                    .toList();
         }
-        return false;
+        return List.of();
     }
 
     @Override
     public List<MimeType> getEncodableMimeTypes() {
         return mimeTypes;
     }
+
+
+    /**
+     * The state of one response: the writer with its output, and the values converted for the request url.
+     */
+    private class Document {
+        private final ChunkedOutputStream output;
+        private final RDFHandler writer;
+        private final URI requestURI;
+        private final Map<Value, Value> converted;
+        private final SimpleValueFactory vf;
+        private boolean started;
+
+        Document(MimeType mimeType, DataBufferFactory bufferFactory, URI requestURI) {
+            this.output = new ChunkedOutputStream(bufferFactory, flushThreshold);
+            this.writer = getHandler(mimeType, this.output);
+            this.requestURI = absolute(requestURI);
+            this.converted = new HashMap<>();
+            this.vf = SimpleValueFactory.getInstance();
+        }
+
+        /**
+         * @return the chunks completed while writing the statement
+         */
+        List<DataBuffer> write(Statement statement) {
+            if (!this.started) this.start(getNamespaces(statement));
+
+            Resource subject = this.convert(statement.getSubject());
+            IRI predicate = this.convert(statement.getPredicate());
+            Value object = this.convert(statement.getObject());
+
+            this.writer.handleStatement(this.vf.createStatement(subject, predicate, object));
+            return this.output.take();
+        }
+
+        /**
+         * @return the remaining chunks of the completed document
+         */
+        List<DataBuffer> end() {
+            if (!this.started) this.start(List.of());
+
+            this.writer.endRDF();
+            this.output.close();
+            return this.output.take();
+        }
+
+        void release() {
+            this.output.release();
+        }
+
+        private void start(List<Namespace> namespaces) {
+            this.started = true;
+            this.writer.startRDF();
+            namespaces.forEach(ns -> this.writer.handleNamespace(ns.getPrefix(), ns.getName()));
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends Value> T convert(T value) {
+            // the literals are checked directly (most of them are not converted anyway)
+            if (!(value instanceof IRI)) return convertLocalIRI(value, this.requestURI, this.vf);
+
+            Value result = this.converted.get(value);
+            if (Objects.isNull(result)) {
+                if (this.converted.size() >= MAX_CONVERTED_VALUES) this.converted.clear();
+                result = convertLocalIRI(value, this.requestURI, this.vf);
+                this.converted.put(value, result);
+            }
+            return (T) result;
+        }
+
+        /**
+         * Fallback (probably only for Mockrequests)
+         */
+        private static URI absolute(URI requestURI) {
+            try {
+                if (requestURI.toString().startsWith("/")) {
+                    return new URI("http://example.com%s".formatted(requestURI));
+                }
+                return requestURI;
+            } catch (URISyntaxException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
 }
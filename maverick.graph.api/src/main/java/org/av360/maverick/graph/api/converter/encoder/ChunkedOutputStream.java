@@ -0,0 +1,95 @@
+package org.av360.maverick.graph.api.converter.encoder;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Output stream writing into data buffers allocated from the buffer factory of the response (pooled buffers with netty).
+ * A buffer is completed once it holds the threshold of bytes, the encoder takes the completed buffers and emits them as
+ * chunks of the response. Buffers which have not been taken are released with {@link #release()}.
+ */
+class ChunkedOutputStream extends OutputStream {
+
+    private final DataBufferFactory bufferFactory;
+    private final int threshold;
+    private final List<DataBuffer> completed;
+    private DataBuffer current;
+    private boolean released;
+
+    ChunkedOutputStream(DataBufferFactory bufferFactory, int threshold) {
+        this.bufferFactory = bufferFactory;
+        this.threshold = Math.max(threshold, 1);
+        this.completed = new ArrayList<>();
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        this.current().write((byte) b);
+        if (this.current.readableByteCount() >= this.threshold) this.complete();
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        while (length > 0) {
+            DataBuffer buffer = this.current();
+            int count = Math.min(length, this.threshold - buffer.readableByteCount());
+            buffer.write(bytes, offset, count);
+            offset += count;
+            length -= count;
+            if (buffer.readableByteCount() >= this.threshold) this.complete();
+        }
+    }
+
+    /**
+     * @return the completed buffers, which are now owned by the caller
+     */
+    synchronized List<DataBuffer> take() {
+        if (this.completed.isEmpty()) return List.of();
+
+        List<DataBuffer> chunks = new ArrayList<>(this.completed);
+        this.completed.clear();
+        return chunks;
+    }
+
+    /**
+     * Completes the current buffer (even if below the threshold).
+     */
+    @Override
+    public synchronized void close() {
+        if (Objects.isNull(this.current)) return;
+
+        if (this.current.readableByteCount() > 0) this.complete();
+        else {
+            DataBufferUtils.release(this.current);
+            this.current = null;
+        }
+    }
+
+    /**
+     * Releases all buffers which have not been taken (e.g. if the response has been cancelled).
+     */
+    synchronized void release() {
+        this.released = true;
+        this.completed.forEach(DataBufferUtils::release);
+        this.completed.clear();
+        if (Objects.nonNull(this.current)) DataBufferUtils.release(this.current);
+        this.current = null;
+    }
+
+    private DataBuffer current() {
+        if (this.released) throw new IllegalStateException("Output has been released");
+        if (Objects.isNull(this.current)) this.current = this.bufferFactory.allocateBuffer(this.threshold);
+        return this.current;
+    }
+
+    private void complete() {
+        this.completed.add(this.current);
+        this.current = null;
+    }
+}
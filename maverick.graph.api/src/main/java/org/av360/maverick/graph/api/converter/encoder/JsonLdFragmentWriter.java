@@ -0,0 +1,266 @@
+package org.av360.maverick.graph.api.converter.encoder;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.eclipse.rdf4j.model.*;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+
+/**
+ * Streaming JSON-LD writer for the fragments returned by the API. The statements are expected to be grouped by subject (as
+ * in entities and fragments): the statements of a subject are written as one node object once the next subject starts.
+ * The namespaces handled before the first statement are written as compact context, IRIs within these namespaces are
+ * written as compact IRIs. Strings, booleans and integers are written as native JSON values.
+ * <p>
+ * Unlike the RDF4J writer, this writer does not build a document model and does not nest objects: blank nodes are
+ * referenced by their identifiers. A single node is written as the document itself, several nodes are written into
+ * '@graph'. Statements in named graphs are written as if they were in the default graph.
+ */
+class JsonLdFragmentWriter implements RDFHandler {
+
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    /**
+     * Namespaces are only used as prefixes if they end with one of these characters (see the prefix flag of JSON-LD 1.1)
+     */
+    private static final String GEN_DELIMS = ":/?#[]@";
+
+    private final OutputStream out;
+    private final Map<String, String> prefixes;
+    private final Map<String, Optional<Map.Entry<String, String>>> prefixByNamespace;
+    private JsonGenerator generator;
+    private Node current;
+    private Node single;
+    private int nodes;
+
+    JsonLdFragmentWriter(OutputStream out) {
+        this.out = out;
+        this.prefixes = new LinkedHashMap<>();
+        this.prefixByNamespace = new HashMap<>();
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+        try {
+            this.generator = jsonFactory.createGenerator(this.out, JsonEncoding.UTF8);
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    @Override
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+        if (this.nodes > 0 || this.current != null) return;
+        if (prefix.isEmpty() || prefix.equals("_") || uri.isEmpty() || GEN_DELIMS.indexOf(uri.charAt(uri.length() - 1)) < 0) return;
+
+        this.prefixes.put(prefix, uri);
+    }
+
+    @Override
+    public void handleStatement(Statement statement) throws RDFHandlerException {
+        try {
+            if (Objects.isNull(this.current)) {
+                if (this.nodes == 0) this.writeContext();
+                this.current = new Node(statement.getSubject());
+            } else if (!this.current.subject.equals(statement.getSubject())) {
+                this.complete(this.current);
+                this.current = new Node(statement.getSubject());
+            }
+            this.current.add(statement);
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        try {
+            if (Objects.isNull(this.current) && this.nodes == 0) {
+                this.writeContext();
+            }
+            if (Objects.nonNull(this.current)) {
+                this.complete(this.current);
+                this.current = null;
+            }
+
+            if (this.nodes == 1) {
+                this.writeFields(this.single);
+                this.single = null;
+            } else if (this.nodes > 1) {
+                this.generator.writeEndArray();
+            }
+            this.generator.writeEndObject();
+            this.generator.close();
+        } catch (IOException e) {
+            throw new RDFHandlerException(e);
+        }
+    }
+
+    @Override
+    public void handleComment(String comment) {
+
+    }
+
+    private void writeContext() throws IOException {
+        this.generator.writeStartObject();
+        if (this.prefixes.isEmpty()) return;
+
+        this.generator.writeObjectFieldStart("@context");
+        for (Map.Entry<String, String> prefix : this.prefixes.entrySet()) {
+            this.generator.writeStringField(prefix.getKey(), prefix.getValue());
+        }
+        this.generator.writeEndObject();
+    }
+
+    /**
+     * The first node is held back: a single node is written as the document itself, otherwise the nodes are written into '@graph'.
+     */
+    private void complete(Node node) throws IOException {
+        this.nodes++;
+        if (this.nodes == 1) {
+            this.single = node;
+            return;
+        }
+
+        if (this.nodes == 2) {
+            this.generator.writeArrayFieldStart("@graph");
+            this.writeNode(this.single);
+            this.single = null;
+        }
+        this.writeNode(node);
+        this.generator.flush();
+    }
+
+    private void writeNode(Node node) throws IOException {
+        this.generator.writeStartObject();
+        this.writeFields(node);
+        this.generator.writeEndObject();
+    }
+
+    private void writeFields(Node node) throws IOException {
+        this.generator.writeStringField("@id", this.id(node.subject));
+
+        if (!node.types.isEmpty()) {
+            this.generator.writeFieldName("@type");
+            if (node.types.size() == 1) {
+                this.generator.writeString(this.compact(node.types.get(0)));
+            } else {
+                this.generator.writeStartArray();
+                for (IRI type : node.types) this.generator.writeString(this.compact(type));
+                this.generator.writeEndArray();
+            }
+        }
+
+        for (Map.Entry<IRI, Set<Value>> property : node.properties.entrySet()) {
+            this.generator.writeFieldName(this.compact(property.getKey()));
+            Set<Value> values = property.getValue();
+            if (values.size() == 1) {
+                this.writeValue(values.iterator().next());
+            } else {
+                this.generator.writeStartArray();
+                for (Value value : values) this.writeValue(value);
+                this.generator.writeEndArray();
+            }
+        }
+    }
+
+    private void writeValue(Value value) throws IOException {
+        if (value instanceof Literal literal) {
+            this.writeLiteral(literal);
+        } else if (value instanceof Resource resource && !resource.isTriple()) {
+            this.generator.writeStartObject();
+            this.generator.writeStringField("@id", this.id(resource));
+            this.generator.writeEndObject();
+        } else {
+            throw new RDFHandlerException("Unsupported value in JSON-LD: " + value);
+        }
+    }
+
+    private void writeLiteral(Literal literal) throws IOException {
+        IRI datatype = literal.getDatatype();
+        String label = literal.getLabel();
+
+        if (literal.getLanguage().isPresent()) {
+            this.generator.writeStartObject();
+            this.generator.writeStringField("@value", label);
+            this.generator.writeStringField("@language", literal.getLanguage().get());
+            this.generator.writeEndObject();
+        } else if (XSD.STRING.equals(datatype)) {
+            this.generator.writeString(label);
+        } else if (XSD.BOOLEAN.equals(datatype) && (label.equals("true") || label.equals("false"))) {
+            this.generator.writeBoolean(Boolean.parseBoolean(label));
+        } else if (XSD.INTEGER.equals(datatype) && isCanonicalLong(label)) {
+            this.generator.writeNumber(Long.parseLong(label));
+        } else {
+            this.generator.writeStartObject();
+            this.generator.writeStringField("@value", label);
+            this.generator.writeStringField("@type", this.compact(datatype));
+            this.generator.writeEndObject();
+        }
+    }
+
+    private String id(Resource resource) {
+        if (resource instanceof BNode bnode) return "_:" + bnode.getID();
+        if (resource.isTriple()) throw new RDFHandlerException("Unsupported value in JSON-LD: " + resource);
+        return this.compact((IRI) resource);
+    }
+
+    /**
+     * @return the compact IRI (if the namespace has a prefix), or the IRI
+     */
+    private String compact(IRI iri) {
+        String value = iri.stringValue();
+        Optional<Map.Entry<String, String>> prefix = this.prefixByNamespace.computeIfAbsent(iri.getNamespace(), this::findPrefix);
+        if (prefix.isEmpty()) return value;
+
+        String local = value.substring(prefix.get().getValue().length());
+        if (local.isEmpty() || local.startsWith("//")) return value;
+        return prefix.get().getKey() + ":" + local;
+    }
+
+    /**
+     * @return the prefix with the longest namespace the given namespace starts with
+     */
+    private Optional<Map.Entry<String, String>> findPrefix(String namespace) {
+        return this.prefixes.entrySet().stream()
+                .filter(prefix -> namespace.startsWith(prefix.getValue()))
+                .max(Comparator.comparingInt(prefix -> prefix.getValue().length()));
+    }
+
+    private static boolean isCanonicalLong(String label) {
+        try {
+            return Long.toString(Long.parseLong(label)).equals(label);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+
+    private static class Node {
+        private final Resource subject;
+        private final List<IRI> types;
+        private final Map<IRI, Set<Value>> properties;
+
+        Node(Resource subject) {
+            this.subject = subject;
+            this.types = new ArrayList<>(2);
+            this.properties = new LinkedHashMap<>();
+        }
+
+        void add(Statement statement) {
+            if (statement.getPredicate().equals(RDF.TYPE) && statement.getObject() instanceof IRI type) {
+                if (!this.types.contains(type)) this.types.add(type);
+                return;
+            }
+
+            this.properties.computeIfAbsent(statement.getPredicate(), p -> new LinkedHashSet<>(2)).add(statement.getObject());
+        }
+    }
+}
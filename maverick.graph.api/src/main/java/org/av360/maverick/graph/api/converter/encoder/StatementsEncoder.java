@@ -5,41 +5,53 @@ import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
 import org.av360.maverick.graph.store.rdf.helpers.RdfUtils;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.eclipse.rdf4j.rio.RDFWriter;
-import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.RDFWriterFactory;
 import org.reactivestreams.Publisher;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.codec.Encoder;
+import org.springframework.core.env.Environment;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.HttpStatus;
 import org.springframework.util.MimeType;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
 /**
- * The buffered statements encoder is required by formats with a header (JSON-LD, Turtle) and a concise syntax. Here,
- * we need to collect all statements to print a completed document. For n-quads or similar formats, we simply dump the statements.
+ * Streams the statements for formats without a header and without a concise syntax (n-quads and similar formats, and the
+ * binary RDF format for clients which consume the statements as they are). One writer is used for the whole response, it
+ * writes into data buffers which are emitted as chunks of the response once they reach the flush threshold
+ * ('application.api.responses.flushThreshold'). Local identifiers are not converted into URLs.
  */
 @Slf4j(topic = "graph.ctrl.io.encoder.streaming")
 public class StatementsEncoder implements Encoder<AnnotatedStatement> {
     private static final List<MimeType> mimeTypes;
 
+    private static final int DEFAULT_FLUSH_THRESHOLD = 32768;
+
 
     static {
         mimeTypes = List.of(
                 MimeType.valueOf(RDFFormat.RDFJSON.getDefaultMIMEType()),
                 MimeType.valueOf(RDFFormat.NTRIPLES.getDefaultMIMEType()),
                 MimeType.valueOf(RDFFormat.N3.getDefaultMIMEType()),
-                MimeType.valueOf(RDFFormat.NQUADS.getDefaultMIMEType())
+                MimeType.valueOf(RDFFormat.NQUADS.getDefaultMIMEType()),
+                MimeType.valueOf(RDFFormat.BINARY.getDefaultMIMEType())
         );
     }
 
+    private final int flushThreshold;
+
+    public StatementsEncoder(Environment environment) {
+        this.flushThreshold = environment.getProperty("application.api.responses.flushThreshold", Integer.class, DEFAULT_FLUSH_THRESHOLD);
+    }
+
 
     @Override
     public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
@@ -48,26 +60,35 @@ public class StatementsEncoder implements Encoder<AnnotatedStatement> {
 
     @Override
     public Flux<DataBuffer> encode(Publisher<? extends AnnotatedStatement> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType, MimeType mimeType, Map<String, Object> hints) {
+        RDFWriterFactory writerFactory = RdfUtils.getWriterFactory(mimeType).orElseThrow();
 
+        return Flux.defer(() -> {
+            ChunkedOutputStream output = new ChunkedOutputStream(bufferFactory, this.flushThreshold);
+            RDFWriter writer = writerFactory.getWriter(output);
+            writer.startRDF();
 
-        return Flux
-                .from(inputStream)
-                .doOnSubscribe(c -> log.debug("Trying to write statements stream response with mimetype '{}'", mimeType != null ? mimeType.toString() : "unset"))
-                .map(namespaceAwareStatement -> (Statement) namespaceAwareStatement)
-                .buffer(50)
-                .flatMap(statements -> {
-                    try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-                        RDFWriter writer = RdfUtils.getWriterFactory(mimeType).orElseThrow().getWriter(baos);
-                        Rio.write(statements, writer);
-                        return Flux.just(bufferFactory.wrap(baos.toByteArray()));
-                    } catch (IOException e) {
-                        log.error("Failed to write response of mimetype '{}'", mimeType.toString(), e);
-                        return Flux.error(new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to write response"));
-                    } finally {
-                        log.trace("Completed writing statements stream response with mimetype '{}'", mimeType != null ? mimeType.toString() : "unset");
-                    }
-
-                });
+            return Flux.from(inputStream)
+                    .doOnSubscribe(c -> log.debug("Trying to write statements stream response with mimetype '{}'", mimeType != null ? mimeType.toString() : "unset"))
+                    .map(namespaceAwareStatement -> (Statement) namespaceAwareStatement)
+                    .concatMapIterable(statement -> {
+                        writer.handleStatement(statement);
+                        return output.take();
+                    })
+                    .concatWith(Flux.defer(() -> {
+                        writer.endRDF();
+                        output.close();
+                        return Flux.fromIterable(output.take());
+                    }))
+                    .onErrorMap(RDFHandlerException.class, e -> {
+                        log.error("Failed to write response of mimetype '{}'", mimeType, e);
+                        return new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to write response");
+                    })
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doFinally(signal -> {
+                        output.release();
+                        log.trace("Completed writing statements stream response with mimetype '{}' ({})", mimeType != null ? mimeType.toString() : "unset", signal);
+                    });
+        });
     }
 
     @Override
@@ -1,11 +1,17 @@
 package org.av360.maverick.graph.api;
 import org.av360.maverick.graph.api.entities.ListEntities;
+import org.av360.maverick.graph.api.entities.SearchEntities;
+import org.av360.maverick.graph.api.entities.formats.CreateEntitiesInBinaryTests;
 import org.av360.maverick.graph.api.entities.formats.CreateEntitiesInJsonLDTests;
 import org.av360.maverick.graph.api.entities.formats.CreateEntitiesInTurtleTests;
 import org.av360.maverick.graph.api.entities.links.CreateLinksTests;
 import org.av360.maverick.graph.api.entities.links.RemoveLinkTests;
 import org.av360.maverick.graph.api.entities.values.CreateValuesTest;
 import org.av360.maverick.graph.api.entities.values.RemoveValuesTest;
+import org.av360.maverick.graph.api.query.QueryLimitsTests;
+import org.av360.maverick.graph.api.query.QueryTestsImpl;
+import org.av360.maverick.graph.api.store.ImportResumeTests;
+import org.av360.maverick.graph.api.store.ParallelLineParserTests;
 import org.junit.platform.suite.api.SelectClasses;
 import org.junit.platform.suite.api.Suite;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -13,6 +19,6 @@ import org.springframework.boot.test.context.SpringBootTest;
 
 @Suite
 @SpringBootTest
-@SelectClasses({CreateEntitiesInJsonLDTests.class, CreateEntitiesInTurtleTests.class, CreateLinksTests.class, RemoveLinkTests.class, CreateValuesTest.class, RemoveValuesTest.class, ListEntities.class})
+@SelectClasses({CreateEntitiesInJsonLDTests.class, CreateEntitiesInTurtleTests.class, CreateEntitiesInBinaryTests.class, CreateLinksTests.class, RemoveLinkTests.class, CreateValuesTest.class, RemoveValuesTest.class, ListEntities.class, SearchEntities.class, QueryTestsImpl.class, QueryLimitsTests.class, ImportResumeTests.class, ParallelLineParserTests.class})
 public class TestSuite {
 }
@@ -0,0 +1,45 @@
+package org.av360.maverick.graph.api.converter;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Buffer factory of the tests for the encoders and decoders, which keeps the allocated buffers to check whether all of
+ * them have been released.
+ */
+public class TrackingBufferFactory extends NettyDataBufferFactory {
+
+    private final List<NettyDataBuffer> allocated;
+
+    public TrackingBufferFactory() {
+        super(UnpooledByteBufAllocator.DEFAULT);
+        this.allocated = new CopyOnWriteArrayList<>();
+    }
+
+    @Override
+    public NettyDataBuffer allocateBuffer(int initialCapacity) {
+        return this.track(super.allocateBuffer(initialCapacity));
+    }
+
+    @Override
+    public NettyDataBuffer wrap(byte[] bytes) {
+        return this.track(super.wrap(bytes));
+    }
+
+    public int countAllocated() {
+        return this.allocated.size();
+    }
+
+    public long countUnreleased() {
+        return this.allocated.stream().filter(buffer -> buffer.getNativeBuffer().refCnt() > 0).count();
+    }
+
+    private NettyDataBuffer track(NettyDataBuffer buffer) {
+        this.allocated.add(buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,160 @@
+package org.av360.maverick.graph.api.converter.decoder;
+
+import org.av360.maverick.graph.api.converter.TrackingBufferFactory;
+import org.av360.maverick.graph.model.enums.RdfMimeTypes;
+import org.av360.maverick.graph.model.errors.requests.PayloadTooLarge;
+import org.av360.maverick.graph.model.rdf.Triples;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.util.MimeType;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class StatementsDecoderTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    @Test
+    public void chunkedTurtleIsParsed() {
+        this.assertParsed(RdfMimeTypes.TURTLE, RDFFormat.TURTLE);
+    }
+
+    @Test
+    public void chunkedBinaryIsParsed() {
+        this.assertParsed(RdfMimeTypes.BINARY, RDFFormat.BINARY);
+    }
+
+    @Test
+    public void payloadExceedingMaxSizeIsRejected() {
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+        byte[] payload = serialize(model(100), RDFFormat.TURTLE);
+
+        Mono<Triples> result = this.decode(chunks(payload, 64, bufferFactory), RdfMimeTypes.TURTLE, 1024, 0);
+
+        StepVerifier.create(result)
+                .expectErrorSatisfies(error -> assertPayloadTooLarge(error, "bytes"))
+                .verify(Duration.ofSeconds(10));
+        Assertions.assertTrue(bufferFactory.countAllocated() < payload.length / 64, "payload has been received after the maximum was exceeded");
+        Assertions.assertEquals(0, bufferFactory.countUnreleased(), "buffers have not been released after the payload was rejected");
+    }
+
+    @Test
+    public void payloadExceedingMaxStatementsIsRejected() {
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+        byte[] payload = serialize(model(100), RDFFormat.TURTLE);
+
+        Mono<Triples> result = this.decode(chunks(payload, 64, bufferFactory), RdfMimeTypes.TURTLE, 0, 10);
+
+        StepVerifier.create(result)
+                .expectErrorSatisfies(error -> assertPayloadTooLarge(error, "statements"))
+                .verify(Duration.ofSeconds(10));
+        Assertions.assertEquals(0, bufferFactory.countUnreleased(), "buffers have not been released after the payload was rejected");
+    }
+
+    /**
+     * The client stops sending the body, the parser is blocked waiting for the next buffer until the request is cancelled.
+     */
+    @Test
+    public void cancelledRequestReleasesBuffers() throws InterruptedException {
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+        byte[] payload = serialize(model(100), RDFFormat.TURTLE);
+        AtomicBoolean cancelled = new AtomicBoolean(false);
+
+        Flux<DataBuffer> incomplete = chunks(Arrays.copyOf(payload, 64 * 8), 64, bufferFactory)
+                .concatWith(Flux.never())
+                .doOnCancel(() -> cancelled.set(true));
+        Disposable request = this.decode(incomplete, RdfMimeTypes.TURTLE, 0, 0).subscribe();
+
+        for (int i = 0; i < 50 && bufferFactory.countAllocated() < 8; i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(8, bufferFactory.countAllocated());
+
+        request.dispose();
+        for (int i = 0; i < 50 && bufferFactory.countUnreleased() > 0; i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertTrue(cancelled.get(), "receiving the payload has not been cancelled");
+        Assertions.assertEquals(0, bufferFactory.countUnreleased(), "buffers have not been released after the request was cancelled");
+    }
+
+    private void assertParsed(MimeType mimeType, RDFFormat format) {
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+        Model model = model(100);
+        byte[] payload = serialize(model, format);
+
+        Triples triples = this.decode(chunks(payload, 64, bufferFactory), mimeType, 0, 0).block(Duration.ofSeconds(10));
+
+        Assertions.assertNotNull(triples);
+        Assertions.assertTrue(bufferFactory.countAllocated() > 1, "payload has not been split");
+        Assertions.assertTrue(Models.isomorphic(model, triples.getModel()));
+        Assertions.assertEquals(0, bufferFactory.countUnreleased());
+    }
+
+    /**
+     * @param maxPayloadSize maximum number of bytes, or 0 for no limit
+     * @param maxStatements maximum number of statements, or 0 for no limit
+     */
+    private Mono<Triples> decode(Flux<DataBuffer> body, MimeType mimeType, long maxPayloadSize, long maxStatements) {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("application.api.requests.maxPayloadSize", String.valueOf(maxPayloadSize))
+                .withProperty("application.api.requests.maxStatements", String.valueOf(maxStatements));
+        StatementsDecoder decoder = new StatementsDecoder(environment);
+
+        Assertions.assertTrue(decoder.canDecode(ResolvableType.forClass(Triples.class), mimeType));
+        return decoder.decodeToMono(body, ResolvableType.forClass(Triples.class), mimeType, Map.of());
+    }
+
+    private static void assertPayloadTooLarge(Throwable error, String unit) {
+        PayloadTooLarge payloadTooLarge = Assertions.assertInstanceOf(PayloadTooLarge.class, error);
+        Assertions.assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, payloadTooLarge.getStatusCode());
+        Assertions.assertTrue(payloadTooLarge.getMessage().endsWith(unit + "."), payloadTooLarge.getMessage());
+    }
+
+    /**
+     * The buffers are allocated while they are requested, as they would be received by the server.
+     */
+    private static Flux<DataBuffer> chunks(byte[] payload, int size, TrackingBufferFactory bufferFactory) {
+        return Flux.range(0, (payload.length + size - 1) / size)
+                .map(i -> bufferFactory.wrap(Arrays.copyOfRange(payload, i * size, Math.min(payload.length, (i + 1) * size))));
+    }
+
+    private static byte[] serialize(Model model, RDFFormat format) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Rio.write(model, output, format);
+        return output.toByteArray();
+    }
+
+    private static Model model(int entities) {
+        Model model = new LinkedHashModel();
+        for (int i = 0; i < entities; i++) {
+            IRI video = vf.createIRI("http://example.com/videos/" + i);
+            model.add(video, RDF.TYPE, SDO.VIDEO_OBJECT);
+            model.add(video, SDO.TITLE, vf.createLiteral("Video " + i));
+            model.add(video, SDO.IDENTIFIER, vf.createLiteral(i));
+        }
+        return model;
+    }
+}
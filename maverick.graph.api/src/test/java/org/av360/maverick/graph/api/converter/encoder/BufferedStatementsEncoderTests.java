@@ -0,0 +1,127 @@
+package org.av360.maverick.graph.api.converter.encoder;
+
+import org.av360.maverick.graph.api.config.ReactiveRequestUriContextHolder;
+import org.av360.maverick.graph.api.converter.TrackingBufferFactory;
+import org.av360.maverick.graph.model.enums.RdfMimeTypes;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class BufferedStatementsEncoderTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    @Test
+    public void chunkedTurtleIsReassembled() throws IOException {
+        this.assertReassembled(RdfMimeTypes.TURTLE, RDFFormat.TURTLE);
+    }
+
+    @Test
+    public void chunkedJsonLdIsReassembled() throws IOException {
+        this.assertReassembled(RdfMimeTypes.JSONLD, RDFFormat.JSONLD);
+    }
+
+    @Test
+    public void buffersAreReleasedOnCancel() {
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+
+        List<DataBuffer> chunks = this.encode(Flux.fromIterable(model(200)), RdfMimeTypes.TURTLE, bufferFactory, 64)
+                .take(2)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        Assertions.assertEquals(2, chunks.size());
+        chunks.forEach(DataBufferUtils::release);
+
+        Assertions.assertTrue(bufferFactory.countAllocated() > 2);
+        Assertions.assertEquals(0, bufferFactory.countUnreleased(), "buffers have not been released after cancelling the response");
+    }
+
+    /**
+     * The status of the response has been committed with the first chunk, a failure truncates the body.
+     */
+    @Test
+    public void buffersAreReleasedOnError() {
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+        List<DataBuffer> emitted = new CopyOnWriteArrayList<>();
+
+        Flux<Statement> failing = Flux.fromIterable(model(200)).concatWith(Flux.error(new IllegalStateException("Failed to read statements")));
+        Assertions.assertThrows(IllegalStateException.class, () -> this.encode(failing, RdfMimeTypes.TURTLE, bufferFactory, 64)
+                .doOnNext(emitted::add)
+                .blockLast(Duration.ofSeconds(10)));
+        emitted.forEach(DataBufferUtils::release);
+
+        Assertions.assertFalse(emitted.isEmpty(), "no chunks have been emitted before the failure");
+        Assertions.assertEquals(0, bufferFactory.countUnreleased(), "buffers have not been released after the failure");
+    }
+
+    private void assertReassembled(MimeType mimeType, RDFFormat format) throws IOException {
+        Model model = model(100);
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+
+        List<DataBuffer> chunks = this.encode(Flux.fromIterable(model), mimeType, bufferFactory, 64).collectList().block(Duration.ofSeconds(10));
+        Assertions.assertTrue(chunks.size() > 1, "response has not been chunked");
+        byte[] chunked = join(chunks);
+
+        List<DataBuffer> single = this.encode(Flux.fromIterable(model), mimeType, bufferFactory, 1024 * 1024).collectList().block(Duration.ofSeconds(10));
+        Assertions.assertEquals(1, single.size());
+
+        Assertions.assertArrayEquals(join(single), chunked);
+        Assertions.assertTrue(Models.isomorphic(model, Rio.parse(new ByteArrayInputStream(chunked), format)));
+        Assertions.assertEquals(0, bufferFactory.countUnreleased());
+    }
+
+    private Flux<DataBuffer> encode(Flux<Statement> statements, MimeType mimeType, TrackingBufferFactory bufferFactory, int flushThreshold) {
+        MockEnvironment environment = new MockEnvironment().withProperty("application.api.responses.flushThreshold", String.valueOf(flushThreshold));
+        BufferedStatementsEncoder encoder = new BufferedStatementsEncoder(null, environment);
+
+        return encoder.encode(statements, bufferFactory, ResolvableType.forClass(Statement.class), mimeType, Map.of())
+                .contextWrite(ctx -> ctx.put(ReactiveRequestUriContextHolder.CONTEXT_URI_KEY, URI.create("http://example.com/api/entities")));
+    }
+
+    private static byte[] join(List<DataBuffer> chunks) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for (DataBuffer chunk : chunks) {
+            byte[] bytes = new byte[chunk.readableByteCount()];
+            chunk.read(bytes);
+            result.writeBytes(bytes);
+            DataBufferUtils.release(chunk);
+        }
+        return result.toByteArray();
+    }
+
+    private static Model model(int entities) {
+        Model model = new LinkedHashModel();
+        for (int i = 0; i < entities; i++) {
+            IRI video = vf.createIRI("http://example.com/videos/" + i);
+            model.add(video, RDF.TYPE, SDO.VIDEO_OBJECT);
+            model.add(video, SDO.TITLE, vf.createLiteral("Video " + i));
+            model.add(video, SDO.IDENTIFIER, vf.createLiteral(i));
+        }
+        return model;
+    }
+}
@@ -0,0 +1,79 @@
+package org.av360.maverick.graph.api.converter.encoder;
+
+import org.av360.maverick.graph.api.converter.TrackingBufferFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Random;
+
+public class ChunkedOutputStreamTests {
+
+    @Test
+    public void chunksAreReassembled() {
+        byte[] content = new byte[10000];
+        new Random(42).nextBytes(content);
+
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+        ChunkedOutputStream output = new ChunkedOutputStream(bufferFactory, 64);
+        ByteArrayOutputStream reassembled = new ByteArrayOutputStream();
+
+        // writes of varying length, single bytes and writes spanning several chunks
+        int position = 0;
+        for (int length = 1; position < content.length; length = length * 3 % 257 + 1) {
+            int count = Math.min(length, content.length - position);
+            if (count == 1) output.write(content[position]);
+            else output.write(content, position, count);
+            position += count;
+
+            this.drain(output.take(), reassembled, 64);
+        }
+        output.close();
+        this.drain(output.take(), reassembled, 64);
+
+        Assertions.assertArrayEquals(content, reassembled.toByteArray());
+        Assertions.assertEquals(0, bufferFactory.countUnreleased());
+    }
+
+    @Test
+    public void untakenChunksAreReleased() {
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+        ChunkedOutputStream output = new ChunkedOutputStream(bufferFactory, 16);
+
+        output.write(new byte[40], 0, 40);
+        Assertions.assertEquals(3, bufferFactory.countAllocated());
+
+        output.release();
+        Assertions.assertEquals(0, bufferFactory.countUnreleased());
+        Assertions.assertTrue(output.take().isEmpty());
+        Assertions.assertThrows(IllegalStateException.class, () -> output.write(1));
+    }
+
+    @Test
+    public void emptyOutputHasNoChunks() {
+        TrackingBufferFactory bufferFactory = new TrackingBufferFactory();
+        ChunkedOutputStream output = new ChunkedOutputStream(bufferFactory, 16);
+
+        output.write(new byte[16], 0, 16);
+        List<DataBuffer> chunks = output.take();
+        Assertions.assertEquals(1, chunks.size());
+        chunks.forEach(DataBufferUtils::release);
+
+        output.close();
+        Assertions.assertTrue(output.take().isEmpty());
+        Assertions.assertEquals(0, bufferFactory.countUnreleased());
+    }
+
+    private void drain(List<DataBuffer> chunks, ByteArrayOutputStream target, int threshold) {
+        for (DataBuffer chunk : chunks) {
+            Assertions.assertTrue(chunk.readableByteCount() <= threshold, "chunk exceeds the threshold");
+            byte[] bytes = new byte[chunk.readableByteCount()];
+            chunk.read(bytes);
+            target.writeBytes(bytes);
+            DataBufferUtils.release(chunk);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.av360.maverick.graph.api.converter.encoder;
+
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class JsonLdFragmentWriterTests {
+    private final ValueFactory vf = SimpleValueFactory.getInstance();
+
+    @Test
+    public void writeSingleNode() throws IOException {
+        IRI video = vf.createIRI("http://example.com/api/entities/a1");
+        Model model = new LinkedHashModel();
+        model.add(video, RDF.TYPE, SDO.VIDEO_OBJECT);
+        model.add(video, SDO.TITLE, vf.createLiteral("Video 1"));
+        model.add(video, SDO.TITLE, vf.createLiteral("Video eins", "de"));
+        model.add(video, SDO.IDENTIFIER, vf.createLiteral("42", XSD.INTEGER));
+        model.add(video, vf.createIRI(SDO.NAMESPACE, "isFamilyFriendly"), vf.createLiteral(true));
+        model.add(video, vf.createIRI(SDO.NAMESPACE, "uploadDate"), vf.createLiteral("2023-01-01", XSD.DATE));
+
+        String json = this.write(model);
+
+        Assertions.assertTrue(json.contains("\"@type\":\"sdo:VideoObject\""), json);
+        Assertions.assertFalse(json.contains("@graph"), json);
+        Assertions.assertTrue(Models.isomorphic(model, this.parse(json)));
+    }
+
+    @Test
+    public void writeSeveralNodes() throws IOException {
+        IRI video = vf.createIRI("http://example.com/api/entities/a1");
+        BNode author = vf.createBNode();
+        Model model = new LinkedHashModel();
+        model.add(video, RDF.TYPE, SDO.VIDEO_OBJECT);
+        model.add(video, vf.createIRI(SDO.NAMESPACE, "author"), author);
+        model.add(author, RDF.TYPE, vf.createIRI(SDO.NAMESPACE, "Person"));
+        model.add(author, SDO.NAME, vf.createLiteral("Jane"));
+
+        String json = this.write(model);
+
+        Assertions.assertTrue(json.contains("@graph"), json);
+        Assertions.assertTrue(Models.isomorphic(model, this.parse(json)));
+    }
+
+    @Test
+    public void writeEmptyDocument() throws IOException {
+        Assertions.assertTrue(this.parse(this.write(new LinkedHashModel())).isEmpty());
+    }
+
+    private String write(Model model) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonLdFragmentWriter writer = new JsonLdFragmentWriter(out);
+        writer.startRDF();
+        writer.handleNamespace("sdo", SDO.NAMESPACE);
+        model.forEach(writer::handleStatement);
+        writer.endRDF();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private Model parse(String json) throws IOException {
+        return Rio.parse(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), RDFFormat.JSONLD);
+    }
+}
@@ -3,6 +3,7 @@ package org.av360.maverick.graph.api.entities;
 import org.av360.maverick.graph.tests.config.TestSecurityConfig;
 import org.av360.maverick.graph.tests.util.ApiTestsBase;
 import org.av360.maverick.graph.tests.util.RdfConsumer;
+import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.junit.jupiter.api.AfterEach;
@@ -12,13 +13,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ContextConfiguration(classes = TestSecurityConfig.class)
 @RecordApplicationEvents
@@ -60,4 +67,73 @@ public class ListEntities extends ApiTestsBase {
         // check if correct application events have been recorded
 
     }
+
+    @Test
+    public void listEntitiesPageByPage() {
+        super.printStart("list Entities page by page");
+        Resource file = new ClassPathResource("requests/create-valid_many.jsonld");
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("application/ld+json"))
+                .body(BodyInserters.fromResource(file))
+                .exchange()
+                .expectStatus().isAccepted();
+
+        super.printStep();
+        Set<org.eclipse.rdf4j.model.Resource> all = this.listPage("/api/entities?limit=100").subjects();
+
+        super.printStep();
+        List<org.eclipse.rdf4j.model.Resource> paged = new ArrayList<>();
+        String next = "/api/entities?limit=2";
+        int pages = 0;
+        while (next != null) {
+            EntityExchangeResult<byte[]> result = webClient.get()
+                    .uri(next)
+                    .accept(MediaType.parseMediaType("text/turtle"))
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody()
+                    .returnResult();
+            RdfConsumer rdfConsumer = new RdfConsumer(RDFFormat.TURTLE);
+            rdfConsumer.accept(result);
+            Set<org.eclipse.rdf4j.model.Resource> subjects = rdfConsumer.asModel().subjects();
+            Assertions.assertTrue(subjects.size() <= 2, "page has more entities than the limit");
+            paged.addAll(subjects);
+            pages++;
+
+            String link = result.getResponseHeaders().getFirst(HttpHeaders.LINK);
+            if (link == null) {
+                next = null;
+            } else {
+                Assertions.assertTrue(link.endsWith("; rel=\"next\""), "unexpected link: " + link);
+                next = link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+            }
+        }
+
+        Assertions.assertEquals(all.size() / 2 + 1, pages);
+        Assertions.assertEquals(all.size(), paged.size(), "entities have been listed twice");
+        Assertions.assertEquals(all, Set.copyOf(paged));
+    }
+
+    @Test
+    public void listEntitiesWithInvalidToken() {
+        webClient.get()
+                .uri("/api/entities?continue=%%")
+                .accept(MediaType.parseMediaType("text/turtle"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private Model listPage(String uri) {
+        RdfConsumer rdfConsumer = new RdfConsumer(RDFFormat.TURTLE);
+        webClient.get()
+                .uri(uri)
+                .accept(MediaType.parseMediaType("text/turtle"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(HttpHeaders.LINK)
+                .expectBody()
+                .consumeWith(rdfConsumer);
+        return rdfConsumer.asModel();
+    }
 }
@@ -0,0 +1,109 @@
+package org.av360.maverick.graph.api.entities;
+
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.tests.config.TestSecurityConfig;
+import org.av360.maverick.graph.tests.util.ApiTestsBase;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.stream.Stream;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestSecurityConfig.class)
+@RecordApplicationEvents
+@ActiveProfiles({"test", "api"})
+public class SearchEntities extends ApiTestsBase {
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @AfterEach
+    public void resetRepository() {
+        super.resetRepository();
+    }
+
+    @Test
+    public void searchReturnsMatchesOrderedByRelevance() {
+        super.printStart("search returns matches ordered by relevance");
+        Model model = new LinkedHashModel();
+        Stream.of("Berlin and Paris", "Berlin Berlin Berlin", "Paris").forEach(title -> {
+            BNode entity = vf.createBNode();
+            model.add(entity, RDF.TYPE, SDO.VIDEO_OBJECT);
+            model.add(entity, SDO.TITLE, vf.createLiteral(title));
+        });
+        super.entitiesTestClient.createEntity(model);
+
+        String result = webClient.get()
+                // prefix queries ('berl*') match with a constant score, the ranking requires a term query
+                .uri(uriBuilder -> uriBuilder.path("/api/entities/search").queryParam("q", "berlin").build())
+                .accept(MediaType.parseMediaType("text/turtle"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        Assertions.assertNotNull(result);
+        Assertions.assertTrue(result.contains("Berlin Berlin Berlin"));
+        Assertions.assertTrue(result.contains("Berlin and Paris"));
+        Assertions.assertFalse(result.contains("\"Paris\""), "entity without match has been returned");
+        Assertions.assertTrue(result.indexOf("Berlin Berlin Berlin") < result.indexOf("Berlin and Paris"), "matches are not ordered by relevance");
+    }
+
+    @Test
+    public void searchWithInvalidTerms() {
+        super.printStart("search with invalid terms");
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/entities/search").queryParam("q", "{query}").build("title:(berl"))
+                .accept(MediaType.parseMediaType("application/ld+json"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void searchWithLimitAboveMaximum() {
+        super.printStart("search with limit above maximum");
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/entities/search").queryParam("q", "berl*").queryParam("limit", 100000).build())
+                .accept(MediaType.parseMediaType("application/ld+json"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void searchWithInvalidOffset() {
+        super.printStart("search with invalid offset");
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/entities/search").queryParam("q", "berl*").queryParam("offset", -1).build())
+                .accept(MediaType.parseMediaType("application/ld+json"))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/entities/search").queryParam("q", "berl*").queryParam("offset", 1000000).build())
+                .accept(MediaType.parseMediaType("application/ld+json"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void listWithLimitAboveMaximum() {
+        super.printStart("list with limit above maximum");
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/entities").queryParam("limit", 100000).build())
+                .accept(MediaType.parseMediaType("application/ld+json"))
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -0,0 +1,131 @@
+package org.av360.maverick.graph.api.entities.formats;
+
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.model.vocabulary.Transactions;
+import org.av360.maverick.graph.tests.config.TestSecurityConfig;
+import org.av360.maverick.graph.tests.util.ApiTestsBase;
+import org.av360.maverick.graph.tests.util.RdfConsumer;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestSecurityConfig.class)
+@RecordApplicationEvents
+@ActiveProfiles({"test", "api"})
+public class CreateEntitiesInBinaryTests extends ApiTestsBase {
+    private static final MediaType BINARY = MediaType.parseMediaType(RDFFormat.BINARY.getDefaultMIMEType());
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @AfterEach
+    public void resetRepository() {
+        super.resetRepository();
+    }
+
+    @Test
+    public void createEntity() throws IOException {
+        RdfConsumer rdfConsumer = this.uploadAsBinary("requests/create-valid.ttl");
+
+        Assertions.assertTrue(rdfConsumer.hasStatement(null, Transactions.STATUS, Transactions.SUCCESS));
+    }
+
+    @Test
+    public void createMultipleEntities() throws IOException {
+        RdfConsumer rdfConsumer = this.uploadAsBinary("requests/create-valid_multiple.ttl");
+
+        Assertions.assertFalse(rdfConsumer.hasStatement(null, Transactions.STATUS, Transactions.RUNNING));
+        Assertions.assertTrue(rdfConsumer.hasStatement(null, SDO.IDENTIFIER, SimpleValueFactory.getInstance().createLiteral("_a")));
+        Assertions.assertTrue(rdfConsumer.hasStatement(null, RDF.TYPE, SDO.VIDEO_OBJECT));
+    }
+
+    @Test
+    public void readEntity() throws IOException {
+        IRI video = this.uploadAsBinary("requests/create-valid.ttl").getEntityIdentifier(SDO.VIDEO_OBJECT);
+
+        Model binary = this.readEntity(video, BINARY, RDFFormat.BINARY);
+        Assertions.assertTrue(binary.contains(video, SDO.TITLE, SimpleValueFactory.getInstance().createLiteral("Video 1")));
+        Assertions.assertTrue(Models.isomorphic(this.readEntity(video, MediaType.parseMediaType(RDFFormat.TURTLE.getDefaultMIMEType()), RDFFormat.TURTLE), binary));
+    }
+
+    @Test
+    public void constructStatements() throws IOException {
+        this.uploadAsBinary("requests/create-valid_multiple.ttl");
+        String query = "CONSTRUCT { ?s <https://schema.org/identifier> ?id } WHERE { ?s a <https://schema.org/VideoObject> ; <https://schema.org/identifier> ?id }";
+
+        Model binary = this.construct(query, BINARY, RDFFormat.BINARY);
+        Assertions.assertTrue(binary.contains(null, SDO.IDENTIFIER, SimpleValueFactory.getInstance().createLiteral("_a")));
+        Assertions.assertTrue(Models.isomorphic(this.construct(query, MediaType.parseMediaType(RDFFormat.TURTLE.getDefaultMIMEType()), RDFFormat.TURTLE), binary));
+    }
+
+    private Model readEntity(IRI entity, MediaType mediaType, RDFFormat format) {
+        RdfConsumer rdfConsumer = new RdfConsumer(format);
+        webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/entities/{id}").build(entity.getLocalName()))
+                .accept(mediaType)
+                .header("X-API-KEY", "test")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .consumeWith(rdfConsumer);
+        return rdfConsumer.asModel();
+    }
+
+    private Model construct(String query, MediaType mediaType, RDFFormat format) {
+        RdfConsumer rdfConsumer = new RdfConsumer(format);
+        webClient.post()
+                .uri("/api/query/construct")
+                .contentType(MediaType.TEXT_PLAIN)
+                .accept(mediaType)
+                .body(BodyInserters.fromValue(query))
+                .header("X-API-KEY", "test")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .consumeWith(rdfConsumer);
+        return rdfConsumer.asModel();
+    }
+
+    private RdfConsumer uploadAsBinary(String path) throws IOException {
+        Model model;
+        try (InputStream is = new ClassPathResource(path).getInputStream()) {
+            model = Rio.parse(is, RDFFormat.TURTLE);
+        }
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        Rio.write(model, payload, RDFFormat.BINARY);
+
+        RdfConsumer rdfConsumer = new RdfConsumer(RDFFormat.BINARY, true);
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(BINARY)
+                .accept(BINARY)
+                .bodyValue(payload.toByteArray())
+                .header("X-API-KEY", "test")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .consumeWith(rdfConsumer);
+        return rdfConsumer;
+    }
+}
@@ -0,0 +1,103 @@
+package org.av360.maverick.graph.api.query;
+
+import org.av360.maverick.graph.model.context.QueryLimits;
+import org.av360.maverick.graph.model.context.SessionContext;
+import org.av360.maverick.graph.model.errors.requests.QueryLimitExceeded;
+import org.av360.maverick.graph.store.EntityStore;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf4j.repository.util.AbstractStore;
+import org.av360.maverick.graph.tests.config.TestSecurityConfig;
+import org.av360.maverick.graph.tests.util.TestsBase;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+/**
+ * The query limits of the environment truncate the results and abort long-running queries, cancelling a query releases
+ * its connection.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ContextConfiguration(classes = TestSecurityConfig.class)
+@ActiveProfiles({"test", "api"})
+public class QueryLimitsTests extends TestsBase {
+
+    private static final String CROSS_PRODUCT = """
+            SELECT * WHERE { ?a <http://example.com/value> ?x . ?b <http://example.com/value> ?y . ?c <http://example.com/value> ?z . }
+            ORDER BY ?z ?y ?x
+            """;
+
+    @Autowired
+    private EntityStore entityStore;
+
+    @BeforeEach
+    public void importStatements() {
+        Model model = new LinkedHashModel();
+        for (int i = 0; i < 100; i++) {
+            model.add(vf.createIRI("http://example.com/s" + i), vf.createIRI("http://example.com/value"), vf.createLiteral(i));
+        }
+
+        StepVerifier.create(this.entityStore.importModel(model, TestSecurityConfig.createTestContext().getEnvironment())).verifyComplete();
+    }
+
+    @AfterEach
+    public void resetRepository() {
+        super.resetRepository();
+    }
+
+    @Test
+    public void resultsAreTruncated() {
+        SessionContext ctx = TestSecurityConfig.createTestContext();
+        ctx.updateEnvironment(env -> env.setQueryLimits(new QueryLimits(null, 10)));
+
+        StepVerifier.create(this.entityStore.query("SELECT * WHERE { ?s <http://example.com/value> ?o }", ctx.getEnvironment()))
+                .expectNextCount(10)
+                .verifyComplete();
+    }
+
+    @Test
+    public void queryIsAbortedAfterMaximumExecutionTime() {
+        SessionContext ctx = TestSecurityConfig.createTestContext();
+        ctx.updateEnvironment(env -> env.setQueryLimits(new QueryLimits(Duration.ofMillis(200), 0)));
+
+        StepVerifier.create(this.entityStore.query(CROSS_PRODUCT, ctx.getEnvironment()))
+                .expectError(QueryLimitExceeded.class)
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void cancelledQueryReleasesConnection() throws InterruptedException {
+        SessionContext ctx = TestSecurityConfig.createTestContext();
+
+        LabeledRepository repository = ((AbstractStore) this.entityStore).getBuilder().buildRepository((AbstractStore) this.entityStore, ctx.getEnvironment()).block();
+        Assertions.assertNotNull(repository);
+
+        StepVerifier.create(this.entityStore.query(CROSS_PRODUCT.replace("ORDER BY ?z ?y ?x", ""), ctx.getEnvironment()), 5)
+                .expectNextCount(5)
+                .then(() -> Assertions.assertTrue(repository.getConnectionsCount() > 0, "query has no open connection"))
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+
+        // the connection is closed on the scheduler of the store
+        for (int i = 0; i < 100 && repository.getConnectionsCount() > 0; i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertEquals(0, repository.getConnectionsCount(), "connection of the cancelled query is still open");
+
+        // the connection of the cancelled query has been released, the repository accepts further writes
+        Model model = new LinkedHashModel();
+        model.add(vf.createIRI("http://example.com/t"), vf.createIRI("http://example.com/value"), vf.createLiteral(-1));
+        StepVerifier.create(this.entityStore.importModel(model, ctx.getEnvironment()))
+                .expectComplete()
+                .verify(Duration.ofSeconds(10));
+    }
+}
@@ -1,10 +1,15 @@
 package org.av360.maverick.graph.api.query;
 
 import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.api.controller.queries.QueryRestController;
+import org.av360.maverick.graph.model.enums.SparqlMimeTypes;
 import org.av360.maverick.graph.tests.api.v1.QueriesTest;
 import org.av360.maverick.graph.tests.config.TestSecurityConfig;
 import org.av360.maverick.graph.tests.util.CsvConsumer;
 import org.av360.maverick.graph.tests.util.TestsBase;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.query.resultio.QueryResultIO;
+import org.eclipse.rdf4j.query.resultio.TupleQueryResultFormat;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -18,6 +23,12 @@ import org.springframework.test.context.event.RecordApplicationEvents;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ContextConfiguration(classes = TestSecurityConfig.class)
 @RecordApplicationEvents
@@ -71,5 +82,100 @@ public class QueryTestsImpl extends TestsBase implements QueriesTest {
 
     }
 
+    @Test
+    public void cachedResultsFollowWrites() {
+        String query = "SELECT ?s WHERE { ?s a <https://schema.org/VideoObject> }";
+
+        this.createEntities("requests/create-valid.ttl");
+        Assertions.assertEquals(1, this.select(query).size());
+        Assertions.assertEquals(1, this.select(query).size());
+
+        this.createEntities("requests/create-valid_multiple.ttl");
+        Assertions.assertEquals(3, this.select(query).size());
+    }
+
+    @Test
+    public void streamedCsvStartsWithHeader() {
+        // the header is written from the projection, even if no row is returned
+        String csv = webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/api/query/select").queryParam("repository", "entities").build())
+                .contentType(MediaType.parseMediaType("text/plain"))
+                .accept(MediaType.parseMediaType(SparqlMimeTypes.CSV_VALUE))
+                .body(BodyInserters.fromValue("SELECT ?s ?title WHERE { ?s <https://schema.org/title> ?title }"))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        Assertions.assertNotNull(csv);
+        Assertions.assertEquals("s,title", csv.lines().findFirst().orElse(""));
+    }
+
+    @Test
+    public void streamedJsonResults() throws IOException {
+        this.createEntities("requests/create-valid_multiple.ttl");
+
+        byte[] json = webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/api/query/select").queryParam("repository", "entities").build())
+                .contentType(MediaType.parseMediaType("text/plain"))
+                .accept(MediaType.parseMediaType(SparqlMimeTypes.JSON_VALUE))
+                .body(BodyInserters.fromValue("SELECT ?s ?type WHERE { ?s a ?type }"))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .returnResult().getResponseBody();
+
+        Assertions.assertNotNull(json);
+        TupleQueryResult result = QueryResultIO.parseTuple(new ByteArrayInputStream(json), TupleQueryResultFormat.JSON);
+        Assertions.assertEquals(List.of("s", "type"), result.getBindingNames());
+        Assertions.assertFalse(result.stream().toList().isEmpty());
+    }
+
+    @Test
+    public void maximumOfResultsIsAnnounced() {
+        this.createEntities("requests/create-valid_multiple.ttl");
+
+        CsvConsumer csvConsumer = new CsvConsumer();
+        webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/api/query/select").queryParam("repository", "entities").queryParam("limit", 2).build())
+                .contentType(MediaType.parseMediaType("text/plain"))
+                .accept(MediaType.parseMediaType("text/csv"))
+                .body(BodyInserters.fromValue("SELECT * WHERE { ?s ?p ?o }"))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectHeader().valueEquals(QueryRestController.MAX_RESULTS_HEADER, "2")
+                .expectBody()
+                .consumeWith(csvConsumer);
+
+        // as many rows as announced, the results have been truncated
+        Assertions.assertEquals(2, csvConsumer.getRows().size());
+    }
+
+    private void createEntities(String resource) {
+        webClient.post()
+                .uri("/api/entities")
+                .contentType(MediaType.parseMediaType("text/turtle"))
+                .body(BodyInserters.fromResource(new ClassPathResource(resource)))
+                .exchange()
+                .expectStatus().isAccepted();
+    }
+
+    private Set<Map<String, String>> select(String query) {
+        CsvConsumer csvConsumer = new CsvConsumer();
+        webClient.post()
+                .uri(uriBuilder -> uriBuilder.path("/api/query/select")
+                        .queryParam("repository", "entities")
+                        .build()
+                )
+                .contentType(MediaType.parseMediaType("text/plain"))
+                .accept(MediaType.parseMediaType("text/csv"))
+                .body(BodyInserters.fromValue(query))
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody()
+                .consumeWith(csvConsumer);
+        return csvConsumer.getRows();
+    }
+
 
 }
@@ -0,0 +1,77 @@
+package org.av360.maverick.graph.api.store;
+
+import org.av360.maverick.graph.model.context.SessionContext;
+import org.av360.maverick.graph.store.EntityStore;
+import org.av360.maverick.graph.store.rdf.helpers.ImportProgress;
+import org.av360.maverick.graph.tests.config.TestSecurityConfig;
+import org.av360.maverick.graph.tests.util.TestsBase;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A failed import is resumed with the same content: the statements committed before are skipped, and the anonymous blank
+ * nodes are the same as in the failed run (the statements of a blank node are split across both runs).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "application.storage.imports.batchSize=5")
+@ContextConfiguration(classes = TestSecurityConfig.class)
+@ActiveProfiles({"test", "api"})
+public class ImportResumeTests extends TestsBase {
+
+    private static final String HEADER = "@prefix ex: <http://example.com/> .\n";
+    private static final String A = "ex:a ex:name \"a\" ; ex:author [ ex:name \"x\" ] .\n";
+    private static final String B = "ex:b ex:name \"b\" ; ex:author [ ex:name \"y\" ] .\n";
+    private static final String C = "ex:c ex:name \"c\" ; ex:author [ ex:name \"z\" ] .\n";
+
+    @Autowired
+    private EntityStore entityStore;
+
+    @AfterEach
+    public void resetRepository() {
+        super.resetRepository();
+    }
+
+    @Test
+    public void resumedImportCreatesSameBlankNodes() {
+        SessionContext ctx = TestSecurityConfig.createTestContext();
+        ImportProgress progress = new ImportProgress("resume-test", "text/turtle");
+
+        // the content is truncated after the second entity, only the first full batch is committed
+        StepVerifier.create(this.entityStore.importStatements(content(HEADER + A + B + "ex:c ex:name ."), "text/turtle", ctx.getEnvironment(), progress))
+                .verifyError();
+        Assertions.assertEquals(ImportProgress.State.FAILED, progress.getState());
+        Assertions.assertEquals(5, progress.getCommittedStatements());
+
+        Assertions.assertTrue(progress.resume());
+        Assertions.assertFalse(progress.resume(), "running import has been claimed twice");
+        StepVerifier.create(this.entityStore.importStatements(content(HEADER + A + B + C), "text/turtle", ctx.getEnvironment(), progress))
+                .verifyComplete();
+        Assertions.assertEquals(ImportProgress.State.COMPLETED, progress.getState());
+        Assertions.assertEquals(9, progress.getCommittedStatements());
+        Assertions.assertFalse(progress.resume(), "completed import has been resumed");
+
+        List<BindingSet> authors = this.entityStore.query("""
+                        PREFIX ex: <http://example.com/>
+                        SELECT ?entity ?name WHERE { ?entity ex:author ?author . ?author ex:name ?name }
+                        """, ctx.getEnvironment())
+                .collectList().block();
+        Assertions.assertNotNull(authors);
+        Assertions.assertEquals(3, authors.size(), "statements of the blank nodes have been split by the resumed import");
+    }
+
+    private static Flux<DataBuffer> content(String turtle) {
+        return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(turtle.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,120 @@
+package org.av360.maverick.graph.api.store;
+
+import org.av360.maverick.graph.store.rdf.helpers.ParallelLineParser;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelLineParserTests {
+
+    // the minimum chunk size, the document is split into about 50 chunks
+    private static final int CHUNK_SIZE = 1024;
+    private static final int LINES = 1000;
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    public void setup() {
+        this.pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        this.pool.shutdownNow();
+    }
+
+    @Test
+    public void statementsAreHandledInOrder() throws IOException {
+        String document = document();
+
+        List<Statement> expected = new ArrayList<>();
+        RDFParser sequential = Rio.createParser(RDFFormat.NTRIPLES);
+        sequential.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+        sequential.setRDFHandler(new StatementCollector(expected));
+        sequential.parse(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)));
+
+        List<Statement> parsed = this.parse(document, true, SimpleValueFactory.getInstance());
+        Assertions.assertEquals(LINES, parsed.size());
+        Assertions.assertEquals(expected, parsed);
+    }
+
+    @Test
+    public void unorderedParsingHandlesAllStatements() throws IOException {
+        List<Statement> parsed = this.parse(document(), false, SimpleValueFactory.getInstance());
+        Assertions.assertEquals(LINES, parsed.size());
+        Assertions.assertEquals(LINES, new HashSet<>(parsed).size());
+    }
+
+    /**
+     * A resumed import skips the statements committed before, it relies on the same statements in the same order when
+     * the document is parsed again (with a value factory creating the same blank nodes).
+     */
+    @Test
+    public void parsingAgainYieldsSameSequence() throws IOException {
+        String document = document();
+        List<Statement> first = this.parse(document, true, SimpleValueFactory.getInstance());
+        List<Statement> second = this.parse(document, true, SimpleValueFactory.getInstance());
+
+        Assertions.assertEquals(first, second);
+    }
+
+    @Test
+    public void blankNodesAreSharedAcrossChunks() throws IOException {
+        List<Statement> parsed = this.parse(document(), true, null);
+
+        // the first and the last line are in different chunks, but have the same blank node as object
+        Value first = parsed.get(0).getObject();
+        Value last = parsed.get(LINES - 1).getObject();
+        Assertions.assertTrue(first.isBNode());
+        Assertions.assertEquals(first, last);
+    }
+
+    @Test
+    public void blankNodesAreScopedToDocument() throws IOException {
+        String document = document();
+        Value first = this.parse(document, true, null).get(0).getObject();
+        Value second = this.parse(document, true, null).get(0).getObject();
+
+        Assertions.assertNotEquals(first, second, "blank nodes of different documents are the same");
+    }
+
+    private List<Statement> parse(String document, boolean ordered, @Nullable ValueFactory valueFactory) throws IOException {
+        ParallelLineParser parser = new ParallelLineParser(RDFFormat.NTRIPLES, CHUNK_SIZE, ordered, this.pool);
+        if (valueFactory != null) parser.withValueFactory(valueFactory);
+
+        List<Statement> statements = new ArrayList<>();
+        parser.parse(new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8)), new StatementCollector(statements));
+        return statements;
+    }
+
+    /**
+     * Every 100th line links to the same blank node, the others to a literal.
+     */
+    private static String document() {
+        StringBuilder document = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            String object = i % 100 == 0 || i == LINES - 1 ? "_:shared" : "\"" + i + "\"";
+            document.append("<http://example.com/s%d> <http://example.com/value> %s .\n".formatted(i, object));
+        }
+        return document.toString();
+    }
+}
@@ -10,21 +10,31 @@ import org.av360.maverick.graph.feature.admin.controller.dto.ImportFromEndpointR
 import org.av360.maverick.graph.feature.admin.services.AdminServices;
 import org.av360.maverick.graph.model.enums.RdfMimeTypes;
 import org.av360.maverick.graph.model.enums.RepositoryType;
+import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
+import org.av360.maverick.graph.store.rdf.helpers.ImportProgress;
 import org.av360.maverick.graph.store.rdf.helpers.RdfUtils;
+import org.av360.maverick.graph.store.rdf.helpers.StatementsPage;
 import org.eclipse.rdf4j.rio.RDFParserFactory;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.util.Assert;
 import org.springframework.util.MimeType;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.Nullable;
+import java.net.URI;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping(path = "/api/admin")
@@ -32,6 +42,8 @@ import java.util.Optional;
 @Slf4j(topic = "graph.feat.admin.ctrl.api")
 @SecurityRequirement(name = "api_key")
 public class AdminRestController extends AbstractController {
+    private static final int MAX_STATEMENTS_PAGE = 10000;
+
     protected final AdminServices adminServices;
 
     public AdminRestController(AdminServices adminServices) {
@@ -65,14 +77,16 @@ public class AdminRestController extends AbstractController {
             @RequestParam(required = false, defaultValue = "entities", value = "entities") @Parameter(name = "repository", description = "The repository type in which the query should search.")
             RepositoryType repositoryType,
             @RequestHeader(HttpHeaders.CONTENT_TYPE)
-            @Parameter(description = "The RDF format of the content",schema = @Schema(type = "string", allowableValues = {"text/turtle", "application/n3", "application/n-triples", "application/rdf+xml", "application/ld+json", "application/n-quads", "application/vnd.hdt"}))
-            String mimetype
+            @Parameter(description = "The RDF format of the content",schema = @Schema(type = "string", allowableValues = {"text/turtle", "application/n3", "application/n-triples", "application/rdf+xml", "application/ld+json", "application/n-quads", "application/x-binary-rdf", "application/vnd.hdt"}))
+            String mimetype,
+            @RequestParam(required = false) @Parameter(name = "importId", description = "Identifier of the import, a failed import with this identifier is resumed.")
+            String importId
             ) {
         Assert.isTrue(StringUtils.hasLength(mimetype), "Mimetype is a required parameter");
 
         return super.acquireContext()
                 .map(context -> context.updateEnvironment(env -> env.setRepositoryType(repositoryType)))
-                .flatMap(ctx -> adminServices.importEntities(bytes, mimetype, ctx))
+                .flatMap(ctx -> adminServices.importEntities(bytes, mimetype, importId, ctx))
                 .doOnError(throwable -> log.error("Error while importing to repository.", throwable))
                 .doOnSubscribe(s -> log.debug("Request to import a request of mimetype {}", mimetype));
     }
@@ -104,8 +118,10 @@ public class AdminRestController extends AbstractController {
             @Parameter(name = "repository", description = "The repository type in which the query should search.")
             RepositoryType repositoryType,
             @RequestParam
-            @Parameter(description = "The RDF format of the file",schema = @Schema(type = "string", allowableValues = {"text/turtle", "application/rdf+xml", "application/ld+json", "application/n-quads", "application/vnd.hdt"}))
-            String mimetype) {
+            @Parameter(description = "The RDF format of the file",schema = @Schema(type = "string", allowableValues = {"text/turtle", "application/rdf+xml", "application/ld+json", "application/n-quads", "application/x-binary-rdf", "application/vnd.hdt"}))
+            String mimetype,
+            @RequestParam(required = false) @Parameter(name = "importId", description = "Identifier of the import, a failed import with this identifier is resumed.")
+            String importId) {
         Assert.isTrue(StringUtils.hasLength(mimetype), "Mimetype is a required parameter");
 
         Optional<RDFParserFactory> parserFactory = RdfUtils.getParserFactory(MimeType.valueOf(mimetype));
@@ -114,9 +130,69 @@ public class AdminRestController extends AbstractController {
         return super.acquireContext()
                 .map(context -> context.getEnvironment().withRepositoryType(repositoryType))
                 .flatMap(context -> Mono.zip(Mono.just(context), fileMono))
-                .flatMap(pair -> adminServices.importEntities(pair.getT2().content(), mimetype, pair.getT1()))
+                .flatMap(pair -> adminServices.importEntities(pair.getT2().content(), mimetype, importId, pair.getT1()))
                 .doOnError(throwable -> log.error("Error while importing to repository.", throwable))
                 .doOnSubscribe(s -> log.info("Request to import a file of mimetype {}", mimetype));
     }
 
+    @GetMapping(value = "/import/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Lists the progress of all imports since startup")
+    @ResponseStatus(HttpStatus.OK)
+    Flux<ImportProgress> listImports() {
+        return super.acquireContext()
+                .flatMapMany(adminServices::listImports)
+                .doOnSubscribe(s -> log.debug("Request to list the imports"));
+    }
+
+    @GetMapping(value = "/import/status/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Returns the progress of an import")
+    @ResponseStatus(HttpStatus.OK)
+    Mono<ImportProgress> getImport(
+            @PathVariable @Parameter(name = "id", description = "Identifier of the import") String id,
+            @RequestParam(required = false, defaultValue = "entities", value = "entities")
+            @Parameter(name = "repository", description = "The repository type the statements have been imported to.")
+            RepositoryType repositoryType) {
+        return super.acquireContext()
+                .map(context -> context.updateEnvironment(env -> env.setRepositoryType(repositoryType)))
+                .flatMap(ctx -> adminServices.getImport(id, ctx))
+                .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "No import with identifier " + id)))
+                .doOnSubscribe(s -> log.debug("Request to get the progress of import '{}'", id));
+    }
+
+    /**
+     * Reads the statements of the repository page by page. The link to the next page (with the continuation token) is
+     * returned in the 'Link' header. The link can be followed once, and expires if it is not followed within the idle
+     * timeout of the cursors ('application.storage.cursors.idleTimeout').
+     */
+    @GetMapping(value = "/statements", produces = {RdfMimeTypes.NTRIPLES_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.BINARY_VALUE})
+    @Operation(summary = "Reads the statements within the repository. The next page is linked in the 'Link' header.")
+    @ResponseStatus(HttpStatus.OK)
+    Flux<AnnotatedStatement> listStatements(
+            @RequestParam(required = false, defaultValue = "entities", value = "entities") @Parameter(name = "repository", description = "The repository type to read from.")
+            RepositoryType repositoryType,
+            @RequestParam(value = "limit", defaultValue = "1000") Integer limit,
+            @RequestParam(value = "continue", required = false) @Nullable @Parameter(description = "Token for the next page, as linked in the previous response") String continuation,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+        Assert.isTrue(limit > 0 && limit <= MAX_STATEMENTS_PAGE, "Limit has to be between 1 and " + MAX_STATEMENTS_PAGE);
+
+        return super.acquireContext()
+                .map(context -> context.updateEnvironment(env -> env.setRepositoryType(repositoryType)))
+                .flatMap(ctx -> adminServices.pageStatements(limit, continuation, ctx))
+                .doOnNext(page -> this.linkNextPage(page, request, response))
+                .flatMapIterable(StatementsPage::statements)
+                .map(statement -> AnnotatedStatement.wrap(statement, Set.of()))
+                .doOnSubscribe(s -> log.debug("Request to read {} statements from the repository of type '{}'", limit, repositoryType));
+    }
+
+    private void linkNextPage(StatementsPage page, ServerHttpRequest request, ServerHttpResponse response) {
+        if (!page.hasNext()) return;
+
+        URI next = UriComponentsBuilder.fromUri(request.getURI())
+                .replaceQueryParam("continue", page.next())
+                .build(true)
+                .toUri();
+        response.getHeaders().add(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next));
+    }
+
 }
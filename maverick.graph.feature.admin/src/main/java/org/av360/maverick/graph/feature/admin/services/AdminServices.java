@@ -1,5 +1,6 @@
 package org.av360.maverick.graph.feature.admin.services;
 
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.av360.maverick.graph.model.context.SessionContext;
 import org.av360.maverick.graph.model.enums.RepositoryType;
@@ -7,6 +8,9 @@ import org.av360.maverick.graph.model.errors.requests.SchedulingException;
 import org.av360.maverick.graph.model.security.Authorities;
 import org.av360.maverick.graph.services.config.RequiresPrivilege;
 import org.av360.maverick.graph.store.behaviours.Maintainable;
+import org.av360.maverick.graph.store.behaviours.StatementsAware;
+import org.av360.maverick.graph.store.rdf.helpers.ImportProgress;
+import org.av360.maverick.graph.store.rdf.helpers.StatementsPage;
 import org.eclipse.rdf4j.model.*;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.util.ModelCollector;
@@ -17,15 +21,22 @@ import org.eclipse.rdf4j.repository.sparql.SPARQLRepository;
 import org.reactivestreams.Publisher;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import javax.annotation.Nullable;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 @Service
@@ -35,13 +46,31 @@ public class AdminServices {
 
     private final Map<RepositoryType, Maintainable> stores;
 
-    private boolean maintenanceActive = false;
+    /**
+     * The progress of the imports since startup (kept in memory only), by repository and identifier (see
+     * {@link #importKey(String, SessionContext)}). Finished imports are removed after the retention.
+     */
+    private final Map<String, ImportProgress> imports;
+
+    private final Scheduler importScheduler;
+
+    private volatile boolean maintenanceActive = false;
+
+    @org.springframework.beans.factory.annotation.Value("${application.features.modules.admin.imports.retention:24h}")
+    private Duration importsRetention;
 
     public AdminServices(Set<Maintainable> maintainables) {
         this.stores = new HashMap<>();
+        this.imports = new ConcurrentHashMap<>();
+        this.importScheduler = Schedulers.newSingle("import");
         maintainables.forEach(store -> stores.put(store.getRepositoryType(), store));
     }
 
+    @PreDestroy
+    public void shutdown() {
+        this.importScheduler.dispose();
+    }
+
     @RequiresPrivilege(Authorities.SYSTEM_VALUE)
     public Mono<Void> reset(SessionContext ctx) {
         // if(maintenanceActive) return Mono.error(new SchedulingException("Maintenance job still running."));
@@ -57,31 +86,90 @@ public class AdminServices {
                     this.maintenanceActive = false;
                     log.debug("Purging repository {} completed.", ctx.getEnvironment());
                 })
-                .subscribeOn(Schedulers.newSingle("import"))
+                .subscribeOn(this.importScheduler)
                 .subscribe();
         return Mono.empty();
     }
 
     @RequiresPrivilege(Authorities.SYSTEM_VALUE)
     public Mono<Void> importEntities(Publisher<DataBuffer> bytes, String mimetype, SessionContext ctx) {
+        return this.importEntities(bytes, mimetype, null, ctx);
+    }
+
+    /**
+     * Imports the statements in the background. If an import with the given identifier has failed before, it is resumed:
+     * the statements committed in the failed run are skipped (the same content has to be submitted again).
+     *
+     * @param importId identifier of the import, a new one is generated if missing
+     */
+    @RequiresPrivilege(Authorities.SYSTEM_VALUE)
+    public Mono<Void> importEntities(Publisher<DataBuffer> bytes, String mimetype, @Nullable String importId, SessionContext ctx) {
         if(maintenanceActive) return Mono.error(new SchedulingException("Maintenance job still running."));
 
+        this.removeFinishedImports();
+
+        ImportProgress created = new ImportProgress(StringUtils.hasLength(importId) ? importId : UUID.randomUUID().toString(), mimetype);
+        ImportProgress progress = this.imports.computeIfAbsent(importKey(created.getIdentifier(), ctx), key -> created);
+        if (progress != created) {
+            // resuming claims the failed import, concurrent requests with the same identifier are rejected
+            if (!progress.resume()) return Mono.error(new SchedulingException("Import '%s' is not resumable, its state is %s.".formatted(importId, progress.getState())));
+            log.info("Resuming import '{}' after {} committed statements", importId, progress.getCommittedStatements());
+        }
+
         this.stores.get(ctx.getEnvironment().getRepositoryType())
-                .importStatements(bytes, mimetype, ctx.getEnvironment())
+                .importStatements(bytes, mimetype, ctx.getEnvironment(), progress)
                 .doOnSubscribe(sub -> {
                     this.maintenanceActive = true;
-                    log.debug("Importing statements of type '{}' into repository {} through admin services", mimetype, ctx.getEnvironment());
+                    log.debug("Importing statements of type '{}' into repository {} through admin services (import '{}')", mimetype, ctx.getEnvironment(), progress.getIdentifier());
                 })
-                .doOnSuccess(suc -> {
-                    this.maintenanceActive = false;
-                    log.debug("Importing statements completed into repository {} through admin services", ctx.getEnvironment());
-                })
-                .subscribeOn(Schedulers.newSingle("import"))
-                .subscribe();
+                .doOnSuccess(suc -> log.debug("Importing statements completed into repository {} through admin services (import '{}')", ctx.getEnvironment(), progress.getIdentifier()))
+                .doOnError(error -> log.warn("Import '{}' failed after {} committed statements, it can be resumed.", progress.getIdentifier(), progress.getCommittedStatements()))
+                .doFinally(signal -> this.maintenanceActive = false)
+                .subscribeOn(this.importScheduler)
+                .subscribe(v -> {}, error -> {});
         return Mono.empty();
 
     }
 
+    /**
+     * Removes the imports which have completed or failed before the retention (failed imports cannot be resumed anymore).
+     */
+    private void removeFinishedImports() {
+        Instant expired = Instant.now().minus(this.importsRetention);
+        this.imports.values().removeIf(progress -> !progress.isRunning() && Objects.nonNull(progress.getFinished()) && progress.getFinished().isBefore(expired));
+    }
+
+    @RequiresPrivilege(Authorities.SYSTEM_VALUE)
+    public Flux<ImportProgress> listImports(SessionContext ctx) {
+        return Flux.fromIterable(this.imports.values());
+    }
+
+    @RequiresPrivilege(Authorities.SYSTEM_VALUE)
+    public Mono<ImportProgress> getImport(String importId, SessionContext ctx) {
+        return Mono.justOrEmpty(this.imports.get(importKey(importId, ctx)));
+    }
+
+    /**
+     * Import identifiers are chosen by the clients, they are unique only within the target repository.
+     */
+    private static String importKey(String importId, SessionContext ctx) {
+        return "%s:%s:%s".formatted(ctx.getEnvironment().getScope().label(), ctx.getEnvironment().getRepositoryType(), importId);
+    }
+
+    /**
+     * Reads a page of all statements in the repository, e.g. to inspect or copy a repository. The page includes the
+     * token to read the next page.
+     *
+     * @param resumeToken token of the previous page, null to start with the first statement
+     */
+    @RequiresPrivilege(Authorities.SYSTEM_VALUE)
+    public Mono<StatementsPage> pageStatements(int limit, @Nullable String resumeToken, SessionContext ctx) {
+        if (!(this.stores.get(ctx.getEnvironment().getRepositoryType()) instanceof StatementsAware store)) {
+            return Mono.error(new UnsupportedOperationException("Reading statements is not supported for repository " + ctx.getEnvironment().getRepositoryType()));
+        }
+        return store.pageStatements(null, null, null, limit, resumeToken, ctx.getEnvironment());
+    }
+
     @RequiresPrivilege(Authorities.SYSTEM_VALUE)
     public Mono<Void> importFromEndpoint(String endpoint, Map<String, String> headers, int limit, int offset, SessionContext ctx) {
 
@@ -119,7 +207,7 @@ public class AdminServices {
                                         .doOnSubscribe(subscription -> {
                                             log.debug("Importing next {} items from endpoint: {}", limit, endpoint);
                                         })
-                                        .subscribeOn(Schedulers.newSingle("import"))
+                                        .subscribeOn(this.importScheduler)
                                         .subscribe();
 
                             } else {
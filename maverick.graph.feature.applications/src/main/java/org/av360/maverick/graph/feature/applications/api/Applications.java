@@ -13,6 +13,7 @@ import org.av360.maverick.graph.feature.applications.services.SubscriptionsServi
 import org.av360.maverick.graph.feature.applications.services.errors.InvalidApplication;
 import org.av360.maverick.graph.model.enums.RepositoryType;
 import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
+import org.av360.maverick.graph.model.vocabulary.Local;
 import org.av360.maverick.graph.services.QueryServices;
 import org.springframework.http.HttpStatus;
 import org.springframework.util.Assert;
@@ -21,6 +22,9 @@ import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @RestController
 @RequestMapping(path = "/api/applications")
 //@Api(tags = "Manage applications")
@@ -135,6 +139,26 @@ public class Applications extends AbstractController {
     }
 
 
+    @GetMapping(value = "/{applicationKey}/metrics")
+    @ResponseStatus(HttpStatus.OK)
+    Mono<Responses.StatisticsResponse> getMetrics(@PathVariable String applicationKey) {
+        return super.acquireContext()
+                .flatMap(ctx ->
+                        this.applicationsService.getApplication(applicationKey, ctx)
+                                .flatMap(application -> this.applicationsService.getStatistics(application, ctx)))
+                .map(statistics ->
+                        new Responses.StatisticsResponse(
+                                statistics.statements(),
+                                statistics.countInstances(Local.Entities.TYPE_INDIVIDUAL),
+                                statistics.countInstances(Local.Entities.TYPE_CLASSIFIER),
+                                statistics.countInstances(Local.Entities.TYPE_EMBEDDED),
+                                statistics.types().entrySet().stream().collect(Collectors.toMap(entry -> entry.getKey().stringValue(), Map.Entry::getValue)),
+                                statistics.predicates().entrySet().stream().collect(Collectors.toMap(entry -> entry.getKey().stringValue(), Map.Entry::getValue))
+                        )
+                ).doOnSubscribe(subscription -> log.info("Request to get metrics of application with id '{}'", applicationKey));
+    }
+
+
     //@ApiOperation(value = "Generate API Key")
     @PostMapping(value = "/{applicationKey}/subscriptions")
     @ResponseStatus(HttpStatus.CREATED)
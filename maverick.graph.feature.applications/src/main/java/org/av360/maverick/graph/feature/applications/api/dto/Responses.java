@@ -24,6 +24,10 @@ public class Responses {
 
     }
 
+    public record StatisticsResponse(long statements, long individuals, long classifiers, long embedded, Map<String, Long> types, Map<String, Long> predicates) {
+
+    }
+
     public record ApplicationWithApiKeys(String key, String label, ApplicationFlags flags, List<SubscriptionResponse> keys) {
 
     }
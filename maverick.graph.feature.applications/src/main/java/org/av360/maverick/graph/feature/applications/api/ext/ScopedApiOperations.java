@@ -13,6 +13,8 @@ import org.av360.maverick.graph.model.enums.RdfMimeTypes;
 import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -76,7 +78,7 @@ public class ScopedApiOperations extends AbstractController {
 
 
     @GetMapping(value = "/api/s/{label}/entities/{id:[\\w|\\d|\\-|\\_]+}",
-            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
+            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.BINARY_VALUE})
     @ResponseStatus(HttpStatus.OK)
     Flux<AnnotatedStatement> read(@PathVariable String label, @PathVariable String id, @RequestParam(required = false) @Nullable String property) {
         /* since we encode the scope (identified by label) also in the id (e.g. urn:pwi:meg:e:{label}:{id}, we add the scope as prefix
@@ -84,13 +86,18 @@ public class ScopedApiOperations extends AbstractController {
         return entitiesCtrl.read(id, property);
     }
 
-    @GetMapping(value = "/api/s/{label}/entities", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
+    @GetMapping(value = "/api/s/{label}/entities", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.BINARY_VALUE})
     @ResponseStatus(HttpStatus.OK)
     Flux<AnnotatedStatement> list(
             @PathVariable String label,
             @RequestParam(value = "limit", defaultValue = "100") Integer limit,
-            @RequestParam(value = "offset", defaultValue = "0") Integer offset) {
-        return entitiesCtrl.list(limit, offset).doOnSubscribe(sub -> log.trace("Request within scope {}", label));
+            @RequestParam(value = "offset", required = false) @Nullable Integer offset,
+            @RequestParam(value = "continue", required = false) @Nullable String continuation,
+            @RequestParam(value = "type", required = false) @Nullable String type,
+            @RequestParam(value = "sort", required = false) @Nullable String sort,
+            ServerHttpRequest request,
+            ServerHttpResponse response) {
+        return entitiesCtrl.list(limit, offset, continuation, type, sort, request, response).doOnSubscribe(sub -> log.trace("Request within scope {}", label));
     }
 
 
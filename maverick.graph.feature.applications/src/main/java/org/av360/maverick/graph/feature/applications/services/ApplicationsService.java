@@ -17,6 +17,7 @@ import org.av360.maverick.graph.feature.applications.services.model.Configuratio
 import org.av360.maverick.graph.feature.applications.services.model.QueryVariables;
 import org.av360.maverick.graph.feature.applications.services.vocab.ApplicationTerms;
 import org.av360.maverick.graph.feature.applications.store.ApplicationsStore;
+import org.av360.maverick.graph.model.context.Environment;
 import org.av360.maverick.graph.model.context.SessionContext;
 import org.av360.maverick.graph.model.enums.RepositoryType;
 import org.av360.maverick.graph.model.errors.InconsistentModelException;
@@ -28,7 +29,9 @@ import org.av360.maverick.graph.model.vocabulary.Local;
 import org.av360.maverick.graph.model.vocabulary.SDO;
 import org.av360.maverick.graph.services.IdentifierServices;
 import org.av360.maverick.graph.services.config.RequiresPrivilege;
+import org.av360.maverick.graph.store.EntityStore;
 import org.av360.maverick.graph.store.rdf.helpers.BindingsAccessor;
+import org.av360.maverick.graph.store.rdf.helpers.StoreStatistics;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.model.util.ModelBuilder;
@@ -62,11 +65,13 @@ public class ApplicationsService implements ApplicationListener<GraphApplication
     private boolean caching_enabled = true;
 
     private final ApplicationsStore applicationsStore;
+    private final EntityStore entityStore;
     private final ApplicationEventPublisher eventPublisher;
 
 
-    public ApplicationsService(ApplicationsStore applicationsStore, ApplicationEventPublisher eventPublisher) {
+    public ApplicationsService(ApplicationsStore applicationsStore, EntityStore entityStore, ApplicationEventPublisher eventPublisher) {
         this.applicationsStore = applicationsStore;
+        this.entityStore = entityStore;
         this.eventPublisher = eventPublisher;
         // this.cache = Caffeine.newBuilder().recordStats().expireAfterAccess(60, TimeUnit.MINUTES).build();
         this.cache = Caffeine.newBuilder().recordStats().build();
@@ -150,11 +155,31 @@ public class ApplicationsService implements ApplicationListener<GraphApplication
                 .doOnSubscribe(StreamsLogger.debug(log, "Updating configuration key '{}' for application with label '{}'", configKey, application.label()));
     }
 
+    /**
+     * Replaces the metric with the given name: the previous values of the metric are removed before the new value is
+     * stored.
+     */
     @RequiresPrivilege(Authorities.MAINTAINER_VALUE)
     public Mono<Void> setMetric(Application application, String key, Serializable value, SessionContext ctx) {
         ModelBuilder m = this.buildMetricsItem(key, value, application.iri(), null);
+        Environment environment = ctx.updateEnvironment(env -> env.setRepositoryType(RepositoryType.APPLICATION)).getEnvironment();
 
-        return this.applicationsStore.insertModel(m.build(), ctx.updateEnvironment(env -> env.setRepositoryType(RepositoryType.APPLICATION)).getEnvironment())
+        SelectQuery listMetricsItemsQuery = Queries.SELECT(QueryVariables.varNodeMetricsItem)
+                .where(QueryVariables.varNodeMetricsItem.isA(SDO.QUANTITATIVE_VALUE)
+                        .andHas(SDO.NAME, key)
+                        .andHas(ApplicationTerms.METRIC_FOR, application.iri())
+                );
+        Flux<IRI> previousItems = this.applicationsStore.query(listMetricsItemsQuery, environment)
+                .map(BindingsAccessor::new)
+                .map(ba -> ba.findValue(QueryVariables.varNodeMetricsItem))
+                .filter(Optional::isPresent)
+                .filter(opt -> opt.get().isIRI())
+                .map(opt -> (IRI) opt.get());
+
+        return previousItems.flatMap(metricsNode -> this.applicationsStore.listStatements(metricsNode, null, null, environment))
+                .map(LinkedHashModel::new)
+                .concatMap(model -> this.applicationsStore.deleteModel(model, environment))
+                .then(this.applicationsStore.insertModel(m.build(), environment))
                 .then()
                 .doOnSuccess(app -> {
                     log.trace("Updated metrics '{}' of application with label '{}'", application.key(), application.label());
@@ -162,6 +187,23 @@ public class ApplicationsService implements ApplicationListener<GraphApplication
                 .doOnSubscribe(StreamsLogger.debug(log, "Updating configuration key '{}' for node with label '{}'", key, application.label()));
     }
 
+    /**
+     * Returns the statistics of the entities repository of the application, which are maintained by the store with each
+     * commit (nothing is counted here).
+     */
+    @RequiresPrivilege(Authorities.READER_VALUE)
+    public Mono<StoreStatistics> getStatistics(Application application, SessionContext ctx) {
+        assertReadPrivilege(application, ctx);
+
+        return this.entityStore.getStatistics(ctx.updateEnvironment(env -> {
+                    env.withScope(application.label()).setRepositoryType(RepositoryType.ENTITIES);
+                    env.setConfiguration(Environment.RepositoryConfigurationKey.FLAG_PERSISTENT, application.flags().isPersistent());
+                    env.setConfiguration(Environment.RepositoryConfigurationKey.FLAG_PUBLIC, application.flags().isPublic());
+                    env.setConfiguration(Environment.RepositoryConfigurationKey.KEY, application.key());
+                }).getEnvironment())
+                .doOnSubscribe(StreamsLogger.trace(log, "Reading statistics of application with label '{}'", application.label()));
+    }
+
     @RequiresPrivilege(Authorities.MAINTAINER_VALUE)
     public Mono<Void> deleteConfigurationItem(Application application, String configurationKey, SessionContext ctx) {
         this.assertUpdatePrivilege(application, ctx);
@@ -25,6 +25,8 @@ public class QueryVariables {
 
     public static final Variable varConfigurationItems = SparqlBuilder.var("appConfigItem");
 
+    public static final Variable varNodeMetricsItem = SparqlBuilder.var("metricsItem");
+
     public static final Variable varNodeSubscription = SparqlBuilder.var("subNode");
     public static final Variable varSubKey = SparqlBuilder.var("subId");
     public static final Variable varSubIssued = SparqlBuilder.var("subIssued");
@@ -109,10 +109,10 @@ public class ApplicationRepositoryBuilder extends DefaultRepositoryBuilder {
 
         if (environment.getConfiguration(Environment.RepositoryConfigurationKey.FLAG_PERSISTENT).map(Boolean::parseBoolean).orElse(false)) {
             Path path = Paths.get(store.getDirectory(), environment.getConfiguration(Environment.RepositoryConfigurationKey.KEY).get());
-            return super.getCache().get(label, s -> super.initializePersistentRepository(path, label));
+            return super.resolveRepository(label, () -> super.initializePersistentRepository(path, label, store));
 
         } else {
-            return super.getCache().get(label, s -> super.initializeVolatileRepository(label));
+            return super.resolveRepository(label, () -> super.initializeVolatileRepository(label, store));
         }
 
 
@@ -183,11 +183,11 @@ public class ApplicationRepositoryBuilder extends DefaultRepositoryBuilder {
 
         if (!Boolean.parseBoolean(appConfig.get(CONFIG_KEYS.FLAG_PERSISTENT.toString()))) {
             log.debug("Resolving in-memory repository for application with label '{}'", appConfig.get(CONFIG_KEYS.LABEL.toString()));
-            return super.getCache().get(label, s -> super.initializeVolatileRepository(label));
+            return super.getCache().get(label, s -> super.initializeVolatileRepository(label, store));
 
         } else {
             Path path = Paths.get(store.getDirectory(), appConfig.get(CONFIG_KEYS.KEY.toString()));
-            return super.getCache().get(label, s -> super.initializePersistentRepository(path, label));
+            return super.getCache().get(label, s -> super.initializePersistentRepository(path, label, store));
         }
     }
 
@@ -1,7 +1,8 @@
 package org.av360.maverick.graph.feature.jobs;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import org.av360.maverick.graph.feature.applications.services.ApplicationsService;
 import org.av360.maverick.graph.model.context.SessionContext;
 import org.av360.maverick.graph.model.entities.Job;
 import org.av360.maverick.graph.model.util.ValidateReactive;
@@ -9,16 +10,16 @@ import org.av360.maverick.graph.services.ConfigurationService;
 import org.av360.maverick.graph.services.EntityServices;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFWriter;
-import org.eclipse.rdf4j.rio.RDFWriterRegistry;
+import org.eclipse.rdf4j.rio.Rio;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
@@ -34,18 +35,36 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the statements of a repository to a local path and/or a S3 bucket.
+ * <p>
+ * The export is streaming: the statements are read from the repository cursor and written incrementally (optionally
+ * compressed) into a pipe, from where the sinks consume the data buffers. Both sinks subscribe to the same stream, the
+ * slower sink defines the pace. The memory required is independent of the size of the repository.
+ * <p>
+ * The export fails if reading from the repository fails (the sinks do not complete with a truncated export), and reading
+ * from the repository is canceled if the sinks fail or the job is canceled.
+ */
 @Service
 @Slf4j(topic = "graph.feat.jobs.exports")
 public class ExportRepositoryJob implements Job {
 
     public static String NAME = "exportApplication";
+
+    private static final int PIPE_SIZE = 64 * 1024;
     private final EntityServices entityServices;
     private final ConfigurationService configurationService;
+    private final MeterRegistry meterRegistry;
 
-    public ExportRepositoryJob(EntityServices service,  ConfigurationService configurationService) {
+    public ExportRepositoryJob(EntityServices service, ConfigurationService configurationService, MeterRegistry meterRegistry) {
         this.entityServices = service;
         this.configurationService = configurationService;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -63,26 +82,43 @@ public class ExportRepositoryJob implements Job {
         return configurationService.getValue("export_s3_bucket", ctx).block();
     }
 
+    protected RDFFormat resolveFormat(SessionContext ctx) {
+        String format = configurationService.getValue("export_format", ctx).blockOptional().orElse("turtle");
+        return switch (format.toLowerCase()) {
+            case "nquads", "n-quads", "nq" -> RDFFormat.NQUADS;
+            case "ntriples", "n-triples", "nt" -> RDFFormat.NTRIPLES;
+            default -> RDFFormat.TURTLE;
+        };
+    }
+
+    protected boolean resolveCompression(SessionContext ctx) {
+        return configurationService.getValue("export_compression", ctx).blockOptional().map(value -> value.equalsIgnoreCase("gzip")).orElse(false);
+    }
+
     @Override
     public Mono<Void> run(SessionContext ctx) {
         return ValidateReactive.notNull(ctx.getEnvironment().getRepositoryType())
                 .then(Mono.defer(() -> {
-                    // FIXME: @mumi, it should be valid to run address multiple export targets in parallel
-                    // see also https://projectreactor.io/docs/core/release/api/reactor/core/publisher/MonoSink.html#success--
-                    Flux<DataBuffer> dataBufferFlux = exportRdfStatements(ctx).share();
-
-                    List<Mono<Void>> operations = new ArrayList<>();
-
+                    RDFFormat format = this.resolveFormat(ctx);
+                    boolean compressed = this.resolveCompression(ctx);
+                    String filename = "%s.%s%s".formatted(
+                            Objects.nonNull(ctx.getEnvironment().getScope()) ? ctx.getEnvironment().getScope().label() : "default",
+                            format.getDefaultFileExtension(),
+                            compressed ? ".gz" : "");
+
+                    List<Function<Flux<DataBuffer>, Mono<Void>>> sinks = new ArrayList<>();
                     if (StringUtils.hasLength(resolveLocalStorageDirectory(ctx))) {
-                        operations.add(saveRdfToLocalPath(dataBufferFlux, ctx));
+                        sinks.add(dataBuffers -> saveRdfToLocalPath(dataBuffers, filename, ctx));
                     }
-
                     if (StringUtils.hasLength(resolveS3Bucket(ctx))) {
                         S3AsyncClient s3Client = createS3Client(resolveS3Host(ctx));
-                        operations.add(uploadRdfToS3(s3Client, dataBufferFlux, ctx).then());
+                        sinks.add(dataBuffers -> uploadRdfToS3(s3Client, dataBuffers, filename, ctx).then());
                     }
+                    if (sinks.isEmpty()) return Mono.empty();
 
-                    return Flux.merge(operations).then();
+                    // the export starts once all sinks have subscribed (no sink misses the first buffers), and is canceled if all sinks have been canceled
+                    Flux<DataBuffer> dataBufferFlux = exportRdfStatements(format, compressed, ctx).publish().refCount(sinks.size());
+                    return Flux.merge(sinks.stream().map(sink -> sink.apply(dataBufferFlux)).toList()).then();
                 }));
     }
 
@@ -93,45 +129,59 @@ public class ExportRepositoryJob implements Job {
                 .build();
     }
 
-    private Flux<DataBuffer> exportRdfStatements(SessionContext ctx) {
-        PipedInputStream in = new PipedInputStream();
-        PipedOutputStream out;
-
-        try {
-            out = new PipedOutputStream(in);
-        } catch (IOException e) {
-            return Flux.error(e);
-        }
-
-        Mono.fromRunnable(() -> {
+    private Flux<DataBuffer> exportRdfStatements(RDFFormat format, boolean compressed, SessionContext ctx) {
+        return Flux.defer(() -> {
+            PipedInputStream in = new PipedInputStream(PIPE_SIZE);
+            OutputStream out;
             try {
-                this.entityServices.getStore(ctx).listStatements(null, null, null, ctx.getEnvironment())
-                        .doOnNext(statements -> {
-                            RDFWriter writer = RDFWriterRegistry.getInstance().get(RDFFormat.TURTLE).get().getWriter(new OutputStreamWriter(out));
-                            writer.startRDF();
-                            statements.forEach(writer::handleStatement);
-                            writer.endRDF();
-                        })
-                        .publishOn(Schedulers.boundedElastic())
-                        .doOnTerminate(() -> {
-                            try {
-                                out.close();
-                            } catch (IOException e) {
-                                log.error("Error closing stream", e);
-                            }
-                        })
-                        .subscribe();
-            } catch (Exception e) {
-                log.error("Error exporting RDF statements", e);
+                out = new PipedOutputStream(in);
+                if (compressed) out = new GZIPOutputStream(out, PIPE_SIZE);
+                out = new BufferedOutputStream(out, PIPE_SIZE);
+            } catch (IOException e) {
+                return Flux.error(e);
             }
-        }).subscribeOn(Schedulers.boundedElastic()).subscribe();
 
-        return DataBufferUtils.readInputStream(() -> in, new DefaultDataBufferFactory(), 8192);
+            OutputStream target = out;
+            RDFWriter writer = Rio.createWriter(format, target);
+            Counter exported = this.meterRegistry.counter("graph.jobs.export.statements", "format", format.getName());
+            long started = System.nanoTime();
+            AtomicLong count = new AtomicLong();
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+
+            // writing blocks while the pipe is full, the cursor is only advanced as fast as the sinks consume the buffers
+            Mono<Void> writing = this.entityServices.getStore(ctx).streamModel(ctx.getEnvironment())
+                    .doOnSubscribe(subscription -> writer.startRDF())
+                    .doOnNext(statement -> {
+                        writer.handleStatement(statement);
+                        count.incrementAndGet();
+                    })
+                    .doOnComplete(writer::endRDF)
+                    // recorded before the pipe is closed, the reader fails instead of completing with the truncated export
+                    .doOnError(failure::set)
+                    .doFinally(signal -> {
+                        try {
+                            target.close();
+                        } catch (IOException e) {
+                            log.error("Error closing stream", e);
+                        }
+                        exported.increment(count.get());
+                        double seconds = Math.max(1, System.nanoTime() - started) / 1_000_000_000.0;
+                        log.info("Exported {} statements in format {} with {} statements/s", count.get(), format.getName(), Math.round(count.get() / seconds));
+                    })
+                    .then();
+
+            // the writer is started with the reader, and disposed once the reader terminates or is canceled
+            return Flux.using(
+                    () -> writing.subscribe(null, error -> log.error("Error exporting RDF statements", error)),
+                    subscription -> DataBufferUtils.readInputStream(() -> in, new DefaultDataBufferFactory(), 8192)
+                            .concatWith(Flux.defer(() -> Objects.isNull(failure.get())
+                                    ? Flux.<DataBuffer>empty()
+                                    : Flux.<DataBuffer>error(new IOException("Export aborted after %d statements".formatted(count.get()), failure.get())))),
+                    Disposable::dispose);
+        });
     }
 
-    private Mono<Void> saveRdfToLocalPath(Flux<DataBuffer> dataBufferFlux, SessionContext ctx) {
-        String filename = Objects.nonNull(ctx.getEnvironment().getScope()) ? ctx.getEnvironment().getScope().label() : "default";
-
+    private Mono<Void> saveRdfToLocalPath(Flux<DataBuffer> dataBufferFlux, String filename, SessionContext ctx) {
         Path directoryPath = Paths.get(this.resolveLocalStorageDirectory(ctx));
         try {
             Files.createDirectories(directoryPath);
@@ -139,15 +189,14 @@ public class ExportRepositoryJob implements Job {
             return Mono.error(new RuntimeException("Error creating directories for export", e));
         }
 
-        Path filePath = directoryPath.resolve("%s.ttl".formatted(filename));
+        Path filePath = directoryPath.resolve(filename);
         return DataBufferUtils.write(dataBufferFlux, filePath).then();
     }
 
-    private Mono<PutObjectResponse> uploadRdfToS3(S3AsyncClient s3Client, Flux<DataBuffer> dataBufferFlux, SessionContext ctx) {
-        String filename = Objects.nonNull(ctx.getEnvironment().getScope()) ? ctx.getEnvironment().getScope().label() : "default";
+    private Mono<PutObjectResponse> uploadRdfToS3(S3AsyncClient s3Client, Flux<DataBuffer> dataBufferFlux, String filename, SessionContext ctx) {
         PutObjectRequest putObjectRequest = PutObjectRequest.builder()
                 .bucket(resolveS3Bucket(ctx))
-                .key("%s.ttl".formatted(filename))
+                .key(filename)
                 .build();
 
         //FIXME Is this correct? https://stackoverflow.com/a/76388223
@@ -10,11 +10,13 @@ import org.av360.maverick.graph.model.vocabulary.SDO;
 import org.av360.maverick.graph.services.EntityServices;
 import org.av360.maverick.graph.services.QueryServices;
 import org.av360.maverick.graph.services.ValueServices;
+import org.av360.maverick.graph.store.EntityStore;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.model.vocabulary.DC;
 import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.RDFS;
 import org.eclipse.rdf4j.model.vocabulary.SKOS;
 import org.eclipse.rdf4j.sparqlbuilder.constraint.Expressions;
@@ -68,6 +70,7 @@ import java.util.TreeSet;
 public class MergeDuplicatesJob implements Job {
 
     public static String NAME = "detectDuplicates";
+
     private final EntityServices entityServices;
     private final QueryServices queryServices;
     private final ValueServices valueServices;
@@ -135,23 +138,15 @@ public class MergeDuplicatesJob implements Job {
          */
 
 
-        Variable idVariable = SparqlBuilder.var("id");
-
-        SelectQuery findDuplicates = Queries.SELECT(idVariable).where(
-                idVariable.isA(this.valueFactory.createIRI(duplicate.type())),
-                idVariable.has(duplicate.sharedProperty(), this.valueFactory.createLiteral(duplicate.sharedValue()))
-        );
+        IRI type = this.valueFactory.createIRI(duplicate.type());
+        EntityStore store = this.entityServices.getStore(ctx);
 
-        return this.queryServices.queryValues(findDuplicates, RepositoryType.ENTITIES, ctx)
+        // the characteristic properties are looked up in the identifier index of the store
+        return store.findSubjects(duplicate.sharedProperty(), this.valueFactory.createLiteral(duplicate.sharedValue()), ctx.getEnvironment())
                 .doOnSubscribe(subscription -> log.trace("Retrieving all duplicates of same type with value '{}' for property '{}' ", duplicate.sharedValue, duplicate.sharedProperty))
-                .flatMap(bindings -> {
-                    Value id = bindings.getValue(idVariable.getVarName());
-
-                    if (id.isIRI()) {
-                        return Mono.just(new Duplicate((IRI) id));
-                    } else return Mono.empty();
-
-                });
+                .filter(Value::isIRI)
+                .filterWhen(id -> store.hasStatement(id, RDF.TYPE, type, ctx.getEnvironment()))
+                .map(id -> new Duplicate((IRI) id));
 
     }
 
@@ -206,26 +201,22 @@ public class MergeDuplicatesJob implements Job {
     }
 
     /**
-     * Runs the query:   SELECT * WHERE { ?sub ?pre <duplicate id> }. to find all entities pointing to the identified duplicate entity (with the goal to reroute those statements to the original)
+     * Streams the statements pointing to the identified duplicate entity from the store (with the goal to reroute those statements to the original).
+     * The statements are collected before they are rerouted, the cursor (and its connection) is not kept open while rerouting.
      *
      * @param duplicate, the identified duplicate
      * @param ctx,       auth info
      * @return the statements pointing to the duplicate (as Flux)
      */
     private Flux<MislinkedStatement> findStatementsPointingToDuplicate(Duplicate duplicate, SessionContext ctx) {
-        Variable subject = SparqlBuilder.var("s");
-        Variable predicate = SparqlBuilder.var("p");
-
-        SelectQuery query = Queries.SELECT(subject, predicate).where(subject.has(predicate, duplicate.id()));
-        return queryServices.queryValues(query, RepositoryType.ENTITIES, ctx)
+        return this.entityServices.getStore(ctx).streamStatements(null, null, duplicate.id(), ctx.getEnvironment())
                 .doOnSubscribe(subscription -> log.trace("Retrieving all statements pointing to duplicate with id '{}'", duplicate.id()))
-                .flatMap(binding -> {
-                    Value pVal = binding.getValue(predicate.getVarName());
-                    Value sVal = binding.getValue(subject.getVarName());
-
-                    if (pVal.isIRI() && sVal.isIRI()) {
-                        log.trace("Statement with subject identifier {} pointing with  predicate {} to the duplicate", sVal.stringValue(), pVal.stringValue());
-                        return Mono.just(new MislinkedStatement((IRI) sVal, (IRI) pVal, duplicate.id()));
+                .collectList()
+                .flatMapIterable(statements -> statements)
+                .flatMap(statement -> {
+                    if (statement.getSubject().isIRI()) {
+                        log.trace("Statement with subject identifier {} pointing with  predicate {} to the duplicate", statement.getSubject().stringValue(), statement.getPredicate().stringValue());
+                        return Mono.just(new MislinkedStatement((IRI) statement.getSubject(), statement.getPredicate(), duplicate.id()));
                     } else return Mono.empty();
                 });
 
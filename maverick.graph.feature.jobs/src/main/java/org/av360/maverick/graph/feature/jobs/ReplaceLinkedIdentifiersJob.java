@@ -155,8 +155,7 @@ public class ReplaceLinkedIdentifiersJob implements Job {
 
 
     public Flux<StatementsBag> loadObjectStatements(SessionContext ctx) {
-        return this.entityServices.getStore(ctx).listStatements(null, Local.ORIGINAL_IDENTIFIER, null, ctx.getEnvironment())
-                .flatMapMany(Flux::fromIterable)
+        return this.entityServices.getStore(ctx).streamStatements(null, Local.ORIGINAL_IDENTIFIER, null, ctx.getEnvironment())
                 .filter(statement -> statement.getObject().isResource())
                 .flatMap(st ->
                         this.entityServices.getStore(ctx).listStatements(null, null, st.getObject(), ctx.getEnvironment())
@@ -58,6 +58,17 @@ public class ReplaceSubjectIdentifiersJob implements Job {
 
     public static String NAME = "replaceSubjectIdentifiers";
 
+    // formatted once, the parsed query is cached by the store
+    private static final String FIND_SUBJECT_CANDIDATES = """
+            SELECT DISTINCT ?a WHERE {
+              ?a a ?c .
+              FILTER NOT EXISTS {
+                FILTER STRSTARTS(str(?a), "%s").
+                }
+              }
+              LIMIT 10000
+            """.formatted(Local.Entities.NAMESPACE);
+
     private final QueryServices queryServices;
 
     private final EntityServices entityServices;
@@ -129,17 +140,7 @@ public class ReplaceSubjectIdentifiersJob implements Job {
 
 
     private Flux<Resource> findSubjectCandidates(SessionContext ctx) {
-        String tpl = """
-                SELECT DISTINCT ?a WHERE {
-                  ?a a ?c .
-                  FILTER NOT EXISTS {
-                    FILTER STRSTARTS(str(?a), "%s").
-                    }
-                  }
-                  LIMIT 10000
-                """;
-        String query = String.format(tpl, Local.Entities.NAMESPACE);
-        return this.queryServices.queryValues(query, RepositoryType.ENTITIES, ctx)
+        return this.queryServices.queryValues(FIND_SUBJECT_CANDIDATES, RepositoryType.ENTITIES, ctx)
                 .map(bindings -> bindings.getValue("a"))
                 .filter(Value::isResource)
                 .map(value -> (Resource) value);
@@ -17,12 +17,21 @@ public class DefaultConfigurationService implements ConfigurationService {
 
     @Value("${application.features.modules.jobs.scheduled.exportApplication.defaultS3BucketId:}")
     private String defaultS3BucketId;
+
+    @Value("${application.features.modules.jobs.scheduled.exportApplication.defaultFormat:turtle}")
+    private String defaultFormat;
+
+    @Value("${application.features.modules.jobs.scheduled.exportApplication.defaultCompression:none}")
+    private String defaultCompression;
+
     @Override
     public Mono<String> getValue(String key, SessionContext context) {
         return switch (key) {
             case "export_local_path" -> Mono.just(defaultLocalPath);
             case "export_s3_host" -> Mono.just(defaultS3Host);
             case "export_s3_bucket" -> Mono.just(defaultS3BucketId);
+            case "export_format" -> Mono.just(defaultFormat);
+            case "export_compression" -> Mono.just(defaultCompression);
             default -> Mono.empty();
         };
     }
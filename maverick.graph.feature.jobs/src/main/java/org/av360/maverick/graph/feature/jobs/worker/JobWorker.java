@@ -6,6 +6,7 @@ import org.av360.maverick.graph.model.entities.Job;
 import org.av360.maverick.graph.model.events.JobScheduledEvent;
 import org.av360.maverick.graph.model.security.Authorities;
 import org.av360.maverick.graph.services.SessionContextBuilderService;
+import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
@@ -14,6 +15,7 @@ import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
@@ -30,12 +32,15 @@ public class JobWorker {
 
     private final MeterRegistry meterRegistry;
 
+    private final Environment configuration;
 
-    public JobWorker(Set<SessionContextBuilderService> builders, JobQueue eventListener, List<Job> jobs, MeterRegistry meterRegistry) {
+
+    public JobWorker(Set<SessionContextBuilderService> builders, JobQueue eventListener, List<Job> jobs, MeterRegistry meterRegistry, Environment configuration) {
         this.builders = builders;
         this.requestedJobs = eventListener;
         this.registeredJobs = jobs;
         this.meterRegistry = meterRegistry;
+        this.configuration = configuration;
         this.scheduler = Schedulers.newBoundedElastic(2, 10, "jobs");
         this.activeJobs = new HashMap<>();
     }
@@ -66,6 +71,7 @@ public class JobWorker {
                     .reduceWith(() -> Mono.just(event.getSessionContext()), (update, builderService) -> update.flatMap(builderService::build)).flatMap(mono -> mono)
                     // jobs always run with System authentication
                     .doOnNext(ctx -> ctx.withAuthority(Authorities.MAINTAINER))
+                    .doOnNext(ctx -> this.getTimeout(requestedJob.get()).ifPresent(timeout -> ctx.updateEnvironment(env -> env.setQueryLimits(env.getQueryLimits().restrict(timeout, 0)))))
                     .flatMap(ctx -> requestedJob.get().run(ctx))
                     .subscribeOn(scheduler)
                     .doOnSubscribe(subscription -> {
@@ -95,6 +101,15 @@ public class JobWorker {
 
 
 
+    /**
+     * The reads of a job are aborted after its timeout, configured with 'application.features.modules.jobs.scheduled.[job].timeout'
+     * (the default timeout of the store applies if missing).
+     */
+    private Optional<Duration> getTimeout(Job job) {
+        Duration timeout = this.configuration.getProperty("application.features.modules.jobs.scheduled.%s.timeout".formatted(job.getName()), Duration.class);
+        return Optional.ofNullable(timeout).filter(Duration::isPositive);
+    }
+
     public List<Job> getRegisteredJobs() {
         return registeredJobs;
     }
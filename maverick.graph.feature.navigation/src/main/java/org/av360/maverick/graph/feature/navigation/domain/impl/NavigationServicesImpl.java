@@ -9,8 +9,11 @@ import org.av360.maverick.graph.model.vocabulary.SDO;
 import org.av360.maverick.graph.services.EntityServices;
 import org.av360.maverick.graph.services.NavigationServices;
 import org.av360.maverick.graph.services.config.RequiresPrivilege;
+import org.av360.maverick.graph.store.rdf.fragments.RdfEntity;
 import org.av360.maverick.graph.store.rdf.fragments.TripleModel;
+import org.av360.maverick.graph.store.rdf.helpers.EntitySummary;
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
@@ -26,6 +29,8 @@ import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -108,30 +113,61 @@ public class NavigationServicesImpl implements NavigationServices {
 
 
 
+    /**
+     * Lists the entities (from their summaries) with hydra paging links. The entities can be filtered by type and sorted by
+     * label. The pages are linked with continuation tokens (keyset pagination), unless an offset has been requested explicitly.
+     */
     @RequiresPrivilege(Authorities.READER_VALUE)
     public Flux<AnnotatedStatement> list(Map<String, String> params, SessionContext ctx) {
         Integer limit = Optional.ofNullable(params.get("limit")).map(Integer::parseInt).orElse(defaultLimit);
-        Integer offset = Optional.ofNullable(params.get("offset")).map(Integer::parseInt).orElse(0);
         params.put("limit", limit.toString());
-        params.put("offset", offset.toString());
 
+        if (params.containsKey("offset")) {
+            return this.listWithOffset(limit, Integer.parseInt(params.get("offset")), params, ctx);
+        }
 
+        EntitySummary.Order order;
+        try {
+            order = EntitySummary.Order.parse(params.get("sort"));
+        } catch (IllegalArgumentException e) {
+            return Flux.error(e);
+        }
 
-        return this.entityServices.list(limit, offset, ctx)
+        String continuation = params.get("continue");
+        return this.entityServices.listSummaries(limit, continuation, params.get("type"), order, ctx)
                 .collectList()
-                .map(list -> {
-                    ModelBuilder builder = new ModelBuilder();
-                    IRI nodeCollection = this.generateResolvableIRI("/api/entities");
-                    IRI nodePaging = this.generateResolvableIRI("/api/entities",  params);
+                .map(summaries -> {
+                    ModelBuilder builder = this.buildCollection(params);
+                    builder.add(HYDRA.LIMIT, limit);
 
-                    builder.setNamespace(HYDRA.PREFIX, HYDRA.NAMESPACE);
-                    builder.add(nodeCollection, RDF.TYPE, HYDRA.COLLECTION);
-                    builder.add(nodeCollection, HYDRA.VIEW, nodePaging);
-                    builder.add(nodeCollection, HYDRA.PREVIOUS, this.generateResolvableIRI("/nav"));
+                    if (StringUtils.hasLength(continuation)) {
+                        Map<String, String> first = new LinkedHashMap<>(params);
+                        first.remove("continue");
+                        builder.add(HYDRA.FIRST, this.generateResolvableIRI("/api/entities", first));
+                    }
+                    if (summaries.size() >= limit) {
+                        Map<String, String> next = new LinkedHashMap<>(params);
+                        next.put("continue", summaries.get(summaries.size() - 1).position().encode());
+                        builder.add(HYDRA.NEXT, this.generateResolvableIRI("/api/entities", next));
+                    }
 
-                    // create navigation
-                    builder.subject(nodePaging);
-                    builder.add(RDF.TYPE, HYDRA.PARTIAL_COLLECTION_VIEW);
+                    List<RdfEntity> list = summaries.stream()
+                            .filter(summary -> summary.id().isIRI())
+                            .map(summary -> new RdfEntity(summary.id(), summary.asModel()))
+                            .toList();
+                    return this.addMembers(builder, list);
+                })
+                .map(model -> model.stream().map(statement -> AnnotatedStatement.wrap(statement, model.getNamespaces())))
+                .flatMapMany(Flux::fromStream);
+    }
+
+    private Flux<AnnotatedStatement> listWithOffset(Integer limit, Integer offset, Map<String, String> params, SessionContext ctx) {
+        params.put("offset", offset.toString());
+
+        return this.entityServices.list(limit, offset, ctx)
+                .collectList()
+                .map(list -> {
+                    ModelBuilder builder = this.buildCollection(params);
 
                     builder.add(HYDRA.LIMIT, limit);
                     builder.add(HYDRA.OFFSET, offset);
@@ -148,19 +184,41 @@ public class NavigationServicesImpl implements NavigationServices {
                         builder.add(HYDRA.NEXT, this.generateResolvableIRI("/api/entities", params));
                     }
 
-                    list.forEach(rdfEntity -> {
-                        builder.add(HYDRA.MEMBER, rdfEntity.getIdentifier());
-                        builder.build().getNamespaces().addAll(rdfEntity.getNamespaces());
-                        builder.build().addAll(rdfEntity.getModel());
-                    });
-
-                    return builder.build();
-
+                    return this.addMembers(builder, list);
                 })
                 .map(model -> model.stream().map(statement -> AnnotatedStatement.wrap(statement, model.getNamespaces())))
                 .flatMapMany(Flux::fromStream);
     }
 
+    /**
+     * @return the builder with the collection and its view (the current page) as subject
+     */
+    private ModelBuilder buildCollection(Map<String, String> params) {
+        ModelBuilder builder = new ModelBuilder();
+        IRI nodeCollection = this.generateResolvableIRI("/api/entities");
+        IRI nodePaging = this.generateResolvableIRI("/api/entities",  params);
+
+        builder.setNamespace(HYDRA.PREFIX, HYDRA.NAMESPACE);
+        builder.add(nodeCollection, RDF.TYPE, HYDRA.COLLECTION);
+        builder.add(nodeCollection, HYDRA.VIEW, nodePaging);
+        builder.add(nodeCollection, HYDRA.PREVIOUS, this.generateResolvableIRI("/nav"));
+
+        // create navigation
+        builder.subject(nodePaging);
+        builder.add(RDF.TYPE, HYDRA.PARTIAL_COLLECTION_VIEW);
+        return builder;
+    }
+
+    private Model addMembers(ModelBuilder builder, List<RdfEntity> list) {
+        list.forEach(rdfEntity -> {
+            builder.add(HYDRA.MEMBER, rdfEntity.getIdentifier());
+            builder.build().getNamespaces().addAll(rdfEntity.getNamespaces());
+            builder.build().addAll(rdfEntity.getModel());
+        });
+
+        return builder.build();
+    }
+
     public IRI generateResolvableIRI(String path, Map<String, String> params) {
         StringBuilder sb = new StringBuilder(ResolvableUrlPrefix);
         sb.append(path);
@@ -23,6 +23,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
 import javax.annotation.Nullable;
 import java.io.FileNotFoundException;
@@ -108,11 +109,14 @@ public class FileServices {
 
 
     public Mono<FileAccessResult> read(String contentKey, SessionContext ctx) {
-        return entityServices.resolveAndVerify(contentKey, ctx)
+        Mono<Tuple2<RdfEntity, IRI>> content = entityServices.resolveAndVerify(contentKey, ctx)
                 .flatMap(contentId -> Mono.zip(
                         this.entityServices.get(contentId, ctx),
                         Mono.just(contentId)
-                )).flatMap(pair -> {
+                ));
+
+        return entityServices.withSnapshot(content, ctx)
+                .flatMap(pair -> {
                     RdfEntity embedded = pair.getT1();
                     IRI contentID = pair.getT2();
 
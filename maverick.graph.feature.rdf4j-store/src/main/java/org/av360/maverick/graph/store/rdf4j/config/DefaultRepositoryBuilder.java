@@ -2,57 +2,160 @@ package org.av360.maverick.graph.store.rdf4j.config;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.Validate;
 import org.av360.maverick.graph.model.context.Environment;
 import org.av360.maverick.graph.model.enums.RepositoryType;
+import org.av360.maverick.graph.model.vocabulary.DC;
+import org.av360.maverick.graph.model.vocabulary.DCTERMS;
+import org.av360.maverick.graph.model.vocabulary.ESCO;
+import org.av360.maverick.graph.model.vocabulary.FOAF;
+import org.av360.maverick.graph.model.vocabulary.ICAL;
+import org.av360.maverick.graph.model.vocabulary.RDFS;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.model.vocabulary.SKOS;
 import org.av360.maverick.graph.store.RepositoryBuilder;
+import org.av360.maverick.graph.store.behaviours.FullTextSearchable;
 import org.av360.maverick.graph.store.behaviours.TripleStore;
 import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf4j.repository.util.FragmentCache;
+import org.av360.maverick.graph.store.rdf4j.repository.util.IdentifierIndex;
+import org.av360.maverick.graph.store.rdf4j.repository.util.QueryResultCache;
+import org.av360.maverick.graph.store.rdf4j.repository.util.RepositoryVersions;
+import org.av360.maverick.graph.store.rdf4j.repository.util.SummaryIndex;
+import org.av360.maverick.graph.store.rdf4j.repository.util.RepositoryStatistics;
+import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.base.RepositoryWrapper;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.NotifyingSail;
 import org.eclipse.rdf4j.sail.lmdb.LmdbStore;
 import org.eclipse.rdf4j.sail.lmdb.config.LmdbStoreConfig;
+import org.eclipse.rdf4j.sail.lucene.LuceneSail;
 import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import reactor.core.publisher.Mono;
 
 import javax.annotation.Nullable;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Component
 @Slf4j(topic = "graph.repo.cfg.builder")
 @ConfigurationProperties(prefix = "application")
 public class DefaultRepositoryBuilder implements RepositoryBuilder {
 
+    /**
+     * Increment if the documents of the full-text index change (persistent indexes are rebuilt).
+     */
+    private static final int FULL_TEXT_INDEX_VERSION = 1;
+
+    private Cache<String, LabeledRepository> cache;
+
+    /**
+     * All repositories which have been opened and not closed yet (cached or retired), at most one per label. Repositories are
+     * only opened and closed while holding the lock of their label (see {@link #lockOf(String)}).
+     */
+    private final Map<String, LabeledRepository> open;
+
+    /**
+     * Repositories which have been evicted from the cache while in use. They are closed as soon as they are not in use
+     * anymore, or moved back into the cache if requested again in the meantime.
+     */
+    private final Map<String, LabeledRepository> retired;
 
-    private final Cache<String, LabeledRepository> cache;
+    private final Map<String, Object> locks;
+
+    /**
+     * Weight of each open repository, estimated once when it is opened (see {@link #estimateWeight(LabeledRepository)}).
+     */
+    private final Map<String, Integer> weights;
 
     protected final MeterRegistry meterRegistry;
 
+    private Timer evictionTimer;
+    private Timer openTimer;
+    private RepositoryStatistics repositoryStatistics;
+    private IdentifierIndex identifierIndex;
+    private SummaryIndex summaryIndex;
+    private FragmentCache fragmentCache;
+    private QueryResultCache queryResultCache;
+    private RepositoryVersions repositoryVersions;
+    private GroupCommits groupCommits;
+    private ProvenanceWriter provenanceWriter;
+
+    /**
+     * Maximum weight of all cached repositories, in megabytes of storage (see {@link #estimateWeight(LabeledRepository)})
+     */
+    @Value("${application.storage.cache.maximumWeight:8192}")
+    private long maximumWeight;
 
+    /**
+     * Repositories not accessed within this duration are closed (and transparently reopened on the next access)
+     */
+    @Value("${application.storage.cache.idleTimeout:30m}")
+    private Duration idleTimeout;
+
+    /**
+     * Repositories of {@link FullTextSearchable} stores are wrapped in a Lucene sail, which indexes the characteristic properties
+     */
+    @Value("${application.storage.search.enabled:true}")
+    private boolean fullTextIndex;
+
+
+    /**
+     * Writes the remaining provenance, then shuts down all open repositories. Each builder (e.g. the builder for the
+     * applications) drains the provenance writer itself, since the builders are destroyed before the writer.
+     */
     @PreDestroy
     public void shutdownRepositories() {
-        if(cache != null) {
-            cache.asMap().values().forEach(RepositoryWrapper::shutDown);
-        }
-
+        this.provenanceWriter.close();
+        open.values().forEach(RepositoryWrapper::shutDown);
     }
 
     @PostConstruct
     public void init() {
+        this.cache = Caffeine.newBuilder()
+                .recordStats()
+                .maximumWeight(this.maximumWeight)
+                .weigher((String key, LabeledRepository repository) -> this.weights.getOrDefault(key, 0))
+                .expireAfter(new IdleExpiry(this.idleTimeout))
+                .scheduler(Scheduler.systemScheduler())
+                .evictionListener((String key, LabeledRepository repository, RemovalCause cause) -> this.retireRepository(key, repository, cause))
+                .build();
+
+        this.evictionTimer = Timer.builder("graph.store.repository.cache.latency").tag("operation", "evict").register(this.meterRegistry);
+        this.openTimer = Timer.builder("graph.store.repository.cache.latency").tag("operation", "open").register(this.meterRegistry);
 
         Gauge.builder("graph.store.repository.cache", cache, Cache::estimatedSize)
                 .tag("metric", "estimatedSize")
@@ -69,16 +172,62 @@ public class DefaultRepositoryBuilder implements RepositoryBuilder {
         Gauge.builder("graph.store.repository.cache", cache, cache -> cache.stats().hitCount())
                 .tag("metric", "hitCount")
                 .register(this.meterRegistry);
+
+        Gauge.builder("graph.store.repository.cache", cache, cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L))
+                .tag("metric", "weightedSize")
+                .register(this.meterRegistry);
+
+        Gauge.builder("graph.store.repository.cache", retired, Map::size)
+                .tag("metric", "retiredSize")
+                .register(this.meterRegistry);
     }
 
     public DefaultRepositoryBuilder(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
+        this.open = new ConcurrentHashMap<>();
+        this.retired = new ConcurrentHashMap<>();
+        this.locks = new ConcurrentHashMap<>();
+        this.weights = new ConcurrentHashMap<>();
+    }
 
+    @Autowired
+    private void setRepositoryStatistics(RepositoryStatistics repositoryStatistics) {
+        this.repositoryStatistics = repositoryStatistics;
+    }
 
-        cache = Caffeine.newBuilder()
-                .recordStats()
-                .build();
+    @Autowired
+    private void setIdentifierIndex(IdentifierIndex identifierIndex) {
+        this.identifierIndex = identifierIndex;
+    }
+
+    @Autowired
+    private void setSummaryIndex(SummaryIndex summaryIndex) {
+        this.summaryIndex = summaryIndex;
+    }
+
+    @Autowired
+    private void setFragmentCache(FragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Autowired
+    private void setQueryResultCache(QueryResultCache queryResultCache) {
+        this.queryResultCache = queryResultCache;
+    }
+
+    @Autowired
+    private void setRepositoryVersions(RepositoryVersions repositoryVersions) {
+        this.repositoryVersions = repositoryVersions;
+    }
+
+    @Autowired
+    private void setGroupCommits(GroupCommits groupCommits) {
+        this.groupCommits = groupCommits;
+    }
 
+    @Autowired
+    private void setProvenanceWriter(ProvenanceWriter provenanceWriter) {
+        this.provenanceWriter = provenanceWriter;
     }
 
 
@@ -132,8 +281,12 @@ public class DefaultRepositoryBuilder implements RepositoryBuilder {
             String key = formatRepositoryLabel(environment);
             LabeledRepository repository = cache.getIfPresent(key);
             if(!Objects.isNull(repository)) {
-                repository.shutDown();
-                cache.invalidate(key);
+                synchronized (this.lockOf(key)) {
+                    repository.shutDown();
+                    this.open.remove(key, repository);
+                }
+                // not while holding the lock, the cache holds its own lock while loading a repository (see #openRepository)
+                cache.asMap().remove(key, repository);
             }
 
         }
@@ -164,30 +317,176 @@ public class DefaultRepositoryBuilder implements RepositoryBuilder {
         meterRegistry.counter("graph.store.repository", "method", "access", "label", key).increment();
 
         if (!StringUtils.hasLength(path)) {
-            return getCache().get(key, s -> this.initializeVolatileRepository(key));
+            return this.resolveRepository(key, () -> this.initializeVolatileRepository(key, store));
         } else {
             Path p = Paths.get(path, "default");
+            return this.resolveRepository(key, () -> this.initializePersistentRepository(p, key, store));
+        }
+        // .doOnSubscribe(StreamsLogger.trace(log, "Resolving repository of type '{}', label '{}'", repositoryType, buildRepositoryLabel(repositoryType, details)));
+    }
 
-            LabeledRepository repository = getCache().getIfPresent(key);
+    /**
+     * Returns the cached repository, or opens it. A repository which has been shut down while cached (e.g. after a reset)
+     * is initialized again.
+     */
+    protected LabeledRepository resolveRepository(String key, Supplier<LabeledRepository> initializer) {
+        LabeledRepository repository = getCache().get(key, k -> this.openRepository(k, initializer));
+
+        if (!repository.isInitialized()) {
+            synchronized (this.lockOf(key)) {
+                if (!repository.isInitialized() && Objects.isNull(this.open.get(key))) {
+                    log.warn("Repository '{}' was cached and built, but not initialized.", key);
+                    repository.init();
+                    this.open.put(key, repository);
+                }
+            }
+        }
+        return repository;
+    }
 
-            if (!Objects.isNull(repository) && repository.isInitialized()) {
-                return repository;
-            } else if (!Objects.isNull(repository) && !repository.isInitialized()) {
-                log.warn("Repository '{}' was cached and built, but not initialized.", key);
-                repository.init();
-                return repository;
-            } else {
-                return getCache().get(key, s -> this.initializePersistentRepository(p, key));
+    /**
+     * Called by the cache to load a repository: an evicted repository which has not been closed yet is moved back into
+     * the cache instead of opening the same storage twice.
+     */
+    private LabeledRepository openRepository(String key, Supplier<LabeledRepository> initializer) {
+        synchronized (this.lockOf(key)) {
+            this.retired.remove(key);
+
+            LabeledRepository existing = this.open.get(key);
+            if (!Objects.isNull(existing)) {
+                log.debug("Reinstating repository '{}', which has not been closed since it was evicted from the cache", key);
+                return existing;
             }
+
+            LabeledRepository repository = initializer.get();
+            // not in the weigher, which is called by the cache with each write
+            this.weights.put(key, this.estimateWeight(repository));
+            this.open.put(key, repository);
+            return repository;
         }
-        // .doOnSubscribe(StreamsLogger.trace(log, "Resolving repository of type '{}', label '{}'", repositoryType, buildRepositoryLabel(repositoryType, details)));
     }
 
 
 
 
 
-    protected LabeledRepository initializePersistentRepository(Path path, String label) {
+    /**
+     * Called by the cache if a repository was evicted (because it was idle or the maximum weight was exceeded). The
+     * repository is retired and closed asynchronously (the cache holds its lock while calling the listener). Repositories
+     * in use are not closed, but kept aside until they are not in use anymore.
+     */
+    protected void retireRepository(String key, LabeledRepository repository, RemovalCause cause) {
+        if(Objects.isNull(repository)) return;
+
+        log.debug("Repository '{}' evicted from cache (cause: {}), closing it once it is not in use anymore.", key, cause);
+        this.retired.put(key, repository);
+        CompletableFuture.runAsync(() -> this.closeRetiredRepository(key, repository));
+    }
+
+    /**
+     * Closes all retired repositories which are not in use anymore.
+     */
+    @Scheduled(initialDelay = 30, fixedDelay = 30, timeUnit = TimeUnit.SECONDS)
+    public void closeRetiredRepositories() {
+        this.retired.forEach(this::closeRetiredRepository);
+    }
+
+    private void closeRetiredRepository(String key, LabeledRepository repository) {
+        synchronized (this.lockOf(key)) {
+            // the repository might have been reinstated in the meantime
+            if (this.retired.get(key) != repository) return;
+
+            boolean closed = this.evictionTimer.record(() -> {
+                try {
+                    return repository.shutDownIfUnused();
+                } catch (RepositoryException e) {
+                    log.warn("Failed to close repository '{}' with reason: {}", repository, e.getMessage());
+                    return true;
+                }
+            });
+
+            if (!closed) {
+                log.debug("Retired repository '{}' is still in use with {} active connections, closing it later.", key, repository.getConnectionsCount());
+                return;
+            }
+
+            log.debug("Closed retired repository '{}'", key);
+            this.retired.remove(key, repository);
+            this.open.remove(key, repository);
+            this.release(key);
+        }
+    }
+
+    /**
+     * Releases what has been kept in memory for the closed repository (it is rebuilt if the repository is reopened).
+     */
+    private void release(String key) {
+        this.identifierIndex.drop(key);
+        this.summaryIndex.drop(key);
+        this.fragmentCache.invalidateAll(key);
+        this.queryResultCache.invalidate(key);
+        this.groupCommits.release(key);
+        this.provenanceWriter.release(key);
+        this.weights.remove(key);
+        this.repositoryVersions.remove(key);
+    }
+
+    private Object lockOf(String key) {
+        return this.locks.computeIfAbsent(key, k -> new Object());
+    }
+
+    /**
+     * Estimates the weight of a repository in megabytes. For persistent repositories, this is the size of the files in the
+     * data directory (which are memory mapped by LMDB). Since the weight is computed once when the repository is opened,
+     * it is a lower bound for repositories which grow while being cached. In-memory repositories have no weight and
+     * are never evicted.
+     */
+    protected int estimateWeight(LabeledRepository repository) {
+        if(isVolatile(repository)) return 0;
+
+        File dataDir = repository.getDataDir();
+
+        try (Stream<Path> files = Files.walk(dataDir.toPath())) {
+            long bytes = files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+            return (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes / (1024 * 1024)));
+        } catch (IOException e) {
+            log.warn("Failed to estimate size of repository '{}' in path '{}'", repository, dataDir);
+            return 1;
+        }
+    }
+
+    private static boolean isVolatile(LabeledRepository repository) {
+        return Objects.isNull(repository.getDataDir()) || !repository.getDataDir().exists();
+    }
+
+    /**
+     * Persistent repositories expire after being idle for the configured duration. In-memory repositories never expire
+     * (and have no weight), since closing them would drop their content.
+     */
+    private record IdleExpiry(Duration idleTimeout) implements Expiry<String, LabeledRepository> {
+
+        private long expiresAfter(LabeledRepository repository) {
+            return isVolatile(repository) ? Long.MAX_VALUE : idleTimeout.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, LabeledRepository repository, long currentTime) {
+            return expiresAfter(repository);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, LabeledRepository repository, long currentTime, long currentDuration) {
+            return expiresAfter(repository);
+        }
+
+        @Override
+        public long expireAfterRead(String key, LabeledRepository repository, long currentTime, long currentDuration) {
+            return expiresAfter(repository);
+        }
+    }
+
+
+    protected LabeledRepository initializePersistentRepository(Path path, String label, TripleStore store) {
         try {
             log.debug("Initializing persistent repository in path '{}' for label '{}'", path, label);
             meterRegistry.counter("graph.store.repository", "method", "init", "mode", "persistent", "label", label).increment();
@@ -201,8 +500,28 @@ public class DefaultRepositoryBuilder implements RepositoryBuilder {
             if (!file.exists() && !file.getFile().mkdirs())
                 throw new IOException("Failed to create path: " + file.getFile());
 
-            LabeledRepository labeledRepository = new LabeledRepository(label, new SailRepository(new LmdbStore(file.getFile(), config)));
-            labeledRepository.init();
+            LmdbStore lmdbStore = new LmdbStore(file.getFile(), config);
+            if (!this.requiresFullTextIndex(store)) {
+                LabeledRepository labeledRepository = new LabeledRepository(label, new SailRepository(this.repositoryStatistics.track(label, lmdbStore)));
+                this.openTimer.record(labeledRepository::init);
+                return labeledRepository;
+            }
+
+            Path indexPath = path.resolve("fulltext");
+            Path versionPath = path.resolve("fulltext.version");
+            String version = fullTextIndexVersion();
+            boolean indexCurrent = Files.exists(indexPath) && Files.exists(versionPath) && version.equals(Files.readString(versionPath).trim());
+            LuceneSail luceneSail = this.withFullTextIndex(lmdbStore, indexPath);
+            LabeledRepository labeledRepository = new LabeledRepository(label, new SailRepository(this.repositoryStatistics.track(label, luceneSail)));
+            this.openTimer.record(labeledRepository::init);
+
+            if (!indexCurrent) {
+                // the repository existed before the index, the indexed properties have changed, or building the index has
+                // been interrupted (the version is written once the index is complete)
+                log.info("Building full-text index (version {}) for repository '{}' in path '{}'", version, label, indexPath);
+                luceneSail.reindex();
+                Files.writeString(versionPath, version);
+            }
             return labeledRepository;
 
 
@@ -211,18 +530,71 @@ public class DefaultRepositoryBuilder implements RepositoryBuilder {
             throw e;
         } catch (IOException e) {
             log.error("Failed to initialize persistent repository in path '{}'.", path, e);
-            return this.initializeVolatileRepository(label);
+            return this.initializeVolatileRepository(label, store);
         }
     }
 
-    protected LabeledRepository initializeVolatileRepository(String label) {
+    protected LabeledRepository initializeVolatileRepository(String label, TripleStore store) {
         log.debug("Initializing in-memory repository for label '{}'", label);
         meterRegistry.counter("graph.store.repository", "method", "init", "mode", "volatile", "label", label).increment();
-        LabeledRepository labeledRepository = new LabeledRepository(label, new SailRepository(new MemoryStore()));
-        labeledRepository.init();
+        NotifyingSail sail = this.requiresFullTextIndex(store) ? this.withFullTextIndex(new MemoryStore(), null) : new MemoryStore();
+        LabeledRepository labeledRepository = new LabeledRepository(label, new SailRepository(this.repositoryStatistics.track(label, sail)));
+        this.openTimer.record(labeledRepository::init);
         return labeledRepository;
     }
 
+    private boolean requiresFullTextIndex(TripleStore store) {
+        return this.fullTextIndex && store instanceof FullTextSearchable;
+    }
+
+    /**
+     * Only the characteristic properties (labels, titles and identifiers) are indexed. The index is updated by the sail with
+     * each commit.
+     *
+     * @param indexPath directory of the index, or null to keep the index in memory
+     */
+    private LuceneSail withFullTextIndex(NotifyingSail sail, @Nullable Path indexPath) {
+        LuceneSail luceneSail = new LuceneSail();
+        luceneSail.setParameter(LuceneSail.INDEXEDFIELDS, indexedFields());
+        if (Objects.isNull(indexPath)) {
+            luceneSail.setParameter(LuceneSail.LUCENE_RAMDIR_KEY, "true");
+        } else {
+            luceneSail.setParameter(LuceneSail.LUCENE_DIR_KEY, indexPath.toAbsolutePath().toString());
+        }
+        luceneSail.setBaseSail(sail);
+        return luceneSail;
+    }
+
+    private static String indexedFields() {
+        // in the format of java properties: index.1=<iri>
+        AtomicInteger index = new AtomicInteger();
+        return indexedProperties().stream()
+                .map(property -> "index.%d=%s".formatted(index.incrementAndGet(), property))
+                .collect(Collectors.joining("\n"));
+    }
+
+    /**
+     * The version of persistent indexes, an index with another version (or without version) is rebuilt when the repository
+     * is opened. It changes with the indexed properties, or with {@link #FULL_TEXT_INDEX_VERSION} if the documents of
+     * the index change otherwise.
+     */
+    private static String fullTextIndexVersion() {
+        return "%d-%08x".formatted(FULL_TEXT_INDEX_VERSION, String.join(",", indexedProperties()).hashCode());
+    }
+
+    private static List<String> indexedProperties() {
+        return Stream.of(
+                SDO.getCharacteristicProperties(),
+                RDFS.getCharacteristicProperties(),
+                DC.getCharacteristicProperties(),
+                DCTERMS.getCharacteristicProperties(),
+                SKOS.getCharacteristicProperties(),
+                ICAL.getCharacteristicProperties(),
+                ESCO.getCharacteristicProperties(),
+                FOAF.getCharacteristicProperties()
+        ).flatMap(Set::stream).map(IRI::stringValue).distinct().sorted().toList();
+    }
+
     public Cache<String, LabeledRepository> getCache() {
         return cache;
     }
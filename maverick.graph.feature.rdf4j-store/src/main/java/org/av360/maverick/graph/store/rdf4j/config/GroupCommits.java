@@ -0,0 +1,330 @@
+package org.av360.maverick.graph.store.rdf4j.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.entities.Transaction;
+import org.av360.maverick.graph.model.enums.RepositoryType;
+import org.av360.maverick.graph.model.vocabulary.Transactions;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+/**
+ * Group commit for transactions. LMDB supports only one writer, concurrent commits are therefore serialized anyway. Instead
+ * of committing each transaction on its own, the transactions are queued per repository and a single writer drains the queue
+ * in batches into one RDF4J transaction.
+ * <p>
+ * A batch is bounded by the number of transactions and the number of statements. With a configured latency, the writer
+ * waits for further transactions before writing the first batch. Each transaction is completed (or failed) individually, if
+ * a batch fails, its transactions are committed one by one.
+ * <p>
+ * Once a batch has been written, the listener of each submission is called once with its committed transactions (failed
+ * transactions are left out). The listeners run on the scheduler of the repository type, not on the writer, which continues
+ * with the next batch. The transactions of the batch are emitted to their subscribers after the listeners have returned.
+ * <p>
+ * A pipeline is removed once the writer has drained its queue, and created again with the next submission.
+ */
+@Component
+@Slf4j(topic = "graph.repo.commits")
+public class GroupCommits {
+
+    private final StoreSchedulers storeSchedulers;
+    private final Map<String, Pipeline> pipelines;
+    private final DistributionSummary batchSizes;
+    private final Counter fallbacks;
+
+    @Value("${application.storage.commits.maxBatchSize:100}")
+    private int maxBatchSize;
+
+    @Value("${application.storage.commits.maxBatchStatements:50000}")
+    private int maxBatchStatements;
+
+    @Value("${application.storage.commits.maxLatency:0ms}")
+    private Duration maxLatency;
+
+    public GroupCommits(StoreSchedulers storeSchedulers, MeterRegistry meterRegistry) {
+        this.storeSchedulers = storeSchedulers;
+        this.pipelines = new ConcurrentHashMap<>();
+        this.batchSizes = DistributionSummary.builder("graph.store.commits.batch").description("Number of transactions committed together").register(meterRegistry);
+        this.fallbacks = meterRegistry.counter("graph.store.commits.fallback");
+    }
+
+    /**
+     * Queues the transactions for the next batch written to the repository.
+     *
+     * @param repository the target repository
+     * @param repositoryType the type of the repository (defines the scheduler of the writer)
+     * @param transactions the transactions to commit
+     * @param afterCommit called with the committed transactions of this submission (once per batch)
+     * @return the transactions, each marked as completed or failed
+     */
+    public Flux<Transaction> submit(LabeledRepository repository, RepositoryType repositoryType, Collection<Transaction> transactions, BiConsumer<LabeledRepository, List<Transaction>> afterCommit) {
+        return Flux.defer(() -> {
+            List<Pending> submitted = transactions.stream().map(transaction -> new Pending(repository, transaction, afterCommit, Sinks.<Transaction>one())).toList();
+
+            // queued within compute, the writer removes the pipeline only if its queue is empty
+            Pipeline pipeline = this.pipelines.compute(repository.getLabel(), (label, existing) -> {
+                Pipeline target = existing != null ? existing : new Pipeline(label, repositoryType);
+                target.queue.addAll(submitted);
+                return target;
+            });
+            pipeline.wakeUp();
+
+            List<Mono<Transaction>> results = submitted.stream().map(pending -> pending.result().asMono()).toList();
+
+            return Flux.mergeSequential(results);
+        });
+    }
+
+
+    /**
+     * Removes the pipeline of a closed repository, unless transactions are still queued (it is recreated with the next
+     * submission).
+     */
+    public void release(String label) {
+        this.pipelines.computeIfPresent(label, (l, pipeline) -> pipeline.isIdle() ? null : pipeline);
+    }
+
+    private record Pending(LabeledRepository repository, Transaction transaction, BiConsumer<LabeledRepository, List<Transaction>> afterCommit, Sinks.One<Transaction> result) {
+
+        int size() {
+            return transaction.get().size();
+        }
+
+        void complete() {
+            this.result.tryEmitValue(this.transaction);
+        }
+    }
+
+    private class Pipeline {
+        private final String label;
+        private final RepositoryType repositoryType;
+        private final Queue<Pending> queue;
+        private final AtomicBoolean draining;
+
+        private Pipeline(String label, RepositoryType repositoryType) {
+            this.label = label;
+            this.repositoryType = repositoryType;
+            this.queue = new ConcurrentLinkedQueue<>();
+            this.draining = new AtomicBoolean(false);
+        }
+
+        boolean isIdle() {
+            return this.queue.isEmpty() && !this.draining.get();
+        }
+
+        /**
+         * Starts the writer, if it is not running already.
+         */
+        void wakeUp() {
+            if (this.queue.isEmpty() || !this.draining.compareAndSet(false, true)) return;
+
+            if (maxLatency.isZero()) {
+                storeSchedulers.getScheduler(this.repositoryType).schedule(this::drain);
+            } else {
+                Mono.delay(maxLatency).subscribe(tick -> storeSchedulers.getScheduler(this.repositoryType).schedule(this::drain));
+            }
+        }
+
+        private void drain() {
+            try {
+                List<Pending> batch;
+                while (!(batch = this.nextBatch()).isEmpty()) {
+                    this.write(batch);
+                }
+            } catch (Exception e) {
+                log.error("Unexpected error in commit pipeline for repository of type '{}'", this.repositoryType, e);
+            } finally {
+                this.draining.set(false);
+                // transactions might have been queued after we found the queue empty
+                Pipeline remaining = pipelines.computeIfPresent(this.label, (label, pipeline) -> pipeline == this && pipeline.queue.isEmpty() ? null : pipeline);
+                if (remaining == this) this.wakeUp();
+            }
+        }
+
+        /**
+         * Polls the next batch from the queue. All transactions in a batch target the same repository instance (the
+         * instance might change if the repository was evicted and reopened in the meantime).
+         */
+        private List<Pending> nextBatch() {
+            List<Pending> batch = new ArrayList<>();
+            int statements = 0;
+
+            Pending next;
+            while ((next = this.queue.peek()) != null) {
+                boolean full = batch.size() >= maxBatchSize || (!batch.isEmpty() && statements + next.size() > maxBatchStatements);
+                boolean otherRepository = !batch.isEmpty() && batch.get(0).repository() != next.repository();
+                if (full || otherRepository) break;
+
+                batch.add(this.queue.poll());
+                statements += next.size();
+            }
+            return batch;
+        }
+
+        private void write(List<Pending> batch) {
+            LabeledRepository repository = batch.get(0).repository();
+            batchSizes.record(batch.size());
+
+            RepositoryConnection connection;
+            try {
+                connection = repository.getConnection();
+            } catch (Exception e) {
+                batch.forEach(pending -> fail(repository, pending, e));
+                batch.forEach(Pending::complete);
+                return;
+            }
+
+            List<Transaction> committed = new ArrayList<>(batch.size());
+            try {
+                connection.begin();
+                batch.forEach(pending -> apply(connection, pending.transaction()));
+                connection.prepare();
+                connection.commit();
+
+                batch.forEach(pending -> {
+                    pending.transaction().setCompleted();
+                    committed.add(pending.transaction());
+                });
+                log.debug("Committed batch of {} transactions to repository '{}'.", batch.size(), repository);
+            } catch (Exception e) {
+                if (!this.rollback(connection, repository)) {
+                    // the connection is unusable, we cannot commit the transactions individually
+                    batch.forEach(pending -> fail(repository, pending, e));
+                } else if (batch.size() == 1) {
+                    fail(repository, batch.get(0), e);
+                } else {
+                    log.warn("Failed to commit batch of {} transactions to repository '{}', committing them individually.", batch.size(), repository);
+                    fallbacks.increment();
+                    this.writeIndividually(connection, repository, batch, committed);
+                }
+            } finally {
+                this.close(connection, repository);
+                this.complete(repository, batch, committed);
+            }
+        }
+
+        private void writeIndividually(RepositoryConnection connection, LabeledRepository repository, List<Pending> batch, List<Transaction> committed) {
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                try {
+                    connection.begin();
+                    apply(connection, pending.transaction());
+                    connection.prepare();
+                    connection.commit();
+                    pending.transaction().setCompleted();
+                    committed.add(pending.transaction());
+                } catch (Exception e) {
+                    fail(repository, pending, e);
+                    if (!this.rollback(connection, repository)) {
+                        batch.subList(i + 1, batch.size()).forEach(remaining -> fail(repository, remaining, e));
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return false, if the rollback failed (and the connection cannot be used for further transactions)
+         */
+        private boolean rollback(RepositoryConnection connection, LabeledRepository repository) {
+            try {
+                connection.rollback();
+                return true;
+            } catch (Exception e) {
+                log.error("Failed to rollback transaction in repository '{}'.", repository, e);
+                return false;
+            }
+        }
+
+        private void close(RepositoryConnection connection, LabeledRepository repository) {
+            try {
+                connection.close();
+            } catch (Exception e) {
+                log.warn("Failed to close connection to repository '{}'.", repository, e);
+            }
+        }
+
+        /**
+         * Hands the committed transactions over to the listeners of their submissions (off the writer) and completes the
+         * batch afterwards.
+         */
+        private void complete(LabeledRepository repository, List<Pending> batch, List<Transaction> committed) {
+            if (committed.isEmpty()) {
+                batch.forEach(Pending::complete);
+                return;
+            }
+
+            // transactions are models, we compare them by identity
+            Set<Transaction> succeeded = Collections.newSetFromMap(new IdentityHashMap<>());
+            succeeded.addAll(committed);
+
+            Map<BiConsumer<LabeledRepository, List<Transaction>>, List<Transaction>> listeners = new LinkedHashMap<>();
+            batch.stream()
+                    .filter(pending -> succeeded.contains(pending.transaction()))
+                    .forEach(pending -> listeners.computeIfAbsent(pending.afterCommit(), listener -> new ArrayList<>()).add(pending.transaction()));
+
+            storeSchedulers.getScheduler(this.repositoryType).schedule(() -> {
+                try {
+                    listeners.forEach((listener, transactions) -> {
+                        try {
+                            listener.accept(repository, transactions);
+                        } catch (Exception e) {
+                            log.warn("Failed to handle {} committed transactions of repository '{}'.", transactions.size(), repository, e);
+                        }
+                    });
+                } finally {
+                    batch.forEach(Pending::complete);
+                }
+            });
+        }
+
+        private void apply(RepositoryConnection connection, Transaction trx) {
+            // FIXME: the approach based on the context works only as long as the statements in the graph are all within the global context only
+            // with this approach, we cannot insert a statement to a context (since it is already in GRAPH_CREATED), every st can only be in one context
+            Model insertStatements = trx.get(Transactions.GRAPH_CREATED);
+            Model updateStatements = trx.get(Transactions.GRAPH_UPDATED);
+            Model removeStatements = trx.get(Transactions.GRAPH_DELETED);
+
+            log.trace("Committing transaction '{}' with {} inserted statements and {} removed statements to repository '{}'", trx.getIdentifier().getLocalName(), insertStatements.size(), removeStatements.size(), connection.getRepository());
+
+            if (insertStatements.size() > 0) {
+                connection.add(insertStatements);
+            }
+            if (updateStatements.size() > 0) {
+                connection.add(updateStatements);
+            }
+            if (removeStatements.size() > 0) {
+                connection.remove(removeStatements);
+            }
+        }
+
+        private void fail(Object repository, Pending pending, Exception e) {
+            log.error("Failed to complete transaction '{}' for repository '{}'.", pending.transaction().getIdentifier().getLocalName(), repository, e);
+            log.trace("Statements in this transaction: \n {}", pending.transaction().get());
+            pending.transaction().setFailed(e.getMessage());
+        }
+    }
+}
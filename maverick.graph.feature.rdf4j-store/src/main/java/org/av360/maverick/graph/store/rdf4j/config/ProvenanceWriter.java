@@ -0,0 +1,290 @@
+package org.av360.maverick.graph.store.rdf4j.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.entities.Transaction;
+import org.av360.maverick.graph.model.enums.RepositoryType;
+import org.av360.maverick.graph.model.vocabulary.Transactions;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind log for the provenance of transactions. Instead of committing the provenance of each transaction on its own,
+ * the transactions are queued per repository and written in batches into one RDF4J transaction: a batch is written once the
+ * configured number of transactions is queued, or after the maximum latency.
+ * <p>
+ * With durability 'commit' (the default), the transactions are emitted once their batch has been committed, or fail if
+ * their provenance could not be written. With durability 'async', they are emitted as soon as they are queued, and the
+ * provenance becomes visible with the next batch (it is lost if the application is killed before, failures are only
+ * logged). The queue of each repository is bounded: if it is full, submitting waits until the writer has made room. The
+ * queues are drained by the repository builders when the application shuts down, before they close the repositories.
+ */
+@Component
+@Slf4j(topic = "graph.repo.provenance")
+public class ProvenanceWriter {
+
+    public enum Durability {
+        COMMIT,
+        ASYNC
+    }
+
+    private static final Duration RETRY_INTERVAL = Duration.ofMillis(10);
+
+    private final StoreSchedulers storeSchedulers;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Pipeline> pipelines;
+    private final AtomicBoolean closed;
+    private DistributionSummary batchSizes;
+    private Counter backpressure;
+    private Counter failures;
+    private Durability durability;
+
+    @Value("${application.storage.provenance.durability:commit}")
+    private String configuredDurability;
+
+    @Value("${application.storage.provenance.queueSize:10000}")
+    private int queueSize;
+
+    @Value("${application.storage.provenance.batchSize:500}")
+    private int batchSize;
+
+    @Value("${application.storage.provenance.maxLatency:1s}")
+    private Duration maxLatency;
+
+    public ProvenanceWriter(StoreSchedulers storeSchedulers, MeterRegistry meterRegistry) {
+        this.storeSchedulers = storeSchedulers;
+        this.meterRegistry = meterRegistry;
+        this.pipelines = new ConcurrentHashMap<>();
+        this.closed = new AtomicBoolean(false);
+    }
+
+    @PostConstruct
+    public void init() {
+        this.durability = Durability.valueOf(this.configuredDurability.trim().toUpperCase());
+        this.batchSizes = DistributionSummary.builder("graph.store.provenance.batch").description("Number of transactions with provenance written together").register(this.meterRegistry);
+        this.backpressure = this.meterRegistry.counter("graph.store.provenance.backpressure");
+        this.failures = this.meterRegistry.counter("graph.store.provenance.failures");
+        Gauge.builder("graph.store.provenance.queued", this.pipelines, pipelines -> pipelines.values().stream().mapToInt(pipeline -> pipeline.queue.size()).sum())
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Writes the remaining provenance of all repositories, further submissions are rejected.
+     */
+    @PreDestroy
+    public void close() {
+        if (!this.closed.compareAndSet(false, true)) return;
+
+        this.pipelines.forEach((label, pipeline) -> {
+            int remaining = pipeline.queue.size();
+            if (remaining > 0) log.info("Writing provenance of {} remaining transactions to repository '{}' before shutdown.", remaining, label);
+            pipeline.drain(true);
+        });
+    }
+
+    /**
+     * Queues the provenance of the transactions.
+     *
+     * @param repository the transactions repository (pinned by the caller, see {@link LabeledRepository#pin()})
+     * @param transactions the transactions with their provenance
+     * @param committed called with the subjects of each transaction after its provenance has been committed
+     * @return the transactions, once they are queued (or committed, depending on the durability)
+     */
+    public Flux<Transaction> submit(LabeledRepository repository, Collection<Transaction> transactions, Consumer<Collection<Resource>> committed) {
+        return Flux.defer(() -> {
+            if (this.closed.get()) return Flux.error(new IllegalStateException("Provenance writer has been closed."));
+
+            Pipeline pipeline = this.pipelines.computeIfAbsent(repository.getLabel(), label -> new Pipeline());
+            // the repository is pinned until the provenance has been written (it is released when the transaction is completed)
+            List<Pending> pending = transactions.stream()
+                    .filter(transaction -> repository.pin())
+                    .map(transaction -> new Pending(repository, transaction, committed, Sinks.one()))
+                    .toList();
+            if (pending.size() < transactions.size()) {
+                pending.forEach(Pending::complete);
+                return Flux.error(new IllegalStateException("Repository '%s' has been closed.".formatted(repository)));
+            }
+
+            Flux<Transaction> queued = Flux.fromIterable(pending).concatMap(pipeline::enqueue);
+            if (this.durability == Durability.ASYNC) return queued;
+
+            return queued.thenMany(Flux.mergeSequential(pending.stream().map(p -> p.result().asMono()).toList()));
+        });
+    }
+
+
+    /**
+     * Removes the pipeline of a closed repository, unless provenance is still queued (it is recreated with the next
+     * submission).
+     */
+    public void release(String label) {
+        this.pipelines.computeIfPresent(label, (l, pipeline) -> pipeline.isIdle() ? null : pipeline);
+    }
+
+    private record Pending(LabeledRepository repository, Transaction transaction, Consumer<Collection<Resource>> committed, Sinks.One<Transaction> result) {
+
+        Model provenance() {
+            return this.transaction.get(Transactions.GRAPH_PROVENANCE);
+        }
+
+        void complete() {
+            if (this.result.tryEmitValue(this.transaction).isSuccess()) this.repository.unpin();
+        }
+
+        /**
+         * @return false if the transaction has been completed before
+         */
+        boolean fail(Exception error) {
+            if (!this.result.tryEmitError(error).isSuccess()) return false;
+            this.repository.unpin();
+            return true;
+        }
+    }
+
+    private class Pipeline {
+        private final BlockingQueue<Pending> queue;
+        private final AtomicBoolean delayed;
+        private final ReentrantLock writing;
+
+        private Pipeline() {
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            this.delayed = new AtomicBoolean(false);
+            this.writing = new ReentrantLock();
+        }
+
+        boolean isIdle() {
+            return this.queue.isEmpty() && !this.writing.isLocked();
+        }
+
+        /**
+         * Queues the transaction, or waits (without blocking) until the writer has made room.
+         */
+        Mono<Transaction> enqueue(Pending pending) {
+            return Mono.fromSupplier(() -> {
+                        if (this.queue.offer(pending)) {
+                            this.wakeUp();
+                            return pending.transaction();
+                        }
+                        backpressure.increment();
+                        this.flush();
+                        return null;
+                    })
+                    .repeatWhenEmpty(retries -> retries.delayElements(RETRY_INTERVAL));
+        }
+
+        /**
+         * Flushes a full batch immediately, otherwise schedules a flush after the maximum latency.
+         */
+        void wakeUp() {
+            if (this.queue.size() >= batchSize || maxLatency.isZero()) {
+                this.flush();
+            } else if (this.delayed.compareAndSet(false, true)) {
+                Mono.delay(maxLatency).subscribe(tick -> {
+                    this.delayed.set(false);
+                    this.flush();
+                });
+            }
+        }
+
+        void flush() {
+            storeSchedulers.getScheduler(RepositoryType.TRANSACTIONS).schedule(() -> this.drain(false));
+        }
+
+        /**
+         * Writes the queued transactions in batches, a running writer drains the queue (unless waiting for it is requested).
+         */
+        void drain(boolean wait) {
+            if (wait) this.writing.lock();
+            else if (!this.writing.tryLock()) return;
+
+            try {
+                List<Pending> batch = new ArrayList<>(batchSize);
+                while (this.queue.drainTo(batch, batchSize) > 0) {
+                    this.write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            } catch (Exception e) {
+                log.error("Unexpected error while writing provenance", e);
+            } finally {
+                this.writing.unlock();
+            }
+
+            // transactions might have been queued after we found the queue empty
+            if (!wait && !this.queue.isEmpty()) this.wakeUp();
+        }
+
+        private void write(List<Pending> batch) {
+            batchSizes.record(batch.size());
+
+            // the repository instance might change if it was evicted and reopened in the meantime
+            Map<LabeledRepository, List<Pending>> byRepository = new IdentityHashMap<>();
+            batch.forEach(pending -> byRepository.computeIfAbsent(pending.repository(), r -> new ArrayList<>()).add(pending));
+
+            byRepository.forEach((repository, pending) -> {
+                try (RepositoryConnection connection = repository.getConnection()) {
+                    try {
+                        connection.begin();
+                        pending.forEach(p -> connection.add(p.provenance()));
+                        connection.commit();
+                        log.trace("Committed provenance of {} transactions to repository '{}'.", pending.size(), repository);
+                    } catch (Exception e) {
+                        connection.rollback();
+                        log.warn("Failed to commit provenance of {} transactions to repository '{}', committing them individually.", pending.size(), repository);
+                        pending.forEach(p -> this.writeSingle(connection, p));
+                        return;
+                    }
+                    pending.forEach(p -> {
+                        p.committed().accept(p.provenance().subjects());
+                        p.complete();
+                    });
+                } catch (Exception e) {
+                    // transactions which have been completed already are not failed
+                    log.error("Failed to write provenance of {} transactions to repository '{}'.", pending.size(), repository, e);
+                    pending.forEach(p -> {
+                        if (p.fail(e)) failures.increment();
+                    });
+                }
+            });
+        }
+
+        private void writeSingle(RepositoryConnection connection, Pending pending) {
+            try {
+                connection.begin();
+                connection.add(pending.provenance());
+                connection.commit();
+                pending.committed().accept(pending.provenance().subjects());
+                pending.complete();
+            } catch (Exception e) {
+                connection.rollback();
+                log.error("Failed to write provenance of transaction '{}'.", pending.transaction().getIdentifier().getLocalName(), e);
+                failures.increment();
+                pending.fail(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.av360.maverick.graph.store.rdf4j.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.enums.RepositoryType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Provides the schedulers on which all (blocking) operations on the RDF4J repositories are running, to keep them away
+ * from the event loop of the web server.
+ * <p>
+ * Each repository type has its own scheduler, a slow commit in the entities repository should not block reading the
+ * application configurations. If running on a JDK with support for virtual threads (and if enabled), each operation runs in its
+ * own virtual thread. Otherwise, a bounded elastic scheduler is used.
+ */
+@Component
+@Slf4j(topic = "graph.repo.cfg.scheduler")
+public class StoreSchedulers {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<RepositoryType, Scheduler> schedulers;
+    private final Map<RepositoryType, AtomicInteger> queued;
+    private final Map<RepositoryType, Timer> waitTimers;
+
+    @Value("${application.storage.scheduler.threads:40}")
+    private int threadCap;
+
+    @Value("${application.storage.scheduler.queueSize:#{T(reactor.core.scheduler.Schedulers).DEFAULT_BOUNDED_ELASTIC_QUEUESIZE}}")
+    private int queuedTaskCap;
+
+    @Value("${application.storage.scheduler.virtualThreads:true}")
+    private boolean virtualThreads;
+
+    public StoreSchedulers(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.schedulers = new ConcurrentHashMap<>();
+        this.queued = new ConcurrentHashMap<>();
+        this.waitTimers = new ConcurrentHashMap<>();
+    }
+
+    @PreDestroy
+    public void dispose() {
+        this.schedulers.values().forEach(Scheduler::dispose);
+    }
+
+    public Scheduler getScheduler(RepositoryType repositoryType) {
+        return this.schedulers.computeIfAbsent(repositoryType, this::createScheduler);
+    }
+
+    /**
+     * Subscribes to the given operation on the scheduler of the repository type. The time until the operation starts is recorded.
+     */
+    public <T> Mono<T> schedule(RepositoryType repositoryType, Mono<T> operation) {
+        return Mono.defer(() -> {
+            Waiting waiting = this.enqueue(repositoryType);
+            return Mono.defer(() -> {
+                        waiting.start();
+                        return operation;
+                    })
+                    .subscribeOn(this.getScheduler(repositoryType))
+                    .doFinally(signalType -> waiting.release());
+        });
+    }
+
+    /**
+     * Subscribes to the given operation on the scheduler of the repository type. Requests from the subscriber are
+     * delivered on the same scheduler, the (blocking) iteration will not run on the subscriber's thread.
+     */
+    public <T> Flux<T> schedule(RepositoryType repositoryType, Flux<T> operation) {
+        return Flux.defer(() -> {
+            Waiting waiting = this.enqueue(repositoryType);
+            return Flux.defer(() -> {
+                        waiting.start();
+                        return operation;
+                    })
+                    .subscribeOn(this.getScheduler(repositoryType))
+                    .doFinally(signalType -> waiting.release());
+        });
+    }
+
+    private Waiting enqueue(RepositoryType repositoryType) {
+        AtomicInteger counter = this.queued.computeIfAbsent(repositoryType, rt -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("graph.store.scheduler.queued", value, AtomicInteger::get)
+                    .tag("repository", rt.toString())
+                    .register(this.meterRegistry);
+            return value;
+        });
+        Timer timer = this.waitTimers.computeIfAbsent(repositoryType, rt -> Timer.builder("graph.store.scheduler.wait")
+                .tag("repository", rt.toString())
+                .register(this.meterRegistry));
+
+        counter.incrementAndGet();
+        return new Waiting(counter, timer, System.nanoTime(), new AtomicBoolean(false));
+    }
+
+    private Scheduler createScheduler(RepositoryType repositoryType) {
+        String name = "store-" + repositoryType.toString();
+        if (this.virtualThreads) {
+            Optional<ExecutorService> executor = virtualThreadExecutor();
+            if (executor.isPresent()) {
+                log.info("Running operations on repositories of type '{}' in virtual threads", repositoryType);
+                return Schedulers.fromExecutorService(executor.get(), name);
+            }
+        }
+        log.info("Running operations on repositories of type '{}' in bounded scheduler with {} threads", repositoryType, threadCap);
+        return Schedulers.newBoundedElastic(threadCap, queuedTaskCap, name);
+    }
+
+    /**
+     * We are compiling against Java 17, virtual threads are only available (without preview flag) from Java 21.
+     */
+    private static Optional<ExecutorService> virtualThreadExecutor() {
+        try {
+            return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Tracks a single operation from being scheduled until it starts running.
+     */
+    private record Waiting(AtomicInteger counter, Timer timer, long scheduledAt, AtomicBoolean started) {
+
+        void start() {
+            if (started.compareAndSet(false, true)) {
+                counter.decrementAndGet();
+                timer.record(System.nanoTime() - scheduledAt, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        /**
+         * Called when the operation is finished or canceled (and perhaps never started)
+         */
+        void release() {
+            if (started.compareAndSet(false, true)) {
+                counter.decrementAndGet();
+            }
+        }
+    }
+}
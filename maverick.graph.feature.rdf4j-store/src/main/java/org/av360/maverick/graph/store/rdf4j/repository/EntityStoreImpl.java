@@ -1,11 +1,21 @@
 package org.av360.maverick.graph.store.rdf4j.repository;
 
 import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.context.Environment;
 import org.av360.maverick.graph.model.enums.RepositoryType;
+import org.av360.maverick.graph.model.errors.requests.InvalidQuery;
 import org.av360.maverick.graph.store.EntityStore;
 import org.av360.maverick.graph.store.rdf4j.repository.util.AbstractStore;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.sail.lucene.SearchFields;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Map;
 
 @Slf4j(topic = "graph.repo.entities")
 @Component
@@ -14,12 +24,45 @@ public class EntityStoreImpl extends AbstractStore implements EntityStore {
     @org.springframework.beans.factory.annotation.Value("${application.storage.entities.path:#{null}}")
     private String path;
 
+    /**
+     * Matches are resolved by the full-text index of the repository (see DefaultRepositoryBuilder), a subject matching
+     * with multiple values is ranked by its best match.
+     */
+    private static final String FULL_TEXT_SEARCH = """
+            PREFIX search: <http://www.openrdf.org/contrib/lucenesail#>
+            SELECT ?subject (MAX(?matchScore) AS ?score)
+            WHERE {
+                ?subject search:matches [ search:query ?query ; search:score ?matchScore ] .
+            }
+            GROUP BY ?subject
+            ORDER BY DESC(?score)
+            LIMIT %d
+            OFFSET %d
+            """;
+
     public EntityStoreImpl() {
         super(RepositoryType.ENTITIES);
     }
 
 
+    /**
+     * The search terms are parsed by the full-text index while the query is evaluated, where syntax errors are only logged
+     * (and yield no results). They are parsed here before, invalid search terms are rejected.
+     */
+    @Override
+    public Flux<Resource> search(String query, int limit, int offset, Environment environment) {
+        try {
+            new QueryParser(SearchFields.TEXT_FIELD_NAME, new StandardAnalyzer()).parse(query);
+        } catch (ParseException e) {
+            getLogger().debug("Rejecting invalid search terms '{}', reason: {}", query, e.getMessage());
+            return Flux.error(new InvalidQuery(query));
+        }
 
+        return this.query(FULL_TEXT_SEARCH.formatted(limit, offset), Map.of("query", this.getValueFactory().createLiteral(query)), environment)
+                .map(bindings -> bindings.getValue("subject"))
+                .filter(Resource.class::isInstance)
+                .map(Resource.class::cast);
+    }
 
 
 
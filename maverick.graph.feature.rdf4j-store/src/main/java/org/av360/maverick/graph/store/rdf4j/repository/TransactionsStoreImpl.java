@@ -4,8 +4,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.av360.maverick.graph.model.context.Environment;
 import org.av360.maverick.graph.model.entities.Transaction;
 import org.av360.maverick.graph.model.enums.RepositoryType;
-import org.av360.maverick.graph.model.vocabulary.Transactions;
 import org.av360.maverick.graph.store.TransactionsStore;
+import org.av360.maverick.graph.store.rdf4j.config.ProvenanceWriter;
 import org.av360.maverick.graph.store.rdf4j.repository.util.AbstractStore;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,29 +18,22 @@ import java.util.Collection;
 @Component
 public class TransactionsStoreImpl extends AbstractStore implements TransactionsStore {
 
+    private final ProvenanceWriter provenanceWriter;
+
     @Value("${application.storage.transactions.path:#{null}}")
     private String path;
-    public TransactionsStoreImpl() {
+    public TransactionsStoreImpl(ProvenanceWriter provenanceWriter) {
         super(RepositoryType.TRANSACTIONS);
+        this.provenanceWriter = provenanceWriter;
     }
 
 
+    /**
+     * Hands the provenance of the transactions over to the {@link ProvenanceWriter}, which writes it in batches.
+     */
     @Override
     public Flux<Transaction> store(Collection<Transaction> transactions, Environment environment) {
-        return this.applyManyWithConnection(environment, connection -> {
-            transactions.forEach(trx -> {
-                try {
-                    connection.begin();
-                    connection.add(trx.get(Transactions.GRAPH_PROVENANCE));
-                    connection.commit();
-                } catch (Exception e) {
-                    log.error("Error while storing transaction, performing rollback.", e);
-                    connection.rollback();
-                }
-            });
-
-            return transactions;
-        });
+        return this.usingRepositoryMany(environment, repository -> this.provenanceWriter.submit(repository, transactions, subjects -> this.invalidateCaches(repository, subjects)));
     }
 
 
@@ -4,31 +4,43 @@ import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.av360.maverick.graph.model.context.Environment;
+import org.av360.maverick.graph.model.context.QueryLimits;
 import org.av360.maverick.graph.model.context.SessionContext;
 import org.av360.maverick.graph.model.entities.Transaction;
 import org.av360.maverick.graph.model.enums.RepositoryType;
 import org.av360.maverick.graph.model.errors.InsufficientPrivilegeException;
+import org.av360.maverick.graph.model.errors.requests.QueryLimitExceeded;
 import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
 import org.av360.maverick.graph.model.security.Authorities;
-import org.av360.maverick.graph.model.vocabulary.Transactions;
+import org.av360.maverick.graph.model.vocabulary.Local;
 import org.av360.maverick.graph.store.RepositoryBuilder;
 import org.av360.maverick.graph.store.behaviours.*;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
 import org.av360.maverick.graph.store.rdf.fragments.RdfEntity;
 import org.av360.maverick.graph.store.rdf.fragments.RdfTransaction;
+import org.av360.maverick.graph.store.rdf.helpers.ContinuationToken;
+import org.av360.maverick.graph.store.rdf.helpers.EntitySummary;
+import org.av360.maverick.graph.store.rdf.helpers.ImportProgress;
+import org.av360.maverick.graph.store.rdf.helpers.ParallelLineParser;
 import org.av360.maverick.graph.store.rdf.helpers.RdfUtils;
+import org.av360.maverick.graph.store.rdf.helpers.StatementsPage;
+import org.av360.maverick.graph.store.rdf.helpers.StoreStatistics;
+import org.av360.maverick.graph.store.rdf4j.config.GroupCommits;
+import org.av360.maverick.graph.store.rdf4j.config.StoreSchedulers;
 import org.eclipse.rdf4j.model.*;
 import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.model.impl.SimpleNamespace;
-import org.eclipse.rdf4j.model.util.ModelCollector;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.query.*;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.RepositoryResult;
 import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
-import org.eclipse.rdf4j.repository.util.RDFInserter;
 import org.eclipse.rdf4j.rio.RDFParser;
 import org.eclipse.rdf4j.rio.RDFParserFactory;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
 import org.reactivestreams.Publisher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.buffer.DataBuffer;
@@ -43,6 +55,8 @@ import org.springframework.web.client.HttpClientErrorException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+import reactor.util.context.ContextView;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -52,20 +66,49 @@ import java.io.PipedOutputStream;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @SuppressWarnings("FieldCanBeLocal")
-public abstract class AbstractStore implements TripleStore, StatementsAware, ModelAware, Maintainable, FragmentsAware {
+public abstract class AbstractStore implements TripleStore, StatementsAware, ModelAware, Maintainable, FragmentsAware, IdentifiersAware, StatisticsAware, TypesAware, SummariesAware, SnapshotAware {
 
     private final RepositoryType repositoryType;
     private RepositoryBuilder repositoryConfiguration;
+    private StoreSchedulers storeSchedulers;
+    private GroupCommits groupCommits;
+    private NeighbourhoodLoader neighbourhoodLoader;
+    private FragmentCache fragmentCache;
+    private QueryResultCache queryResultCache;
+    private ParsedQueryCache parsedQueryCache;
+    private IdentifierIndex identifierIndex;
+    private SummaryIndex summaryIndex;
+    private ReadConnections readConnections;
+    private StatementCursors statementCursors;
+    private RepositoryStatistics repositoryStatistics;
     private MeterRegistry meterRegistry;
     private Counter transactionsMonoCounter;
     private Counter transactionsFluxCounter;
     private Timer transactionsMonoTimer;
     private Timer transactionsFluxTimer;
 
+    @org.springframework.beans.factory.annotation.Value("${application.storage.imports.batchSize:10000}")
+    private int importBatchSize;
+
+    @org.springframework.beans.factory.annotation.Value("${application.storage.imports.parallel.enabled:true}")
+    private boolean parallelImport;
+
+    @org.springframework.beans.factory.annotation.Value("${application.storage.imports.parallel.chunkSize:4194304}")
+    private int parallelImportChunkSize;
+
+    /**
+     * Default timeout for reads of scheduled jobs, zero if disabled. A job can set its own timeout with the query limits
+     * of its environment.
+     */
+    @org.springframework.beans.factory.annotation.Value("${application.storage.scheduler.timeout:0s}")
+    private Duration scheduledOperationsTimeout;
+
     public AbstractStore(RepositoryType repositoryType) {
         this.repositoryType = repositoryType;
     }
@@ -85,6 +128,61 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
         this.repositoryConfiguration = repositoryConfiguration;
     }
 
+    @Autowired
+    private void setStoreSchedulers(StoreSchedulers storeSchedulers) {
+        this.storeSchedulers = storeSchedulers;
+    }
+
+    @Autowired
+    private void setGroupCommits(GroupCommits groupCommits) {
+        this.groupCommits = groupCommits;
+    }
+
+    @Autowired
+    private void setNeighbourhoodLoader(NeighbourhoodLoader neighbourhoodLoader) {
+        this.neighbourhoodLoader = neighbourhoodLoader;
+    }
+
+    @Autowired
+    private void setFragmentCache(FragmentCache fragmentCache) {
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Autowired
+    private void setIdentifierIndex(IdentifierIndex identifierIndex) {
+        this.identifierIndex = identifierIndex;
+    }
+
+    @Autowired
+    private void setSummaryIndex(SummaryIndex summaryIndex) {
+        this.summaryIndex = summaryIndex;
+    }
+
+    @Autowired
+    private void setReadConnections(ReadConnections readConnections) {
+        this.readConnections = readConnections;
+    }
+
+    @Autowired
+    private void setStatementCursors(StatementCursors statementCursors) {
+        this.statementCursors = statementCursors;
+    }
+
+    @Autowired
+    private void setRepositoryStatistics(RepositoryStatistics repositoryStatistics) {
+        this.repositoryStatistics = repositoryStatistics;
+    }
+
+    @Autowired
+    private void setQueryResultCache(QueryResultCache queryResultCache) {
+        this.queryResultCache = queryResultCache;
+    }
+
+    @Autowired
+    private void setParsedQueryCache(ParsedQueryCache parsedQueryCache) {
+        this.parsedQueryCache = parsedQueryCache;
+    }
+
     @Autowired
     private void setMeterRegistry(MeterRegistry meterRegistry) {
         this.meterRegistry = meterRegistry;
@@ -95,57 +193,121 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
     }
 
 
-    public Flux<AnnotatedStatement> construct(String query, Environment environment) {
-        return this.applyManyWithConnection(environment, connection -> {
-            try {
-                getLogger().debug("Running construct query in repository: {}", connection.getRepository());
-                getLogger().trace("Query: {}", query.replace('\n', ' ').trim());
-                GraphQuery q = connection.prepareGraphQuery(QueryLanguage.SPARQL, query);
-                try (GraphQueryResult result = q.evaluate()) {
-                    Set<Namespace> namespaces = result.getNamespaces().entrySet().stream()
-                            .map(entry -> new SimpleNamespace(entry.getKey(), entry.getValue()))
-                            .collect(Collectors.toSet());
-                    return result.stream().map(statement -> AnnotatedStatement.wrap(statement, namespaces)).collect(Collectors.toSet());
-                } catch (Exception e) {
-                    getLogger().warn("Error while running value query.", e);
-                    throw e;
-                }
-            } catch (MalformedQueryException e) {
-                getLogger().warn("Error while parsing query", e);
-                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Invalid query");
-            } catch (Exception e) {
-                getLogger().error("Unknown error while running query", e);
-                throw e;
-            }
+    public Flux<AnnotatedStatement> construct(String query, Environment environment, boolean distinct) {
+        Flux<AnnotatedStatement> result = this.streamWithConnection(environment, connection -> {
+            getLogger().debug("Running construct query in repository: {}", connection.getRepository());
+            getLogger().trace("Query: {}", query.replace('\n', ' ').trim());
+
+            GraphQuery q = this.prepare(this.parsedQueryCache.prepareGraphQuery(connection, query), environment);
+            GraphQueryResult queryResult = q.evaluate();
+            Set<Namespace> namespaces = queryResult.getNamespaces().entrySet().stream()
+                    .map(entry -> new SimpleNamespace(entry.getKey(), entry.getValue()))
+                    .collect(Collectors.toSet());
+            return queryResult.stream().map(statement -> AnnotatedStatement.wrap(statement, namespaces));
+        }).onErrorMap(MalformedQueryException.class, e -> {
+            getLogger().warn("Error while parsing query, reason: {}", e.getMessage());
+            return new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Invalid query");
         });
+
+        return this.applyLimits(distinct ? result.distinct() : result, environment);
     }
 
-    public Flux<BindingSet> query(String query, Environment environment) {
-        return this.applyManyWithConnection(environment, connection -> {
-            try {
+    /**
+     * Runs the select query. Results are served from the {@link QueryResultCache} if the repository has not changed since
+     * the query has been evaluated (and completed) before, and not within a snapshot older than the cached results. Otherwise
+     * the rows are streamed from the repository.
+     */
+    public Flux<BindingSet> query(String query, Environment environment, boolean distinct) {
+        return this.usingRepositoryMany(environment, repository -> Flux.deferContextual(context -> {
+                    if (!this.isCacheable(context, repository.getLabel())) return this.evaluate(query, Map.of(), environment, distinct);
+                    return this.queryResultCache.query(repository.getLabel(), query, distinct, environment.getQueryLimits(), () -> this.evaluate(query, Map.of(), environment, distinct));
+                }))
+                .transform(result -> this.applyLimits(result, environment));
+    }
 
-                getLogger().debug("Running select query in repository: {}", connection.getRepository());
-                getLogger().trace("Query: {} ", query.replace('\n', ' ').trim());
+    /**
+     * Runs the select query template, duplicates are not removed (use 'SELECT DISTINCT' if required). Since the results
+     * depend on the bindings, they are not cached.
+     */
+    @Override
+    public Flux<BindingSet> query(String template, Map<String, Value> bindings, Environment environment) {
+        return this.applyLimits(this.evaluate(template, bindings, environment, false), environment);
+    }
 
-                TupleQuery q = connection.prepareTupleQuery(QueryLanguage.SPARQL, query);
+    @Override
+    public ParsedQuery parseQuery(String query) {
+        return this.parsedQueryCache.parse(query);
+    }
 
-                try (TupleQueryResult result = q.evaluate()) {
-                    Set<BindingSet> collect = result.stream().collect(Collectors.toSet());
-                    if (getLogger().isTraceEnabled())
-                        getLogger().trace("Query resulted in {} bindings in repository '{}'", collect.size(), connection.getRepository());
-                    return collect;
-                } finally {
-                    connection.close();
-                }
+    private Flux<BindingSet> evaluate(String query, Map<String, Value> bindings, Environment environment, boolean distinct) {
+        Flux<BindingSet> result = this.streamWithConnection(environment, connection -> {
+            getLogger().debug("Running select query in repository: {}", connection.getRepository());
+            getLogger().trace("Query: {} with bindings {}", query.replace('\n', ' ').trim(), bindings);
 
-            } catch (MalformedQueryException e) {
-                getLogger().warn("Error while parsing query, reason: {}", e.getMessage());
-                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Invalid query");
-            } catch (Exception e) {
-                getLogger().error("Unknown error while running query", e);
-                throw e;
-            }
+            TupleQuery q = this.prepare(this.parsedQueryCache.prepareTupleQuery(connection, query), environment);
+            bindings.forEach(q::setBinding);
+            return q.evaluate().stream();
+        }).onErrorMap(MalformedQueryException.class, e -> {
+            getLogger().warn("Error while parsing query, reason: {}", e.getMessage());
+            return new HttpClientErrorException(HttpStatus.BAD_REQUEST, "Invalid query");
         });
+
+        return distinct ? result.distinct() : result;
+    }
+
+    /**
+     * The repository aborts the evaluation of the query (and releases its read transaction) after the maximum execution time.
+     */
+    private <Q extends Query> Q prepare(Q query, Environment environment) {
+        QueryLimits limits = environment.getQueryLimits();
+        if (limits.hasMaxExecutionTime()) {
+            // the repository only supports seconds, round up
+            long seconds = (limits.maxExecutionTime().toMillis() + 999) / 1000;
+            query.setMaxExecutionTime((int) Math.min(Integer.MAX_VALUE, seconds));
+        }
+        return query;
+    }
+
+    /**
+     * Enforces the query limits of the environment: the results are truncated after the maximum number of rows, and the
+     * subscriber fails with {@link QueryLimitExceeded} once the maximum execution time has passed (even if the evaluation
+     * is still blocked in the repository). Cancelling the subscription, e.g. if the client disconnects, closes the query
+     * result and the connection.
+     */
+    private <T> Flux<T> applyLimits(Flux<T> result, Environment environment) {
+        QueryLimits limits = environment.getQueryLimits();
+        Flux<T> limited = result;
+
+        if (limits.hasMaxResults()) {
+            limited = limited.take(limits.maxResults() + 1, true)
+                    .index()
+                    .<T>handle((indexed, sink) -> {
+                        if (indexed.getT1() < limits.maxResults()) {
+                            sink.next(indexed.getT2());
+                        } else {
+                            this.meterRegistry.counter("graph.store.queries.limited", "repository", this.getRepositoryType().toString(), "reason", "results").increment();
+                            getLogger().warn("Results of query in environment '{}' have been truncated after {} rows.", environment, limits.maxResults());
+                            sink.complete();
+                        }
+                    });
+        }
+
+        if (limits.hasMaxExecutionTime()) {
+            Flux<T> bounded = limited;
+            limited = Flux.defer(() -> {
+                AtomicBoolean expired = new AtomicBoolean(false);
+                return bounded
+                        .takeUntilOther(Mono.delay(limits.maxExecutionTime()).doOnNext(tick -> expired.set(true)))
+                        .concatWith(Mono.defer(() -> expired.get() ? Mono.<T>error(new QueryLimitExceeded(limits.maxExecutionTime())) : Mono.<T>empty()));
+            });
+        }
+
+        return limited
+                .onErrorMap(QueryInterruptedException.class, e -> new QueryLimitExceeded(limits.maxExecutionTime()))
+                .doOnError(QueryLimitExceeded.class, e -> {
+                    this.meterRegistry.counter("graph.store.queries.limited", "repository", this.getRepositoryType().toString(), "reason", "timeout").increment();
+                    getLogger().warn("Query in environment '{}' has been aborted after exceeding the maximum execution time of {}.", environment, limits.maxExecutionTime());
+                });
     }
 
     @Override
@@ -160,6 +322,9 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
                 }
 
                 connection.clear();
+                this.fragmentCache.invalidateAll(labelOf(connection));
+                this.identifierIndex.drop(labelOf(connection));
+                this.summaryIndex.drop(labelOf(connection));
 
                 if (!connection.isEmpty())
                     throw new RepositoryException("Repository not empty after clearing");
@@ -179,6 +344,7 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
                 Resource[] contexts = model.contexts().toArray(new Resource[0]);
                 connection.remove(model, contexts);
                 connection.commit();
+                this.afterWrite(connection.getRepository(), model.subjects());
                 getLogger().trace("Deleted {} statements from repository '{}'", model.size(), connection.getRepository());
             } catch (Exception e) {
                 getLogger().error("Error while deleting {} statements from repository '{}'", model.size(), connection.getRepository());
@@ -209,32 +375,59 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
         return isPipe;
     }
 
+    /**
+     * Parses the content and commits the statements in batches. The progress is updated with each committed batch, if
+     * the progress belongs to a resumed import, the statements committed before are skipped.
+     */
     @Override
-    public Mono<Void> importStatements(Publisher<DataBuffer> bytesPublisher, String mimetype, Environment environment) {
+    public Mono<Void> importStatements(Publisher<DataBuffer> bytesPublisher, String mimetype, Environment environment, ImportProgress progress) {
 
         Optional<RDFParserFactory> parserFactory = RdfUtils.getParserFactory(MimeType.valueOf(mimetype));
         Assert.isTrue(parserFactory.isPresent(), "Unsupported mimetype for parsing the file.");
 
         RDFParser parser = parserFactory.orElseThrow().getParser();
+        // required to map the blank nodes to the same identifiers if the import is resumed
+        parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+        parser.setValueFactory(new ImportValueFactory(progress.getIdentifier()));
+
+        Counter importedStatements = this.meterRegistry.counter("graph.store.import.statements", "repository", this.getRepositoryType().toString());
+        Counter importedBytes = this.meterRegistry.counter("graph.store.import.bytes", "repository", this.getRepositoryType().toString());
+
+        Flux<DataBuffer> content = Flux.from(bytesPublisher).doOnNext(buffer -> {
+            progress.addBytes(buffer.readableByteCount());
+            importedBytes.increment(buffer.readableByteCount());
+        });
 
         return this.consumeWithConnection(environment, connection -> {
             try {
                 // example: https://www.baeldung.com/spring-reactive-read-flux-into-inputstream
                 // solution: https://manhtai.github.io/posts/flux-databuffer-to-inputstream/
                 getLogger().trace("Starting to parse input stream with mimetype {}", mimetype);
+                if (progress.getResumedAt() > 0) {
+                    getLogger().info("Resuming import '{}', skipping {} statements which have been committed before.", progress.getIdentifier(), progress.getResumedAt());
+                }
 
-                RDFInserter rdfInserter = new RDFInserter(connection);
-                parser.setRDFHandler(rdfInserter);
+                BatchingInserter inserter = new BatchingInserter(connection, progress, this.importBatchSize, batch -> {
+                    importedStatements.increment(batch.size());
+                    this.afterWrite(connection.getRepository(), batch.stream().map(Statement::getSubject).collect(Collectors.toSet()));
+                });
 
-                try (InputStream stream = getInputStreamFromFluxDataBuffer(bytesPublisher)) {
-                    parser.parse(stream);
+                try (InputStream stream = getInputStreamFromFluxDataBuffer(content)) {
+                    if (this.parallelImport && ParallelLineParser.supports(parser.getRDFFormat())) {
+                        // each import can be resumed, skipping the committed statements requires the original order
+                        new ParallelLineParser(parser.getRDFFormat(), this.parallelImportChunkSize, true).withValueFactory(new ImportValueFactory(progress.getIdentifier())).parse(stream, inserter);
+                    } else {
+                        parser.setRDFHandler(inserter);
+                        parser.parse(stream);
+                    }
                 }
 
-                getLogger().trace("Parsing completed into repository '{}'", connection.getRepository().toString());
-
+                getLogger().debug("Import '{}' completed with {} statements in {} batches into repository '{}'", progress.getIdentifier(), progress.getCommittedStatements(), progress.getBatches(), connection.getRepository().toString());
+                progress.completed();
 
             } catch (Exception exception) {
-                getLogger().error("Failed to import statements with mimetype {} with reason: ", mimetype, exception);
+                getLogger().error("Failed to import statements with mimetype {} after {} committed statements with reason: ", mimetype, progress.getCommittedStatements(), exception);
+                progress.failed(exception.getMessage());
                 throw exception;
             }
         });
@@ -243,8 +436,36 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
 
 
 
+    /**
+     * The subjects are listed from the summaries of the individuals (with the index of their types). Classifiers and
+     * embedded entities are not summarized, they cannot be listed.
+     */
+    @Override
+    public Flux<Resource> listSubjects(IRI type, @Nullable Resource after, int limit, Environment environment) {
+        if (Local.Entities.TYPE_CLASSIFIER.equals(type) || Local.Entities.TYPE_EMBEDDED.equals(type)) {
+            return Flux.error(new IllegalArgumentException("Instances of type '%s' are not indexed and cannot be listed".formatted(type)));
+        }
+
+        ContinuationToken position = Objects.isNull(after) ? null : new ContinuationToken(after, null);
+        IRI indexedType = Local.Entities.TYPE_INDIVIDUAL.equals(type) ? null : type;
+        return this.listSummaries(indexedType, EntitySummary.Order.IDENTIFIER, position, limit, environment).map(EntitySummary::id);
+    }
+
+    @Override
+    public Flux<EntitySummary> listSummaries(@Nullable IRI type, EntitySummary.Order order, @Nullable ContinuationToken after, int limit, Environment environment) {
+        return this.applyManyWithConnection(environment, connection -> this.summaryIndex.page(labelOf(connection), connection, type, order, after, limit));
+    }
+
+    /**
+     * Returns the statistics maintained by the repository with each commit (see {@link RepositoryStatistics}).
+     */
+    @Override
+    public Mono<StoreStatistics> getStatistics(Environment environment) {
+        return this.usingRepository(environment, repository -> Mono.justOrEmpty(this.repositoryStatistics.get(repository.getLabel())));
+    }
+
     public Flux<IRI> types(Resource subj, Environment environment) {
-        return this.applyManyWithConnection(environment, connection ->
+        return this.readManyWithConnection(environment, connection ->
                 connection.getStatements(subj, RDF.TYPE, null, false).stream()
                         .map(Statement::getObject)
                         .filter(Value::isIRI)
@@ -253,69 +474,59 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
     }
 
 
+    /**
+     * Commits the transactions. The transactions are not written directly, but handed over to the commit pipeline of the
+     * repository, which writes concurrent transactions together (see {@link GroupCommits}). The caches and indexes are
+     * updated once per written batch, with the subjects of its committed transactions.
+     */
     @Override
     public Flux<Transaction> commit(final Collection<Transaction> transactions, Environment environment, boolean merge) {
-        return this.applyManyWithConnection(environment, connection -> {
-            connection.begin();
-
-            if (merge) {
-                RdfTransaction merged = new RdfTransaction();
-                transactions.forEach(rdfTransaction -> {
-                    merged.getModel().addAll(rdfTransaction.get());
-                });
-                transactions.clear();
-                transactions.add(merged);
-            }
-
-
-            Set<Transaction> result = transactions.stream().peek(trx -> {
-                synchronized (connection) {
-                    getLogger().trace("Committing transaction '{}' to repository '{}'", trx.getIdentifier().getLocalName(), connection.getRepository().toString());
-                    // FIXME: the approach based on the context works only as long as the statements in the graph are all within the global context only
-                    // with this approach, we cannot insert a statement to a context (since it is already in GRAPH_CREATED), every st can only be in one context
-                    ValueFactory vf = connection.getValueFactory();
-                    Model insertStatements = trx.get(Transactions.GRAPH_CREATED);
-                    Model updateStatements = trx.get(Transactions.GRAPH_UPDATED);
-                    Model removeStatements = trx.get(Transactions.GRAPH_DELETED);
-
-                    try {
-                        if (insertStatements.size() > 0) {
-                            connection.add(insertStatements);
-                        }
-                        if (updateStatements.size() > 0) {
-                            connection.add(updateStatements);
-                        }
-                        if (removeStatements.size() > 0) {
-                            connection.remove(removeStatements);
-                        }
-                        if (insertStatements.size() > 0 || removeStatements.size() > 0) {
-                            connection.prepare();
-                            connection.commit();
-                            getLogger().debug("Transaction '{}' completed with {} inserted statements and {} removed statements in repository '{}'.", trx.getIdentifier().getLocalName(), insertStatements.size(), removeStatements.size(), connection.getRepository());
+        Collection<Transaction> pending = transactions;
+        if (merge) {
+            RdfTransaction merged = new RdfTransaction();
+            transactions.forEach(rdfTransaction -> merged.getModel().addAll(rdfTransaction.get()));
+            pending = List.of(merged);
+        }
 
-                        }
+        final Collection<Transaction> submitted = pending;
+        // the repository is pinned until the transactions have been written
+        return this.usingRepositoryMany(environment, repository -> {
+                    getLogger().trace("Submitting {} transactions to commit pipeline of repository '{}'", submitted.size(), repository);
+                    return this.groupCommits.submit(repository, this.getRepositoryType(), submitted, (written, committed) ->
+                            this.afterWrite(written, committed.stream().flatMap(transaction -> FragmentCache.subjectsOf(transaction).stream()).collect(Collectors.toSet())));
+                })
+                .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation));
+    }
 
-                        trx.setCompleted();
-                    } catch (Exception e) {
-                        getLogger().error("Failed to complete transaction for repository '{}'.", connection.getRepository(), e);
-                        getLogger().trace("Insert Statements in this transaction: \n {}", insertStatements);
-                        getLogger().trace("Remove Statements in this transaction: \n {}", removeStatements);
-                        connection.rollback();
-                        trx.setFailed(e.getMessage());
+    /**
+     * Returns the fragment from the cache, or loads it from the repository (and caches it). Within a snapshot older than
+     * the cached fragments, the fragment is always loaded from the snapshot.
+     */
+    @Override
+    public Mono<RdfEntity> getFragment(Resource id, int includeNeighborsLevel, Environment environment) {
+        return this.usingRepository(environment, repository -> Mono.deferContextual(context -> {
+                    if (!this.isCacheable(context, repository.getLabel())) {
+                        return this.loadFragment(id, includeNeighborsLevel, environment);
                     }
-                }
-
-            }).collect(Collectors.toSet());
-            connection.close();
-            return result;
-        });
 
+                    Optional<RdfEntity> cached = this.fragmentCache.get(repository.getLabel(), id, includeNeighborsLevel);
+                    if (cached.isPresent()) {
+                        getLogger().trace("Loaded fragment with id '{}' from cache for repository {}", id, repository);
+                        return Mono.just(cached.get());
+                    }
 
+                    long version = this.fragmentCache.version(repository.getLabel());
+                    long start = System.nanoTime();
+                    return this.loadFragment(id, includeNeighborsLevel, environment)
+                            .doOnNext(entity -> {
+                                this.fragmentCache.recordLoad(System.nanoTime() - start);
+                                this.fragmentCache.put(repository.getLabel(), entity, includeNeighborsLevel, version);
+                            });
+                }));
     }
 
-    @Override
-    public Mono<RdfEntity> getFragment(Resource id, int includeNeighborsLevel, Environment environment) {
-        return this.applyWithConnection(environment, connection -> {
+    private Mono<RdfEntity> loadFragment(Resource id, int includeNeighborsLevel, Environment environment) {
+        return this.readWithConnection(environment, connection -> {
             getLogger().trace("Loading fragment with id '{}' from repository {}", id, connection.getRepository().toString());
 
             try (RepositoryResult<Statement> statements = connection.getStatements(id, null, null)) {
@@ -327,21 +538,8 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
                 RdfEntity entity = new RdfEntity(id).withResult(statements);
 
                 if (includeNeighborsLevel >= 1) {
-                    HashSet<Value> objects = new HashSet<>(entity.getModel().objects());
-                    Stream<RepositoryResult<Statement>> repositoryResultStream = objects.stream()
-                            .filter(Value::isIRI)
-                            .map(value -> connection.getStatements((IRI) value, null, null));
-
-                    Model neighbours = objects.stream()
-                            .filter(Value::isIRI)
-                            .map(value -> connection.getStatements((IRI) value, null, null))
-                            .flatMap(result -> result.stream())
-                            .filter(sts -> this.isLiteralStatement(sts) || this.isTypeStatement(sts))
-                            .collect(new ModelCollector());
-                    // ModelCollector
-                    entity.getModel().addAll(neighbours);
+                    entity.getModel().addAll(this.neighbourhoodLoader.load(connection, entity.getModel(), includeNeighborsLevel));
                 }
-                // embedded level 1
 
                 if (getLogger().isDebugEnabled())
                     getLogger().debug("Loaded {} statements for entity with IRI: <{}>.", entity.getModel().size(), id);
@@ -353,14 +551,6 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
         });
     }
 
-    private boolean isLiteralStatement(Statement statement) {
-        return statement.getObject().isLiteral() && statement.getObject().stringValue().length() < 128;
-    }
-
-    private boolean isTypeStatement(Statement statement) {
-        return statement.getPredicate().equals(RDF.TYPE);
-    }
-
     @Override
     public Mono<Void> insertModel(Model model, Environment environment) {
         return this.consumeWithConnection(environment, connection -> {
@@ -371,6 +561,7 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
                 Resource[] contexts = model.contexts().toArray(new Resource[0]);
                 connection.add(model, contexts);
                 connection.commit();
+                this.afterWrite(connection.getRepository(), model.subjects());
             } catch (Exception e) {
                 connection.rollback();
                 throw e;
@@ -400,7 +591,7 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
 
     @Override
     public Mono<Set<Statement>> listStatements(Resource value, IRI predicate, Value object, Environment environment) {
-        return this.applyWithConnection(environment, connection -> {
+        return this.readWithConnection(environment, connection -> {
             if (getLogger().isTraceEnabled()) {
                 getLogger().trace("Listing all statements with pattern [{},{},{}] from repository '{}'", value, predicate, object, connection.getRepository().toString());
             }
@@ -411,16 +602,53 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
 
     }
 
+    @Override
+    public Flux<Statement> streamStatements(Resource value, IRI predicate, Value object, Environment environment) {
+        return this.streamWithConnection(environment, connection -> {
+            if (getLogger().isTraceEnabled()) {
+                getLogger().trace("Streaming all statements with pattern [{},{},{}] from repository '{}'", value, predicate, object, connection.getRepository().toString());
+            }
+            return connection.getStatements(value, predicate, object).stream();
+        });
+    }
+
+    /**
+     * The cursor is kept open between the pages (see {@link StatementCursors}), a page is read without skipping the
+     * statements of the previous pages.
+     */
+    @Override
+    public Mono<StatementsPage> pageStatements(Resource value, IRI predicate, Value object, int limit, @Nullable String resumeToken, Environment environment) {
+        StatementsPage.ResumeToken position = StatementsPage.ResumeToken.parse(resumeToken);
+
+        return this.usingRepository(environment, repository -> Mono.fromCallable(() -> position.isStart()
+                        ? this.statementCursors.open(repository.getLabel(), repository, value, predicate, object, limit)
+                        : this.statementCursors.next(repository.getLabel(), position, limit)))
+                .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation));
+    }
+
+    /**
+     * Looks up the subjects in the {@link IdentifierIndex}. Within a snapshot older than the index, the snapshot is scanned.
+     */
+    @Override
+    public Flux<Resource> findSubjects(IRI predicate, Value value, Environment environment) {
+        return Flux.deferContextual(context -> this.readManyWithConnection(environment, connection -> {
+            String label = labelOf(connection);
+            return this.isCacheable(context, label)
+                    ? this.identifierIndex.lookup(label, connection, predicate, value)
+                    : this.identifierIndex.scan(connection, predicate, value);
+        }));
+    }
+
     @Override
     public Mono<Boolean> hasStatement(Resource value, IRI predicate, Value object, Environment environment) {
-        return this.applyWithConnection(environment, connection -> connection.hasStatement(value, predicate, object, false));
+        return this.readWithConnection(environment, connection -> connection.hasStatement(value, predicate, object, false));
 
     }
 
 
     @Override
     public Mono<Boolean> exists(Resource subj, Environment environment) {
-        return this.applyWithConnection(environment, connection -> connection.hasStatement(subj, RDF.TYPE, null, false));
+        return this.readWithConnection(environment, connection -> connection.hasStatement(subj, RDF.TYPE, null, false));
     }
 
 
@@ -453,10 +681,7 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
 
     protected <T> Mono<T> applyWithConnection(Environment environment, ThrowingFunction<RepositoryConnection, T> fun) {
         return transactionsMonoTimer.record(() ->
-                this.verifyValidAndAuthorized(environment)
-                        //.then(this.assertPrivilege(environment))
-                        .then(this.getBuilder().buildRepository(this, environment))
-                        .flatMap(repository -> {
+                this.usingRepository(environment, repository -> {
                             try (RepositoryConnection connection = repository.getConnection()) {
 
                                 T result = fun.applyWithException(new RepositoryConnectionWrapper(repository, connection));
@@ -467,27 +692,25 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
                             } finally {
                                 transactionsMonoCounter.increment();
                             }
-                        }));
+                        })
+                        .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation)));
     }
 
 
     protected Mono<Void> consumeWithConnection(Environment environment, ThrowingConsumer<RepositoryConnection> fun) {
         return transactionsMonoTimer.record(() ->
-                this.verifyValidAndAuthorized(environment)
-                        // .then(this.assertPrivilege(ctx, requiredAuthority))
-                        .flatMap(env -> this.getBuilder().buildRepository(this, env))
-                        .switchIfEmpty(Mono.error(new IOException("Failed to build repository for repository of type: " + this.getRepositoryType())))
-                        .flatMap(repository -> {
+                this.usingRepository(environment, repository -> {
                             try (RepositoryConnection connection = repository.getConnection()) {
 
                                 fun.acceptWithException(new RepositoryConnectionWrapper(repository, connection));
-                                return Mono.empty();
+                                return Mono.<Void>empty();
                             } catch (Exception e) {
-                                return Mono.error(e);
+                                return Mono.<Void>error(e);
                             } finally {
                                 transactionsMonoCounter.increment();
                             }
-                        }));
+                        })
+                        .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation)));
     }
 
     private Mono<Environment> verifyValidAndAuthorized(Environment environment) {
@@ -509,18 +732,20 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
         // do nothing
     }
 
+    @Override
+    public Flux<Statement> streamModel(Environment environment) {
+        return this.streamStatements(null, null, null, environment);
+    }
+
     @Override
     public Mono<Model> getModel(Environment environment) {
-        return this.listStatements(null, null, null, environment).map(LinkedHashModel::new);
+        return this.streamModel(environment).<Model>collect(LinkedHashModel::new, Model::add);
     }
 
     protected <E, T extends Iterable<E>> Flux<E> applyManyWithConnection(Environment environment, ThrowingFunction<RepositoryConnection, T> fun) {
 
         Flux<E> result =
-                this.verifyValidAndAuthorized(environment)
-                        // .then(this.assertPrivilege(environment, requiredAuthority))
-                        .then(this.getBuilder().buildRepository(this, environment))
-                        .flatMapMany(repository -> {
+                this.usingRepositoryMany(environment, repository -> {
                             try (RepositoryConnection connection = repository.getConnection()) {
                                 return Flux.fromIterable(fun.apply(connection));
                             } catch (Exception e) {
@@ -530,23 +755,212 @@ public abstract class AbstractStore implements TripleStore, StatementsAware, Mod
                             } finally {
                                 this.meterRegistry.counter("graph.store.operations", "cardinality", "multiple", "state", "complete").increment();
                             }
-                        });
+                        })
+                        .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation));
                         // .doOnSubscribe(subscription -> getLogger().trace("Applying function with many results."));
 
+        return this.withScheduledTimeout(result, environment);
+
+    }
+
+    /**
+     * Reads of scheduled jobs fail after the maximum execution time of their environment (or the default timeout). The
+     * subscriber is canceled, which closes the connection; queries are aborted by the repository itself (see
+     * {@link #applyLimits(Flux, Environment)}).
+     */
+    private <E> Flux<E> withScheduledTimeout(Flux<E> result, Environment environment) {
         // FIXME: should check whether we are called from a scheduler
-        if (environment.getSessionContext().isScheduled()) {
-            result.timeout(Duration.ofMillis(10000))
-                    .onErrorResume(throwable -> {
-                        if (throwable instanceof TimeoutException te) {
-                            getLogger().warn("Long-running operation on repository of type '{}' has been canceled.", repositoryType);
-                            return Flux.error(new TimeoutException("Timeout while applying operation to repository:" + repositoryType.toString()));
-                        } else {
-                            return Flux.error(throwable);
-                        }
-                    });
+        if (!environment.getSessionContext().isScheduled()) return result;
+
+        QueryLimits limits = environment.getQueryLimits();
+        Duration timeout = limits.hasMaxExecutionTime() ? limits.maxExecutionTime() : this.scheduledOperationsTimeout;
+        if (timeout.isZero() || timeout.isNegative()) return result;
+
+        return result.timeout(timeout)
+                .onErrorResume(throwable -> {
+                    if (throwable instanceof TimeoutException te) {
+                        this.meterRegistry.counter("graph.store.operations.timeout", "repository", this.getRepositoryType().toString()).increment();
+                        getLogger().warn("Long-running operation on repository of type '{}' has been canceled after {}.", repositoryType, timeout);
+                        return Flux.error(new TimeoutException("Timeout while applying operation to repository:" + repositoryType.toString()));
+                    } else {
+                        return Flux.error(throwable);
+                    }
+                });
+    }
+
+    /**
+     * Applies the read-only function to a read connection (see {@link ReadConnections}), or to the snapshot of the
+     * repository shared within the current subscription (see {@link #withSnapshot(Mono, Environment)}).
+     */
+    protected <T> Mono<T> readWithConnection(Environment environment, ThrowingFunction<RepositoryConnection, T> fun) {
+        return transactionsMonoTimer.record(() ->
+                this.usingRepository(environment, repository -> Mono.deferContextual(context -> {
+                            try {
+                                return Mono.justOrEmpty(this.read(repository, context, fun));
+                            } catch (Exception e) {
+                                return Mono.error(e);
+                            } finally {
+                                transactionsMonoCounter.increment();
+                            }
+                        }))
+                        .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation)));
+    }
+
+    /**
+     * @see #readWithConnection(Environment, ThrowingFunction)
+     */
+    protected <E, T extends Iterable<E>> Flux<E> readManyWithConnection(Environment environment, ThrowingFunction<RepositoryConnection, T> fun) {
+        Flux<E> result =
+                this.usingRepositoryMany(environment, repository -> Flux.deferContextual(context -> {
+                            try {
+                                return Flux.fromIterable(this.read(repository, context, fun));
+                            } catch (Exception e) {
+                                this.meterRegistry.counter("graph.store.operations", "cardinality", "multiple", "state", "failure").increment();
+                                getLogger().warn("Error while reading from repository '{}' with message '{}'. Active connections for repository: {}", repository, e.getMessage(), repository.getConnectionsCount());
+                                return Flux.<E>error(e);
+                            } finally {
+                                this.meterRegistry.counter("graph.store.operations", "cardinality", "multiple", "state", "complete").increment();
+                            }
+                        }))
+                        .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation));
+
+        return this.withScheduledTimeout(result, environment);
+    }
+
+    private <T> T read(Repository repository, ContextView context, ThrowingFunction<RepositoryConnection, T> fun) throws Exception {
+        Optional<ReadConnections.Snapshot> snapshot = this.readConnections.shared(context, labelOf(repository));
+        if (snapshot.isPresent()) return snapshot.get().apply(fun);
+
+        try (RepositoryConnection connection = this.readConnections.open(repository)) {
+            return fun.applyWithException(connection);
         }
-        return result;
+    }
+
+    /**
+     * @return false within a snapshot of the repository which is older than its current version (cached results are newer)
+     */
+    private boolean isCacheable(ContextView context, String label) {
+        return this.readConnections.shared(context, label).map(this.readConnections::isCurrent).orElse(true);
+    }
+
+    /**
+     * Opens a snapshot of the repository for the reads (a read connection, see {@link ReadConnections}), which is put into
+     * the context of their subscription and closed once they terminate.
+     */
+    @Override
+    public <T> Flux<T> withSnapshot(Flux<T> reads, Environment environment) {
+        return this.usingRepositoryMany(environment, repository -> Flux.deferContextual(context -> {
+                    String label = labelOf(repository);
+                    if (this.readConnections.shared(context, label).isPresent()) return reads;
+
+                    return Flux.usingWhen(
+                            Mono.fromCallable(() -> this.readConnections.snapshot(label, repository))
+                                    .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation)),
+                            snapshot -> reads.contextWrite(ctx -> ctx.put(ReadConnections.contextKey(label), snapshot)),
+                            snapshot -> Mono.fromRunnable(snapshot::close)
+                                    .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation)));
+                }));
+    }
+
+    @Override
+    public <T> Mono<T> withSnapshot(Mono<T> reads, Environment environment) {
+        return this.withSnapshot(reads.flux(), environment).singleOrEmpty();
+    }
+
+    /**
+     * Streams the results of the given function. In contrast to {@link #applyManyWithConnection(Environment, ThrowingFunction)},
+     * the connection (and the iteration backing the stream) is kept open for the lifetime of the returned flux. Results are
+     * pulled from the stream according to the subscriber's demand, the connection is closed when the flux completes,
+     * fails or is cancelled. Both the iteration and the closing of the connection happen on the store scheduler.
+     * <p>
+     * The function is applied to a read connection. Within a snapshot (see {@link #withSnapshot(Flux, Environment)}),
+     * the results are streamed from the shared connection in the same way, only the stream is closed when the flux
+     * terminates (the connection is closed with the snapshot).
+     *
+     * @param environment the current environment
+     * @param fun function returning a (lazy) stream, which is closed by the flux
+     * @return the streamed results
+     */
+    protected <E> Flux<E> streamWithConnection(Environment environment, ThrowingFunction<RepositoryConnection, Stream<E>> fun) {
+        return this.usingRepositoryMany(environment, repository -> Flux.deferContextual(context -> {
+                    Optional<ReadConnections.Snapshot> snapshot = this.readConnections.shared(context, labelOf(repository));
+                    if (snapshot.isPresent()) return snapshot.get().stream(fun);
+
+                    return Flux.using(
+                            () -> this.readConnections.open(repository),
+                            connection -> Flux.fromStream(() -> fun.apply(connection))
+                                    .doOnCancel(() -> {
+                                        this.meterRegistry.counter("graph.store.operations", "cardinality", "streaming", "state", "canceled").increment();
+                                        getLogger().debug("Streaming operation on repository '{}' has been canceled by subscriber.", repository);
+                                    })
+                                    .doOnError(e -> {
+                                        this.meterRegistry.counter("graph.store.operations", "cardinality", "streaming", "state", "failure").increment();
+                                        getLogger().warn("Error while streaming from repository '{}' with message '{}'. Active connections for repository: {}", repository, e.getMessage(), repository.getConnectionsCount());
+                                    })
+                                    .doOnComplete(() -> this.meterRegistry.counter("graph.store.operations", "cardinality", "streaming", "state", "complete").increment()),
+                            RepositoryConnection::close
+                    );
+                }))
+                .transform(operation -> this.storeSchedulers.schedule(this.getRepositoryType(), operation));
+    }
+
+    /**
+     * Has to be called by subclasses writing directly to the repository: invalidates the cached fragments of the subjects
+     * and increments the version of the repository (which invalidates the cached query results).
+     */
+    protected void invalidateCaches(Repository repository, Collection<? extends Resource> subjects) {
+        this.afterWrite(repository, subjects);
+    }
+
+    /**
+     * Applies the operation to the repository of the environment. The repository is pinned until the operation terminates
+     * (see {@link LabeledRepository#pin()}), it is not closed by the repository builder in the meantime.
+     */
+    protected <T> Mono<T> usingRepository(Environment environment, Function<LabeledRepository, Mono<T>> operation) {
+        return Mono.usingWhen(this.pinRepository(environment), operation, repository -> Mono.fromRunnable(repository::unpin));
+    }
+
+    /**
+     * @see #usingRepository(Environment, Function)
+     */
+    protected <T> Flux<T> usingRepositoryMany(Environment environment, Function<LabeledRepository, Publisher<T>> operation) {
+        return Flux.usingWhen(this.pinRepository(environment), operation, repository -> Mono.fromRunnable(repository::unpin));
+    }
+
+    /**
+     * Resolves and pins the repository. If it has been closed after it was resolved (because it had been evicted from the
+     * cache of the repository builder), it is resolved (and reopened) again.
+     */
+    private Mono<LabeledRepository> pinRepository(Environment environment) {
+        return this.verifyValidAndAuthorized(environment)
+                .then(Mono.defer(() -> this.getBuilder().buildRepository(this, environment)))
+                .switchIfEmpty(Mono.error(new IOException("Failed to build repository for repository of type: " + this.getRepositoryType())))
+                .flatMap(repository -> repository.pin() ? Mono.just(repository) : Mono.error(new RepositoryClosedException(repository)))
+                .retryWhen(Retry.max(3).filter(RepositoryClosedException.class::isInstance));
+    }
+
+    private static class RepositoryClosedException extends RepositoryException {
+        RepositoryClosedException(LabeledRepository repository) {
+            super("Repository '%s' has been closed while resolving it".formatted(repository));
+        }
+    }
+
+    /**
+     * Called after each commit with the written subjects: invalidates the caches and refreshes the identifier index and the summaries.
+     */
+    private void afterWrite(Repository repository, Collection<? extends Resource> subjects) {
+        String label = labelOf(repository);
+        this.fragmentCache.invalidate(label, subjects);
+        this.identifierIndex.refresh(label, repository, subjects);
+        this.summaryIndex.refresh(label, repository, subjects);
+    }
+
+    private static String labelOf(RepositoryConnection connection) {
+        return labelOf(connection.getRepository());
+    }
 
+    private static String labelOf(Repository repository) {
+        return repository instanceof LabeledRepository labeledRepository ? labeledRepository.getLabel() : repository.toString();
     }
 
     private Mono<Void> assertPrivilege(SessionContext ctx, GrantedAuthority requiredAuthority) {
@@ -0,0 +1,92 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import org.av360.maverick.graph.store.rdf.helpers.ImportProgress;
+import org.eclipse.rdf4j.model.*;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes the parsed statements in batches, each batch is committed in its own transaction. In contrast to the
+ * {@link org.eclipse.rdf4j.repository.util.RDFInserter}, the import of a large file does not end up in one huge transaction.
+ * <p>
+ * The statements committed in a previous (failed) run of the same import are skipped. Blank nodes are mapped to identifiers
+ * derived from the import. Since the content is parsed with an {@link ImportValueFactory} (which also numbers anonymous
+ * blank nodes deterministically), a resumed import creates the same blank nodes as the failed run.
+ */
+class BatchingInserter extends AbstractRDFHandler {
+
+    private final RepositoryConnection connection;
+    private final ImportProgress progress;
+    private final int batchSize;
+    private final Consumer<List<Statement>> onBatchCommitted;
+    private final ValueFactory valueFactory;
+    private final List<Statement> batch;
+    private long skip;
+
+    BatchingInserter(RepositoryConnection connection, ImportProgress progress, int batchSize, Consumer<List<Statement>> onBatchCommitted) {
+        this.connection = connection;
+        this.progress = progress;
+        this.batchSize = Math.max(1, batchSize);
+        this.onBatchCommitted = onBatchCommitted;
+        this.valueFactory = connection.getValueFactory();
+        this.batch = new ArrayList<>(this.batchSize);
+        this.skip = progress.getResumedAt();
+    }
+
+    @Override
+    public void handleNamespace(String prefix, String uri) throws RDFHandlerException {
+        if (this.connection.getNamespace(prefix) == null) {
+            this.connection.setNamespace(prefix, uri);
+        }
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        if (this.skip > 0) {
+            this.skip--;
+            return;
+        }
+
+        this.batch.add(this.valueFactory.createStatement(
+                (Resource) this.map(st.getSubject()),
+                st.getPredicate(),
+                this.map(st.getObject()),
+                (Resource) this.map(st.getContext())
+        ));
+        if (this.batch.size() >= this.batchSize) this.flush();
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException {
+        this.flush();
+    }
+
+    private void flush() {
+        if (this.batch.isEmpty()) return;
+
+        try {
+            this.connection.begin();
+            this.connection.add(this.batch);
+            this.connection.commit();
+        } catch (Exception e) {
+            if (this.connection.isActive()) this.connection.rollback();
+            throw new RDFHandlerException("Failed to commit batch after %d committed statements".formatted(this.progress.getCommittedStatements()), e);
+        }
+
+        this.progress.batchCommitted(this.batch.size());
+        this.onBatchCommitted.accept(this.batch);
+        this.batch.clear();
+    }
+
+    private Value map(Value value) {
+        if (value instanceof BNode bnode) {
+            return this.valueFactory.createBNode(this.progress.getIdentifier() + "-" + bnode.getID());
+        }
+        return value;
+    }
+}
@@ -0,0 +1,269 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.entities.Transaction;
+import org.av360.maverick.graph.model.vocabulary.Transactions;
+import org.av360.maverick.graph.store.rdf.fragments.RdfEntity;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache for entity fragments, keyed by repository label, subject and the number of included neighbour levels.
+ * <p>
+ * The cache is invalidated by the stores with the subjects of each write before the write returns. A fragment depends on
+ * all resources it mentions: the subjects (including the subjects of its neighbours) and the resources it links to. It is
+ * invalidated if any of them changes, e.g. if a linked entity is created which was missing in the neighbourhood before.
+ * <p>
+ * To prevent caching a fragment which has been loaded before (and is put after) a concurrent write, the version of the
+ * repository (see {@link RepositoryVersions}) is incremented with every invalidation. A fragment is only cached if the version has not changed while loading it.
+ * <p>
+ * Fragments are either kept as models, or (if configured) serialized into off-heap buffers.
+ */
+@Component
+@Slf4j(topic = "graph.repo.fragments.cache")
+public class FragmentCache {
+
+    private final MeterRegistry meterRegistry;
+    private final RepositoryVersions versions;
+    private final Map<Dependency, Set<Key>> dependents;
+    private Cache<Key, CachedFragment> cache;
+    private Timer loadTimer;
+
+    @Value("${application.storage.fragments.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.storage.fragments.cache.maximumStatements:1000000}")
+    private long maximumStatements;
+
+    @Value("${application.storage.fragments.cache.offHeap:false}")
+    private boolean offHeap;
+
+    public FragmentCache(MeterRegistry meterRegistry, RepositoryVersions versions) {
+        this.meterRegistry = meterRegistry;
+        this.versions = versions;
+        this.dependents = new ConcurrentHashMap<>();
+    }
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .recordStats()
+                .maximumWeight(this.maximumStatements)
+                .weigher((Key key, CachedFragment fragment) -> fragment.size())
+                .removalListener((Key key, CachedFragment fragment, RemovalCause cause) -> {
+                    if (Objects.nonNull(key) && Objects.nonNull(fragment)) this.removeDependencies(key, fragment.dependencies());
+                })
+                .build();
+
+        CaffeineCacheMetrics.monitor(this.meterRegistry, this.cache, "graph.store.fragments.cache");
+        this.loadTimer = Timer.builder("graph.store.fragments.cache.load").register(this.meterRegistry);
+    }
+
+    /**
+     * Records the time required to load a fragment from the repository after a cache miss.
+     */
+    public void recordLoad(long nanos) {
+        this.loadTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Optional<RdfEntity> get(String label, Resource subject, int level) {
+        if (!this.enabled) return Optional.empty();
+
+        return Optional.ofNullable(this.cache.getIfPresent(new Key(label, subject, level)))
+                .map(fragment -> new RdfEntity(subject, fragment.restore()));
+    }
+
+    /**
+     * @return the current version of the repository, has to be requested before loading a fragment
+     */
+    public long version(String label) {
+        return this.versions.current(label);
+    }
+
+    /**
+     * Caches the fragment, if no write happened in the repository since the given version.
+     */
+    public void put(String label, RdfEntity entity, int level, long version) {
+        if (!this.enabled) return;
+
+        Key key = new Key(label, entity.getIdentifier(), level);
+        Set<Resource> dependencies = dependenciesOf(entity.getModel());
+        CachedFragment fragment = this.offHeap ? SerializedFragment.of(entity.getModel(), dependencies) : ModelFragment.of(entity.getModel(), dependencies);
+
+        AtomicLong current = this.versions.of(label);
+        synchronized (current) {
+            if (current.get() != version) {
+                log.trace("Not caching fragment '{}' in repository '{}', since the repository has changed while loading it.", key.subject(), label);
+                return;
+            }
+            // the fragment is put first, a concurrent removal listener for the same key must not remove the new dependencies
+            this.cache.put(key, fragment);
+            dependencies.forEach(resource -> this.dependents.computeIfAbsent(new Dependency(label, resource), d -> ConcurrentHashMap.newKeySet()).add(key));
+        }
+    }
+
+    /**
+     * @return the subjects and the linked resources (IRIs and blank nodes) of the fragment
+     */
+    private static Set<Resource> dependenciesOf(Model model) {
+        Set<Resource> dependencies = new HashSet<>(model.subjects());
+        model.objects().forEach(object -> {
+            if (object instanceof Resource resource && !resource.isTriple()) dependencies.add(resource);
+        });
+        return dependencies;
+    }
+
+    /**
+     * Invalidates all fragments containing statements about the subjects changed in the transaction.
+     */
+    public void invalidate(String label, Transaction transaction) {
+        this.invalidate(label, subjectsOf(transaction));
+    }
+
+    /**
+     * @return the subjects changed in the transaction
+     */
+    public static Set<Resource> subjectsOf(Transaction transaction) {
+        Set<Resource> subjects = new HashSet<>();
+        subjects.addAll(transaction.get(Transactions.GRAPH_CREATED).subjects());
+        subjects.addAll(transaction.get(Transactions.GRAPH_UPDATED).subjects());
+        subjects.addAll(transaction.get(Transactions.GRAPH_DELETED).subjects());
+        return subjects;
+    }
+
+    /**
+     * Invalidates all fragments containing statements about (or linking to) the given subjects.
+     */
+    public void invalidate(String label, Collection<? extends Resource> subjects) {
+        AtomicLong current = this.versions.of(label);
+        synchronized (current) {
+            current.incrementAndGet();
+            if (!this.enabled) return;
+
+            subjects.forEach(subject -> {
+                Set<Key> keys = this.dependents.remove(new Dependency(label, subject));
+                if (Objects.nonNull(keys)) this.cache.invalidateAll(keys);
+            });
+        }
+    }
+
+    /**
+     * Invalidates all fragments of a repository (e.g. after an import)
+     */
+    public void invalidateAll(String label) {
+        AtomicLong current = this.versions.of(label);
+        synchronized (current) {
+            current.incrementAndGet();
+            if (!this.enabled) return;
+
+            this.cache.invalidateAll(this.cache.asMap().keySet().stream().filter(key -> key.label().equals(label)).toList());
+        }
+    }
+
+    private void removeDependencies(Key key, Set<Resource> dependencies) {
+        dependencies.forEach(resource -> this.dependents.computeIfPresent(new Dependency(key.label(), resource), (dependency, keys) -> {
+            // the key might have been cached again in the meantime
+            if (!this.cache.asMap().containsKey(key)) keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        }));
+    }
+
+
+    private record Key(String label, Resource subject, int level) {
+    }
+
+    private record Dependency(String label, Resource resource) {
+    }
+
+    private interface CachedFragment {
+        Model restore();
+
+        int size();
+
+        Set<Resource> dependencies();
+    }
+
+    private record ModelFragment(Model model, Set<Resource> dependencies) implements CachedFragment {
+
+        static ModelFragment of(Model model, Set<Resource> dependencies) {
+            return new ModelFragment(new LinkedHashModel(model).unmodifiable(), dependencies);
+        }
+
+        @Override
+        public Model restore() {
+            return new LinkedHashModel(this.model);
+        }
+
+        @Override
+        public int size() {
+            return this.model.size();
+        }
+    }
+
+    /**
+     * Fragment serialized in the binary RDF format into a direct (off-heap) buffer.
+     */
+    private record SerializedFragment(ByteBuffer buffer, int size, Set<Resource> dependencies) implements CachedFragment {
+
+        static SerializedFragment of(Model model, Set<Resource> dependencies) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Rio.write(model, out, RDFFormat.BINARY);
+            byte[] bytes = out.toByteArray();
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes).flip();
+            return new SerializedFragment(buffer.asReadOnlyBuffer(), model.size(), dependencies);
+        }
+
+        @Override
+        public Model restore() {
+            try (InputStream in = new ByteBufferInputStream(this.buffer.duplicate())) {
+                return Rio.parse(in, RDFFormat.BINARY);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to restore cached fragment", e);
+            }
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!this.buffer.hasRemaining()) return -1;
+            int count = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
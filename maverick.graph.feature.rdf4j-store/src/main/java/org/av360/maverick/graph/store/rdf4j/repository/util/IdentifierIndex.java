@@ -0,0 +1,230 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of the subjects by the values of identifying predicates (e.g. identifiers and labels), which answers
+ * exact-match lookups with a hash lookup instead of a query.
+ * <p>
+ * The index of a repository is built with the first lookup. The stores have to refresh the index with the subjects of
+ * each write (after the commit): the indexed values of these subjects are read again from the repository. The subjects
+ * written while the index is built are recorded, and refreshed once the index has been installed.
+ * <p>
+ * The index always reflects the current state of the repository, with a short window: it is refreshed after the commit
+ * (on the thread of the writer, before the write completes), lookups in between still return the values before the
+ * write. A writer always sees its own writes. Readers within a snapshot of the repository which is older than its current
+ * version must not use the index, they scan their snapshot (see {@link #scan(RepositoryConnection, IRI, Value)}).
+ * <p>
+ * The index is kept in memory until the repository is closed (see {@link #drop(String)}).
+ */
+@Component
+@Slf4j(topic = "graph.repo.identifiers.index")
+public class IdentifierIndex {
+
+    private final MeterRegistry meterRegistry;
+    private final RepositoryVersions versions;
+    private final Map<String, Index> indexes;
+    private final Map<String, Object> buildLocks;
+    private final Map<String, Set<Resource>> writtenWhileBuilding;
+    private Set<IRI> predicates;
+    private Timer buildTimer;
+    private Counter indexedLookups;
+    private Counter scannedLookups;
+
+    @org.springframework.beans.factory.annotation.Value("${application.storage.identifiers.index.enabled:true}")
+    private boolean enabled;
+
+    @org.springframework.beans.factory.annotation.Value("${application.storage.identifiers.index.predicates:https://schema.org/identifier,http://purl.org/dc/elements/1.1/identifier,http://purl.org/dc/terms/identifier,http://www.w3.org/2000/01/rdf-schema#label,https://schema.org/termCode}")
+    private String configuredPredicates;
+
+    public IdentifierIndex(MeterRegistry meterRegistry, RepositoryVersions versions) {
+        this.meterRegistry = meterRegistry;
+        this.versions = versions;
+        this.indexes = new ConcurrentHashMap<>();
+        this.buildLocks = new ConcurrentHashMap<>();
+        this.writtenWhileBuilding = new ConcurrentHashMap<>();
+    }
+
+    @PostConstruct
+    public void init() {
+        this.predicates = Arrays.stream(StringUtils.commaDelimitedListToStringArray(this.configuredPredicates))
+                .map(String::trim)
+                .filter(StringUtils::hasLength)
+                .map(iri -> SimpleValueFactory.getInstance().createIRI(iri))
+                .collect(Collectors.toUnmodifiableSet());
+
+        this.buildTimer = Timer.builder("graph.store.identifiers.index.build").register(this.meterRegistry);
+        this.indexedLookups = this.meterRegistry.counter("graph.store.identifiers.index.lookups", "indexed", "true");
+        this.scannedLookups = this.meterRegistry.counter("graph.store.identifiers.index.lookups", "indexed", "false");
+        Gauge.builder("graph.store.identifiers.index.values", this.indexes, indexes -> indexes.values().stream().mapToInt(Index::size).sum())
+                .register(this.meterRegistry);
+    }
+
+    public boolean isIndexed(IRI predicate) {
+        return this.enabled && this.predicates.contains(predicate);
+    }
+
+    /**
+     * @return the subjects with the given value for the predicate
+     */
+    public Set<Resource> lookup(String label, RepositoryConnection connection, IRI predicate, Value value) {
+        if (this.isIndexed(predicate)) {
+            Index index = this.indexes.get(label);
+            if (Objects.isNull(index)) index = this.build(label, connection);
+            if (Objects.nonNull(index)) {
+                this.indexedLookups.increment();
+                return index.get(predicate, value);
+            }
+        }
+
+        return this.scan(connection, predicate, value);
+    }
+
+    /**
+     * Looks up the subjects without the index, e.g. within a snapshot which is older than the index.
+     *
+     * @return the subjects with the given value for the predicate
+     */
+    public Set<Resource> scan(RepositoryConnection connection, IRI predicate, Value value) {
+        this.scannedLookups.increment();
+        try (RepositoryResult<Statement> statements = connection.getStatements(null, predicate, value, false)) {
+            return statements.stream().map(Statement::getSubject).collect(Collectors.toSet());
+        }
+    }
+
+    /**
+     * Reads the indexed values of the subjects again, has to be called after the subjects have been written (and after
+     * the version of the repository has been incremented).
+     */
+    public void refresh(String label, Repository repository, Collection<? extends Resource> subjects) {
+        if (subjects.isEmpty()) return;
+
+        Index index;
+        // checked while holding the version lock, which is also held while installing a new index
+        synchronized (this.versions.of(label)) {
+            index = this.indexes.get(label);
+            if (Objects.isNull(index)) {
+                Set<Resource> written = this.writtenWhileBuilding.get(label);
+                if (Objects.nonNull(written)) written.addAll(subjects);
+                return;
+            }
+        }
+
+        // refreshes are serialized: the last refresh reads the values after the last write
+        synchronized (index) {
+            try (RepositoryConnection connection = repository.getConnection()) {
+                for (Resource subject : subjects) {
+                    List<Statement> statements = new ArrayList<>();
+                    for (IRI predicate : this.predicates) {
+                        try (RepositoryResult<Statement> result = connection.getStatements(subject, predicate, null, false)) {
+                            result.forEach(statements::add);
+                        }
+                    }
+                    index.replace(subject, statements);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to refresh identifier index of repository '{}', dropping it: {}", label, e.getMessage());
+                this.indexes.remove(label, index);
+            }
+        }
+    }
+
+    /**
+     * Drops the index of the repository (e.g. after it has been cleared or closed), it is built again with the next lookup.
+     */
+    public void drop(String label) {
+        this.indexes.remove(label);
+    }
+
+    /**
+     * Builds and installs the index. The subjects written in the meantime are refreshed afterwards, their values might be
+     * missing or outdated in the index.
+     */
+    private Index build(String label, RepositoryConnection connection) {
+        // concurrent lookups wait for the same build
+        synchronized (this.buildLocks.computeIfAbsent(label, l -> new Object())) {
+            Index existing = this.indexes.get(label);
+            if (Objects.nonNull(existing)) return existing;
+
+            Set<Resource> written = ConcurrentHashMap.newKeySet();
+            this.writtenWhileBuilding.put(label, written);
+            Index index = new Index();
+
+            try {
+                this.buildTimer.record(() -> this.predicates.forEach(predicate -> {
+                    try (RepositoryResult<Statement> statements = connection.getStatements(null, predicate, null, false)) {
+                        statements.forEach(index::add);
+                    }
+                }));
+
+                // installed while holding the version lock: a write is either recorded before, or refreshes the installed index
+                synchronized (this.versions.of(label)) {
+                    this.indexes.put(label, index);
+                    this.writtenWhileBuilding.remove(label);
+                }
+            } finally {
+                this.writtenWhileBuilding.remove(label, written);
+            }
+
+            if (!written.isEmpty()) {
+                log.debug("Refreshing {} subjects in identifier index of repository '{}', which have been written while building it.", written.size(), label);
+                this.refresh(label, connection.getRepository(), Set.copyOf(written));
+            }
+            log.debug("Built identifier index with {} values for repository '{}'", index.size(), label);
+            return index;
+        }
+    }
+
+
+    private record Key(IRI predicate, Value value) {
+    }
+
+    private static class Index {
+        private final Map<Key, Set<Resource>> subjectsByKey = new ConcurrentHashMap<>();
+        private final Map<Resource, Set<Key>> keysBySubject = new ConcurrentHashMap<>();
+
+        void add(Statement statement) {
+            Key key = new Key(statement.getPredicate(), statement.getObject());
+            this.subjectsByKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(statement.getSubject());
+            this.keysBySubject.computeIfAbsent(statement.getSubject(), s -> ConcurrentHashMap.newKeySet()).add(key);
+        }
+
+        void replace(Resource subject, Collection<Statement> statements) {
+            Set<Key> previous = this.keysBySubject.remove(subject);
+            if (Objects.nonNull(previous)) {
+                previous.forEach(key -> this.subjectsByKey.computeIfPresent(key, (k, subjects) -> {
+                    subjects.remove(subject);
+                    return subjects.isEmpty() ? null : subjects;
+                }));
+            }
+            statements.forEach(this::add);
+        }
+
+        Set<Resource> get(IRI predicate, Value value) {
+            return Set.copyOf(this.subjectsByKey.getOrDefault(new Key(predicate, value), Set.of()));
+        }
+
+        int size() {
+            return this.subjectsByKey.size();
+        }
+    }
+}
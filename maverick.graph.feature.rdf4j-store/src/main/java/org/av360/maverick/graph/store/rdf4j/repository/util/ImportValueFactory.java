@@ -0,0 +1,36 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Value factory for parsing the content of an import (the parser has to preserve the blank node identifiers). Parsing the
+ * same content again creates the same blank nodes, which is required to resume an import: labelled blank nodes keep their
+ * labels, anonymous blank nodes (e.g. '[]' in Turtle) are numbered in the order they appear in the content. The prefixes
+ * keep both apart.
+ * <p>
+ * The blank nodes are scoped by the identifier of the import, the same labels in different imports are distinct blank nodes.
+ */
+class ImportValueFactory extends SimpleValueFactory {
+
+    private final String scope;
+    private final AtomicLong anonymous;
+
+    ImportValueFactory(String importId) {
+        // blank node identifiers are restricted to letters and digits in some formats
+        this.scope = importId.replaceAll("[^A-Za-z0-9]", "");
+        this.anonymous = new AtomicLong();
+    }
+
+    @Override
+    public BNode createBNode() {
+        return super.createBNode("a" + this.scope + "x" + this.anonymous.incrementAndGet());
+    }
+
+    @Override
+    public BNode createBNode(String nodeID) {
+        return super.createBNode("l" + this.scope + "x" + nodeID);
+    }
+}
@@ -0,0 +1,114 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.*;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.rio.ntriples.NTriplesUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Loads the neighbourhood of an entity fragment, i.e. the statements of the entities linked by the fragment.
+ * <p>
+ * All neighbours of one level are fetched with a single query (instead of one lookup per neighbour). Only type statements
+ * and short literals of the neighbours are kept, the links of a neighbour are only followed (and kept) if a further level
+ * is requested. The number of neighbours per level is capped.
+ */
+@Component
+@Slf4j(topic = "graph.repo.fragments")
+public class NeighbourhoodLoader {
+
+    private static final int MAX_LITERAL_LENGTH = 128;
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${application.storage.fragments.maxNeighbours:500}")
+    private int maxNeighbours;
+
+    public NeighbourhoodLoader(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param connection open connection to the repository
+     * @param fragment the statements of the entity
+     * @param levels how many levels of neighbours to load
+     * @return the statements of the neighbours (without the statements of the fragment itself)
+     */
+    public Model load(RepositoryConnection connection, Model fragment, int levels) {
+        Model neighbourhood = new LinkedHashModel();
+        Set<Resource> visited = new HashSet<>(fragment.subjects());
+        Set<IRI> frontier = this.linkedResources(fragment, visited);
+
+        for (int level = 1; level <= levels && !frontier.isEmpty(); level++) {
+            boolean lastLevel = level == levels;
+            Set<IRI> neighbours = frontier;
+
+            Model statements = Timer.builder("graph.store.fragments.neighbours")
+                    .tag("level", String.valueOf(level))
+                    .register(this.meterRegistry)
+                    .record(() -> this.fetch(connection, neighbours, lastLevel));
+
+            if (log.isTraceEnabled())
+                log.trace("Loaded {} statements for {} neighbours in level {} from repository '{}'", statements.size(), neighbours.size(), level, connection.getRepository());
+
+            neighbourhood.addAll(statements);
+            visited.addAll(neighbours);
+            frontier = this.linkedResources(statements, visited);
+        }
+
+        return neighbourhood;
+    }
+
+    /**
+     * Collects the linked entities (objects which are IRIs, except the types), capped by the maximum number of neighbours.
+     */
+    private Set<IRI> linkedResources(Model statements, Set<Resource> visited) {
+        Set<IRI> linked = statements.stream()
+                .filter(statement -> !statement.getPredicate().equals(RDF.TYPE))
+                .map(Statement::getObject)
+                .filter(Value::isIRI)
+                .map(value -> (IRI) value)
+                .filter(iri -> !visited.contains(iri))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        if (linked.size() > this.maxNeighbours) {
+            log.debug("Number of neighbours ({}) exceeds maximum, only the first {} neighbours are loaded.", linked.size(), this.maxNeighbours);
+            return linked.stream().limit(this.maxNeighbours).collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+        return linked;
+    }
+
+    private Model fetch(RepositoryConnection connection, Set<IRI> neighbours, boolean lastLevel) {
+        String values = neighbours.stream().map(NTriplesUtil::toNTriplesString).collect(Collectors.joining(" "));
+        String links = lastLevel ? "" : " || isIRI(?o)";
+        String query = """
+                SELECT ?s ?p ?o WHERE {
+                  VALUES ?s { %s }
+                  ?s ?p ?o .
+                  FILTER(?p = %s || (isLiteral(?o) && STRLEN(STR(?o)) < %d)%s)
+                }
+                """.formatted(values, NTriplesUtil.toNTriplesString(RDF.TYPE), MAX_LITERAL_LENGTH, links);
+
+        Model result = new LinkedHashModel();
+        ValueFactory vf = connection.getValueFactory();
+        try (TupleQueryResult bindings = connection.prepareTupleQuery(QueryLanguage.SPARQL, query).evaluate()) {
+            for (BindingSet binding : bindings) {
+                result.add(vf.createStatement((Resource) binding.getValue("s"), (IRI) binding.getValue("p"), binding.getValue("o")));
+            }
+        }
+        return result;
+    }
+}
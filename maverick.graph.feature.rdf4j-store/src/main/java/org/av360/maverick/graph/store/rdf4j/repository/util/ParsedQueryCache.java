@@ -0,0 +1,113 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.query.GraphQuery;
+import org.eclipse.rdf4j.query.MalformedQueryException;
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.query.parser.*;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
+import org.eclipse.rdf4j.repository.sail.SailGraphQuery;
+import org.eclipse.rdf4j.repository.sail.SailRepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailTupleQuery;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Caches the parsed algebra of SPARQL queries, keyed by the query string. The queries are prepared from the cached algebra
+ * (instead of parsing them again within each connection). Parameters should be passed as bindings of a query template,
+ * not formatted into the query string.
+ * <p>
+ * Prepared queries are bound to a connection and cannot be shared, each query is prepared from a copy of the parsed algebra
+ * (the evaluation might modify it).
+ */
+@Component
+@Slf4j(topic = "graph.repo.queries.parser")
+public class ParsedQueryCache {
+
+    private final MeterRegistry meterRegistry;
+    private final QueryParser queryParser;
+    private Cache<String, ParsedQuery> cache;
+    private Timer parseTimer;
+
+    @Value("${application.storage.queries.parsed.maximumSize:1000}")
+    private long maximumSize;
+
+    public ParsedQueryCache(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.queryParser = QueryParserUtil.createParser(QueryLanguage.SPARQL);
+    }
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .recordStats()
+                .maximumSize(this.maximumSize)
+                .build();
+
+        CaffeineCacheMetrics.monitor(this.meterRegistry, this.cache, "graph.store.queries.parsed");
+        this.parseTimer = Timer.builder("graph.store.queries.parse").register(this.meterRegistry);
+    }
+
+    /**
+     * @throws MalformedQueryException if the query is invalid (invalid queries are not cached)
+     */
+    public ParsedQuery parse(String query) throws MalformedQueryException {
+        return this.cache.get(query, q -> this.parseTimer.record(() -> this.queryParser.parseQuery(q, null)));
+    }
+
+    public TupleQuery prepareTupleQuery(RepositoryConnection connection, String query) throws MalformedQueryException {
+        if (!(this.parse(query) instanceof ParsedTupleQuery parsed)) throw new MalformedQueryException("Not a select query: " + query);
+
+        return unwrap(connection) instanceof SailRepositoryConnection sailConnection
+                ? new PreparedTupleQuery(copy(parsed), sailConnection)
+                : connection.prepareTupleQuery(QueryLanguage.SPARQL, query);
+    }
+
+    public GraphQuery prepareGraphQuery(RepositoryConnection connection, String query) throws MalformedQueryException {
+        if (!(this.parse(query) instanceof ParsedGraphQuery parsed)) throw new MalformedQueryException("Not a construct query: " + query);
+
+        return unwrap(connection) instanceof SailRepositoryConnection sailConnection
+                ? new PreparedGraphQuery(copy(parsed), sailConnection)
+                : connection.prepareGraphQuery(QueryLanguage.SPARQL, query);
+    }
+
+    private static RepositoryConnection unwrap(RepositoryConnection connection) {
+        RepositoryConnection current = connection;
+        while (current instanceof RepositoryConnectionWrapper wrapper) {
+            current = wrapper.getDelegate();
+        }
+        return current;
+    }
+
+    private static ParsedTupleQuery copy(ParsedTupleQuery parsed) {
+        ParsedTupleQuery copy = new ParsedTupleQuery(parsed.getSourceString(), parsed.getTupleExpr().clone());
+        copy.setDataset(parsed.getDataset());
+        return copy;
+    }
+
+    private static ParsedGraphQuery copy(ParsedGraphQuery parsed) {
+        ParsedGraphQuery copy = new ParsedGraphQuery(parsed.getSourceString(), parsed.getTupleExpr().clone(), parsed.getQueryNamespaces());
+        copy.setDataset(parsed.getDataset());
+        return copy;
+    }
+
+    private static class PreparedTupleQuery extends SailTupleQuery {
+        PreparedTupleQuery(ParsedTupleQuery query, SailRepositoryConnection connection) {
+            super(query, connection);
+        }
+    }
+
+    private static class PreparedGraphQuery extends SailGraphQuery {
+        PreparedGraphQuery(ParsedGraphQuery query, SailRepositoryConnection connection) {
+            super(query, connection);
+        }
+    }
+}
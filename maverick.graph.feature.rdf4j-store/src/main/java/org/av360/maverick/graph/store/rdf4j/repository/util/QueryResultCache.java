@@ -0,0 +1,211 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.context.QueryLimits;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caches the results of select queries, keyed by repository label, the normalised query and the version of the repository
+ * (see {@link RepositoryVersions}). After a write, the version changes and the cached results are not used anymore (they
+ * are evicted eventually).
+ * <p>
+ * The results are not collected before they are emitted: the rows of an evaluation are streamed to its subscriber and
+ * copied into the cache while they pass. Only results which have been completed are cached, an evaluation which is
+ * cancelled (or fails, e.g. by exceeding the execution time of its environment) is discarded. Results with more rows than
+ * configured are not cached, these queries are evaluated (and streamed) every time.
+ * <p>
+ * Concurrent subscribers of the same query (with the same limits) share one evaluation while it is in flight: the rows
+ * emitted so far are replayed to subscribers joining later, followed by the remaining rows. Once the result exceeds the
+ * maximum number of cached rows, it is not shared anymore (subscribers joining later evaluate the query themselves). The
+ * evaluation is cancelled when all its subscribers have cancelled.
+ */
+@Component
+@Slf4j(topic = "graph.repo.queries.cache")
+public class QueryResultCache {
+
+    private final MeterRegistry meterRegistry;
+    private final RepositoryVersions versions;
+    private Cache<Key, CachedResult> cache;
+    private final Map<Flight, SharedEvaluation> inFlight;
+    private Counter coalesced;
+    private Counter uncacheable;
+
+    @Value("${application.storage.queries.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${application.storage.queries.cache.maximumRows:100000}")
+    private long maximumRows;
+
+    @Value("${application.storage.queries.cache.maxResultRows:5000}")
+    private int maxResultRows;
+
+    public QueryResultCache(MeterRegistry meterRegistry, RepositoryVersions versions) {
+        this.meterRegistry = meterRegistry;
+        this.versions = versions;
+        this.inFlight = new ConcurrentHashMap<>();
+    }
+
+    @PostConstruct
+    public void init() {
+        this.cache = Caffeine.newBuilder()
+                .recordStats()
+                .maximumWeight(this.maximumRows)
+                .weigher((Key key, CachedResult result) -> result.weight())
+                .build();
+
+        CaffeineCacheMetrics.monitor(this.meterRegistry, this.cache, "graph.store.queries.cache");
+        this.uncacheable = this.meterRegistry.counter("graph.store.queries.cache.uncacheable");
+        this.coalesced = this.meterRegistry.counter("graph.store.queries.cache.coalesced");
+    }
+
+    /**
+     * Returns the cached result of the query, or joins its evaluation in flight, or evaluates it (and caches the result
+     * once it has been completed).
+     *
+     * @param label the label of the repository
+     * @param query the select query
+     * @param distinct whether duplicates are removed from the result
+     * @param limits the limits of the evaluation (only evaluations with the same limits are shared)
+     * @param evaluation evaluates the query in the repository
+     */
+    public Flux<BindingSet> query(String label, String query, boolean distinct, QueryLimits limits, Supplier<Flux<BindingSet>> evaluation) {
+        if (!this.enabled) return evaluation.get();
+
+        return Flux.defer(() -> {
+            Key key = new Key(label, normalize(query), distinct, this.versions.current(label));
+
+            CachedResult cached = this.cache.getIfPresent(key);
+            if (Objects.nonNull(cached)) return Flux.fromIterable(cached.rows());
+
+            Flight flight = new Flight(key, limits);
+            SharedEvaluation shared = this.inFlight.computeIfAbsent(flight, f -> new SharedEvaluation(f, evaluation));
+            return shared.rows.switchOnFirst((first, rows) -> {
+                // joined after the rows at the start have been dropped from the replay (the result is too large to be shared)
+                if (first.hasValue() && first.get().getT1() > 0) return evaluation.get();
+                return rows.map(Tuple2::getT2);
+            });
+        });
+    }
+
+    /**
+     * Invalidates all cached results of the repository (e.g. after it has been closed).
+     */
+    public void invalidate(String label) {
+        this.cache.asMap().keySet().removeIf(key -> key.label().equals(label));
+    }
+
+    /**
+     * Collapses whitespace outside of string literals, queries only differing in formatting share their results.
+     */
+    static String normalize(String query) {
+        StringBuilder result = new StringBuilder(query.length());
+        char quote = 0;
+        boolean whitespace = false;
+
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                result.append(c);
+                if (c == '\\' && i + 1 < query.length()) result.append(query.charAt(++i));
+                else if (c == quote) quote = 0;
+            } else if (Character.isWhitespace(c)) {
+                whitespace = true;
+            } else {
+                if (whitespace && !result.isEmpty()) result.append(' ');
+                whitespace = false;
+                if (c == '"' || c == '\'') quote = c;
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+
+    private record Key(String label, String query, boolean distinct, long version) {
+    }
+
+    private record Flight(Key key, QueryLimits limits) {
+    }
+
+    private record CachedResult(List<BindingSet> rows) {
+        int weight() {
+            return Math.max(1, this.rows.size());
+        }
+    }
+
+    /**
+     * One evaluation shared by its subscribers. The indexed rows are replayed (up to the maximum number of cached rows) to
+     * subscribers joining later, the evaluation is removed from the flights once it terminates or becomes too large.
+     */
+    private class SharedEvaluation {
+        private final Flux<Tuple2<Long, BindingSet>> rows;
+        private final AtomicInteger subscribers;
+
+        SharedEvaluation(Flight flight, Supplier<Flux<BindingSet>> evaluation) {
+            Recording recording = new Recording(flight.key(), () -> inFlight.remove(flight, this));
+            this.subscribers = new AtomicInteger();
+            this.rows = Flux.defer(evaluation)
+                    .doOnNext(recording::add)
+                    .doOnComplete(recording::complete)
+                    .doFinally(signal -> inFlight.remove(flight, this))
+                    .index()
+                    .replay(maxResultRows)
+                    .refCount()
+                    .doOnSubscribe(subscription -> {
+                        if (this.subscribers.incrementAndGet() > 1) coalesced.increment();
+                    });
+        }
+    }
+
+    /**
+     * Copies the rows of one evaluation while they are emitted (the rows of a subscription are signalled sequentially).
+     */
+    private class Recording {
+        private final Key key;
+        private final Runnable onUncacheable;
+        private List<BindingSet> rows;
+
+        Recording(Key key, Runnable onUncacheable) {
+            this.key = key;
+            this.onUncacheable = onUncacheable;
+            this.rows = new ArrayList<>();
+        }
+
+        void add(BindingSet row) {
+            if (Objects.isNull(this.rows)) return;
+
+            if (this.rows.size() >= maxResultRows) {
+                uncacheable.increment();
+                log.trace("Result of query in repository '{}' exceeds the maximum number of cached rows.", this.key.label());
+                this.rows = null;
+                this.onUncacheable.run();
+                return;
+            }
+            this.rows.add(row);
+        }
+
+        void complete() {
+            if (Objects.isNull(this.rows)) return;
+            cache.put(this.key, new CachedResult(List.copyOf(this.rows)));
+            this.rows = null;
+        }
+    }
+}
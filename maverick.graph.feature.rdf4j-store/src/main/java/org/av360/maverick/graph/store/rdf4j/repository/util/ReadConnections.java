@@ -0,0 +1,198 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.common.transaction.IsolationLevel;
+import org.eclipse.rdf4j.common.transaction.IsolationLevels;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.function.ThrowingFunction;
+import reactor.core.publisher.Flux;
+import reactor.util.context.ContextView;
+
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Opens the connections for read-only operations of the stores. A read connection runs its reads in one read transaction
+ * with the configured isolation level (SNAPSHOT_READ by default): all reads of an operation (e.g. loading a fragment with
+ * its neighbours) see the same state of the repository, and readers never wait for the group commits of writers. With
+ * isolation level NONE, no transaction is started and each read sees the latest state.
+ * <p>
+ * A {@link Snapshot} is a read connection shared by several reads (of one service call), it is put into the reactor context
+ * for the repository (see {@link #contextKey(String)}). Since a snapshot can be older than the current version of the
+ * repository, caches are only used while the repository has not been written since the snapshot has been opened.
+ */
+@Component
+@Slf4j(topic = "graph.repo.reads")
+public class ReadConnections {
+
+    private final MeterRegistry meterRegistry;
+    private final RepositoryVersions versions;
+    private IsolationLevel isolationLevel;
+    private Counter snapshots;
+
+    @Value("${application.storage.reads.isolation:SNAPSHOT_READ}")
+    private String configuredIsolationLevel;
+
+    public ReadConnections(MeterRegistry meterRegistry, RepositoryVersions versions) {
+        this.meterRegistry = meterRegistry;
+        this.versions = versions;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.isolationLevel = IsolationLevels.valueOf(this.configuredIsolationLevel.trim().toUpperCase());
+        this.snapshots = this.meterRegistry.counter("graph.store.reads.snapshots");
+        log.debug("Read-only operations use isolation level {}", this.isolationLevel);
+    }
+
+    /**
+     * @return a read connection, the read transaction is ended when the connection is closed
+     */
+    public RepositoryConnection open(Repository repository) {
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            connection.setIsolationLevel(this.isolationLevel);
+            if (this.isolationLevel != IsolationLevels.NONE) connection.begin(this.isolationLevel);
+            return new ReadConnection(repository, connection);
+        } catch (RepositoryException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a snapshot of the repository, which has to be closed by the caller.
+     */
+    public Snapshot snapshot(String label, Repository repository) {
+        long version = this.versions.current(label);
+        RepositoryConnection connection = this.open(repository);
+        try {
+            // the first read pins the state of the read transaction
+            connection.hasStatement(null, RDF.TYPE, null, false);
+        } catch (RepositoryException e) {
+            connection.close();
+            throw e;
+        }
+
+        boolean live = this.isolationLevel == IsolationLevels.NONE;
+        // a write in between leaves the version of the snapshot unknown, the caches are not used then
+        long pinned = this.versions.current(label) == version ? version : -1;
+        this.snapshots.increment();
+        return new Snapshot(label, connection, live, pinned);
+    }
+
+    /**
+     * @return the snapshot of the repository within the current subscription, if any
+     */
+    public Optional<Snapshot> shared(ContextView context, String label) {
+        return context.getOrEmpty(contextKey(label));
+    }
+
+    /**
+     * @return whether the caches of the repository are valid within the given snapshot
+     */
+    public boolean isCurrent(Snapshot snapshot) {
+        return snapshot.live || (snapshot.version >= 0 && snapshot.version == this.versions.current(snapshot.label));
+    }
+
+    public static String contextKey(String label) {
+        return "graph.store.snapshot." + label;
+    }
+
+
+    /**
+     * A read connection shared by several operations. The operations are run one after another, the connection is not
+     * closed by them. Streamed results are pulled one at a time, other operations can run in between.
+     */
+    public static class Snapshot implements AutoCloseable {
+        private final String label;
+        private final RepositoryConnection connection;
+        private final boolean live;
+        private final long version;
+
+        Snapshot(String label, RepositoryConnection connection, boolean live, long version) {
+            this.label = label;
+            this.connection = connection;
+            this.live = live;
+            this.version = version;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public synchronized <T> T apply(ThrowingFunction<RepositoryConnection, T> fun) throws Exception {
+            return fun.applyWithException(this.connection);
+        }
+
+        /**
+         * Streams the results of the function according to the demand of the subscriber. The stream (but not the
+         * connection) is closed when the flux completes, fails or is cancelled.
+         */
+        public <T> Flux<T> stream(ThrowingFunction<RepositoryConnection, Stream<T>> fun) {
+            return Flux.using(
+                    () -> this.apply(fun),
+                    stream -> {
+                        Iterator<T> results = stream.iterator();
+                        return Flux.fromIterable(() -> new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                synchronized (Snapshot.this) {
+                                    return results.hasNext();
+                                }
+                            }
+
+                            @Override
+                            public T next() {
+                                synchronized (Snapshot.this) {
+                                    return results.next();
+                                }
+                            }
+                        });
+                    },
+                    stream -> {
+                        synchronized (this) {
+                            stream.close();
+                        }
+                    });
+        }
+
+        @Override
+        public synchronized void close() {
+            this.connection.close();
+        }
+    }
+
+    /**
+     * Ends the read transaction with a commit (without changes) when closed.
+     */
+    private static class ReadConnection extends RepositoryConnectionWrapper {
+
+        ReadConnection(Repository repository, RepositoryConnection delegate) {
+            super(repository, delegate);
+        }
+
+        @Override
+        public void close() throws RepositoryException {
+            try {
+                if (this.getDelegate().isOpen() && this.getDelegate().isActive()) this.getDelegate().commit();
+            } finally {
+                super.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.vocabulary.Local;
+import org.av360.maverick.graph.store.rdf.helpers.StoreStatistics;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.sail.NotifyingSail;
+import org.eclipse.rdf4j.sail.Sail;
+import org.eclipse.rdf4j.sail.SailConnection;
+import org.eclipse.rdf4j.sail.SailException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of each repository (by label): the total number of statements, the number of instances per type and the
+ * number of statements per predicate. The statistics are maintained by the sail of the repository (see
+ * {@link StatisticsSail}), which applies the statements added and removed by each committed transaction.
+ * <p>
+ * The statistics of a persistent repository are written into its data directory when the repository is closed, and read
+ * (and deleted) when it is opened again. If no statistics are found (e.g. after a crash), they are counted once while
+ * opening the repository. Repositories opened while the statistics are disabled are not tracked, their persisted
+ * statistics are deleted (the statistics are counted again once they are enabled).
+ * <p>
+ * The total number of statements and the number of individuals, classifiers and embedded entities are exposed as gauges,
+ * the counts for other types and the predicates only by the store (their number is unbounded). The counts and gauges of a
+ * repository are removed when it is closed.
+ */
+@Component
+@Slf4j(topic = "graph.repo.statistics")
+public class RepositoryStatistics {
+
+    static final String FILE_NAME = "statistics.bin";
+    private static final int MAGIC = 0x4D475354;
+    private static final int FORMAT_VERSION = 1;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counts> counts;
+    private final Map<String, List<Meter>> gauges;
+
+    @Value("${application.storage.statistics.enabled:true}")
+    private boolean enabled;
+
+    public RepositoryStatistics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.counts = new ConcurrentHashMap<>();
+        this.gauges = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Wraps the sail of a repository, the statistics of the repository are maintained by the returned sail. If the
+     * statistics are disabled, the sail is returned as is and the persisted statistics of the repository are deleted
+     * (they would be outdated by the untracked changes).
+     */
+    public Sail track(String label, NotifyingSail sail) {
+        if (this.enabled) return new StatisticsSail(label, sail, this);
+
+        if (Objects.nonNull(sail.getDataDir())) this.invalidate(label, sail.getDataDir().toPath().resolve(FILE_NAME));
+        return sail;
+    }
+
+    /**
+     * @return the current statistics of the repository, empty if the repository is not tracked (or not opened yet)
+     */
+    public StoreStatistics get(String label) {
+        Counts current = this.counts.get(label);
+        return Objects.isNull(current) ? StoreStatistics.EMPTY : current.snapshot();
+    }
+
+    /**
+     * Called by the sail after it has been initialized, reads the persisted statistics or counts the statements.
+     */
+    void open(String label, @Nullable File dataDir, Sail baseSail) {
+        Counts loaded = Objects.isNull(dataDir) ? null : this.read(label, dataDir.toPath().resolve(FILE_NAME));
+        if (Objects.isNull(loaded)) {
+            loaded = this.count(label, baseSail);
+        }
+
+        this.counts.put(label, loaded);
+        this.registerGauges(label);
+    }
+
+    /**
+     * Called by the sail before it is shut down, persists the statistics of persistent repositories and removes the
+     * counts and gauges of the repository.
+     */
+    void close(String label, @Nullable File dataDir) {
+        List<Meter> meters = this.gauges.remove(label);
+        if (Objects.nonNull(meters)) meters.forEach(this.meterRegistry::remove);
+
+        Counts current = this.counts.remove(label);
+        if (Objects.isNull(current) || Objects.isNull(dataDir)) return;
+
+        this.write(label, current, dataDir.toPath().resolve(FILE_NAME));
+    }
+
+    /**
+     * Called by the sail after a commit with the changes of the transaction.
+     */
+    void apply(String label, Changes changes) {
+        if (changes.isEmpty()) return;
+        Counts current = this.counts.get(label);
+        if (Objects.isNull(current)) return;
+
+        current.apply(changes);
+    }
+
+    private Counts count(String label, Sail sail) {
+        long start = System.currentTimeMillis();
+        Changes changes = new Changes();
+        try (SailConnection connection = sail.getConnection()) {
+            connection.begin();
+            try (CloseableIteration<? extends Statement, SailException> statements = connection.getStatements(null, null, null, false)) {
+                while (statements.hasNext()) changes.added(statements.next());
+            }
+            connection.commit();
+        }
+
+        Counts result = new Counts();
+        result.apply(changes);
+        log.info("Counted {} statements for the statistics of repository '{}' in {} ms", result.statements.get(), label, System.currentTimeMillis() - start);
+        return result;
+    }
+
+    /**
+     * The file is deleted after reading it: if the repository is not closed properly, the statistics are counted again.
+     */
+    @Nullable
+    private Counts read(String label, Path file) {
+        if (!Files.exists(file)) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.warn("Ignoring statistics of repository '{}' in unknown format", label);
+                return null;
+            }
+
+            Counts result = new Counts();
+            result.statements.set(in.readLong());
+            readCounts(in, result.types);
+            readCounts(in, result.predicates);
+            log.debug("Read statistics of repository '{}' with {} statements", label, result.statements.get());
+            return result;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read statistics of repository '{}' with reason: {}", label, e.getMessage());
+            return null;
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete statistics of repository '{}' in path '{}'", label, file);
+            }
+        }
+    }
+
+    private void invalidate(String label, Path file) {
+        try {
+            if (Files.deleteIfExists(file)) {
+                log.debug("Deleted statistics of untracked repository '{}'", label);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to delete statistics of repository '{}' in path '{}'", label, file);
+        }
+    }
+
+    private void write(String label, Counts current, Path file) {
+        Path temporary = file.resolveSibling(FILE_NAME + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(current.statements.get());
+                writeCounts(out, current.types);
+                writeCounts(out, current.predicates);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Persisted statistics of repository '{}' with {} statements", label, current.statements.get());
+        } catch (IOException e) {
+            log.warn("Failed to persist statistics of repository '{}' with reason: {}", label, e.getMessage());
+        }
+    }
+
+    private static void readCounts(DataInputStream in, Map<IRI, Long> target) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            target.put(SimpleValueFactory.getInstance().createIRI(in.readUTF()), in.readLong());
+        }
+    }
+
+    private static void writeCounts(DataOutputStream out, Map<IRI, Long> source) throws IOException {
+        Map<IRI, Long> copy = Map.copyOf(source);
+        out.writeInt(copy.size());
+        for (Map.Entry<IRI, Long> entry : copy.entrySet()) {
+            out.writeUTF(entry.getKey().stringValue());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    private void registerGauges(String label) {
+        List<Meter> meters = new ArrayList<>();
+        meters.add(Gauge.builder("graph.store.statistics.statements", this, statistics -> statistics.get(label).statements())
+                .tag("label", label)
+                .register(this.meterRegistry));
+
+        Map.of("individual", Local.Entities.TYPE_INDIVIDUAL, "classifier", Local.Entities.TYPE_CLASSIFIER, "embedded", Local.Entities.TYPE_EMBEDDED)
+                .forEach((name, type) -> meters.add(Gauge.builder("graph.store.statistics.entities", this, statistics -> statistics.get(label).countInstances(type))
+                        .tag("label", label)
+                        .tag("type", name)
+                        .register(this.meterRegistry)));
+        this.gauges.put(label, meters);
+    }
+
+
+    /**
+     * The changes of a single transaction, collected by the connection until the transaction is committed.
+     */
+    static class Changes {
+        private long statements;
+        private final Map<IRI, Long> types = new HashMap<>();
+        private final Map<IRI, Long> predicates = new HashMap<>();
+
+        void added(Statement statement) {
+            this.record(statement, 1);
+        }
+
+        void removed(Statement statement) {
+            this.record(statement, -1);
+        }
+
+        boolean isEmpty() {
+            return this.statements == 0 && this.types.isEmpty() && this.predicates.isEmpty();
+        }
+
+        void clear() {
+            this.statements = 0;
+            this.types.clear();
+            this.predicates.clear();
+        }
+
+        private void record(Statement statement, long delta) {
+            this.statements += delta;
+            this.predicates.merge(statement.getPredicate(), delta, Long::sum);
+            if (RDF.TYPE.equals(statement.getPredicate()) && statement.getObject() instanceof IRI type) {
+                this.types.merge(type, delta, Long::sum);
+            }
+        }
+    }
+
+    private static class Counts {
+        private final AtomicLong statements = new AtomicLong();
+        private final Map<IRI, Long> types = new ConcurrentHashMap<>();
+        private final Map<IRI, Long> predicates = new ConcurrentHashMap<>();
+
+        void apply(Changes changes) {
+            this.statements.addAndGet(changes.statements);
+            changes.types.forEach((type, delta) -> merge(this.types, type, delta));
+            changes.predicates.forEach((predicate, delta) -> merge(this.predicates, predicate, delta));
+        }
+
+        StoreStatistics snapshot() {
+            return new StoreStatistics(this.statements.get(), Map.copyOf(this.types), Map.copyOf(this.predicates));
+        }
+
+        private static void merge(Map<IRI, Long> counts, IRI key, long delta) {
+            if (delta == 0) return;
+            // entries dropping to zero are removed
+            counts.merge(key, delta, (current, d) -> current + d == 0 ? null : current + d);
+        }
+    }
+}
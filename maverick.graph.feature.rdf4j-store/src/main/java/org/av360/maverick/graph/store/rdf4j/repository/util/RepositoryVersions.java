@@ -0,0 +1,39 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of each repository (by label), which is incremented with every write. Anything cached for a repository
+ * (fragments, query results) is only valid for the version it has been loaded with.
+ */
+@Component
+public class RepositoryVersions {
+
+    private final Map<String, AtomicLong> versions;
+
+    public RepositoryVersions() {
+        this.versions = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the version counter of the repository, is also used as lock by the caches while invalidating
+     */
+    public AtomicLong of(String label) {
+        return this.versions.computeIfAbsent(label, l -> new AtomicLong());
+    }
+
+    public long current(String label) {
+        return this.of(label).get();
+    }
+
+    /**
+     * Removes the version of a closed repository, has to be called after everything cached for it has been invalidated.
+     */
+    public void remove(String label) {
+        this.versions.remove(label);
+    }
+}
@@ -0,0 +1,163 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.store.rdf.helpers.StatementsPage;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The open cursors of paged statement reads (see {@link StatementsPage}). The cursors of the repository cannot seek to a
+ * position, instead of skipping the statements of the previous pages with each page, the cursor (and its read connection)
+ * is kept open between the pages. The resume token identifies the cursor and the position within it.
+ * <p>
+ * A cursor is claimed by the request for the next page and returned once the page has been read, each token can only
+ * be used once. Cursors which are not resumed within the idle timeout are closed, reading has to start again with the
+ * first page then. Since the cursor reads within its read transaction (see {@link ReadConnections}), all pages see the
+ * state of the repository when the first page has been read. The open connection keeps the repository in use, it is not
+ * closed by the repository builder before the cursor.
+ */
+@Component
+@Slf4j(topic = "graph.repo.cursors")
+public class StatementCursors {
+
+    private final MeterRegistry meterRegistry;
+    private final ReadConnections readConnections;
+    private Cache<String, Cursor> cursors;
+
+    @Value("${application.storage.cursors.idleTimeout:1m}")
+    private Duration idleTimeout;
+
+    @Value("${application.storage.cursors.maximumSize:100}")
+    private long maximumSize;
+
+    public StatementCursors(MeterRegistry meterRegistry, ReadConnections readConnections) {
+        this.meterRegistry = meterRegistry;
+        this.readConnections = readConnections;
+    }
+
+    @PostConstruct
+    public void init() {
+        // only evicted cursors are closed by the listener, claimed cursors are removed explicitly while their page is read
+        this.cursors = Caffeine.newBuilder()
+                .expireAfterAccess(this.idleTimeout)
+                .maximumSize(this.maximumSize)
+                .scheduler(Scheduler.systemScheduler())
+                .evictionListener((String id, Cursor cursor, RemovalCause cause) -> {
+                    if (cursor != null) {
+                        log.debug("Closing cursor '{}' of repository '{}' after {} statements ({}).", id, cursor.label, cursor.position, cause);
+                        cursor.close();
+                    }
+                })
+                .build();
+
+        Gauge.builder("graph.store.cursors.open", this.cursors, Cache::estimatedSize).register(this.meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        this.cursors.asMap().values().forEach(Cursor::close);
+        this.cursors.invalidateAll();
+    }
+
+    /**
+     * Opens a cursor over the statements matching the pattern and reads the first page.
+     */
+    public StatementsPage open(String label, Repository repository, @Nullable Resource subject, @Nullable IRI predicate, @Nullable org.eclipse.rdf4j.model.Value object, int limit) {
+        RepositoryConnection connection = this.readConnections.open(repository);
+        try {
+            Cursor cursor = new Cursor(UUID.randomUUID().toString(), label, connection, connection.getStatements(subject, predicate, object));
+            return this.read(cursor, limit);
+        } catch (RepositoryException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next page from the cursor of the token.
+     *
+     * @throws IllegalArgumentException if the cursor has been closed (or the token has been used before)
+     */
+    public StatementsPage next(String label, StatementsPage.ResumeToken token, int limit) {
+        Cursor cursor = this.cursors.asMap().remove(token.cursor());
+        if (cursor == null) {
+            throw new IllegalArgumentException("Resume token has expired, reading has to start again with the first page.");
+        }
+        if (!cursor.label.equals(label)) {
+            this.cursors.put(cursor.id, cursor);
+            throw new IllegalArgumentException("Resume token belongs to another repository.");
+        }
+        if (cursor.position != token.position()) {
+            cursor.close();
+            throw new IllegalArgumentException("Resume token has been used before, reading has to start again with the first page.");
+        }
+        return this.read(cursor, limit);
+    }
+
+    private StatementsPage read(Cursor cursor, int limit) {
+        List<Statement> statements = new ArrayList<>(Math.min(limit, 1024));
+        try {
+            while (statements.size() < limit && cursor.statements.hasNext()) {
+                statements.add(cursor.statements.next());
+            }
+            cursor.position += statements.size();
+
+            if (!cursor.statements.hasNext()) {
+                cursor.close();
+                return new StatementsPage(statements, null);
+            }
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+
+        this.cursors.put(cursor.id, cursor);
+        return new StatementsPage(statements, new StatementsPage.ResumeToken(cursor.id, cursor.position).encode());
+    }
+
+    private static class Cursor {
+        private final String id;
+        private final String label;
+        private final RepositoryConnection connection;
+        private final RepositoryResult<Statement> statements;
+        private long position;
+
+        Cursor(String id, String label, RepositoryConnection connection, RepositoryResult<Statement> statements) {
+            this.id = id;
+            this.label = label;
+            this.connection = connection;
+            this.statements = statements;
+        }
+
+        void close() {
+            try {
+                this.statements.close();
+            } catch (RepositoryException e) {
+                log.warn("Failed to close cursor '{}' of repository '{}'.", this.id, this.label, e);
+            } finally {
+                this.connection.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import org.eclipse.rdf4j.common.transaction.IsolationLevel;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.sail.NotifyingSail;
+import org.eclipse.rdf4j.sail.NotifyingSailConnection;
+import org.eclipse.rdf4j.sail.SailConnectionListener;
+import org.eclipse.rdf4j.sail.SailException;
+import org.eclipse.rdf4j.sail.helpers.NotifyingSailConnectionWrapper;
+import org.eclipse.rdf4j.sail.helpers.NotifyingSailWrapper;
+
+/**
+ * Maintains the {@link RepositoryStatistics} of a repository. Each connection listens to the statements added and removed
+ * by the underlying store (which reports only actual changes: statements which did not exist before, or which have been
+ * removed), and applies them to the statistics once the transaction has been committed.
+ */
+class StatisticsSail extends NotifyingSailWrapper {
+
+    private final String label;
+    private final RepositoryStatistics statistics;
+
+    StatisticsSail(String label, NotifyingSail baseSail, RepositoryStatistics statistics) {
+        super(baseSail);
+        this.label = label;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void init() throws SailException {
+        super.init();
+        this.statistics.open(this.label, this.getDataDir(), this.getBaseSail());
+    }
+
+    @Override
+    public void shutDown() throws SailException {
+        this.statistics.close(this.label, this.getDataDir());
+        super.shutDown();
+    }
+
+    @Override
+    public NotifyingSailConnection getConnection() throws SailException {
+        return new TrackingConnection(super.getConnection());
+    }
+
+    private class TrackingConnection extends NotifyingSailConnectionWrapper implements SailConnectionListener {
+
+        private final RepositoryStatistics.Changes changes;
+
+        TrackingConnection(NotifyingSailConnection wrappedCon) {
+            super(wrappedCon);
+            this.changes = new RepositoryStatistics.Changes();
+            wrappedCon.addConnectionListener(this);
+        }
+
+        @Override
+        public void statementAdded(Statement statement) {
+            this.changes.added(statement);
+        }
+
+        @Override
+        public void statementRemoved(Statement statement) {
+            this.changes.removed(statement);
+        }
+
+        @Override
+        public void begin() throws SailException {
+            this.changes.clear();
+            super.begin();
+        }
+
+        @Override
+        public void begin(IsolationLevel level) throws SailException {
+            this.changes.clear();
+            super.begin(level);
+        }
+
+        @Override
+        public void commit() throws SailException {
+            super.commit();
+            statistics.apply(label, this.changes);
+            this.changes.clear();
+        }
+
+        @Override
+        public void rollback() throws SailException {
+            this.changes.clear();
+            super.rollback();
+        }
+
+        @Override
+        public void close() throws SailException {
+            try {
+                this.getWrappedConnection().removeConnectionListener(this);
+            } finally {
+                super.close();
+            }
+        }
+    }
+}
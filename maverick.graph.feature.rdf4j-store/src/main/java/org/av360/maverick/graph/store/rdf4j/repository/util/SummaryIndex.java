@@ -0,0 +1,343 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.vocabulary.Local;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.store.rdf.helpers.ContinuationToken;
+import org.av360.maverick.graph.store.rdf.helpers.EntitySummary;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.model.vocabulary.SKOS;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-memory projection of the individuals of each repository into {@link EntitySummary summaries}, which are kept in sets
+ * ordered by identifier and by label (for all individuals and per type). A page of entities is read with a range scan
+ * starting after the position of the previous page, instead of evaluating a query.
+ * <p>
+ * Built and maintained like the {@link IdentifierIndex}: the projection of a repository is built with the first request,
+ * the stores refresh it with the subjects of each write (after the commit), subjects written while building it are
+ * refreshed once it has been installed. It is kept in memory until the repository is closed. The modification time of a
+ * summary is the time of the last refresh, summaries read while building the projection have the modification date stated
+ * by the entity.
+ * <p>
+ * The projection is only built for repositories with at most the configured number of individuals, which bounds both its
+ * size on the heap and the time of the request building it. The pages of larger repositories (and of all repositories if
+ * the projection is disabled) are read with a scan over the instances of the type, which keeps only the entities of the
+ * page in memory and reads only their summaries.
+ */
+@Component
+@Slf4j(topic = "graph.repo.summaries")
+public class SummaryIndex {
+
+    /**
+     * Candidates for the preferred label, in the order of preference
+     */
+    private static final List<IRI> LABEL_PROPERTIES = List.of(SKOS.PREF_LABEL, RDFS.LABEL, SDO.TITLE, DCTERMS.TITLE, SDO.NAME);
+    private static final List<IRI> MODIFIED_PROPERTIES = List.of(DCTERMS.MODIFIED, SimpleValueFactory.getInstance().createIRI(SDO.NAMESPACE, "dateModified"));
+
+    private final MeterRegistry meterRegistry;
+    private final RepositoryVersions versions;
+    private final Map<String, Index> indexes;
+    private final Map<String, Object> buildLocks;
+    private final Map<String, Set<Resource>> writtenWhileBuilding;
+    private final Set<String> oversized;
+    private Timer buildTimer;
+    private Counter indexedPages;
+    private Counter scannedPages;
+
+    @Value("${application.storage.summaries.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Repositories with more individuals are not projected (until they are closed or cleared)
+     */
+    @Value("${application.storage.summaries.maxEntities:100000}")
+    private int maxEntities;
+
+    public SummaryIndex(MeterRegistry meterRegistry, RepositoryVersions versions) {
+        this.meterRegistry = meterRegistry;
+        this.versions = versions;
+        this.indexes = new ConcurrentHashMap<>();
+        this.buildLocks = new ConcurrentHashMap<>();
+        this.writtenWhileBuilding = new ConcurrentHashMap<>();
+        this.oversized = ConcurrentHashMap.newKeySet();
+    }
+
+    @PostConstruct
+    public void init() {
+        this.buildTimer = Timer.builder("graph.store.summaries.build").register(this.meterRegistry);
+        this.indexedPages = this.meterRegistry.counter("graph.store.summaries.pages", "indexed", "true");
+        this.scannedPages = this.meterRegistry.counter("graph.store.summaries.pages", "indexed", "false");
+        Gauge.builder("graph.store.summaries.entities", this.indexes, indexes -> indexes.values().stream().mapToInt(Index::size).sum())
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * @return the summaries of the next individuals (with the given type) after the position
+     */
+    public List<EntitySummary> page(String label, RepositoryConnection connection, @Nullable IRI type, EntitySummary.Order order, @Nullable ContinuationToken after, int limit) {
+        IRI selected = Objects.isNull(type) ? Local.Entities.TYPE_INDIVIDUAL : type;
+
+        Index index = this.enabled ? this.indexes.get(label) : null;
+        if (this.enabled && Objects.isNull(index) && !this.oversized.contains(label)) index = this.build(label, connection);
+        if (Objects.nonNull(index)) {
+            this.indexedPages.increment();
+            return index.page(selected, order, after, limit);
+        }
+
+        this.scannedPages.increment();
+        return scan(connection, selected, order, after, limit);
+    }
+
+    /**
+     * Reads the summaries of the subjects again, has to be called after the subjects have been written (and after the
+     * version of the repository has been incremented).
+     */
+    public void refresh(String label, Repository repository, Collection<? extends Resource> subjects) {
+        if (subjects.isEmpty()) return;
+
+        Index index;
+        synchronized (this.versions.of(label)) {
+            index = this.indexes.get(label);
+            if (Objects.isNull(index)) {
+                Set<Resource> written = this.writtenWhileBuilding.get(label);
+                if (Objects.nonNull(written)) written.addAll(subjects);
+                return;
+            }
+        }
+
+        Instant modified = Instant.now();
+        synchronized (index) {
+            try (RepositoryConnection connection = repository.getConnection()) {
+                for (Resource subject : subjects) {
+                    EntitySummary summary = read(connection, subject, modified);
+                    if (Objects.isNull(summary)) index.remove(subject);
+                    else index.put(summary);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to refresh summaries of repository '{}', dropping them: {}", label, e.getMessage());
+                this.indexes.remove(label, index);
+            }
+        }
+    }
+
+    /**
+     * Drops the projection of the repository (e.g. after it has been cleared or closed), it is built again with the next request.
+     */
+    public void drop(String label) {
+        this.indexes.remove(label);
+        this.oversized.remove(label);
+    }
+
+    /**
+     * Builds and installs the projection, the subjects written in the meantime are refreshed afterwards.
+     *
+     * @return the projection, or null if the repository has too many individuals
+     */
+    @Nullable
+    private Index build(String label, RepositoryConnection connection) {
+        synchronized (this.buildLocks.computeIfAbsent(label, l -> new Object())) {
+            Index existing = this.indexes.get(label);
+            if (Objects.nonNull(existing) || this.oversized.contains(label)) return existing;
+
+            Set<Resource> written = ConcurrentHashMap.newKeySet();
+            this.writtenWhileBuilding.put(label, written);
+            Index index = new Index();
+
+            try {
+                // the individuals are counted before any summary is read
+                Set<Resource> individuals = instancesOf(connection, Local.Entities.TYPE_INDIVIDUAL);
+                if (individuals.size() > this.maxEntities) {
+                    log.info("Not building summaries for repository '{}' with {} individuals (more than {}), its pages are scanned.", label, individuals.size(), this.maxEntities);
+                    this.oversized.add(label);
+                    return null;
+                }
+
+                this.buildTimer.record(() -> individuals.stream()
+                        .map(subject -> read(connection, subject, null))
+                        .filter(Objects::nonNull)
+                        .forEach(index::put));
+
+                synchronized (this.versions.of(label)) {
+                    this.indexes.put(label, index);
+                    this.writtenWhileBuilding.remove(label);
+                }
+            } finally {
+                this.writtenWhileBuilding.remove(label, written);
+            }
+
+            if (!written.isEmpty()) {
+                log.debug("Refreshing {} summaries of repository '{}', which have been written while building them.", written.size(), label);
+                this.refresh(label, connection.getRepository(), Set.copyOf(written));
+            }
+            log.debug("Built {} summaries for repository '{}'", index.size(), label);
+            return index;
+        }
+    }
+
+    /**
+     * Reads the page without projection: the instances are scanned, only the first entities after the position are kept
+     * (with their label, if ordered by label) and only their summaries are read.
+     */
+    private static List<EntitySummary> scan(RepositoryConnection connection, IRI type, EntitySummary.Order order, @Nullable ContinuationToken after, int limit) {
+        if (limit <= 0) return List.of();
+
+        Comparator<EntitySummary> comparator = EntitySummary.comparator(order);
+        EntitySummary position = Objects.isNull(after) ? null : EntitySummary.probe(after);
+        boolean individuals = Local.Entities.TYPE_INDIVIDUAL.equals(type);
+
+        // the head of the queue is the last entity of the page found so far
+        PriorityQueue<EntitySummary> page = new PriorityQueue<>(comparator.reversed());
+        for (Resource subject : instancesOf(connection, type)) {
+            if (!individuals && !connection.hasStatement(subject, RDF.TYPE, Local.Entities.TYPE_INDIVIDUAL, false)) continue;
+
+            EntitySummary candidate = order == EntitySummary.Order.LABEL ? labelled(connection, subject) : new EntitySummary(subject, Set.of(), null, null, null);
+            if (Objects.nonNull(position) && comparator.compare(candidate, position) <= 0) continue;
+
+            if (page.size() < limit) {
+                page.add(candidate);
+            } else if (comparator.compare(candidate, page.peek()) < 0) {
+                page.poll();
+                page.add(candidate);
+            }
+        }
+
+        return page.stream()
+                .sorted(comparator)
+                .map(candidate -> read(connection, candidate.id(), null))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * The subjects are collected before their summaries are read (with further iterations on the same connection).
+     */
+    private static Set<Resource> instancesOf(RepositoryConnection connection, IRI type) {
+        try (RepositoryResult<Statement> statements = connection.getStatements(null, RDF.TYPE, type, false)) {
+            return statements.stream().map(Statement::getSubject).collect(Collectors.toCollection(LinkedHashSet::new));
+        }
+    }
+
+    /**
+     * @param modified the time of the write, or null to use the modification date stated by the entity
+     * @return the summary, or null if the subject is not an individual (anymore)
+     */
+    @Nullable
+    private static EntitySummary read(RepositoryConnection connection, Resource subject, @Nullable Instant modified) {
+        Set<IRI> types;
+        try (RepositoryResult<Statement> statements = connection.getStatements(subject, RDF.TYPE, null, false)) {
+            types = statements.stream()
+                    .map(Statement::getObject)
+                    .filter(IRI.class::isInstance)
+                    .map(IRI.class::cast)
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+        if (!types.contains(Local.Entities.TYPE_INDIVIDUAL)) return null;
+
+        EntitySummary labelled = labelled(connection, subject);
+        if (Objects.isNull(modified)) {
+            modified = MODIFIED_PROPERTIES.stream()
+                    .flatMap(property -> firstLiteral(connection, subject, property).stream())
+                    .map(SummaryIndex::toInstant)
+                    .filter(Objects::nonNull)
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        return new EntitySummary(subject, types, labelled.label(), labelled.labelProperty(), modified);
+    }
+
+    /**
+     * @return a summary with only the preferred label of the subject
+     */
+    private static EntitySummary labelled(RepositoryConnection connection, Resource subject) {
+        for (IRI property : LABEL_PROPERTIES) {
+            Optional<Literal> label = firstLiteral(connection, subject, property);
+            if (label.isPresent()) return new EntitySummary(subject, Set.of(), label.get(), property, null);
+        }
+        return new EntitySummary(subject, Set.of(), null, null, null);
+    }
+
+    /**
+     * @return the lexically smallest literal (for a stable choice among several values)
+     */
+    private static Optional<Literal> firstLiteral(RepositoryConnection connection, Resource subject, IRI property) {
+        try (RepositoryResult<Statement> statements = connection.getStatements(subject, property, null, false)) {
+            return statements.stream()
+                    .map(Statement::getObject)
+                    .filter(Literal.class::isInstance)
+                    .map(Literal.class::cast)
+                    .min(Comparator.comparing(Literal::getLabel));
+        }
+    }
+
+    @Nullable
+    private static Instant toInstant(Literal literal) {
+        try {
+            return literal.calendarValue().toGregorianCalendar().toInstant();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+
+    private static class Index {
+        private final Map<Resource, EntitySummary> summaries = new ConcurrentHashMap<>();
+        private final Map<IRI, NavigableSet<EntitySummary>> byIdentifier = new ConcurrentHashMap<>();
+        private final Map<IRI, NavigableSet<EntitySummary>> byLabel = new ConcurrentHashMap<>();
+
+        void put(EntitySummary summary) {
+            this.remove(summary.id());
+            this.summaries.put(summary.id(), summary);
+            summary.types().forEach(type -> {
+                this.byIdentifier.computeIfAbsent(type, t -> new ConcurrentSkipListSet<>(EntitySummary.BY_IDENTIFIER)).add(summary);
+                this.byLabel.computeIfAbsent(type, t -> new ConcurrentSkipListSet<>(EntitySummary.BY_LABEL)).add(summary);
+            });
+        }
+
+        void remove(Resource subject) {
+            EntitySummary previous = this.summaries.remove(subject);
+            if (Objects.isNull(previous)) return;
+
+            previous.types().forEach(type -> Stream.of(this.byIdentifier.get(type), this.byLabel.get(type))
+                    .filter(Objects::nonNull)
+                    .forEach(summaries -> summaries.remove(previous)));
+        }
+
+        List<EntitySummary> page(IRI type, EntitySummary.Order order, @Nullable ContinuationToken after, int limit) {
+            NavigableSet<EntitySummary> ordered = (order == EntitySummary.Order.LABEL ? this.byLabel : this.byIdentifier).get(type);
+            if (Objects.isNull(ordered)) return List.of();
+
+            NavigableSet<EntitySummary> tail = Objects.isNull(after) ? ordered : ordered.tailSet(EntitySummary.probe(after), false);
+            return tail.stream().limit(limit).toList();
+        }
+
+        int size() {
+            return this.summaries.size();
+        }
+    }
+}
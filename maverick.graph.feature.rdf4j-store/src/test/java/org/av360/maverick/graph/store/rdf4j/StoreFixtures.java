@@ -0,0 +1,125 @@
+package org.av360.maverick.graph.store.rdf4j;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf4j.config.GroupCommits;
+import org.av360.maverick.graph.store.rdf4j.config.ProvenanceWriter;
+import org.av360.maverick.graph.store.rdf4j.config.StoreSchedulers;
+import org.av360.maverick.graph.store.rdf4j.repository.util.FragmentCache;
+import org.av360.maverick.graph.store.rdf4j.repository.util.QueryResultCache;
+import org.av360.maverick.graph.store.rdf4j.repository.util.ReadConnections;
+import org.av360.maverick.graph.store.rdf4j.repository.util.RepositoryVersions;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.RepositoryResult;
+import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * The components of the store as configured by the application (without the application context), and in-memory
+ * repositories for the unit tests of the store.
+ */
+public final class StoreFixtures {
+
+    private StoreFixtures() {
+    }
+
+    public static LabeledRepository memoryRepository(String label) {
+        LabeledRepository repository = new LabeledRepository(label, new SailRepository(new MemoryStore()));
+        repository.init();
+        return repository;
+    }
+
+    public static StoreSchedulers storeSchedulers(MeterRegistry meterRegistry) {
+        StoreSchedulers storeSchedulers = new StoreSchedulers(meterRegistry);
+        ReflectionTestUtils.setField(storeSchedulers, "threadCap", 4);
+        ReflectionTestUtils.setField(storeSchedulers, "queuedTaskCap", 1000);
+        ReflectionTestUtils.setField(storeSchedulers, "virtualThreads", false);
+        return storeSchedulers;
+    }
+
+    /**
+     * @param maxLatency how long the writer waits for further transactions before committing a batch
+     */
+    public static GroupCommits groupCommits(StoreSchedulers storeSchedulers, MeterRegistry meterRegistry, Duration maxLatency) {
+        GroupCommits groupCommits = new GroupCommits(storeSchedulers, meterRegistry);
+        ReflectionTestUtils.setField(groupCommits, "maxBatchSize", 100);
+        ReflectionTestUtils.setField(groupCommits, "maxBatchStatements", 50000);
+        ReflectionTestUtils.setField(groupCommits, "maxLatency", maxLatency);
+        return groupCommits;
+    }
+
+    /**
+     * @param durability 'commit' or 'async'
+     */
+    public static ProvenanceWriter provenanceWriter(StoreSchedulers storeSchedulers, MeterRegistry meterRegistry, String durability) {
+        ProvenanceWriter provenanceWriter = new ProvenanceWriter(storeSchedulers, meterRegistry);
+        ReflectionTestUtils.setField(provenanceWriter, "configuredDurability", durability);
+        ReflectionTestUtils.setField(provenanceWriter, "queueSize", 100);
+        ReflectionTestUtils.setField(provenanceWriter, "batchSize", 10);
+        ReflectionTestUtils.setField(provenanceWriter, "maxLatency", Duration.ZERO);
+        provenanceWriter.init();
+        return provenanceWriter;
+    }
+
+    public static FragmentCache fragmentCache(MeterRegistry meterRegistry, RepositoryVersions versions, boolean offHeap) {
+        FragmentCache fragmentCache = new FragmentCache(meterRegistry, versions);
+        ReflectionTestUtils.setField(fragmentCache, "enabled", true);
+        ReflectionTestUtils.setField(fragmentCache, "maximumStatements", 1000L);
+        ReflectionTestUtils.setField(fragmentCache, "offHeap", offHeap);
+        fragmentCache.init();
+        return fragmentCache;
+    }
+
+    /**
+     * @param maxResultRows results with more rows are not cached (nor shared)
+     */
+    public static QueryResultCache queryResultCache(MeterRegistry meterRegistry, RepositoryVersions versions, int maxResultRows) {
+        QueryResultCache queryResultCache = new QueryResultCache(meterRegistry, versions);
+        ReflectionTestUtils.setField(queryResultCache, "enabled", true);
+        ReflectionTestUtils.setField(queryResultCache, "maximumRows", 1000L);
+        ReflectionTestUtils.setField(queryResultCache, "maxResultRows", maxResultRows);
+        queryResultCache.init();
+        return queryResultCache;
+    }
+
+    public static ReadConnections readConnections(MeterRegistry meterRegistry, RepositoryVersions versions) {
+        ReadConnections readConnections = new ReadConnections(meterRegistry, versions);
+        ReflectionTestUtils.setField(readConnections, "configuredIsolationLevel", "SNAPSHOT_READ");
+        readConnections.init();
+        return readConnections;
+    }
+
+    /**
+     * Wraps the connection of an index build: the statements of the first read are collected, then the write is run (as
+     * if it happened concurrently to the build, after the read) before the collected statements are returned.
+     */
+    public static RepositoryConnection writingAfterFirstRead(LabeledRepository repository, RepositoryConnection connection, Runnable write) {
+        return new RepositoryConnectionWrapper(repository, connection) {
+            private boolean written;
+
+            @Override
+            public RepositoryResult<Statement> getStatements(Resource subj, IRI pred, Value obj, boolean includeInferred, Resource... contexts) throws RepositoryException {
+                if (this.written) return super.getStatements(subj, pred, obj, includeInferred, contexts);
+
+                List<Statement> statements;
+                try (RepositoryResult<Statement> result = super.getStatements(subj, pred, obj, includeInferred, contexts)) {
+                    statements = result.stream().toList();
+                }
+                this.written = true;
+                write.run();
+                return new RepositoryResult<>(new CloseableIteratorIteration<>(statements.iterator()));
+            }
+        };
+    }
+}
@@ -0,0 +1,224 @@
+package org.av360.maverick.graph.store.rdf4j.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.model.entities.Transaction;
+import org.av360.maverick.graph.model.enums.RepositoryType;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.model.vocabulary.Transactions;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf.fragments.RdfTransaction;
+import org.av360.maverick.graph.store.rdf4j.StoreFixtures;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class GroupCommitsTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final IRI REJECTED = vf.createIRI("http://example.com/rejected");
+
+    private SimpleMeterRegistry meterRegistry;
+    private StoreSchedulers storeSchedulers;
+    private GroupCommits groupCommits;
+    private RejectingRepository repository;
+    private List<List<Transaction>> committedBatches;
+
+    @BeforeEach
+    public void setup() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.storeSchedulers = StoreFixtures.storeSchedulers(this.meterRegistry);
+        // the writer waits for the other transactions submitted by the test
+        this.groupCommits = StoreFixtures.groupCommits(this.storeSchedulers, this.meterRegistry, Duration.ofMillis(200));
+
+        this.repository = new RejectingRepository(new SailRepository(new MemoryStore()));
+        this.committedBatches = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    public void shutdown() {
+        this.repository.shutDown();
+        this.storeSchedulers.dispose();
+    }
+
+    @Test
+    public void concurrentTransactionsAreCommittedTogether() {
+        List<Transaction> transactions = Flux.merge(this.submit("a"), this.submit("b"), this.submit("c"))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        Assertions.assertNotNull(transactions);
+        Assertions.assertEquals(3, transactions.size());
+        transactions.forEach(transaction -> Assertions.assertTrue(succeeded(transaction)));
+
+        Assertions.assertEquals(1, this.meterRegistry.get("graph.store.commits.batch").summary().count());
+        Assertions.assertEquals(3, this.meterRegistry.get("graph.store.commits.batch").summary().totalAmount());
+        Assertions.assertEquals(0, this.meterRegistry.get("graph.store.commits.fallback").counter().count());
+
+        // the listener is called once for the batch
+        Assertions.assertEquals(1, this.committedBatches.size());
+        Assertions.assertEquals(3, this.committedBatches.get(0).size());
+        Assertions.assertEquals(3, this.size());
+    }
+
+    @Test
+    public void failedBatchIsCommittedIndividually() {
+        List<Transaction> transactions = Flux.merge(this.submit("a"), this.submit(REJECTED), this.submit("c"))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        Assertions.assertNotNull(transactions);
+        Assertions.assertEquals(3, transactions.size());
+        Assertions.assertEquals(2, transactions.stream().filter(GroupCommitsTests::succeeded).count());
+        Assertions.assertEquals(1, transactions.stream().filter(GroupCommitsTests::failed).count());
+        Assertions.assertEquals(1, this.meterRegistry.get("graph.store.commits.fallback").counter().count());
+
+        // failed transactions are not handed to the listener
+        Assertions.assertEquals(1, this.committedBatches.size());
+        Assertions.assertEquals(2, this.committedBatches.get(0).size());
+        Assertions.assertTrue(this.committedBatches.get(0).stream().allMatch(GroupCommitsTests::succeeded));
+        Assertions.assertEquals(2, this.size());
+    }
+
+    @Test
+    public void failedTransactionIsNotHandedToListener() {
+        Transaction transaction = this.submit(REJECTED).blockLast(Duration.ofSeconds(10));
+
+        Assertions.assertNotNull(transaction);
+        Assertions.assertTrue(failed(transaction));
+        Assertions.assertTrue(this.committedBatches.isEmpty());
+        Assertions.assertEquals(0, this.size());
+    }
+
+    @Test
+    public void listenerOfEachSubmissionIsCalled() {
+        List<List<Transaction>> otherBatches = new CopyOnWriteArrayList<>();
+        Transaction other = new RdfTransaction().inserts(vf.createIRI("http://example.com/b"), SDO.IDENTIFIER, vf.createLiteral("b"));
+
+        List<Transaction> transactions = Flux.merge(
+                        this.submit("a"),
+                        this.groupCommits.submit(this.repository, RepositoryType.ENTITIES, List.of(other), (repository, committed) -> otherBatches.add(List.copyOf(committed))))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        Assertions.assertNotNull(transactions);
+        Assertions.assertEquals(1, this.meterRegistry.get("graph.store.commits.batch").summary().count());
+        Assertions.assertEquals(1, this.committedBatches.size());
+        Assertions.assertEquals(1, this.committedBatches.get(0).size());
+        Assertions.assertEquals(1, otherBatches.size());
+        Assertions.assertSame(other, otherBatches.get(0).get(0));
+    }
+
+    @Test
+    public void drainedPipelineIsRemoved() throws InterruptedException {
+        this.submit("a").blockLast(Duration.ofSeconds(10));
+        for (int i = 0; i < 50 && !this.pipelines().isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertTrue(this.pipelines().isEmpty());
+
+        // the pipeline is recreated with the next submission
+        Transaction transaction = this.submit("b").blockLast(Duration.ofSeconds(10));
+        Assertions.assertNotNull(transaction);
+        Assertions.assertTrue(succeeded(transaction));
+        Assertions.assertEquals(2, this.size());
+    }
+
+    @Test
+    public void failedRollbackFailsBatch() {
+        this.repository.failRollback = true;
+
+        List<Transaction> transactions = Flux.merge(this.submit("a"), this.submit(REJECTED), this.submit("c"))
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        // the connection cannot be used after the failed rollback, no transaction is committed individually
+        Assertions.assertNotNull(transactions);
+        Assertions.assertEquals(3, transactions.size());
+        Assertions.assertTrue(transactions.stream().allMatch(GroupCommitsTests::failed));
+        Assertions.assertEquals(0, this.meterRegistry.get("graph.store.commits.fallback").counter().count());
+        Assertions.assertTrue(this.committedBatches.isEmpty());
+
+        // the writer continues with the next batch
+        this.repository.failRollback = false;
+        Transaction transaction = this.submit("d").blockLast(Duration.ofSeconds(10));
+        Assertions.assertNotNull(transaction);
+        Assertions.assertTrue(succeeded(transaction));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> pipelines() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(this.groupCommits, "pipelines");
+    }
+
+    private Flux<Transaction> submit(String id) {
+        return this.submit(vf.createIRI("http://example.com/" + id));
+    }
+
+    private Flux<Transaction> submit(Resource subject) {
+        Transaction transaction = new RdfTransaction().inserts(subject, SDO.IDENTIFIER, vf.createLiteral(subject.stringValue()));
+        return this.groupCommits.submit(this.repository, RepositoryType.ENTITIES, List.of(transaction), (repository, committed) -> this.committedBatches.add(List.copyOf(committed)));
+    }
+
+    private long size() {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            return connection.size();
+        }
+    }
+
+    private static boolean succeeded(Transaction transaction) {
+        return transaction.get().contains(transaction.getIdentifier(), Transactions.STATUS, Transactions.SUCCESS);
+    }
+
+    private static boolean failed(Transaction transaction) {
+        return transaction.get().contains(transaction.getIdentifier(), Transactions.STATUS, Transactions.FAILURE);
+    }
+
+    /**
+     * Rejects all statements about {@link #REJECTED}, and optionally fails to rollback.
+     */
+    private static class RejectingRepository extends LabeledRepository {
+        private volatile boolean failRollback;
+
+        RejectingRepository(SailRepository repository) {
+            super("test", repository);
+        }
+
+        @Override
+        public RepositoryConnection getConnection() throws RepositoryException {
+            return new RepositoryConnectionWrapper(this, super.getConnection()) {
+                @Override
+                public void add(Iterable<? extends Statement> statements, Resource... contexts) throws RepositoryException {
+                    for (Statement statement : statements) {
+                        if (REJECTED.equals(statement.getSubject())) throw new RepositoryException("Rejected statement: " + statement);
+                    }
+                    super.add(statements, contexts);
+                }
+
+                @Override
+                public void rollback() throws RepositoryException {
+                    if (failRollback) throw new RepositoryException("Failed to rollback");
+                    super.rollback();
+                }
+            };
+        }
+    }
+}
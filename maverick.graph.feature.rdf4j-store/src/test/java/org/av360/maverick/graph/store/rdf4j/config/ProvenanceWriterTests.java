@@ -0,0 +1,139 @@
+package org.av360.maverick.graph.store.rdf4j.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.model.entities.Transaction;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf.fragments.RdfTransaction;
+import org.av360.maverick.graph.store.rdf4j.StoreFixtures;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
+import org.eclipse.rdf4j.repository.base.RepositoryWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class ProvenanceWriterTests {
+
+    private static final String LABEL = "transactions";
+
+    private SimpleMeterRegistry meterRegistry;
+    private StoreSchedulers storeSchedulers;
+    private LabeledRepository repository;
+    private ProvenanceWriter writer;
+
+    @BeforeEach
+    public void setup() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.storeSchedulers = StoreFixtures.storeSchedulers(this.meterRegistry);
+        this.repository = StoreFixtures.memoryRepository(LABEL);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        this.writer.close();
+        this.repository.shutDown();
+        this.storeSchedulers.dispose();
+    }
+
+    @Test
+    public void transactionsAreEmittedInOrder() {
+        this.writer = StoreFixtures.provenanceWriter(this.storeSchedulers, this.meterRegistry, "commit");
+        List<Transaction> transactions = transactions(25);
+        List<Resource> committed = new ArrayList<>();
+
+        List<Transaction> result = this.writer.submit(this.repository, transactions, subjects -> {
+            synchronized (committed) {
+                committed.addAll(subjects);
+            }
+        }).collectList().block(Duration.ofSeconds(10));
+
+        Assertions.assertEquals(identifiers(transactions), identifiers(result));
+        Assertions.assertTrue(committed.containsAll(identifiers(transactions)), "subjects of committed provenance are missing");
+        Assertions.assertTrue(this.isWritten(transactions));
+        Assertions.assertFalse(this.repository.isInUse(), "repository is still pinned");
+    }
+
+    @Test
+    public void remainingProvenanceIsWrittenOnClose() {
+        this.writer = StoreFixtures.provenanceWriter(this.storeSchedulers, this.meterRegistry, "async");
+        ReflectionTestUtils.setField(this.writer, "maxLatency", Duration.ofHours(1));
+        List<Transaction> transactions = transactions(3);
+
+        // queued only, the batch is neither full nor due
+        this.writer.submit(this.repository, transactions, subjects -> {}).blockLast(Duration.ofSeconds(10));
+        Assertions.assertFalse(this.isWritten(transactions));
+
+        this.writer.close();
+        Assertions.assertTrue(this.isWritten(transactions));
+        Assertions.assertFalse(this.repository.isInUse(), "repository is still pinned");
+
+        Assertions.assertThrows(IllegalStateException.class, () -> this.writer.submit(this.repository, transactions(1), subjects -> {}).blockLast(Duration.ofSeconds(10)));
+    }
+
+    @Test
+    public void failedWritesAreEmitted() {
+        this.writer = StoreFixtures.provenanceWriter(this.storeSchedulers, this.meterRegistry, "commit");
+        LabeledRepository failing = failing(this.repository);
+
+        Assertions.assertThrows(RepositoryException.class, () -> this.writer.submit(failing, transactions(2), subjects -> {}).blockLast(Duration.ofSeconds(10)));
+        Assertions.assertEquals(2, this.meterRegistry.get("graph.store.provenance.failures").counter().count());
+        Assertions.assertFalse(failing.isInUse(), "repository is still pinned");
+    }
+
+    @Test
+    public void failedWritesAreCountedWithAsyncDurability() throws InterruptedException {
+        this.writer = StoreFixtures.provenanceWriter(this.storeSchedulers, this.meterRegistry, "async");
+        LabeledRepository failing = failing(this.repository);
+
+        List<Transaction> result = this.writer.submit(failing, transactions(2), subjects -> {}).collectList().block(Duration.ofSeconds(10));
+        Assertions.assertEquals(2, result.size());
+
+        for (int i = 0; i < 50 && failing.isInUse(); i++) {
+            Thread.sleep(100);
+        }
+        Assertions.assertEquals(2, this.meterRegistry.get("graph.store.provenance.failures").counter().count());
+    }
+
+    private boolean isWritten(Collection<Transaction> transactions) {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            return transactions.stream().allMatch(transaction -> connection.hasStatement(transaction.getIdentifier(), null, null, false));
+        }
+    }
+
+    private static List<Transaction> transactions(int count) {
+        return IntStream.range(0, count).<Transaction>mapToObj(i -> new RdfTransaction()).toList();
+    }
+
+    private static List<IRI> identifiers(Collection<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getIdentifier).toList();
+    }
+
+    /**
+     * A repository rejecting every write.
+     */
+    private static LabeledRepository failing(LabeledRepository repository) {
+        return new LabeledRepository(LABEL, new RepositoryWrapper(repository) {
+            @Override
+            public RepositoryConnection getConnection() throws RepositoryException {
+                return new RepositoryConnectionWrapper(this, super.getConnection()) {
+                    @Override
+                    public void add(Iterable<? extends Statement> statements, Resource... contexts) throws RepositoryException {
+                        throw new RepositoryException("Repository is read-only");
+                    }
+                };
+            }
+        });
+    }
+}
@@ -0,0 +1,173 @@
+package org.av360.maverick.graph.store.rdf4j.config;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.model.entities.Transaction;
+import org.av360.maverick.graph.model.enums.RepositoryType;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf.fragments.RdfTransaction;
+import org.av360.maverick.graph.store.rdf4j.StoreFixtures;
+import org.av360.maverick.graph.store.rdf4j.repository.util.IdentifierIndex;
+import org.av360.maverick.graph.store.rdf4j.repository.util.RepositoryVersions;
+import org.av360.maverick.graph.store.rdf4j.repository.util.SummaryIndex;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RepositoryBuilderTests {
+
+    private static final String LABEL = "test";
+
+    private SimpleMeterRegistry meterRegistry;
+    private RepositoryVersions versions;
+    private StoreSchedulers storeSchedulers;
+    private GroupCommits groupCommits;
+    private TestRepositoryBuilder builder;
+
+    @BeforeEach
+    public void setup() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.versions = new RepositoryVersions();
+
+        this.storeSchedulers = StoreFixtures.storeSchedulers(this.meterRegistry);
+        this.groupCommits = StoreFixtures.groupCommits(this.storeSchedulers, this.meterRegistry, Duration.ZERO);
+
+        this.builder = new TestRepositoryBuilder(this.meterRegistry);
+        ReflectionTestUtils.setField(this.builder, "maximumWeight", 8192L);
+        ReflectionTestUtils.setField(this.builder, "idleTimeout", Duration.ofMinutes(30));
+        ReflectionTestUtils.setField(this.builder, "identifierIndex", new IdentifierIndex(this.meterRegistry, this.versions));
+        ReflectionTestUtils.setField(this.builder, "summaryIndex", new SummaryIndex(this.meterRegistry, this.versions));
+        ReflectionTestUtils.setField(this.builder, "fragmentCache", StoreFixtures.fragmentCache(this.meterRegistry, this.versions, false));
+        ReflectionTestUtils.setField(this.builder, "queryResultCache", StoreFixtures.queryResultCache(this.meterRegistry, this.versions, 10));
+        ReflectionTestUtils.setField(this.builder, "repositoryVersions", this.versions);
+        ReflectionTestUtils.setField(this.builder, "groupCommits", this.groupCommits);
+        ReflectionTestUtils.setField(this.builder, "provenanceWriter", StoreFixtures.provenanceWriter(this.storeSchedulers, this.meterRegistry, "commit"));
+        this.builder.init();
+    }
+
+    @AfterEach
+    public void shutdown() {
+        this.builder.shutdownRepositories();
+        this.storeSchedulers.dispose();
+    }
+
+    @Test
+    public void pinnedRepositoryIsClosedOnceReleased() {
+        LabeledRepository repository = this.builder.resolve(LABEL);
+        Assertions.assertTrue(repository.pin());
+        this.versions.of(LABEL).incrementAndGet();
+
+        this.builder.evict(LABEL);
+        this.builder.closeRetiredRepositories();
+        Assertions.assertTrue(repository.isInitialized(), "pinned repository has been closed");
+        try (RepositoryConnection connection = repository.getConnection()) {
+            Assertions.assertTrue(connection.isOpen());
+        }
+
+        repository.unpin();
+        this.builder.closeRetiredRepositories();
+        Assertions.assertFalse(repository.isInitialized());
+        Assertions.assertFalse(repository.pin(), "closed repository has been pinned");
+        Assertions.assertEquals(0, this.versions.current(LABEL), "state of closed repository has not been released");
+    }
+
+    @Test
+    public void retiredRepositoryIsReinstated() {
+        LabeledRepository repository = this.builder.resolve(LABEL);
+        Assertions.assertTrue(repository.pin());
+
+        this.builder.evict(LABEL);
+        Assertions.assertSame(repository, this.builder.resolve(LABEL));
+        Assertions.assertEquals(1, this.builder.opened.get(), "repository has been opened twice");
+
+        repository.unpin();
+        this.builder.closeRetiredRepositories();
+        Assertions.assertTrue(repository.isInitialized(), "reinstated repository has been closed");
+    }
+
+    @Test
+    public void closedRepositoryIsReopened() {
+        LabeledRepository repository = this.builder.resolve(LABEL);
+
+        this.builder.evict(LABEL);
+        this.builder.closeRetiredRepositories();
+        Assertions.assertFalse(repository.isInitialized());
+
+        LabeledRepository reopened = this.builder.resolve(LABEL);
+        Assertions.assertNotSame(repository, reopened);
+        Assertions.assertTrue(reopened.pin());
+        Assertions.assertEquals(2, this.builder.opened.get());
+    }
+
+    @Test
+    public void closedRepositoryHasNoPipelines() throws InterruptedException {
+        LabeledRepository repository = this.builder.resolve(LABEL);
+        Transaction transaction = new RdfTransaction().inserts(SimpleValueFactory.getInstance().createIRI("http://example.com/a"), SDO.IDENTIFIER, SimpleValueFactory.getInstance().createLiteral("a"));
+        this.groupCommits.submit(repository, RepositoryType.ENTITIES, List.of(transaction), (r, committed) -> {}).blockLast(Duration.ofSeconds(10));
+        // the writer stops draining (and removes its pipeline) shortly after the transaction has been completed
+        for (int i = 0; i < 50 && pipelines().containsKey(LABEL); i++) {
+            Thread.sleep(100);
+        }
+
+        this.builder.evict(LABEL);
+        this.builder.closeRetiredRepositories();
+        Assertions.assertFalse(repository.isInitialized());
+        Assertions.assertFalse(pipelines().containsKey(LABEL), "pipeline of closed repository has not been removed");
+    }
+
+    @Test
+    public void remainingProvenanceIsWrittenBeforeShutdown() {
+        ProvenanceWriter provenanceWriter = StoreFixtures.provenanceWriter(this.storeSchedulers, this.meterRegistry, "async");
+        ReflectionTestUtils.setField(provenanceWriter, "maxLatency", Duration.ofHours(1));
+        ReflectionTestUtils.setField(this.builder, "provenanceWriter", provenanceWriter);
+
+        LabeledRepository repository = this.builder.resolve(LABEL);
+        AtomicInteger committed = new AtomicInteger();
+        provenanceWriter.submit(repository, List.of(new RdfTransaction()), subjects -> committed.incrementAndGet()).blockLast(Duration.ofSeconds(10));
+        Assertions.assertEquals(0, committed.get());
+
+        this.builder.shutdownRepositories();
+        Assertions.assertEquals(1, committed.get(), "provenance has not been written before shutdown");
+        Assertions.assertEquals(0, this.meterRegistry.get("graph.store.provenance.failures").counter().count());
+        Assertions.assertFalse(repository.isInitialized());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, ?> pipelines() {
+        return (Map<String, ?>) ReflectionTestUtils.getField(this.groupCommits, "pipelines");
+    }
+
+    private static class TestRepositoryBuilder extends DefaultRepositoryBuilder {
+        private final AtomicInteger opened = new AtomicInteger();
+
+        TestRepositoryBuilder(MeterRegistry meterRegistry) {
+            super(meterRegistry);
+        }
+
+        LabeledRepository resolve(String key) {
+            return this.resolveRepository(key, () -> {
+                this.opened.incrementAndGet();
+                return StoreFixtures.memoryRepository(key);
+            });
+        }
+
+        /**
+         * In-memory repositories are never evicted by the cache, we evict it as if it had expired.
+         */
+        void evict(String key) {
+            LabeledRepository repository = this.getCache().asMap().remove(key);
+            this.retireRepository(key, repository, RemovalCause.EXPIRED);
+        }
+    }
+}
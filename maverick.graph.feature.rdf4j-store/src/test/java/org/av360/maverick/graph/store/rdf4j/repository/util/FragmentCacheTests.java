@@ -0,0 +1,127 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.store.rdf.fragments.RdfEntity;
+import org.av360.maverick.graph.store.rdf4j.StoreFixtures;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Set;
+
+public class FragmentCacheTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final String LABEL = "entities";
+
+    private final IRI video = vf.createIRI("http://example.com/video");
+    private final IRI author = vf.createIRI("http://example.com/author");
+    private final BNode thumbnail = vf.createBNode();
+    private final IRI unrelated = vf.createIRI("http://example.com/unrelated");
+
+    private FragmentCache cache;
+
+    @BeforeEach
+    public void setup() {
+        this.cache = this.create(false);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void fragmentIsCached(boolean offHeap) {
+        this.cache = this.create(offHeap);
+        this.put(0);
+
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 0).isPresent());
+        Assertions.assertEquals(4, this.cache.get(LABEL, this.video, 0).get().getModel().size());
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 1).isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void changedSubjectInvalidatesFragment(boolean offHeap) {
+        this.cache = this.create(offHeap);
+        this.put(0);
+
+        this.cache.invalidate(LABEL, Set.of(this.video));
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 0).isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void changedLinkedResourceInvalidatesFragment(boolean offHeap) {
+        this.cache = this.create(offHeap);
+        this.put(0);
+
+        // the author is only linked (not loaded as neighbour), but might be created or changed
+        this.cache.invalidate(LABEL, Set.of(this.author));
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 0).isEmpty());
+
+        this.put(0);
+        this.cache.invalidate(LABEL, Set.of(this.thumbnail));
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 0).isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void unrelatedChangeKeepsFragment(boolean offHeap) {
+        this.cache = this.create(offHeap);
+        this.put(0);
+
+        this.cache.invalidate(LABEL, Set.of(this.unrelated));
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 0).isPresent());
+
+        this.cache.invalidate("other", Set.of(this.video));
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 0).isPresent());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void fragmentLoadedBeforeWriteIsNotCached(boolean offHeap) {
+        this.cache = this.create(offHeap);
+        long version = this.cache.version(LABEL);
+        this.cache.invalidate(LABEL, List.of(this.unrelated));
+
+        this.cache.put(LABEL, new RdfEntity(this.video, this.fragment()), 0, version);
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 0).isEmpty());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    public void invalidateAllRemovesFragmentsOfRepository(boolean offHeap) {
+        this.cache = this.create(offHeap);
+        this.put(0);
+        this.put(1);
+
+        this.cache.invalidateAll(LABEL);
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 0).isEmpty());
+        Assertions.assertTrue(this.cache.get(LABEL, this.video, 1).isEmpty());
+    }
+
+    private void put(int level) {
+        this.cache.put(LABEL, new RdfEntity(this.video, this.fragment()), level, this.cache.version(LABEL));
+    }
+
+    private Model fragment() {
+        Model model = new LinkedHashModel();
+        model.add(this.video, RDF.TYPE, SDO.VIDEO_OBJECT);
+        model.add(this.video, SDO.TITLE, vf.createLiteral("Video 1"));
+        model.add(this.video, vf.createIRI(SDO.NAMESPACE, "author"), this.author);
+        model.add(this.video, vf.createIRI(SDO.NAMESPACE, "thumbnail"), this.thumbnail);
+        return model;
+    }
+
+    private FragmentCache create(boolean offHeap) {
+        return StoreFixtures.fragmentCache(new SimpleMeterRegistry(), new RepositoryVersions(), offHeap);
+    }
+}
@@ -0,0 +1,133 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf4j.StoreFixtures;
+import org.eclipse.rdf4j.common.transaction.IsolationLevels;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+public class IdentifierIndexTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final String LABEL = "test";
+
+    private final IRI video = vf.createIRI("http://example.com/video");
+
+    private SimpleMeterRegistry meterRegistry;
+    private LabeledRepository repository;
+    private IdentifierIndex index;
+
+    @BeforeEach
+    public void setup() {
+        this.repository = StoreFixtures.memoryRepository(LABEL);
+        this.write(this.video, "a", null);
+
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.index = new IdentifierIndex(this.meterRegistry, new RepositoryVersions());
+        ReflectionTestUtils.setField(this.index, "enabled", true);
+        ReflectionTestUtils.setField(this.index, "configuredPredicates", SDO.IDENTIFIER.stringValue());
+        this.index.init();
+    }
+
+    @AfterEach
+    public void shutdown() {
+        this.repository.shutDown();
+    }
+
+    @Test
+    public void writesAreRefreshed() {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            Assertions.assertEquals(Set.of(this.video), this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("a")));
+
+            this.write(this.video, "b", "a");
+            this.index.refresh(LABEL, this.repository, Set.of(this.video));
+
+            Assertions.assertTrue(this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("a")).isEmpty());
+            Assertions.assertEquals(Set.of(this.video), this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("b")));
+        }
+        Assertions.assertEquals(3, this.meterRegistry.get("graph.store.identifiers.index.lookups").tag("indexed", "true").counter().count());
+    }
+
+    /**
+     * The index is refreshed after the commit, lookups between the commit and the refresh return the previous values.
+     */
+    @Test
+    public void lookupsAreStaleUntilRefreshed() {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("a"));
+            this.write(this.video, "b", "a");
+
+            Assertions.assertEquals(Set.of(this.video), this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("a")));
+            Assertions.assertTrue(this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("b")).isEmpty());
+
+            this.index.refresh(LABEL, this.repository, Set.of(this.video));
+            Assertions.assertEquals(Set.of(this.video), this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("b")));
+        }
+    }
+
+    /**
+     * A snapshot older than the index scans its own state, instead of the index with the current state.
+     */
+    @Test
+    public void snapshotIsScanned() {
+        try (RepositoryConnection snapshot = this.repository.getConnection()) {
+            snapshot.begin(IsolationLevels.SNAPSHOT_READ);
+            Assertions.assertTrue(snapshot.hasStatement(this.video, SDO.IDENTIFIER, vf.createLiteral("a"), false));
+
+            this.write(this.video, "b", "a");
+            this.index.refresh(LABEL, this.repository, Set.of(this.video));
+
+            Assertions.assertTrue(this.index.lookup(LABEL, snapshot, SDO.IDENTIFIER, vf.createLiteral("a")).isEmpty());
+            Assertions.assertEquals(Set.of(this.video), this.index.scan(snapshot, SDO.IDENTIFIER, vf.createLiteral("a")));
+            snapshot.commit();
+        }
+        Assertions.assertEquals(1, this.meterRegistry.get("graph.store.identifiers.index.lookups").tag("indexed", "false").counter().count());
+    }
+
+    @Test
+    public void writesWhileBuildingAreReplayed() {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            // the identifier is changed (and refreshed) after the build has read the previous value
+            RepositoryConnection concurrentlyWritten = StoreFixtures.writingAfterFirstRead(this.repository, connection, () -> {
+                this.write(this.video, "b", "a");
+                this.index.refresh(LABEL, this.repository, Set.of(this.video));
+            });
+
+            Assertions.assertTrue(this.index.lookup(LABEL, concurrentlyWritten, SDO.IDENTIFIER, vf.createLiteral("a")).isEmpty());
+            Assertions.assertEquals(Set.of(this.video), this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("b")));
+        }
+    }
+
+    @Test
+    public void droppedIndexIsRebuilt() {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("a"));
+            this.index.drop(LABEL);
+
+            // not refreshed without an index
+            this.write(this.video, "b", "a");
+            this.index.refresh(LABEL, this.repository, Set.of(this.video));
+
+            Assertions.assertEquals(Set.of(this.video), this.index.lookup(LABEL, connection, SDO.IDENTIFIER, vf.createLiteral("b")));
+        }
+        Assertions.assertEquals(2, this.meterRegistry.get("graph.store.identifiers.index.build").timer().count());
+    }
+
+    private void write(IRI subject, String identifier, String previous) {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            if (previous != null) connection.remove(subject, SDO.IDENTIFIER, vf.createLiteral(previous));
+            connection.add(subject, SDO.IDENTIFIER, vf.createLiteral(identifier));
+        }
+    }
+}
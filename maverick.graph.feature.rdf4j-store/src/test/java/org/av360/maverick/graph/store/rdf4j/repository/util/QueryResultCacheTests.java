@@ -0,0 +1,181 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.model.context.QueryLimits;
+import org.av360.maverick.graph.store.rdf4j.StoreFixtures;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class QueryResultCacheTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final String QUERY = "SELECT * WHERE { ?s ?p ?o }";
+
+    private RepositoryVersions versions;
+    private QueryResultCache cache;
+    private AtomicInteger evaluations;
+
+    @BeforeEach
+    public void setup() {
+        this.versions = new RepositoryVersions();
+        this.cache = StoreFixtures.queryResultCache(new SimpleMeterRegistry(), this.versions, 10);
+        this.evaluations = new AtomicInteger();
+    }
+
+    @Test
+    public void completedResultsAreCached() {
+        StepVerifier.create(this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.rows(5))).expectNextCount(5).verifyComplete();
+        StepVerifier.create(this.cache.query("entities", "SELECT *   WHERE {\n ?s ?p ?o }", false, QueryLimits.UNLIMITED, this.rows(5))).expectNextCount(5).verifyComplete();
+
+        Assertions.assertEquals(1, this.evaluations.get());
+    }
+
+    @Test
+    public void writesInvalidateCachedResults() {
+        StepVerifier.create(this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.rows(5))).expectNextCount(5).verifyComplete();
+        this.versions.of("entities").incrementAndGet();
+        StepVerifier.create(this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.rows(6))).expectNextCount(6).verifyComplete();
+
+        Assertions.assertEquals(2, this.evaluations.get());
+    }
+
+    @Test
+    public void largeResultsAreStreamedAndNotCached() {
+        StepVerifier.create(this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.rows(50))).expectNextCount(50).verifyComplete();
+        StepVerifier.create(this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.rows(50))).expectNextCount(50).verifyComplete();
+
+        Assertions.assertEquals(2, this.evaluations.get());
+    }
+
+    @Test
+    public void cancellationReachesEvaluation() {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Supplier<Flux<BindingSet>> evaluation = () -> this.rows(5).get().concatWith(Flux.never()).doOnCancel(() -> cancelled.set(true));
+
+        StepVerifier.create(this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, evaluation))
+                .expectNextCount(2)
+                .thenCancel()
+                .verify();
+        Assertions.assertTrue(cancelled.get());
+
+        // the incomplete result is not cached
+        StepVerifier.create(this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.rows(5))).expectNextCount(5).verifyComplete();
+        Assertions.assertEquals(2, this.evaluations.get());
+    }
+
+    @Test
+    public void failedResultsAreNotCached() {
+        Supplier<Flux<BindingSet>> failing = () -> this.rows(3).get().concatWith(Flux.error(new IllegalStateException("aborted")));
+
+        StepVerifier.create(this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, failing)).expectNextCount(3).verifyError(IllegalStateException.class);
+        StepVerifier.create(this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.rows(5))).expectNextCount(5).verifyComplete();
+
+        Assertions.assertEquals(2, this.evaluations.get());
+    }
+
+    @Test
+    public void concurrentSubscribersShareEvaluation() {
+        Sinks.Many<BindingSet> sink = Sinks.many().replay().all();
+        List<BindingSet> first = new ArrayList<>();
+        List<BindingSet> second = new ArrayList<>();
+
+        this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.pending(sink)).subscribe(first::add);
+        emit(sink, 0, 3);
+
+        // joins while the evaluation is in flight, the rows emitted before are replayed
+        this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.pending(sink)).subscribe(second::add);
+        emit(sink, 3, 5);
+        sink.tryEmitComplete();
+
+        Assertions.assertEquals(1, this.evaluations.get());
+        Assertions.assertEquals(5, first.size());
+        Assertions.assertEquals(first, second);
+    }
+
+    @Test
+    public void cancellingOneSubscriberKeepsEvaluation() {
+        Sinks.Many<BindingSet> sink = Sinks.many().replay().all();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Supplier<Flux<BindingSet>> evaluation = () -> this.pending(sink).get().doOnCancel(() -> cancelled.set(true));
+        List<BindingSet> remaining = new ArrayList<>();
+
+        Disposable first = this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, evaluation).subscribe();
+        this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, evaluation).subscribe(remaining::add);
+        first.dispose();
+        emit(sink, 0, 5);
+        sink.tryEmitComplete();
+
+        Assertions.assertFalse(cancelled.get());
+        Assertions.assertEquals(5, remaining.size());
+        Assertions.assertEquals(1, this.evaluations.get());
+    }
+
+    @Test
+    public void evaluationsWithOtherLimitsAreNotShared() {
+        Sinks.Many<BindingSet> sink = Sinks.many().replay().all();
+
+        this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.pending(sink)).subscribe();
+        this.cache.query("entities", QUERY, false, new QueryLimits(Duration.ofSeconds(1), 0), this.pending(sink)).subscribe();
+        sink.tryEmitComplete();
+
+        Assertions.assertEquals(2, this.evaluations.get());
+    }
+
+    @Test
+    public void largeResultsAreNotShared() {
+        Sinks.Many<BindingSet> sink = Sinks.many().replay().all();
+        List<BindingSet> late = new ArrayList<>();
+
+        this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.pending(sink)).subscribe();
+        emit(sink, 0, 11);
+
+        // the result exceeds the maximum number of cached rows, a subscriber joining now evaluates the query itself
+        this.cache.query("entities", QUERY, false, QueryLimits.UNLIMITED, this.pending(sink)).subscribe(late::add);
+        sink.tryEmitComplete();
+
+        Assertions.assertEquals(2, this.evaluations.get());
+        Assertions.assertEquals(11, late.size());
+    }
+
+    private Supplier<Flux<BindingSet>> rows(int count) {
+        return () -> {
+            this.evaluations.incrementAndGet();
+            return Flux.range(0, count).map(QueryResultCacheTests::row);
+        };
+    }
+
+    private Supplier<Flux<BindingSet>> pending(Sinks.Many<BindingSet> sink) {
+        return () -> {
+            this.evaluations.incrementAndGet();
+            return sink.asFlux();
+        };
+    }
+
+    private static void emit(Sinks.Many<BindingSet> sink, int from, int to) {
+        for (int i = from; i < to; i++) {
+            sink.tryEmitNext(row(i));
+        }
+    }
+
+    private static BindingSet row(int i) {
+        MapBindingSet row = new MapBindingSet();
+        row.addBinding("s", vf.createIRI("http://example.com/" + i));
+        return row;
+    }
+}
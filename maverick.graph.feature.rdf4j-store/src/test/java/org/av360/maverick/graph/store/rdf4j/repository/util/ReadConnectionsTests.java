@@ -0,0 +1,102 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf4j.StoreFixtures;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class ReadConnectionsTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final String LABEL = "test";
+
+    private final IRI video = vf.createIRI("http://example.com/video");
+
+    private LabeledRepository repository;
+    private RepositoryVersions versions;
+    private ReadConnections readConnections;
+
+    @BeforeEach
+    public void setup() {
+        this.repository = StoreFixtures.memoryRepository(LABEL);
+        this.write("a", "b", "c");
+
+        this.versions = new RepositoryVersions();
+        this.readConnections = StoreFixtures.readConnections(new SimpleMeterRegistry(), this.versions);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        this.repository.shutDown();
+    }
+
+    @Test
+    public void snapshotIsStreamed() throws Exception {
+        try (ReadConnections.Snapshot snapshot = this.readConnections.snapshot(LABEL, this.repository)) {
+            this.write("d");
+            this.versions.of(LABEL).incrementAndGet();
+
+            List<Statement> statements = snapshot.stream(connection -> connection.getStatements(this.video, SDO.IDENTIFIER, null).stream())
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+            Assertions.assertEquals(3, statements.size(), "the snapshot has seen a later write");
+            Assertions.assertFalse(this.readConnections.isCurrent(snapshot));
+
+            // the connection is kept open for the following reads of the snapshot
+            Assertions.assertEquals(3L, snapshot.<Long>apply(RepositoryConnection::size));
+        }
+        Assertions.assertEquals(0, this.repository.getConnectionsCount());
+    }
+
+    @Test
+    public void cancelledStreamIsClosed() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean(false);
+
+        try (ReadConnections.Snapshot snapshot = this.readConnections.snapshot(LABEL, this.repository)) {
+            List<Statement> first = snapshot.stream(connection -> connection.getStatements(this.video, SDO.IDENTIFIER, null).stream().onClose(() -> closed.set(true)))
+                    .take(1)
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+
+            Assertions.assertEquals(1, first.size());
+            Assertions.assertTrue(closed.get(), "the stream has not been closed after the subscriber has cancelled");
+            Assertions.assertEquals(3L, snapshot.<Long>apply(RepositoryConnection::size));
+        }
+    }
+
+    @Test
+    public void failedStreamIsClosed() {
+        AtomicBoolean closed = new AtomicBoolean(false);
+
+        try (ReadConnections.Snapshot snapshot = this.readConnections.snapshot(LABEL, this.repository)) {
+            Assertions.assertThrows(IllegalStateException.class, () -> snapshot.stream(connection -> connection.getStatements(this.video, SDO.IDENTIFIER, null).stream()
+                            .onClose(() -> closed.set(true))
+                            .<Statement>map(statement -> {
+                                throw new IllegalStateException("Failed to read " + statement);
+                            }))
+                    .blockLast(Duration.ofSeconds(10)));
+            Assertions.assertTrue(closed.get(), "the stream has not been closed after it has failed");
+        }
+    }
+
+    private void write(String... identifiers) {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            for (String identifier : identifiers) {
+                connection.add(this.video, SDO.IDENTIFIER, vf.createLiteral(identifier));
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.model.vocabulary.Local;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf.helpers.StoreStatistics;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class RepositoryStatisticsTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final String LABEL = "test";
+
+    private final IRI video = vf.createIRI("http://example.com/video");
+    private final IRI audio = vf.createIRI("http://example.com/audio");
+
+    @TempDir
+    Path dataDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RepositoryStatistics statistics;
+    private LabeledRepository repository;
+
+    @BeforeEach
+    public void setup() {
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.statistics = new RepositoryStatistics(this.meterRegistry);
+        this.repository = this.open(true);
+    }
+
+    @AfterEach
+    public void shutdown() {
+        if (this.repository.isInitialized()) this.repository.shutDown();
+    }
+
+    @Test
+    public void insertsAreCounted() {
+        this.write(this.video, "a");
+        this.write(this.audio, "b");
+
+        StoreStatistics current = this.statistics.get(LABEL);
+        Assertions.assertEquals(4, current.statements());
+        Assertions.assertEquals(2, current.countInstances(Local.Entities.TYPE_INDIVIDUAL));
+        Assertions.assertEquals(2, current.countStatements(SDO.IDENTIFIER));
+        Assertions.assertEquals(4, this.meterRegistry.get("graph.store.statistics.statements").tag("label", LABEL).gauge().value());
+        Assertions.assertEquals(2, this.meterRegistry.get("graph.store.statistics.entities").tag("label", LABEL).tag("type", "individual").gauge().value());
+    }
+
+    @Test
+    public void deletesAreCounted() {
+        this.write(this.video, "a");
+        this.write(this.audio, "b");
+
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.remove(this.audio, null, null);
+            // statements which do not exist are not counted
+            connection.remove(this.audio, SDO.IDENTIFIER, vf.createLiteral("c"));
+        }
+
+        StoreStatistics current = this.statistics.get(LABEL);
+        Assertions.assertEquals(2, current.statements());
+        Assertions.assertEquals(1, current.countInstances(Local.Entities.TYPE_INDIVIDUAL));
+        Assertions.assertEquals(1, current.countStatements(SDO.IDENTIFIER));
+    }
+
+    @Test
+    public void rollbacksAreNotCounted() {
+        this.write(this.video, "a");
+
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.begin();
+            connection.add(this.audio, RDF.TYPE, Local.Entities.TYPE_INDIVIDUAL);
+            connection.rollback();
+        }
+
+        Assertions.assertEquals(2, this.statistics.get(LABEL).statements());
+    }
+
+    @Test
+    public void statisticsAreRestoredOnReopen() {
+        this.write(this.video, "a");
+        this.repository.shutDown();
+
+        Assertions.assertTrue(Files.exists(this.dataDir.resolve(RepositoryStatistics.FILE_NAME)));
+        Assertions.assertEquals(StoreStatistics.EMPTY, this.statistics.get(LABEL));
+        Assertions.assertNull(this.meterRegistry.find("graph.store.statistics.statements").tag("label", LABEL).gauge(), "gauge of closed repository is registered");
+
+        this.repository = this.open(true);
+        // the persisted statistics are deleted once read, a crash would count them again
+        Assertions.assertFalse(Files.exists(this.dataDir.resolve(RepositoryStatistics.FILE_NAME)));
+        Assertions.assertEquals(2, this.statistics.get(LABEL).statements());
+        Assertions.assertEquals(1, this.statistics.get(LABEL).countInstances(Local.Entities.TYPE_INDIVIDUAL));
+
+        this.write(this.audio, "b");
+        Assertions.assertEquals(4, this.meterRegistry.get("graph.store.statistics.statements").tag("label", LABEL).gauge().value());
+    }
+
+    @Test
+    public void untrackedChangesAreCountedOnReopen() {
+        this.write(this.video, "a");
+        this.repository.shutDown();
+
+        this.repository = this.open(false);
+        Assertions.assertFalse(Files.exists(this.dataDir.resolve(RepositoryStatistics.FILE_NAME)), "statistics of untracked repository are kept");
+        this.write(this.audio, "b");
+        this.repository.shutDown();
+
+        this.repository = this.open(true);
+        Assertions.assertEquals(4, this.statistics.get(LABEL).statements());
+        Assertions.assertEquals(2, this.statistics.get(LABEL).countInstances(Local.Entities.TYPE_INDIVIDUAL));
+    }
+
+    private LabeledRepository open(boolean enabled) {
+        ReflectionTestUtils.setField(this.statistics, "enabled", enabled);
+        LabeledRepository result = new LabeledRepository(LABEL, new SailRepository(this.statistics.track(LABEL, new MemoryStore(this.dataDir.toFile()))));
+        result.init();
+        return result;
+    }
+
+    private void write(IRI subject, String identifier) {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.begin();
+            connection.add(subject, RDF.TYPE, Local.Entities.TYPE_INDIVIDUAL);
+            connection.add(subject, SDO.IDENTIFIER, vf.createLiteral(identifier));
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf.helpers.StatementsPage;
+import org.av360.maverick.graph.store.rdf4j.StoreFixtures;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+public class StatementCursorsTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final String LABEL = "test";
+    private static final int STATEMENTS = 25;
+
+    private LabeledRepository repository;
+    private StatementCursors cursors;
+
+    @BeforeEach
+    public void setup() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        this.cursors = new StatementCursors(meterRegistry, StoreFixtures.readConnections(meterRegistry, new RepositoryVersions()));
+        ReflectionTestUtils.setField(this.cursors, "idleTimeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(this.cursors, "maximumSize", 10L);
+        this.cursors.init();
+
+        this.repository = StoreFixtures.memoryRepository(LABEL);
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            for (int i = 0; i < STATEMENTS; i++) {
+                connection.add(vf.createIRI("http://example.com/s" + i), vf.createIRI("http://example.com/value"), vf.createLiteral(i));
+            }
+        }
+    }
+
+    @AfterEach
+    public void shutdown() {
+        this.cursors.shutdown();
+        this.repository.shutDown();
+    }
+
+    @Test
+    public void pagesAreReadFromOneCursor() {
+        Set<Statement> statements = new HashSet<>();
+        StatementsPage page = this.cursors.open(LABEL, this.repository, null, null, null, 10);
+        statements.addAll(page.statements());
+
+        // the statements added after the first page are not visible to the cursor
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.add(vf.createIRI("http://example.com/added"), vf.createIRI("http://example.com/value"), vf.createLiteral(-1));
+        }
+
+        int pages = 1;
+        while (page.hasNext()) {
+            page = this.cursors.next(LABEL, StatementsPage.ResumeToken.parse(page.next()), 10);
+            statements.addAll(page.statements());
+            pages++;
+        }
+
+        Assertions.assertEquals(3, pages);
+        Assertions.assertEquals(STATEMENTS, statements.size());
+        Assertions.assertEquals(0, this.repository.getConnectionsCount(), "cursor has not been closed");
+    }
+
+    @Test
+    public void tokenCanBeUsedOnce() {
+        StatementsPage first = this.cursors.open(LABEL, this.repository, null, null, null, 10);
+        StatementsPage.ResumeToken token = StatementsPage.ResumeToken.parse(first.next());
+
+        Assertions.assertEquals(10, this.cursors.next(LABEL, token, 10).statements().size());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.cursors.next(LABEL, token, 10));
+    }
+
+    @Test
+    public void tokenOfOtherRepositoryIsRejected() {
+        StatementsPage first = this.cursors.open(LABEL, this.repository, null, null, null, 10);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> this.cursors.next("other", StatementsPage.ResumeToken.parse(first.next()), 10));
+    }
+}
@@ -0,0 +1,158 @@
+package org.av360.maverick.graph.store.rdf4j.repository.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.av360.maverick.graph.model.vocabulary.Local;
+import org.av360.maverick.graph.model.vocabulary.SDO;
+import org.av360.maverick.graph.store.rdf.LabeledRepository;
+import org.av360.maverick.graph.store.rdf.helpers.ContinuationToken;
+import org.av360.maverick.graph.store.rdf.helpers.EntitySummary;
+import org.av360.maverick.graph.store.rdf4j.StoreFixtures;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+public class SummaryIndexTests {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final String LABEL = "test";
+
+    private final IRI first = vf.createIRI("http://example.com/a");
+    private final IRI second = vf.createIRI("http://example.com/b");
+    private final IRI third = vf.createIRI("http://example.com/c");
+
+    private SimpleMeterRegistry meterRegistry;
+    private LabeledRepository repository;
+    private SummaryIndex index;
+
+    @BeforeEach
+    public void setup() {
+        this.repository = StoreFixtures.memoryRepository(LABEL);
+        this.write(this.first, "Video A");
+
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.index = new SummaryIndex(this.meterRegistry, new RepositoryVersions());
+        ReflectionTestUtils.setField(this.index, "enabled", true);
+        ReflectionTestUtils.setField(this.index, "maxEntities", 100);
+        this.index.init();
+    }
+
+    @AfterEach
+    public void shutdown() {
+        this.repository.shutDown();
+    }
+
+    @Test
+    public void writesAreRefreshed() {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            Assertions.assertEquals(List.of(this.first), this.page(connection));
+
+            this.write(this.second, "Video B");
+            this.index.refresh(LABEL, this.repository, Set.of(this.second));
+
+            Assertions.assertEquals(List.of(this.first, this.second), this.page(connection));
+        }
+        Assertions.assertEquals(1, this.meterRegistry.get("graph.store.summaries.build").timer().count());
+    }
+
+    @Test
+    public void writesWhileBuildingAreReplayed() {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            // the second entity is created (and refreshed) after the build has listed the individuals
+            RepositoryConnection concurrentlyWritten = StoreFixtures.writingAfterFirstRead(this.repository, connection, () -> {
+                this.write(this.second, "Video B");
+                this.index.refresh(LABEL, this.repository, Set.of(this.second));
+            });
+
+            Assertions.assertEquals(List.of(this.first, this.second), this.page(concurrentlyWritten));
+        }
+    }
+
+    @Test
+    public void droppedIndexIsRebuilt() {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            this.page(connection);
+            this.index.drop(LABEL);
+            this.write(this.second, "Video B");
+
+            Assertions.assertEquals(List.of(this.first, this.second), this.page(connection));
+        }
+        Assertions.assertEquals(2, this.meterRegistry.get("graph.store.summaries.build").timer().count());
+    }
+
+    @Test
+    public void pagesAreContinuedWithTokens() {
+        this.write(this.second, "Video B");
+        this.write(this.third, "Audio C");
+
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            Assertions.assertEquals(List.of(List.of(this.first, this.second), List.of(this.third)), this.pages(connection, EntitySummary.Order.IDENTIFIER, 2));
+            Assertions.assertEquals(List.of(List.of(this.third, this.first), List.of(this.second)), this.pages(connection, EntitySummary.Order.LABEL, 2));
+        }
+    }
+
+    @Test
+    public void tokensArePreserved() {
+        ContinuationToken labelled = new ContinuationToken(this.first, "Video A");
+        ContinuationToken anonymous = new ContinuationToken(vf.createBNode("node1"), null);
+
+        Assertions.assertEquals(labelled, ContinuationToken.parse(labelled.encode()));
+        Assertions.assertEquals(anonymous, ContinuationToken.parse(anonymous.encode()));
+        Assertions.assertNull(ContinuationToken.parse(""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ContinuationToken.parse("%%"));
+    }
+
+    /**
+     * Repositories with more individuals than the maximum are not projected, the pages are the same.
+     */
+    @Test
+    public void oversizedRepositoryIsScanned() {
+        this.write(this.second, "Video B");
+        this.write(this.third, "Audio C");
+        ReflectionTestUtils.setField(this.index, "maxEntities", 2);
+
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            Assertions.assertEquals(List.of(List.of(this.first, this.second), List.of(this.third)), this.pages(connection, EntitySummary.Order.IDENTIFIER, 2));
+            Assertions.assertEquals(List.of(List.of(this.third, this.first), List.of(this.second)), this.pages(connection, EntitySummary.Order.LABEL, 2));
+        }
+        Assertions.assertEquals(0, this.meterRegistry.get("graph.store.summaries.build").timer().count());
+        Assertions.assertEquals(6, this.meterRegistry.get("graph.store.summaries.pages").tag("indexed", "false").counter().count());
+    }
+
+    /**
+     * Reads all pages, continuing each page with the token of its last entity.
+     */
+    private List<List<Resource>> pages(RepositoryConnection connection, EntitySummary.Order order, int limit) {
+        List<List<Resource>> result = new ArrayList<>();
+        ContinuationToken after = null;
+        while (true) {
+            List<EntitySummary> page = this.index.page(LABEL, connection, null, order, after, limit);
+            if (page.isEmpty()) return result;
+
+            result.add(page.stream().map(EntitySummary::id).toList());
+            after = ContinuationToken.parse(page.get(page.size() - 1).position().encode());
+        }
+    }
+
+    private List<Resource> page(RepositoryConnection connection) {
+        return this.index.page(LABEL, connection, null, EntitySummary.Order.IDENTIFIER, null, 10).stream().map(EntitySummary::id).toList();
+    }
+
+    private void write(IRI subject, String title) {
+        try (RepositoryConnection connection = this.repository.getConnection()) {
+            connection.add(subject, RDF.TYPE, Local.Entities.TYPE_INDIVIDUAL);
+            connection.add(subject, SDO.TITLE, vf.createLiteral(title));
+        }
+    }
+}
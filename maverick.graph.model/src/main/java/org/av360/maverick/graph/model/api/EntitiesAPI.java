@@ -10,6 +10,8 @@ import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
 import org.av360.maverick.graph.model.rdf.Triples;
 import org.springframework.boot.web.reactive.error.ErrorAttributes;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
@@ -21,19 +23,31 @@ public interface EntitiesAPI {
             @ApiResponse(responseCode = "404", description = "Entity with the given identifier does not exist", content = {@Content(mediaType = "application/json", schema = @Schema(implementation = ErrorAttributes.class))})
     })
     @GetMapping(value = "/entities/{id}",
-            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
+            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.BINARY_VALUE})
     @ResponseStatus(HttpStatus.OK)
     Flux<AnnotatedStatement> read(@PathVariable String id, @RequestParam(required = false) @Nullable String property);
 
-    @GetMapping(value = "/entities", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
+    @GetMapping(value = "/entities", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.BINARY_VALUE})
     @ResponseStatus(HttpStatus.OK)
     Flux<AnnotatedStatement> list(
             @RequestParam(value = "limit", defaultValue = "100") Integer limit,
+            @RequestParam(value = "offset", required = false) @Nullable Integer offset,
+            @RequestParam(value = "continue", required = false) @Nullable String continuation,
+            @RequestParam(value = "type", required = false) @Nullable String type,
+            @RequestParam(value = "sort", required = false) @Nullable String sort,
+            ServerHttpRequest request,
+            ServerHttpResponse response);
+
+    @GetMapping(value = "/entities/search", produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    Flux<AnnotatedStatement> search(
+            @RequestParam(value = "q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") Integer limit,
             @RequestParam(value = "offset", defaultValue = "0") Integer offset);
 
     @PostMapping(value = "/entities",
-            consumes = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE},
-            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE})
+            consumes = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.BINARY_VALUE},
+            produces = {RdfMimeTypes.JSONLD_VALUE, RdfMimeTypes.TURTLE_VALUE, RdfMimeTypes.N3_VALUE, RdfMimeTypes.BINARY_VALUE})
     @ResponseStatus(HttpStatus.ACCEPTED)
     Flux<AnnotatedStatement> create(@RequestBody Triples request);
 
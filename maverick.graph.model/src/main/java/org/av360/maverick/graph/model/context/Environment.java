@@ -34,6 +34,7 @@ public class Environment implements  Serializable{
 
     private Map<RepositoryConfigurationKey, Serializable>  configuration;
     private Scope scope;
+    private QueryLimits queryLimits;
 
     public Environment(SessionContext parent) {
         this.configuration = new HashMap<>();
@@ -100,6 +101,16 @@ public class Environment implements  Serializable{
 
 
 
+    public QueryLimits getQueryLimits() {
+        return Objects.isNull(this.queryLimits) ? QueryLimits.UNLIMITED : this.queryLimits;
+    }
+
+    public Environment setQueryLimits(QueryLimits queryLimits) {
+        this.queryLimits = queryLimits;
+        return this;
+    }
+
+
     public boolean isAuthorized() {
         return Objects.nonNull(this.parent) && Objects.nonNull(this.parent.getDecision()) && this.parent.getDecision().isGranted();
     }
@@ -0,0 +1,57 @@
+package org.av360.maverick.graph.model.context;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Limits enforced while evaluating a query.
+ *
+ * @param maxExecutionTime the query is aborted after this duration, null (or zero) if unlimited
+ * @param maxResults       the results are truncated after this number of rows (or statements), zero if unlimited
+ */
+public record QueryLimits(@Nullable Duration maxExecutionTime, long maxResults) implements Serializable {
+
+    public static final QueryLimits UNLIMITED = new QueryLimits(null, 0);
+
+    public boolean hasMaxExecutionTime() {
+        return Objects.nonNull(this.maxExecutionTime) && this.maxExecutionTime.isPositive();
+    }
+
+    public boolean hasMaxResults() {
+        return this.maxResults > 0;
+    }
+
+    /**
+     * @return the stricter limits of both
+     */
+    public QueryLimits restrict(@Nullable Duration maxExecutionTime, long maxResults) {
+        return this.restrict(new QueryLimits(maxExecutionTime, maxResults));
+    }
+
+    /**
+     * @return the stricter limits of both
+     */
+    public QueryLimits restrict(QueryLimits other) {
+        Duration time;
+        if (!other.hasMaxExecutionTime()) time = this.maxExecutionTime;
+        else if (!this.hasMaxExecutionTime()) time = other.maxExecutionTime;
+        else time = this.maxExecutionTime.compareTo(other.maxExecutionTime) <= 0 ? this.maxExecutionTime : other.maxExecutionTime;
+
+        long results;
+        if (!other.hasMaxResults()) results = this.maxResults;
+        else if (!this.hasMaxResults()) results = other.maxResults;
+        else results = Math.min(this.maxResults, other.maxResults);
+
+        return new QueryLimits(time, results);
+    }
+
+    @Override
+    public String toString() {
+        return "%s:%s".formatted(
+                this.hasMaxExecutionTime() ? this.maxExecutionTime.toString() : "unlimited",
+                this.hasMaxResults() ? Long.toString(this.maxResults) : "unlimited"
+        );
+    }
+}
@@ -0,0 +1,24 @@
+package org.av360.maverick.graph.model.errors.requests;
+
+import org.av360.maverick.graph.model.errors.InvalidRequest;
+import org.springframework.http.HttpStatus;
+
+public class PayloadTooLarge extends InvalidRequest {
+    private final long limit;
+    private final String unit;
+
+    public PayloadTooLarge(long limit, String unit) {
+        this.limit = limit;
+        this.unit = unit;
+    }
+
+    @Override
+    public String getMessage() {
+        return "The payload of the request exceeds the maximum of %d %s.".formatted(this.limit, this.unit);
+    }
+
+    @Override
+    public HttpStatus getStatusCode() {
+        return HttpStatus.PAYLOAD_TOO_LARGE;
+    }
+}
@@ -0,0 +1,31 @@
+package org.av360.maverick.graph.model.errors.requests;
+
+import org.av360.maverick.graph.model.errors.InvalidRequest;
+import org.springframework.http.HttpStatus;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * The query has not been completed within the maximum execution time of its environment. It is the query of the client
+ * which exceeds the limits (and should be restricted), the request is rejected as unprocessable.
+ */
+public class QueryLimitExceeded extends InvalidRequest {
+    private final Duration maxExecutionTime;
+
+    public QueryLimitExceeded(@Nullable Duration maxExecutionTime) {
+        this.maxExecutionTime = maxExecutionTime;
+    }
+
+    @Override
+    public String getMessage() {
+        if (Objects.isNull(this.maxExecutionTime)) return "Query has been aborted after exceeding the maximum execution time.";
+        return "Query has been aborted after exceeding the maximum execution time of %d seconds.".formatted(this.maxExecutionTime.toSeconds());
+    }
+
+    @Override
+    public HttpStatus getStatusCode() {
+        return HttpStatus.UNPROCESSABLE_ENTITY;
+    }
+}
@@ -6,6 +6,7 @@ import org.av360.maverick.graph.model.entities.Transaction;
 import org.av360.maverick.graph.model.rdf.Triples;
 import org.av360.maverick.graph.store.EntityStore;
 import org.av360.maverick.graph.store.rdf.fragments.RdfEntity;
+import org.av360.maverick.graph.store.rdf.helpers.EntitySummary;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.rio.RDFFormat;
@@ -50,6 +51,41 @@ public interface EntityServices {
      */
      Flux<RdfEntity> list(int limit, int offset, SessionContext ctx);
 
+    /**
+     * Lists the entities (with their summaries) ordered by their identifiers, starting after the last entity of the previous page. In contrast to
+     * an offset, each page costs the same regardless of its position.
+     *
+     * @param limit maximum number of entities
+     * @param continuation token of the previous page (see {@link org.av360.maverick.graph.store.rdf.helpers.ContinuationToken}), or null for the first page
+     * @param ctx the current session context
+     * @return the entities in the page
+     */
+    Flux<RdfEntity> list(int limit, @Nullable String continuation, SessionContext ctx);
+
+    /**
+     * Lists the summaries (types, preferred label and modification time) of the entities, optionally filtered by type, in
+     * pages which continue after the last entity of the previous page.
+     *
+     * @param limit maximum number of entities
+     * @param continuation token of the previous page (see {@link EntitySummary#position()}), or null for the first page
+     * @param type the type of the entities as prefixed name (e.g. 'sdo.Person') or IRI, or null for all entities
+     * @param order order of the entities (the token has to be from a page with the same order)
+     * @param ctx the current session context
+     * @return the summaries in the page
+     */
+    Flux<EntitySummary> listSummaries(int limit, @Nullable String continuation, @Nullable String type, EntitySummary.Order order, SessionContext ctx);
+
+    /**
+     * Searches entities by their labels, titles and identifiers (using the full-text index of the repository).
+     *
+     * @param query the search terms (in Lucene query syntax)
+     * @param limit maximum number of entities
+     * @param offset number of entities to skip
+     * @param ctx the current session context
+     * @return the matching entities, ordered by relevance
+     */
+    Flux<RdfEntity> search(String query, int limit, int offset, SessionContext ctx);
+
     /**
      * Deletes an entity with all its values from the store.
      *
@@ -101,6 +137,16 @@ public interface EntityServices {
 
     Mono<IRI> resolveAndVerify(String entityKey, SessionContext ctx);
 
+    /**
+     * Runs several reads of entities within one snapshot of the repository, e.g. resolving an entity and loading it: all
+     * reads see the same state, writes committed in the meantime are not visible.
+     *
+     * @param reads the reads (using the same session context)
+     * @param ctx the current session context
+     * @return the result of the reads
+     */
+    <T> Mono<T> withSnapshot(Mono<T> reads, SessionContext ctx);
+
     EntityStore getStore(SessionContext ctx);
 
     Mono<Transaction> importFile(Resource resource, RDFFormat format, SessionContext ctx);
@@ -4,10 +4,15 @@ import org.apache.commons.lang3.Validate;
 import org.av360.maverick.graph.model.context.SessionContext;
 import org.av360.maverick.graph.model.enums.RepositoryType;
 import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.ConstructQuery;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
 
 public interface QueryServices {
 
@@ -32,6 +37,29 @@ public interface QueryServices {
      */
     Flux<BindingSet> queryValues(SelectQuery query, RepositoryType entities, SessionContext ctx);
 
+    /**
+     * Running a select query template with the given bindings. The template is parsed only once, use this method for
+     * queries which are run repeatedly with different parameters (instead of formatting the values into the query).
+     *
+     * @param template, the query with variables for the parameters
+     * @param bindings, the values of the parameters by variable name
+     * @param repositoryType, the repository to search in
+     * @param ctx, current session context
+     * @return Bindings
+     */
+    Flux<BindingSet> queryValues(String template, Map<String, Value> bindings, RepositoryType repositoryType, SessionContext ctx);
+
+    /**
+     * The names of the variables projected by the select query, e.g. to write the header of the results before the first
+     * row is available. The parsed query is cached by the store, it is not parsed again for the evaluation.
+     *
+     * @param query, the select query
+     * @param repositoryType, the repository the query is run against
+     * @param ctx, the current session context (requires the same privilege as running the query)
+     * @return the variable names in the order of the projection
+     */
+    Mono<List<String>> getBindingNames(String query, RepositoryType repositoryType, SessionContext ctx);
+
     default Flux<BindingSet>  queryValues(String query, SessionContext ctx) {
         Validate.notNull(ctx.getEnvironment().getRepositoryType());
 
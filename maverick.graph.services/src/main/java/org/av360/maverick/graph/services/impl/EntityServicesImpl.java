@@ -25,6 +25,9 @@ import org.av360.maverick.graph.store.EntityStore;
 import org.av360.maverick.graph.store.rdf.fragments.RdfEntity;
 import org.av360.maverick.graph.store.rdf.fragments.RdfTransaction;
 import org.av360.maverick.graph.store.rdf.helpers.BindingsAccessor;
+import org.av360.maverick.graph.store.rdf.helpers.ContinuationToken;
+import org.av360.maverick.graph.store.rdf.helpers.EntitySummary;
+import org.av360.maverick.graph.store.rdf.helpers.ParallelLineParser;
 import org.av360.maverick.graph.store.rdf.helpers.RdfUtils;
 import org.av360.maverick.graph.store.rdf.helpers.TriplesCollector;
 import org.eclipse.rdf4j.model.IRI;
@@ -40,11 +43,8 @@ import org.eclipse.rdf4j.model.vocabulary.SKOS;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFParser;
 import org.eclipse.rdf4j.rio.RDFParserRegistry;
-import org.eclipse.rdf4j.sparqlbuilder.core.SparqlBuilder;
-import org.eclipse.rdf4j.sparqlbuilder.core.Variable;
-import org.eclipse.rdf4j.sparqlbuilder.core.query.Queries;
-import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
@@ -54,6 +54,7 @@ import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.Nullable;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
@@ -63,6 +64,28 @@ import java.util.Map;
 public class EntityServicesImpl implements EntityServices {
 
 
+    /**
+     * Types and titles of the selected entities ($selection binds ?id)
+     */
+    private static final String LIST_SUMMARIES = """
+                PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>
+                PREFIX skos: <http://www.w3.org/2004/02/skos/core#>
+                PREFIX sdo: <https://schema.org/>
+                PREFIX dcterms: <http://purl.org/dc/terms/>
+
+                SELECT ?id ?sct ?dct ?rdt ?skt (GROUP_CONCAT(DISTINCT ?type; SEPARATOR=",") AS ?types)
+                WHERE
+                {
+                  $selection
+                  OPTIONAL { ?id sdo:title ?sct }.
+                  OPTIONAL { ?id dcterms:title ?dct }.
+                  OPTIONAL { ?id rdfs:label ?rdt }.
+                  OPTIONAL { ?id skos:prefLabel ?skt }.
+                  ?id a ?type .
+                }
+                GROUP BY ?id  ?sct ?dct ?rdt ?skt
+            """;
+
     private final EntityStore entityStore;
 
     private final SchemaServices schemaServices;
@@ -72,6 +95,15 @@ public class EntityServicesImpl implements EntityServices {
     private DelegatingValidator validators;
     private DelegatingTransformer transformers;
 
+    @Value("${application.storage.imports.parallel.enabled:true}")
+    private boolean parallelImport;
+
+    @Value("${application.storage.imports.parallel.chunkSize:4194304}")
+    private int parallelImportChunkSize;
+
+    @Value("${application.storage.imports.parallel.ordered:true}")
+    private boolean parallelImportOrdered;
+
 
     public EntityServicesImpl(EntityStore graph,
                               SchemaServices schemaServices, QueryServices queryServices, IdentifierServices identifierServices, ApplicationEventPublisher eventPublisher) {
@@ -94,65 +126,93 @@ public class EntityServicesImpl implements EntityServices {
     @Override
     @RequiresPrivilege(Authorities.READER_VALUE)
     public Flux<RdfEntity> list(int limit, int offset, SessionContext ctx) {
-        String query = """
-                        
-                    PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>
-                    PREFIX skos: <http://www.w3.org/2004/02/skos/core#>
-                    PREFIX sdo: <https://schema.org/>
-                    PREFIX dcterms: <http://purl.org/dc/terms/>
-
-                    SELECT ?id ?sct ?dct ?rdt ?skt (GROUP_CONCAT(DISTINCT ?type; SEPARATOR=",") AS ?types)
-                    WHERE
-                    {
-                      {
-                        SELECT ?id WHERE {
-                          ?id a <urn:pwid:meg:e:Individual> .
+        String selection = """
+                        {
+                          SELECT ?id WHERE {
+                            ?id a <urn:pwid:meg:e:Individual> .
+                          }
+                          LIMIT $limit
+                          OFFSET $offset
                         }
-                        LIMIT $limit
-                        OFFSET $offset
-                      }
-                      OPTIONAL { ?id sdo:title ?sct }.
-                      OPTIONAL { ?id dcterms:title ?dct }.
-                      OPTIONAL { ?id rdfs:label ?rdt }.
-                      OPTIONAL { ?id skos:prefLabel ?skt }.
-                      ?id a ?type .
-                    }
-                    GROUP BY ?id  ?sct ?dct ?rdt ?skt
                 """.replace("$limit", limit + "").replace("$offset", offset + "");
 
-        return this.queryServices.queryValuesTrusted(query, RepositoryType.ENTITIES, ctx)
+        return this.queryServices.queryValuesTrusted(LIST_SUMMARIES.replace("$selection", selection), RepositoryType.ENTITIES, ctx)
                 .map(BindingsAccessor::new)
-                .flatMap(bnd -> {
-                    try {
-                        Resource resource = bnd.asIRI("id");
-
-                        ModelBuilder builder = new ModelBuilder();
-                        builder.subject(resource);
-                        bnd.asSet("types").stream()
-                                .map(typeString -> SimpleValueFactory.getInstance().createIRI(typeString))
-                                .forEach(typeIRI -> builder.add(RDF.TYPE, typeIRI));
-                        bnd.findValue("sct").ifPresent(val -> {
-                            builder.add(SDO.TITLE, val);
-                            builder.setNamespace(SDO.NS);
-                        });
-                        bnd.findValue("rdt").ifPresent(val -> {
-                            builder.add(RDFS.LABEL, val);
-                            builder.setNamespace(RDFS.NS);
-                        });
-                        bnd.findValue("dct").ifPresent(val -> {
-                            builder.add(DCTERMS.TITLE, val);
-                            builder.setNamespace(DCTERMS.NS);
-                        });
-                        bnd.findValue("skt").ifPresent(val -> {
-                            builder.add(SKOS.PREF_LABEL, val);
-                            builder.setNamespace(SKOS.NS);
-                        });
-
-                        return Mono.just(new RdfEntity(resource, builder.build()));
-                    } catch (InconsistentModelException e) {
-                        return Mono.error(e);
-                    }
-                });
+                .flatMap(this::buildSummary);
+    }
+
+    /**
+     * Lists the individuals ordered by their identifiers (keyset pagination). The entities are built from their summaries,
+     * the repository is not queried.
+     */
+    @Override
+    @RequiresPrivilege(Authorities.READER_VALUE)
+    public Flux<RdfEntity> list(int limit, @Nullable String continuation, SessionContext ctx) {
+        return this.listSummaries(limit, continuation, null, EntitySummary.Order.IDENTIFIER, ctx)
+                .filter(summary -> summary.id().isIRI())
+                .map(summary -> new RdfEntity(summary.id(), summary.asModel()));
+    }
+
+    @Override
+    @RequiresPrivilege(Authorities.READER_VALUE)
+    public Flux<EntitySummary> listSummaries(int limit, @Nullable String continuation, @Nullable String type, EntitySummary.Order order, SessionContext ctx) {
+        ContinuationToken token;
+        try {
+            token = ContinuationToken.parse(continuation);
+        } catch (IllegalArgumentException e) {
+            return Flux.error(e);
+        }
+
+        if (!StringUtils.hasText(type)) {
+            return this.entityStore.listSummaries(null, order, token, limit, ctx.getEnvironment());
+        }
+
+        Mono<IRI> selectedType = type.contains(":")
+                ? Mono.just(SimpleValueFactory.getInstance().createIRI(type))
+                : this.schemaServices.resolvePrefixedName(type);
+        return selectedType.flatMapMany(iri -> this.entityStore.listSummaries(iri, order, token, limit, ctx.getEnvironment()));
+    }
+
+    private Mono<RdfEntity> buildSummary(BindingsAccessor bnd) {
+        try {
+            Resource resource = bnd.asIRI("id");
+
+            ModelBuilder builder = new ModelBuilder();
+            builder.subject(resource);
+            bnd.asSet("types").stream()
+                    .map(typeString -> SimpleValueFactory.getInstance().createIRI(typeString))
+                    .forEach(typeIRI -> builder.add(RDF.TYPE, typeIRI));
+            bnd.findValue("sct").ifPresent(val -> {
+                builder.add(SDO.TITLE, val);
+                builder.setNamespace(SDO.NS);
+            });
+            bnd.findValue("rdt").ifPresent(val -> {
+                builder.add(RDFS.LABEL, val);
+                builder.setNamespace(RDFS.NS);
+            });
+            bnd.findValue("dct").ifPresent(val -> {
+                builder.add(DCTERMS.TITLE, val);
+                builder.setNamespace(DCTERMS.NS);
+            });
+            bnd.findValue("skt").ifPresent(val -> {
+                builder.add(SKOS.PREF_LABEL, val);
+                builder.setNamespace(SKOS.NS);
+            });
+
+            return Mono.just(new RdfEntity(resource, builder.build()));
+        } catch (InconsistentModelException e) {
+            return Mono.error(e);
+        }
+    }
+
+    @Override
+    @RequiresPrivilege(Authorities.READER_VALUE)
+    public Flux<RdfEntity> search(String query, int limit, int offset, SessionContext ctx) {
+        if (!StringUtils.hasText(query)) return Flux.error(new IllegalArgumentException("Missing search terms"));
+
+        // fragments are loaded concurrently, but emitted in the order of relevance
+        return this.entityStore.search(query, limit, offset, ctx.getEnvironment())
+                .flatMapSequential(subject -> this.entityStore.getFragment(subject, 0, ctx.getEnvironment()));
     }
 
     @Override
@@ -167,15 +227,9 @@ public class EntityServicesImpl implements EntityServices {
     public Mono<RdfEntity> findByProperty(String identifier, IRI predicate, SessionContext ctx) {
         Literal identifierLit = entityStore.getValueFactory().createLiteral(identifier);
 
-        Variable idVariable = SparqlBuilder.var("id");
-
-        SelectQuery query = Queries.SELECT(idVariable).where(
-                idVariable.has(predicate, identifierLit));
-
-        return this.entityStore.query(query.getQueryString(), ctx.getEnvironment())
+        return this.entityStore.findSubjects(predicate, identifierLit, ctx.getEnvironment())
                 .next()
-                .map(bindings -> bindings.getValue(idVariable.getVarName()))
-                .flatMap(id -> this.entityStore.getFragment((Resource) id, 1, ctx.getEnvironment()))
+                .flatMap(id -> this.entityStore.getFragment(id, 1, ctx.getEnvironment()))
                 .switchIfEmpty(Mono.error(new EntityNotFound(identifier)));
     }
 
@@ -214,6 +268,12 @@ public class EntityServicesImpl implements EntityServices {
 
     }
 
+    @Override
+    @RequiresPrivilege(Authorities.READER_VALUE)
+    public <T> Mono<T> withSnapshot(Mono<T> reads, SessionContext ctx) {
+        return this.entityStore.withSnapshot(reads, ctx.getEnvironment());
+    }
+
     @Override
     @RequiresPrivilege(Authorities.MAINTAINER_VALUE)
     public EntityStore getStore(SessionContext ctx) {
@@ -234,8 +294,12 @@ public class EntityServicesImpl implements EntityServices {
                     TriplesCollector handler = RdfUtils.getTriplesCollector();
 
                     try (InputStream is = dataBuffer.asInputStream(true)) {
-                        parser.setRDFHandler(handler);
-                        parser.parse(is);
+                        if (this.parallelImport && ParallelLineParser.supports(format)) {
+                            new ParallelLineParser(format, this.parallelImportChunkSize, this.parallelImportOrdered).parse(is, handler);
+                        } else {
+                            parser.setRDFHandler(handler);
+                            parser.parse(is);
+                        }
                         return Mono.just(handler.getTriples());
                     } catch (Exception e) {
                         return Mono.error(e);
@@ -1,23 +1,33 @@
 package org.av360.maverick.graph.services.impl;
 
 import lombok.extern.slf4j.Slf4j;
+import org.av360.maverick.graph.model.context.QueryLimits;
 import org.av360.maverick.graph.model.context.SessionContext;
 import org.av360.maverick.graph.model.enums.RepositoryType;
 import org.av360.maverick.graph.model.errors.requests.InvalidQuery;
 import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
 import org.av360.maverick.graph.model.security.Authorities;
+import org.av360.maverick.graph.services.ConfigurationService;
 import org.av360.maverick.graph.services.QueryServices;
 import org.av360.maverick.graph.services.config.RequiresPrivilege;
 import org.av360.maverick.graph.store.behaviours.Searchable;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
-import org.eclipse.rdf4j.query.QueryLanguage;
-import org.eclipse.rdf4j.query.parser.*;
+import org.eclipse.rdf4j.query.parser.ParsedGraphQuery;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
+import org.eclipse.rdf4j.query.parser.ParsedTupleQuery;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.ConstructQuery;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -28,13 +38,22 @@ import java.util.Set;
 public class QueryServicesImpl implements QueryServices {
 
     private final Map<RepositoryType, Searchable> stores;
-    private final QueryParser queryParser;
+    private ConfigurationService configurationService;
+
+    @org.springframework.beans.factory.annotation.Value("${application.storage.queries.limits.maxExecutionTime:30s}")
+    private Duration maxExecutionTime;
+
+    @org.springframework.beans.factory.annotation.Value("${application.storage.queries.limits.maxResults:100000}")
+    private long maxResults;
 
     public QueryServicesImpl(Set<Searchable> searchables) {
         this.stores = new HashMap<>();
         searchables.forEach(searchable -> stores.put(searchable.getRepositoryType(), searchable));
+    }
 
-        queryParser = QueryParserUtil.createParser(QueryLanguage.SPARQL);
+    @Autowired(required = false)
+    public void setConfigurationService(ConfigurationService configurationService) {
+        this.configurationService = configurationService;
     }
 
 
@@ -42,28 +61,61 @@ public class QueryServicesImpl implements QueryServices {
     @RequiresPrivilege(Authorities.CONTRIBUTOR_VALUE)
     public Flux<BindingSet> queryValues(String query, RepositoryType repositoryType, SessionContext ctx) {
         try {
-            ParsedQuery parsedQuery = queryParser.parseQuery(query, null);
+            // the parsed query is cached by the store, it is not parsed again for the evaluation
+            ParsedQuery parsedQuery = this.stores.get(repositoryType).parseQuery(query);
             if(parsedQuery instanceof  ParsedTupleQuery) {
-                return this.queryValuesTrusted(query, repositoryType, ctx);
+                // queries from clients are streamed as they are, duplicates have to be removed with 'SELECT DISTINCT'
+                return this.restrict(ctx).flatMapMany(context -> this.queryValuesTrusted(query, repositoryType, context, false));
             } else throw new InvalidQuery(query);
         } catch (Exception | InvalidQuery e) {
             return Flux.error(e);
         }
     }
 
+    @Override
+    @RequiresPrivilege(Authorities.CONTRIBUTOR_VALUE)
+    public Mono<List<String>> getBindingNames(String query, RepositoryType repositoryType, SessionContext ctx) {
+        try {
+            ParsedQuery parsedQuery = this.stores.get(repositoryType).parseQuery(query);
+            if(parsedQuery instanceof ParsedTupleQuery) {
+                return Mono.just(new ArrayList<>(parsedQuery.getTupleExpr().getBindingNames()));
+            } else throw new InvalidQuery(query);
+        } catch (Exception | InvalidQuery e) {
+            return Mono.error(e);
+        }
+    }
+
     @Override
     @RequiresPrivilege(Authorities.READER_VALUE)
     public Flux<BindingSet> queryValues(SelectQuery query, RepositoryType repositoryType, SessionContext ctx) {
         return this.queryValuesTrusted(query.getQueryString(), repositoryType, ctx);
     }
 
+    @Override
+    @RequiresPrivilege(Authorities.READER_VALUE)
+    public Flux<BindingSet> queryValues(String template, Map<String, Value> bindings, RepositoryType repositoryType, SessionContext ctx) {
+        try {
+            if(Objects.isNull(ctx.getEnvironment().getRepositoryType())) ctx.updateEnvironment(env -> env.setRepositoryType(repositoryType));
+
+            if(! (this.stores.get(repositoryType).parseQuery(template) instanceof ParsedTupleQuery)) throw new InvalidQuery(template);
+
+            return this.stores.get(repositoryType).query(template, bindings, ctx.getEnvironment())
+                    .doOnSubscribe(subscription -> {
+                        if (log.isTraceEnabled())
+                            log.trace("Running select query in {} with bindings {}: {}", ctx.getEnvironment(), bindings, template.replace('\n', ' ').trim());
+                    });
+        } catch (Exception | InvalidQuery e) {
+            return Flux.error(e);
+        }
+    }
+
     @Override
     @RequiresPrivilege(Authorities.READER_VALUE)
     public Flux<AnnotatedStatement> queryGraph(String queryStr, RepositoryType repositoryType, SessionContext ctx) {
         try {
-            ParsedQuery parsedQuery = queryParser.parseQuery(queryStr, null);
+            ParsedQuery parsedQuery = this.stores.get(repositoryType).parseQuery(queryStr);
             if(parsedQuery instanceof ParsedGraphQuery) {
-                return this.queryGraphTrusted(queryStr, repositoryType, ctx);
+                return this.restrict(ctx).flatMapMany(context -> this.queryGraphTrusted(queryStr, repositoryType, context));
             } else throw new InvalidQuery(queryStr);
         } catch (Exception | InvalidQuery e) {
             return Flux.error(e);
@@ -94,10 +146,14 @@ public class QueryServicesImpl implements QueryServices {
 
     @Override
     public Flux<BindingSet> queryValuesTrusted(String query, RepositoryType repositoryType, SessionContext ctx) {
+        return this.queryValuesTrusted(query, repositoryType, ctx, true);
+    }
+
+    private Flux<BindingSet> queryValuesTrusted(String query, RepositoryType repositoryType, SessionContext ctx, boolean distinct) {
         try {
             if(Objects.isNull(ctx.getEnvironment().getRepositoryType())) ctx.updateEnvironment(env -> env.setRepositoryType(repositoryType));
 
-            return this.stores.get(repositoryType).query(query, ctx.getEnvironment())
+            return this.stores.get(repositoryType).query(query, ctx.getEnvironment(), distinct)
                     .doOnSubscribe(subscription -> {
                         if (log.isTraceEnabled())
                             log.trace("Running select query in {}: {}", ctx.getEnvironment(), query.replace('\n', ' ').trim());
@@ -107,6 +163,35 @@ public class QueryServicesImpl implements QueryServices {
         }
     }
 
+    /**
+     * Queries from clients are restricted by the limits requested by the client, the limits configured for the application
+     * ('query_timeout' and 'query_max_results') and the global limits, whatever is stricter. Queries of scheduled jobs are not restricted.
+     */
+    private Mono<SessionContext> restrict(SessionContext ctx) {
+        if (!ctx.isRequest()) return Mono.just(ctx);
 
+        QueryLimits global = new QueryLimits(this.maxExecutionTime, this.maxResults);
+        if (Objects.isNull(this.configurationService) || !ctx.getEnvironment().hasScope()) {
+            return Mono.just(ctx.updateEnvironment(env -> env.setQueryLimits(env.getQueryLimits().restrict(global))));
+        }
+
+        Mono<Duration> applicationTimeout = this.configurationService.getValue("query_timeout", ctx)
+                .map(DurationStyle::detectAndParse)
+                .onErrorResume(e -> {
+                    log.warn("Ignoring invalid query timeout configured for application '{}': {}", ctx.getEnvironment().getScope(), e.getMessage());
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(Duration.ZERO);
+        Mono<Long> applicationMaxResults = this.configurationService.getValue("query_max_results", ctx)
+                .map(Long::parseLong)
+                .onErrorResume(e -> {
+                    log.warn("Ignoring invalid maximum of query results configured for application '{}': {}", ctx.getEnvironment().getScope(), e.getMessage());
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(0L);
+
+        return Mono.zip(applicationTimeout, applicationMaxResults)
+                .map(limits -> ctx.updateEnvironment(env -> env.setQueryLimits(env.getQueryLimits().restrict(global).restrict(limits.getT1(), limits.getT2()))));
+    }
 
 }
@@ -28,6 +28,7 @@ import org.eclipse.rdf4j.rio.LanguageHandlerRegistry;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple3;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -58,14 +59,19 @@ public class ValueServicesImpl implements ValueServices {
     @Override
     @RequiresPrivilege(Authorities.CONTRIBUTOR_VALUE)
     public Mono<Transaction> insertValue(String entityKey, String prefixedPoperty, String value, String languageTag, SessionContext ctx) {
-
-        return Mono.zip(
-                        this.entityServices.resolveAndVerify(entityKey, ctx),
-                        this.schemaServices.resolvePrefixedName(prefixedPoperty),
-                        this.normalizeValue(value, languageTag)
-                )
+        // the entity is resolved and loaded from the same snapshot
+        Mono<Tuple3<RdfEntity, IRI, Value>> reads = Mono.zip(
+                this.entityServices.resolveAndVerify(entityKey, ctx).flatMap(entityIdentifier -> this.entityServices.get(entityIdentifier, ctx)),
+                this.schemaServices.resolvePrefixedName(prefixedPoperty),
+                this.normalizeValue(value, languageTag)
+        );
+
+        return this.entityServices.withSnapshot(reads, ctx)
                 .switchIfEmpty(Mono.error(new InvalidEntityUpdate(entityKey, "Failed to insert value")))
-                .flatMap(triple -> this.insertValue(triple.getT1(), triple.getT2(), triple.getT3(), ctx));
+                .flatMap(triple -> this.insertStatement(triple.getT1(), triple.getT2(), triple.getT3(), new RdfTransaction(), ctx))
+                .doOnSuccess(trx -> {
+                    eventPublisher.publishEvent(new ValueInsertedEvent(trx));
+                });
     }
 
 
@@ -86,16 +92,19 @@ public class ValueServicesImpl implements ValueServices {
     @Override
     @RequiresPrivilege(Authorities.CONTRIBUTOR_VALUE)
     public Mono<Transaction> insertLink(String entityKey, String prefixedKey, String targetKey, SessionContext ctx) {
-        return Mono.zip(
-                        entityServices.resolveAndVerify(entityKey, ctx),
-                        entityServices.resolveAndVerify(targetKey, ctx),
-                        this.schemaServices.resolvePrefixedName(prefixedKey)
+        // both entities are resolved (and the entity is loaded) from the same snapshot
+        Mono<Tuple3<RdfEntity, IRI, IRI>> reads = Mono.zip(
+                entityServices.resolveAndVerify(entityKey, ctx).flatMap(entityIdentifier -> this.entityServices.get(entityIdentifier, ctx)),
+                entityServices.resolveAndVerify(targetKey, ctx),
+                this.schemaServices.resolvePrefixedName(prefixedKey)
+        );
 
-                )
+        return this.entityServices.withSnapshot(reads, ctx)
                 .switchIfEmpty(Mono.error(new InvalidEntityUpdate(entityKey, "Failed to insert link")))
-                .flatMap(triple ->
-                        this.insertValue(triple.getT1(), triple.getT3(), triple.getT2(), ctx)
-                );
+                .flatMap(triple -> this.insertStatement(triple.getT1(), triple.getT3(), triple.getT2(), new RdfTransaction(), ctx))
+                .doOnSuccess(trx -> {
+                    eventPublisher.publishEvent(new ValueInsertedEvent(trx));
+                });
     }
 
 
@@ -132,14 +141,16 @@ public class ValueServicesImpl implements ValueServices {
     @Override
     @RequiresPrivilege(Authorities.CONTRIBUTOR_VALUE)
     public Mono<Transaction> removeLink(String entityKey, String prefixedProperty, String targetKey, SessionContext ctx) {
-        return Mono.zip(
+        // both entities are resolved and the link is read from the same snapshot
+        Mono<Set<Statement>> reads = Mono.zip(
                 entityServices.resolveAndVerify(entityKey, ctx),
                 entityServices.resolveAndVerify(targetKey, ctx),
                 this.schemaServices.resolvePrefixedName(prefixedProperty)
+        ).flatMap(triple -> this.entityServices.getStore(ctx).listStatements(triple.getT1(), triple.getT3(), triple.getT2(), ctx.getEnvironment()));
 
-        ).flatMap(triple ->
-                this.removeLinkStatement(triple.getT1(), triple.getT3(), triple.getT2(), new RdfTransaction(), ctx)
-        ).doOnSuccess(trx -> {
+        return this.entityServices.withSnapshot(reads, ctx)
+                .flatMap(statements -> this.removeLinkStatements(statements, new RdfTransaction(), ctx))
+                .doOnSuccess(trx -> {
             eventPublisher.publishEvent(new LinkRemovedEvent(trx));
         }).doOnError(error -> log.error("Failed to remove link due to reason: {}", error.getMessage()));
     }
@@ -187,9 +198,8 @@ public class ValueServicesImpl implements ValueServices {
     }
 
 
-    private Mono<Transaction> removeLinkStatement(IRI entityIdentifier, IRI predicate, IRI targetIdentifier, Transaction transaction, SessionContext ctx) {
-        return this.entityServices.getStore(ctx).listStatements(entityIdentifier, predicate, targetIdentifier, ctx.getEnvironment())
-                .flatMap(statements -> this.entityServices.getStore(ctx).removeStatements(statements, transaction))
+    private Mono<Transaction> removeLinkStatements(Set<Statement> statements, Transaction transaction, SessionContext ctx) {
+        return this.entityServices.getStore(ctx).removeStatements(statements, transaction)
                 .flatMap(trx -> this.entityServices.getStore(ctx).commit(trx, ctx.getEnvironment()));
 
     }
@@ -256,7 +266,16 @@ public class ValueServicesImpl implements ValueServices {
 
         return this.entityServices.get(entityIdentifier, ctx)
                 .switchIfEmpty(Mono.error(new EntityNotFound(entityIdentifier.stringValue())))
-                .map(entity -> Pair.of(entity, transaction.affects(entity.getModel())))
+                .flatMap(entity -> this.insertStatement(entity, predicate, value, transaction, ctx));
+    }
+
+    /**
+     * @param entity the entity, as loaded before (e.g. within the snapshot it has been resolved in)
+     */
+    private Mono<Transaction> insertStatement(RdfEntity entity, IRI predicate, Value value, Transaction transaction, SessionContext ctx) {
+        Resource entityIdentifier = entity.getIdentifier();
+
+        return Mono.just(Pair.of(entity, transaction.affects(entity.getModel())))
                 .flatMap(pair -> {
                     // linking to bnodes is forbidden
                     if (value.isBNode()) {
@@ -3,7 +3,7 @@ package org.av360.maverick.graph.store;
 import org.av360.maverick.graph.store.behaviours.*;
 
 
-public interface EntityStore extends Searchable, Maintainable, ModelAware, Selectable, StatementsAware, FragmentsAware {
+public interface EntityStore extends Searchable, Maintainable, ModelAware, Selectable, StatementsAware, FragmentsAware, FullTextSearchable, IdentifiersAware, StatisticsAware, TypesAware, SummariesAware, SnapshotAware {
 
 
 }
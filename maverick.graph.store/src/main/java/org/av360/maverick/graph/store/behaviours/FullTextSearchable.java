@@ -0,0 +1,24 @@
+package org.av360.maverick.graph.store.behaviours;
+
+import org.av360.maverick.graph.model.context.Environment;
+import org.eclipse.rdf4j.model.Resource;
+import reactor.core.publisher.Flux;
+
+/**
+ * Stores with a full-text index over the characteristic properties (labels, titles and identifiers) of their entities. The
+ * index is maintained by the repository with each commit.
+ */
+public interface FullTextSearchable extends TripleStore {
+
+    /**
+     * Searches the full-text index.
+     *
+     * @param query the search terms (in Lucene query syntax, e.g. 'berl*' for prefix matches)
+     * @param limit maximum number of results
+     * @param offset number of results to skip
+     * @param environment the current environment
+     * @return the subjects with matching values, ordered by relevance
+     */
+    Flux<Resource> search(String query, int limit, int offset, Environment environment);
+
+}
@@ -0,0 +1,25 @@
+package org.av360.maverick.graph.store.behaviours;
+
+import org.av360.maverick.graph.model.context.Environment;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import reactor.core.publisher.Flux;
+
+/**
+ * Exact-match lookups of entities by their identifying values (e.g. identifiers or labels), without running a query.
+ */
+public interface IdentifiersAware extends TripleStore {
+
+    /**
+     * Finds the subjects with the given value for the predicate. Lookups for the configured identifying predicates are
+     * answered by an index, other predicates by the indexes of the repository.
+     *
+     * @param predicate the identifying predicate
+     * @param value the value (the exact literal, including datatype or language)
+     * @param environment the current environment
+     * @return the matching subjects (in no particular order)
+     */
+    Flux<Resource> findSubjects(IRI predicate, Value value, Environment environment);
+
+}
@@ -1,17 +1,33 @@
 package org.av360.maverick.graph.store.behaviours;
 
 import org.av360.maverick.graph.model.context.Environment;
+import org.av360.maverick.graph.store.rdf.helpers.ImportProgress;
 import org.eclipse.rdf4j.model.Model;
 import org.reactivestreams.Publisher;
 import org.springframework.core.io.buffer.DataBuffer;
 import reactor.core.publisher.Mono;
 
+import java.util.UUID;
+
 public interface Maintainable extends TripleStore {
 
     Mono<Void> reset(Environment environment);
 
 
-    Mono<Void> importStatements(Publisher<DataBuffer> bytesPublisher, String mimetype, Environment environment);
+    default Mono<Void> importStatements(Publisher<DataBuffer> bytesPublisher, String mimetype, Environment environment) {
+        return this.importStatements(bytesPublisher, mimetype, environment, new ImportProgress(UUID.randomUUID().toString(), mimetype));
+    }
+
+    /**
+     * Imports the statements in batches, the progress is reported (and can be used to resume a failed import).
+     *
+     * @param bytesPublisher the content
+     * @param mimetype the rdf format of the content
+     * @param environment the current environment
+     * @param progress the progress of the import, if resumed the already committed statements are skipped
+     * @return completes after the last batch has been committed
+     */
+    Mono<Void> importStatements(Publisher<DataBuffer> bytesPublisher, String mimetype, Environment environment, ImportProgress progress);
 
     Mono<Void> importModel(Model resultingModel, Environment environment);
 }
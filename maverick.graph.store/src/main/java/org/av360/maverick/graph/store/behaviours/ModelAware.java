@@ -5,6 +5,7 @@ import org.av360.maverick.graph.model.entities.Transaction;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.Set;
@@ -35,8 +36,16 @@ public interface ModelAware extends TripleStore {
      */
     Mono<Transaction> insertModel(Model model, Transaction transaction);
 
+    /**
+     * Collects all statements of the repository, read from a single cursor (see {@link #streamModel(Environment)}).
+     */
     Mono<Model> getModel(Environment environment);
 
+    /**
+     * Streams all statements of the repository (in the order of the index), without collecting them in a model.
+     */
+    Flux<Statement> streamModel(Environment environment);
+
     default Mono<Void> insertModel(Set<Statement> statements, Environment environment) {
         return this.insertModel(new LinkedHashModel(statements), environment);
     }
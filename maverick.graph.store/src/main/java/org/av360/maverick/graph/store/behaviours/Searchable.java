@@ -2,18 +2,67 @@ package org.av360.maverick.graph.store.behaviours;
 
 import org.av360.maverick.graph.model.context.Environment;
 import org.av360.maverick.graph.model.rdf.AnnotatedStatement;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.parser.ParsedQuery;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.ConstructQuery;
 import org.eclipse.rdf4j.sparqlbuilder.core.query.SelectQuery;
 import reactor.core.publisher.Flux;
 
+import java.util.Map;
+
 
 public interface Searchable extends TripleStore {
 
 
-    Flux<BindingSet> query(String q, Environment environment);
+    /**
+     * Runs a select query. The bindings are streamed from the repository.
+     *
+     * @param q the query
+     * @param environment the current environment
+     * @param distinct if true, duplicate bindings are removed (which requires to keep all seen bindings in memory)
+     * @return the bindings
+     */
+    Flux<BindingSet> query(String q, Environment environment, boolean distinct);
+
+    /**
+     * Runs a construct query. The statements are streamed from the repository.
+     *
+     * @param q the query
+     * @param environment the current environment
+     * @param distinct if true, duplicate statements are removed (which requires to keep all seen statements in memory)
+     * @return the statements
+     */
+    Flux<AnnotatedStatement> construct(String q, Environment environment, boolean distinct);
+
+    /**
+     * Runs a select query template with the given bindings. The template is parsed only once, which makes it cheap to
+     * run the same query repeatedly with different values.
+     *
+     * @param template the query, with variables for the parameters
+     * @param bindings the values of the parameters (by variable name)
+     * @param environment the current environment
+     * @return the bindings
+     */
+    Flux<BindingSet> query(String template, Map<String, Value> bindings, Environment environment);
+
+    /**
+     * Parses the query (or returns the cached result of a previous parse).
+     *
+     * @throws org.eclipse.rdf4j.query.MalformedQueryException if the query is invalid
+     */
+    ParsedQuery parseQuery(String query);
+
+    default Flux<BindingSet> query(String q, Environment environment) {
+        return this.query(q, environment, true);
+    }
 
-    Flux<AnnotatedStatement> construct(String q, Environment environment);
+    /**
+     * Runs a construct query, duplicate statements are removed (as they were when construct results were collected into a set).
+     */
+    default Flux<AnnotatedStatement> construct(String q, Environment environment) {
+        return this.construct(q, environment, true);
+    }
 
     default Flux<BindingSet> query(SelectQuery q, Environment environment) {
         return this.query(q.getQueryString(), environment);
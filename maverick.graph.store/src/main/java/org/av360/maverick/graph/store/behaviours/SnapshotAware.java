@@ -0,0 +1,28 @@
+package org.av360.maverick.graph.store.behaviours;
+
+import org.av360.maverick.graph.model.context.Environment;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Consistent reads across several operations: all reads of the store within the given publisher share one snapshot of
+ * the repository (writes committed in the meantime are not visible to them).
+ */
+public interface SnapshotAware extends TripleStore {
+
+    /**
+     * Runs the reads within one snapshot of the repository, which is released when the reads terminate. Nested calls for
+     * the same repository share the outer snapshot.
+     *
+     * @param reads the reads, e.g. resolving an identifier and loading the entity
+     * @param environment the current environment
+     * @return the result of the reads
+     */
+    <T> Mono<T> withSnapshot(Mono<T> reads, Environment environment);
+
+    /**
+     * @see #withSnapshot(Mono, Environment)
+     */
+    <T> Flux<T> withSnapshot(Flux<T> reads, Environment environment);
+
+}
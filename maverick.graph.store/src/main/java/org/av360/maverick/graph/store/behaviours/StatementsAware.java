@@ -2,12 +2,15 @@ package org.av360.maverick.graph.store.behaviours;
 
 import org.av360.maverick.graph.model.context.Environment;
 import org.av360.maverick.graph.model.entities.Transaction;
+import org.av360.maverick.graph.store.rdf.helpers.StatementsPage;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Value;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -24,6 +27,20 @@ public interface StatementsAware extends TripleStore {
 
     Mono<Set<Statement>> listStatements(Resource subject, IRI predicate, Value object, Environment environment);
 
+    /**
+     * Streams the statements matching the pattern directly from the repository cursor, without collecting them. The
+     * cursor (and its connection) is kept open until the flux completes or is cancelled.
+     */
+    Flux<Statement> streamStatements(Resource subject, IRI predicate, Value object, Environment environment);
+
+    /**
+     * Reads a page of statements matching the pattern. The page includes the token to resume reading with the next page,
+     * the cursor is kept open in between (for a limited time, see the implementation).
+     *
+     * @param resumeToken token of the previous page (see {@link StatementsPage}), or null to start with the first statement
+     */
+    Mono<StatementsPage> pageStatements(Resource subject, IRI predicate, Value object, int limit, @Nullable String resumeToken, Environment environment);
+
     Mono<Transaction> removeStatements(Collection<Statement> statements, Transaction transaction);
 
     Mono<Transaction> addStatement(Resource subject, IRI predicate, Value literal, Transaction transaction);
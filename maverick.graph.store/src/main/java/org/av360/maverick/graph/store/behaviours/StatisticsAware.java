@@ -0,0 +1,19 @@
+package org.av360.maverick.graph.store.behaviours;
+
+import org.av360.maverick.graph.model.context.Environment;
+import org.av360.maverick.graph.store.rdf.helpers.StoreStatistics;
+import reactor.core.publisher.Mono;
+
+/**
+ * Statistics of a repository (number of statements, instances per type and statements per predicate), which are updated
+ * with each commit instead of being counted by queries.
+ */
+public interface StatisticsAware extends TripleStore {
+
+    /**
+     * @param environment the current environment
+     * @return the current statistics of the repository
+     */
+    Mono<StoreStatistics> getStatistics(Environment environment);
+
+}
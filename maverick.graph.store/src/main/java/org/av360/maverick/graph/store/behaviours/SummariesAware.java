@@ -0,0 +1,29 @@
+package org.av360.maverick.graph.store.behaviours;
+
+import org.av360.maverick.graph.model.context.Environment;
+import org.av360.maverick.graph.store.rdf.helpers.ContinuationToken;
+import org.av360.maverick.graph.store.rdf.helpers.EntitySummary;
+import org.eclipse.rdf4j.model.IRI;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.Nullable;
+
+/**
+ * Lists entities from a projection of their summaries (identifier, types, preferred label and modification time), which
+ * is maintained with each commit. A page is read with a range scan of the projection, no query is evaluated.
+ */
+public interface SummariesAware extends TripleStore {
+
+    /**
+     * Lists the summaries of the individuals, page by page.
+     *
+     * @param type only individuals with this type, or null for all individuals
+     * @param order the order of the summaries
+     * @param after the position after the last summary of the previous page (in the same order), or null for the first page
+     * @param limit maximum number of summaries
+     * @param environment the current environment
+     * @return the summaries of the page
+     */
+    Flux<EntitySummary> listSummaries(@Nullable IRI type, EntitySummary.Order order, @Nullable ContinuationToken after, int limit, Environment environment);
+
+}
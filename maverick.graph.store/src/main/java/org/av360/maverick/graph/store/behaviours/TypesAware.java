@@ -0,0 +1,29 @@
+package org.av360.maverick.graph.store.behaviours;
+
+import org.av360.maverick.graph.model.context.Environment;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.Nullable;
+
+/**
+ * Ordered iteration over the instances of a type, used for keyset pagination (see
+ * {@link org.av360.maverick.graph.store.rdf.helpers.ContinuationToken}).
+ */
+public interface TypesAware extends TripleStore {
+
+    /**
+     * Lists the individuals with the given type, ordered by their identifiers. The individuals are listed from their
+     * summaries, each page costs the same regardless of its position. Only individuals are indexed, the instances of
+     * other types (classifiers, embedded entities) cannot be listed.
+     *
+     * @param type the type of the individuals, or the type of individuals itself to list all individuals
+     * @param after the last subject of the previous page, or null for the first page
+     * @param limit maximum number of subjects
+     * @param environment the current environment
+     * @return the next subjects after the given subject
+     */
+    Flux<Resource> listSubjects(IRI type, @Nullable Resource after, int limit, Environment environment);
+
+}
@@ -6,25 +6,60 @@ import org.eclipse.rdf4j.repository.RepositoryException;
 import org.eclipse.rdf4j.repository.base.RepositoryConnectionWrapper;
 import org.eclipse.rdf4j.repository.base.RepositoryWrapper;
 
-import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Required to override the toString() Method, to find out in the logs which repository has been used (to differentiate between the different applications)
+ * <p>
+ * The repository is in use while it has open connections, or while it is pinned by an operation which has resolved it
+ * (and will open connections later). A repository in use is not closed by the repository builder.
  */
 public class LabeledRepository extends RepositoryWrapper {
 
     private final String label;
 
-    private final WeakHashMap<String, RepositoryConnection> connections;
+    private final AtomicInteger activeConnections;
 
-    private final AtomicInteger counter;
+    private int pins;
 
     public LabeledRepository(String label, Repository repository) {
         super(repository);
         this.label = label;
-        connections = new WeakHashMap<>();
-        this.counter = new AtomicInteger();
+        this.activeConnections = new AtomicInteger();
+    }
+
+    /**
+     * Pins the repository for an operation, it has to be released with {@link #unpin()}.
+     *
+     * @return false, if the repository has been closed (and has to be resolved again)
+     */
+    public synchronized boolean pin() {
+        if (!this.isInitialized()) return false;
+        this.pins++;
+        return true;
+    }
+
+    public synchronized void unpin() {
+        if (this.pins > 0) this.pins--;
+    }
+
+    /**
+     * @return true, if the repository is pinned or has open connections
+     */
+    public synchronized boolean isInUse() {
+        return this.pins > 0 || this.activeConnections.get() > 0;
+    }
+
+    /**
+     * Shuts down the repository, if it is not in use (pinning fails afterwards).
+     *
+     * @return true, if the repository has been shut down
+     */
+    public synchronized boolean shutDownIfUnused() {
+        if (this.isInUse()) return false;
+        this.shutDown();
+        return true;
     }
 
     @Override
@@ -34,12 +69,36 @@ public class LabeledRepository extends RepositoryWrapper {
 
     @Override
     public RepositoryConnection getConnection() throws RepositoryException {
-        RepositoryConnectionWrapper connection = new RepositoryConnectionWrapper(this, super.getConnection());
-        this.connections.put(this.label+counter.incrementAndGet(), connection);
+        RepositoryConnectionWrapper connection = new CountingConnectionWrapper(this, super.getConnection());
+        this.activeConnections.incrementAndGet();
         return connection;
     }
 
+    /**
+     * @return the number of connections which have been opened and not yet closed
+     */
     public int getConnectionsCount() {
-        return this.connections.size();
+        return this.activeConnections.get();
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    private class CountingConnectionWrapper extends RepositoryConnectionWrapper {
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        CountingConnectionWrapper(Repository repository, RepositoryConnection delegate) {
+            super(repository, delegate);
+        }
+
+        @Override
+        public void close() throws RepositoryException {
+            try {
+                super.close();
+            } finally {
+                if (closed.compareAndSet(false, true)) activeConnections.decrementAndGet();
+            }
+        }
     }
 }
@@ -0,0 +1,53 @@
+package org.av360.maverick.graph.store.rdf.helpers;
+
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque token to continue listing subjects after the last subject of the previous page (keyset pagination). In contrast
+ * to an offset, the position stays valid if subjects are inserted or removed before it, and resuming costs the same for
+ * every page.
+ *
+ * @param lastSubject the last subject of the previous page
+ * @param lastLabel   the label of the last subject, if the pages are ordered by label (see {@link EntitySummary})
+ */
+public record ContinuationToken(Resource lastSubject, @Nullable String lastLabel) {
+
+    private static final String BNODE_PREFIX = "_:";
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * @return the token, or null if no token has been given (the first page is requested)
+     * @throws IllegalArgumentException if the token is invalid
+     */
+    @Nullable
+    public static ContinuationToken parse(@Nullable String token) {
+        if (!StringUtils.hasLength(token)) return null;
+
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            String label = separator < 0 ? null : value.substring(separator + 1);
+            String id = separator < 0 ? value : value.substring(0, separator);
+
+            Resource subject = id.startsWith(BNODE_PREFIX)
+                    ? SimpleValueFactory.getInstance().createBNode(id.substring(BNODE_PREFIX.length()))
+                    : SimpleValueFactory.getInstance().createIRI(id);
+            return new ContinuationToken(subject, label);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+    }
+
+    public String encode() {
+        String value = this.lastSubject.isBNode() ? BNODE_PREFIX + this.lastSubject.stringValue() : this.lastSubject.stringValue();
+        // identifiers cannot contain the separator
+        if (this.lastLabel != null) value = value + SEPARATOR + this.lastLabel;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,100 @@
+package org.av360.maverick.graph.store.rdf.helpers;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.ModelBuilder;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compact projection of an entity, used to list entities without querying their statements.
+ *
+ * @param id            the identifier of the entity
+ * @param types         the types of the entity
+ * @param label         the preferred label (or title) of the entity, if any
+ * @param labelProperty the property of the preferred label
+ * @param modified      time of the last write to the entity (if it has been written since the projection has been built),
+ *                      or the modification date stated by the entity itself
+ */
+public record EntitySummary(Resource id, Set<IRI> types, @Nullable Literal label, @Nullable IRI labelProperty, @Nullable Instant modified) {
+
+    public enum Order {
+        IDENTIFIER,
+        LABEL;
+
+        /**
+         * @param value the requested order ("label" or "id"), ordered by identifier if not given
+         */
+        public static Order parse(@Nullable String value) {
+            if (Objects.isNull(value) || value.isBlank() || value.equalsIgnoreCase("id")) return IDENTIFIER;
+            if (value.equalsIgnoreCase("label")) return LABEL;
+            throw new IllegalArgumentException("Invalid sort order: " + value);
+        }
+    }
+
+    /**
+     * Blank nodes are ordered after the IRIs
+     */
+    public static final Comparator<Resource> SUBJECT_ORDER = Comparator.comparing(Resource::isBNode).thenComparing(Resource::stringValue);
+
+    public static final Comparator<EntitySummary> BY_IDENTIFIER = Comparator.comparing(EntitySummary::id, SUBJECT_ORDER);
+
+    /**
+     * Entities without label are ordered after the labelled entities
+     */
+    public static final Comparator<EntitySummary> BY_LABEL = Comparator.comparing(EntitySummary::sortKey, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(BY_IDENTIFIER);
+
+    public static Comparator<EntitySummary> comparator(Order order) {
+        return order == Order.LABEL ? BY_LABEL : BY_IDENTIFIER;
+    }
+
+    /**
+     * @return a summary positioned at the continuation token, to find the following summaries in an ordered set
+     */
+    public static EntitySummary probe(ContinuationToken token) {
+        Literal label = Objects.isNull(token.lastLabel()) ? null : SimpleValueFactory.getInstance().createLiteral(token.lastLabel());
+        return new EntitySummary(token.lastSubject(), Set.of(), label, null, null);
+    }
+
+    @Nullable
+    public String sortKey() {
+        return Objects.isNull(this.label) ? null : this.label.getLabel().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return the token to continue listing after this entity
+     */
+    public ContinuationToken position() {
+        return new ContinuationToken(this.id, Objects.isNull(this.label) ? null : this.label.getLabel());
+    }
+
+    public boolean hasType(IRI type) {
+        return this.types.contains(type);
+    }
+
+    public Model asModel() {
+        ModelBuilder builder = new ModelBuilder();
+        builder.subject(this.id);
+        this.types.forEach(type -> builder.add(RDF.TYPE, type));
+        if (Objects.nonNull(this.label) && Objects.nonNull(this.labelProperty)) {
+            builder.add(this.labelProperty, this.label);
+        }
+        if (Objects.nonNull(this.modified)) {
+            builder.add(DCTERMS.MODIFIED, Date.from(this.modified));
+            builder.setNamespace(DCTERMS.NS);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,135 @@
+package org.av360.maverick.graph.store.rdf.helpers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tracks the progress of a bulk import. The statements are committed in batches, the number of committed statements
+ * is the offset from where an aborted import can be resumed (if the same content is imported again).
+ */
+public class ImportProgress {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String identifier;
+    private final String mimetype;
+    private final AtomicLong committedStatements;
+    private final AtomicLong bytesConsumed;
+    private final AtomicLong batches;
+    private final AtomicReference<State> state;
+    private volatile Instant started;
+    private volatile Instant finished;
+    private volatile long resumedAt;
+    private volatile String message;
+
+    public ImportProgress(String identifier, String mimetype) {
+        this.identifier = identifier;
+        this.mimetype = mimetype;
+        this.committedStatements = new AtomicLong();
+        this.bytesConsumed = new AtomicLong();
+        this.batches = new AtomicLong();
+        this.state = new AtomicReference<>(State.RUNNING);
+        this.started = Instant.now();
+    }
+
+    /**
+     * Restarts a failed import. The statements committed so far are skipped when the content is parsed again. Only one
+     * caller can claim the failed import.
+     *
+     * @return false, if the import has not failed (or has been resumed by another caller)
+     */
+    public boolean resume() {
+        if (!this.state.compareAndSet(State.FAILED, State.RUNNING)) return false;
+
+        this.resumedAt = this.committedStatements.get();
+        this.bytesConsumed.set(0);
+        this.started = Instant.now();
+        this.finished = null;
+        this.message = null;
+        return true;
+    }
+
+    public void addBytes(long bytes) {
+        this.bytesConsumed.addAndGet(bytes);
+    }
+
+    public void batchCommitted(long statements) {
+        this.committedStatements.addAndGet(statements);
+        this.batches.incrementAndGet();
+    }
+
+    public void completed() {
+        this.state.set(State.COMPLETED);
+        this.finished = Instant.now();
+    }
+
+    public void failed(String message) {
+        // the import can be claimed once it is marked as failed
+        this.finished = Instant.now();
+        this.message = message;
+        this.state.set(State.FAILED);
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getMimetype() {
+        return mimetype;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public boolean isRunning() {
+        return this.state.get() == State.RUNNING;
+    }
+
+    public long getCommittedStatements() {
+        return committedStatements.get();
+    }
+
+    /**
+     * @return number of statements committed before the import was resumed (which are skipped while parsing)
+     */
+    public long getResumedAt() {
+        return resumedAt;
+    }
+
+    public long getBytesConsumed() {
+        return bytesConsumed.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public Instant getStarted() {
+        return started;
+    }
+
+    public Instant getFinished() {
+        return finished;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return statements committed per second since the import was (re)started
+     */
+    public double getStatementsPerSecond() {
+        Instant end = Objects.isNull(this.finished) ? Instant.now() : this.finished;
+        long millis = Math.max(1, Duration.between(this.started, end).toMillis());
+        return (this.committedStatements.get() - this.resumedAt) * 1000.0 / millis;
+    }
+}
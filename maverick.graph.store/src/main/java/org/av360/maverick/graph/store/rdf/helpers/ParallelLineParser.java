@@ -0,0 +1,178 @@
+package org.av360.maverick.graph.store.rdf.helpers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.rio.*;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Parses line based formats (N-Triples and N-Quads) in parallel. The input is split into chunks at line boundaries, each
+ * chunk is parsed on a fork-join pool and the statements are handed over to the handler on the calling thread (in the
+ * order of the input, or in the order the chunks have been parsed).
+ * <p>
+ * The scope of blank node labels is the document: the same label in different chunks is the same blank node, the blank
+ * nodes of different documents are distinct. A custom value factory takes over the mapping of the labels (e.g. to create
+ * the same blank nodes whenever the document is parsed).
+ */
+@Slf4j(topic = "graph.repo.import")
+public class ParallelLineParser {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final RDFFormat format;
+    private final int chunkSize;
+    private final boolean ordered;
+    private final ForkJoinPool pool;
+    @Nullable
+    private ValueFactory valueFactory;
+
+    public ParallelLineParser(RDFFormat format) {
+        this(format, DEFAULT_CHUNK_SIZE, true);
+    }
+
+    public ParallelLineParser(RDFFormat format, int chunkSize, boolean ordered) {
+        this(format, chunkSize, ordered, ForkJoinPool.commonPool());
+    }
+
+    public ParallelLineParser(RDFFormat format, int chunkSize, boolean ordered, ForkJoinPool pool) {
+        if (!supports(format)) throw new IllegalArgumentException("Format is not line based: " + format);
+        this.format = format;
+        this.chunkSize = Math.max(1024, chunkSize);
+        this.ordered = ordered;
+        this.pool = pool;
+    }
+
+    /**
+     * @param valueFactory the value factory of the parsers (shared by the parsers of all chunks), which maps the blank node
+     *                     labels to blank nodes
+     */
+    public ParallelLineParser withValueFactory(ValueFactory valueFactory) {
+        this.valueFactory = valueFactory;
+        return this;
+    }
+
+    /**
+     * @return true, if each statement in the format is on its own line
+     */
+    public static boolean supports(RDFFormat format) {
+        return RDFFormat.NTRIPLES.equals(format) || RDFFormat.NQUADS.equals(format);
+    }
+
+    public void parse(InputStream input, RDFHandler handler) throws IOException {
+        // bounds the memory: only a few chunks are parsed (and kept) at the same time
+        int maxInFlight = Math.max(2, this.pool.getParallelism() * 2);
+        Deque<Future<List<Statement>>> inFlight = new ArrayDeque<>();
+        CompletionService<List<Statement>> completed = new ExecutorCompletionService<>(this.pool);
+        ValueFactory documentValueFactory = Objects.nonNull(this.valueFactory) ? this.valueFactory : new DocumentValueFactory();
+
+        handler.startRDF();
+        try {
+            int chunkIndex = 0;
+            byte[] remainder = new byte[0];
+            byte[] buffer;
+            while ((buffer = input.readNBytes(this.chunkSize)).length > 0) {
+                int end = lastLineBreak(buffer);
+                if (end < 0) {
+                    // line is longer than the chunk, continue reading
+                    remainder = concat(remainder, buffer, buffer.length);
+                    continue;
+                }
+
+                byte[] chunk = concat(remainder, buffer, end + 1);
+                remainder = new byte[buffer.length - end - 1];
+                System.arraycopy(buffer, end + 1, remainder, 0, remainder.length);
+
+                this.submit(chunk, chunkIndex++, documentValueFactory, completed, inFlight);
+                if (inFlight.size() >= maxInFlight) this.emitNext(completed, inFlight, handler);
+            }
+            if (remainder.length > 0) this.submit(remainder, chunkIndex++, documentValueFactory, completed, inFlight);
+
+            while (!inFlight.isEmpty()) this.emitNext(completed, inFlight, handler);
+            log.trace("Parsed {} chunks of format {} in parallel", chunkIndex, this.format.getName());
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+        handler.endRDF();
+    }
+
+    private void submit(byte[] chunk, int index, ValueFactory valueFactory, CompletionService<List<Statement>> completed, Deque<Future<List<Statement>>> inFlight) {
+        Callable<List<Statement>> task = () -> this.parseChunk(chunk, index, valueFactory);
+        // in order: the futures are polled from the deque, the completion queue would keep the results of all chunks
+        inFlight.add(this.ordered ? this.pool.submit(task) : completed.submit(task));
+    }
+
+    private void emitNext(CompletionService<List<Statement>> completed, Deque<Future<List<Statement>>> inFlight, RDFHandler handler) {
+        try {
+            Future<List<Statement>> next;
+            if (this.ordered) {
+                next = inFlight.poll();
+            } else {
+                next = completed.take();
+                inFlight.remove(next);
+            }
+            next.get().forEach(handler::handleStatement);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RDFHandlerException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+            throw new RDFParseException(e.getCause());
+        }
+    }
+
+    private List<Statement> parseChunk(byte[] chunk, int index, ValueFactory valueFactory) throws IOException {
+        RDFParser parser = Rio.createParser(this.format, valueFactory);
+        parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+
+        List<Statement> statements = new ArrayList<>();
+        parser.setRDFHandler(new StatementCollector(statements));
+        try {
+            parser.parse(new ByteArrayInputStream(chunk));
+        } catch (RDFParseException e) {
+            throw new RDFParseException("Failed to parse chunk %d (line numbers are relative to the chunk): %s".formatted(index, e.getMessage()), e, e.getLineNumber(), e.getColumnNumber());
+        }
+        return statements;
+    }
+
+    private static int lastLineBreak(byte[] buffer) {
+        for (int i = buffer.length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static byte[] concat(byte[] first, byte[] second, int secondLength) {
+        byte[] result = new byte[first.length + secondLength];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, secondLength);
+        return result;
+    }
+
+    /**
+     * Maps the blank node labels of one document to new blank nodes, shared by the parsers of its chunks.
+     */
+    private static class DocumentValueFactory extends SimpleValueFactory {
+        private final Map<String, BNode> labels = new ConcurrentHashMap<>();
+
+        @Override
+        public BNode createBNode(String nodeID) {
+            return this.labels.computeIfAbsent(nodeID, label -> super.createBNode());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.av360.maverick.graph.store.rdf.helpers;
+
+import org.eclipse.rdf4j.model.Statement;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A page of statements read from a repository cursor, with the token to resume reading after the last statement.
+ *
+ * @param statements the statements in this page
+ * @param next       token for the next page, null if the cursor has been exhausted
+ */
+public record StatementsPage(List<Statement> statements, @Nullable String next) {
+
+    public boolean hasNext() {
+        return this.next != null;
+    }
+
+    /**
+     * Position within an open cursor of the store (the cursor cannot seek, it is kept open between the pages). The
+     * position is the number of statements read from the cursor so far, a token can only be used once.
+     *
+     * @param cursor   identifier of the open cursor, null to start with the first statement
+     * @param position number of statements read from the cursor
+     */
+    public record ResumeToken(@Nullable String cursor, long position) {
+
+        public static final ResumeToken START = new ResumeToken(null, 0);
+
+        public static ResumeToken parse(@Nullable String token) {
+            if (!StringUtils.hasLength(token)) return START;
+
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":");
+                return new ResumeToken(parts[0], Long.parseLong(parts[1]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid resume token: " + token);
+            }
+        }
+
+        public boolean isStart() {
+            return Objects.isNull(this.cursor);
+        }
+
+        public String encode() {
+            Assert.notNull(this.cursor, "The start has no token");
+            return Base64.getUrlEncoder().withoutPadding().encodeToString((this.cursor + ":" + this.position).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.av360.maverick.graph.store.rdf.helpers;
+
+import org.eclipse.rdf4j.model.IRI;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the statistics of a repository, which are maintained with each commit (no counting queries).
+ *
+ * @param statements total number of statements
+ * @param types      number of statements with rdf:type per type (which is the number of instances of each type)
+ * @param predicates number of statements per predicate
+ */
+public record StoreStatistics(long statements, Map<IRI, Long> types, Map<IRI, Long> predicates) {
+
+    public static final StoreStatistics EMPTY = new StoreStatistics(0, Map.of(), Map.of());
+
+    public long countInstances(IRI type) {
+        return this.types.getOrDefault(type, 0L);
+    }
+
+    public long countStatements(IRI predicate) {
+        return this.predicates.getOrDefault(predicate, 0L);
+    }
+}